@@ -0,0 +1,110 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.benchmarks;
+
+import org.finos.waltz.jobs.generators.AppGenerator;
+import org.finos.waltz.jobs.generators.ChangeInitiativeGenerator;
+import org.finos.waltz.jobs.generators.DataTypeGenerator;
+import org.finos.waltz.jobs.generators.FlowClassificationRuleGenerator;
+import org.finos.waltz.jobs.generators.LogicalFlowDecorationGenerator;
+import org.finos.waltz.jobs.generators.LogicalFlowGenerator;
+import org.finos.waltz.jobs.generators.OrgUnitGenerator;
+import org.finos.waltz.jobs.generators.SampleDataGenerator;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.jooq.DSLContext;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.schema.tables.OrganisationalUnit.ORGANISATIONAL_UNIT;
+
+/**
+ * Shared state for the DAO level suites: an embedded H2 database populated by
+ * the sample data generators (see `LoadAll`).  The slower generators (people,
+ * servers, entity statistics) are omitted as the suites do not need them.
+ *
+ * The database is built once per fork, before the warmup iterations.
+ */
+@State(Scope.Benchmark)
+public class SampleEstate {
+
+    private static final SampleDataGenerator[] LOADERS = new SampleDataGenerator[] {
+            new DataTypeGenerator(),
+            new OrgUnitGenerator(),
+            new AppGenerator(),
+            new ChangeInitiativeGenerator(),
+            new FlowClassificationRuleGenerator(),
+            new LogicalFlowGenerator(),
+            new LogicalFlowDecorationGenerator()
+    };
+
+    private AnnotationConfigApplicationContext ctx;
+    private EntityReference rootOrgUnit;
+
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ctx = new AnnotationConfigApplicationContext(BenchmarkConfiguration.class);
+
+        for (SampleDataGenerator loader : LOADERS) {
+            loader.remove(ctx);
+            loader.create(ctx);
+        }
+
+        Long rootOrgUnitId = getDsl()
+                .select(ORGANISATIONAL_UNIT.ID)
+                .from(ORGANISATIONAL_UNIT)
+                .where(ORGANISATIONAL_UNIT.PARENT_ID.isNull())
+                .orderBy(ORGANISATIONAL_UNIT.ID)
+                .limit(1)
+                .fetchOne(ORGANISATIONAL_UNIT.ID);
+
+        rootOrgUnit = mkRef(EntityKind.ORG_UNIT, rootOrgUnitId);
+    }
+
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ctx.close();
+    }
+
+
+    public <T> T getBean(Class<T> type) {
+        return ctx.getBean(type);
+    }
+
+
+    public DSLContext getDsl() {
+        return getBean(DSLContext.class);
+    }
+
+
+    /**
+     * @return the top of the org unit tree, selecting 'children' of this gives the whole estate
+     */
+    public EntityReference getRootOrgUnit() {
+        return rootOrgUnit;
+    }
+
+}
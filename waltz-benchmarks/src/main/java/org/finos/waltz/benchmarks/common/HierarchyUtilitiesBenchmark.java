@@ -0,0 +1,94 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.benchmarks.common;
+
+import org.finos.waltz.common.hierarchy.FlatNode;
+import org.finos.waltz.common.hierarchy.Forest;
+import org.finos.waltz.common.hierarchy.HierarchyUtilities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building forests (used when rebuilding entity hierarchies and by the
+ * taxonomy management screens) and assigning depths to their nodes.
+ *
+ * The trees are randomly shaped (each node picks a random earlier node as its
+ * parent) with a small number of roots, similar to a large measurable category.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HierarchyUtilitiesBenchmark {
+
+    private static final int ROOT_COUNT = 5;
+
+    @Param({"1000", "20000"})
+    public int nodeCount;
+
+    private List<FlatNode<String, Long>> flatNodes;
+    private Forest<String, Long> forest;
+
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+
+        flatNodes = new ArrayList<>(nodeCount);
+        for (long id = 0; id < nodeCount; id++) {
+            Optional<Long> parentId = id < ROOT_COUNT
+                    ? Optional.empty()
+                    : Optional.of((long) random.nextInt((int) id));
+            flatNodes.add(new FlatNode<>(id, parentId, "node " + id));
+        }
+
+        forest = HierarchyUtilities.toForest(flatNodes);
+    }
+
+
+    @Benchmark
+    public Forest<String, Long> toForest() {
+        return HierarchyUtilities.toForest(flatNodes);
+    }
+
+
+    @Benchmark
+    public Map<Long, Integer> assignDepths() {
+        return HierarchyUtilities.assignDepths(forest);
+    }
+
+}
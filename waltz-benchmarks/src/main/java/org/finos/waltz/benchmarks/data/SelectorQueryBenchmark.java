@@ -0,0 +1,107 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.benchmarks.data;
+
+import org.finos.waltz.benchmarks.SampleEstate;
+import org.finos.waltz.data.application.ApplicationDao;
+import org.finos.waltz.data.application.ApplicationIdSelectorFactory;
+import org.finos.waltz.data.logical_flow.LogicalFlowDao;
+import org.finos.waltz.data.logical_flow.LogicalFlowIdSelectorFactory;
+import org.finos.waltz.data.logical_flow.LogicalFlowStatsDao;
+import org.finos.waltz.model.HierarchyQueryScope;
+import org.finos.waltz.model.IdSelectionOptions;
+import org.finos.waltz.model.application.Application;
+import org.finos.waltz.model.logical_flow.LogicalFlow;
+import org.finos.waltz.model.logical_flow.LogicalFlowMeasures;
+import org.finos.waltz.model.tally.TallyPack;
+import org.jooq.Record1;
+import org.jooq.Select;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.finos.waltz.model.IdSelectionOptions.mkOpts;
+
+/**
+ * The selector based queries behind the org unit (and other group) pages,
+ * run against the whole of the sample estate.  Selector construction is
+ * included as it is repeated for every request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SelectorQueryBenchmark {
+
+    private final ApplicationIdSelectorFactory appIdSelectorFactory = new ApplicationIdSelectorFactory();
+    private final LogicalFlowIdSelectorFactory flowIdSelectorFactory = new LogicalFlowIdSelectorFactory();
+
+    private ApplicationDao applicationDao;
+    private LogicalFlowDao logicalFlowDao;
+    private LogicalFlowStatsDao logicalFlowStatsDao;
+    private IdSelectionOptions wholeEstate;
+
+
+    @Setup
+    public void setup(SampleEstate estate) {
+        applicationDao = estate.getBean(ApplicationDao.class);
+        logicalFlowDao = estate.getBean(LogicalFlowDao.class);
+        logicalFlowStatsDao = estate.getBean(LogicalFlowStatsDao.class);
+        wholeEstate = mkOpts(estate.getRootOrgUnit(), HierarchyQueryScope.CHILDREN);
+    }
+
+
+    @Benchmark
+    public List<Application> findApplications() {
+        return applicationDao.findByAppIdSelector(appIdSelectorFactory.apply(wholeEstate));
+    }
+
+
+    @Benchmark
+    public List<LogicalFlow> findLogicalFlows() {
+        return logicalFlowDao.findBySelector(flowIdSelectorFactory.apply(wholeEstate));
+    }
+
+
+    @Benchmark
+    public LogicalFlowMeasures countFlowInvolvement() {
+        Select<Record1<Long>> appIdSelector = appIdSelectorFactory.apply(wholeEstate);
+        return logicalFlowStatsDao.countDistinctFlowInvolvementByAppIdSelector(appIdSelector);
+    }
+
+
+    @Benchmark
+    public List<TallyPack<String>> tallyDataTypes() {
+        Select<Record1<Long>> appIdSelector = appIdSelectorFactory.apply(wholeEstate);
+        return logicalFlowStatsDao.tallyDataTypesByAppIdSelector(appIdSelector);
+    }
+
+}
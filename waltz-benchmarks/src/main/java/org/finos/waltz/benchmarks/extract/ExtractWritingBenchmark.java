@@ -0,0 +1,210 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.benchmarks.extract;
+
+import org.finos.waltz.benchmarks.SampleEstate;
+import org.finos.waltz.schema.tables.Application;
+import org.finos.waltz.schema.tables.OrganisationalUnit;
+import org.finos.waltz.web.endpoints.extracts.DirectQueryBasedDataExtractor;
+import org.jooq.DSLContext;
+import org.jooq.Select;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import spark.Request;
+import spark.RequestResponseFactory;
+import spark.Response;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+import static org.finos.waltz.schema.Tables.LOGICAL_FLOW;
+import static org.finos.waltz.schema.tables.Application.APPLICATION;
+import static org.finos.waltz.schema.tables.OrganisationalUnit.ORGANISATIONAL_UNIT;
+
+/**
+ * Writes a logical flow extract (flows with their source and target apps and
+ * org units) as CSV and as XLSX using the `DirectQueryBasedDataExtractor` from
+ * waltz-web (via its attached classes jar).  The spark request and response are
+ * minimal stand-ins, output is discarded and only the number of bytes written
+ * is kept.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtractWritingBenchmark {
+
+    private BenchmarkExtractor extractor;
+    private Select<?> qry;
+
+
+    @Setup
+    public void setup(SampleEstate estate) {
+        DSLContext dsl = estate.getDsl();
+        extractor = new BenchmarkExtractor(dsl);
+
+        Application sourceApp = APPLICATION.as("source_app");
+        Application targetApp = APPLICATION.as("target_app");
+        OrganisationalUnit sourceOrgUnit = ORGANISATIONAL_UNIT.as("source_ou");
+        OrganisationalUnit targetOrgUnit = ORGANISATIONAL_UNIT.as("target_ou");
+
+        qry = dsl
+                .select(sourceApp.NAME.as("Source"),
+                        sourceApp.ASSET_CODE.as("Source Asset Code"),
+                        sourceOrgUnit.NAME.as("Source Org Unit"),
+                        targetApp.NAME.as("Target"),
+                        targetApp.ASSET_CODE.as("Target Asset Code"),
+                        targetOrgUnit.NAME.as("Target Org Unit"),
+                        LOGICAL_FLOW.LAST_UPDATED_AT.as("Last Updated At"),
+                        LOGICAL_FLOW.LAST_UPDATED_BY.as("Last Updated By"))
+                .from(LOGICAL_FLOW)
+                .innerJoin(sourceApp).on(sourceApp.ID.eq(LOGICAL_FLOW.SOURCE_ENTITY_ID))
+                .innerJoin(targetApp).on(targetApp.ID.eq(LOGICAL_FLOW.TARGET_ENTITY_ID))
+                .innerJoin(sourceOrgUnit).on(sourceOrgUnit.ID.eq(sourceApp.ORGANISATIONAL_UNIT_ID))
+                .innerJoin(targetOrgUnit).on(targetOrgUnit.ID.eq(targetApp.ORGANISATIONAL_UNIT_ID));
+    }
+
+
+    @Benchmark
+    public long writeCsv() throws IOException {
+        return writeExtract("CSV");
+    }
+
+
+    @Benchmark
+    public long writeXlsx() throws IOException {
+        return writeExtract("XLSX");
+    }
+
+
+    // --- helpers ---
+
+    private long writeExtract(String format) throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        extractor.write(qry, mkRequest(format), RequestResponseFactory.create(mkHttpResponse(out)));
+        return out.getCount();
+    }
+
+
+    private static Request mkRequest(String format) {
+        return new Request() {
+            @Override
+            public String queryParams(String queryParam) {
+                return "format".equals(queryParam) ? format : null;
+            }
+
+            @Override
+            public String headers(String header) {
+                return null;
+            }
+        };
+    }
+
+
+    /**
+     * Only `getOutputStream` is meaningful, header setters etc are ignored.
+     */
+    private static HttpServletResponse mkHttpResponse(ServletOutputStream out) {
+        return (HttpServletResponse) Proxy.newProxyInstance(
+                ExtractWritingBenchmark.class.getClassLoader(),
+                new Class<?>[]{HttpServletResponse.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getOutputStream")) {
+                        return out;
+                    }
+                    Class<?> returnType = method.getReturnType();
+                    if (returnType == boolean.class) {
+                        return false;
+                    } else if (returnType == int.class) {
+                        return 0;
+                    } else if (returnType == long.class) {
+                        return 0L;
+                    } else {
+                        return null;
+                    }
+                });
+    }
+
+
+    private static class BenchmarkExtractor extends DirectQueryBasedDataExtractor {
+
+        private BenchmarkExtractor(DSLContext dsl) {
+            super(dsl);
+        }
+
+
+        @Override
+        public void register() {
+        }
+
+
+        private void write(Select<?> qry, Request request, Response response) throws IOException {
+            writeExtract("flows", qry, request, response);
+        }
+    }
+
+
+    private static class CountingOutputStream extends ServletOutputStream {
+
+        private long count = 0;
+
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+
+
+        private long getCount() {
+            return count;
+        }
+    }
+
+}
@@ -0,0 +1,267 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.benchmarks.flow_classification_rule;
+
+import org.finos.waltz.common.hierarchy.FlatNode;
+import org.finos.waltz.common.hierarchy.HierarchySnapshot;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.flow_classification_rule.FlowClassificationRuleVantagePoint;
+import org.finos.waltz.model.flow_classification_rule.ImmutableFlowClassificationRuleVantagePoint;
+import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
+import org.finos.waltz.service.flow_classification_rule.FlowClassificationRuleResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.finos.waltz.common.MapUtilities.groupAndThen;
+import static org.finos.waltz.common.MapUtilities.isEmpty;
+import static org.finos.waltz.model.EntityReference.mkRef;
+
+/**
+ * Compares the packed key `FlowClassificationRuleResolver` with the nested map
+ * implementation it replaced, using a synthetic estate.  Run via `main` from the
+ * IDE, or as part of the benchmarks jar:
+ *
+ * <ul>
+ *     <li>`mapBased`: previous implementation, pre-expanded vantage points</li>
+ *     <li>`packedByReference`: new resolver, pre-expanded vantage points, reference based api</li>
+ *     <li>`packedByPrimitive`: new resolver, pre-expanded vantage points, primitive api</li>
+ *     <li>`packedWithHierarchies`: new resolver, declared vantage points, walking the hierarchies</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlowClassificationRuleResolverBenchmark {
+
+    private static final int ORG_UNIT_COUNT = 500;
+    private static final int DATA_TYPE_COUNT = 200;
+    private static final int APP_COUNT = 5_000;
+    private static final int RULE_COUNT = 1_000;
+    private static final int LOOKUP_COUNT = 100_000;
+
+    private MapBasedResolver mapBasedResolver;
+    private FlowClassificationRuleResolver expandedResolver;
+    private FlowClassificationRuleResolver hierarchyResolver;
+
+    private EntityReference[] lookupOrgUnits;
+    private EntityReference[] lookupSources;
+    private long[] lookupOrgUnitIds;
+    private long[] lookupSourceIds;
+    private long[] lookupDataTypeIds;
+
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+
+        HierarchySnapshot orgUnits = mkTree(ORG_UNIT_COUNT, 4);
+        HierarchySnapshot dataTypes = mkTree(DATA_TYPE_COUNT, 3);
+
+        List<FlowClassificationRuleVantagePoint> declared = new ArrayList<>();
+        List<FlowClassificationRuleVantagePoint> expanded = new ArrayList<>();
+
+        for (int i = 0; i < RULE_COUNT; i++) {
+            // avoid the top of the trees, otherwise the expansion is unrealistically large
+            long ouId = 20 + random.nextInt(ORG_UNIT_COUNT - 20);
+            long dtId = 10 + random.nextInt(DATA_TYPE_COUNT - 10);
+            long appId = random.nextInt(APP_COUNT);
+            String code = random.nextBoolean() ? "PRIMARY" : "SECONDARY";
+
+            declared.add(mkVantagePoint(i, ouId, orgUnits.depthOf(ouId), dtId, dataTypes.depthOf(dtId), appId, code));
+
+            for (long descendantOuId : orgUnits.findDescendantIds(ouId)) {
+                for (long descendantDtId : dataTypes.findDescendantIds(dtId)) {
+                    expanded.add(mkVantagePoint(i, descendantOuId, orgUnits.depthOf(ouId), descendantDtId, dataTypes.depthOf(dtId), appId, code));
+                }
+            }
+        }
+
+        mapBasedResolver = new MapBasedResolver(expanded);
+        expandedResolver = new FlowClassificationRuleResolver(expanded);
+        hierarchyResolver = new FlowClassificationRuleResolver(declared, orgUnits, dataTypes);
+
+        lookupOrgUnits = new EntityReference[LOOKUP_COUNT];
+        lookupSources = new EntityReference[LOOKUP_COUNT];
+        lookupOrgUnitIds = new long[LOOKUP_COUNT];
+        lookupSourceIds = new long[LOOKUP_COUNT];
+        lookupDataTypeIds = new long[LOOKUP_COUNT];
+
+        for (int i = 0; i < LOOKUP_COUNT; i++) {
+            lookupOrgUnitIds[i] = random.nextInt(ORG_UNIT_COUNT);
+            lookupSourceIds[i] = random.nextInt(APP_COUNT);
+            lookupDataTypeIds[i] = random.nextInt(DATA_TYPE_COUNT);
+            lookupOrgUnits[i] = mkRef(EntityKind.ORG_UNIT, lookupOrgUnitIds[i]);
+            lookupSources[i] = mkRef(EntityKind.APPLICATION, lookupSourceIds[i]);
+        }
+    }
+
+
+    @Benchmark
+    public void mapBased(Blackhole blackhole) {
+        for (int i = 0; i < LOOKUP_COUNT; i++) {
+            blackhole.consume(mapBasedResolver.resolve(lookupOrgUnits[i], lookupSources[i], lookupDataTypeIds[i]));
+        }
+    }
+
+
+    @Benchmark
+    public void packedByReference(Blackhole blackhole) {
+        for (int i = 0; i < LOOKUP_COUNT; i++) {
+            blackhole.consume(expandedResolver.resolve(lookupOrgUnits[i], lookupSources[i], lookupDataTypeIds[i]));
+        }
+    }
+
+
+    @Benchmark
+    public void packedByPrimitive(Blackhole blackhole) {
+        for (int i = 0; i < LOOKUP_COUNT; i++) {
+            blackhole.consume(expandedResolver.resolve(
+                    EntityKind.ORG_UNIT,
+                    lookupOrgUnitIds[i],
+                    EntityKind.APPLICATION,
+                    lookupSourceIds[i],
+                    lookupDataTypeIds[i]));
+        }
+    }
+
+
+    @Benchmark
+    public void packedWithHierarchies(Blackhole blackhole) {
+        for (int i = 0; i < LOOKUP_COUNT; i++) {
+            blackhole.consume(hierarchyResolver.resolve(
+                    EntityKind.ORG_UNIT,
+                    lookupOrgUnitIds[i],
+                    EntityKind.APPLICATION,
+                    lookupSourceIds[i],
+                    lookupDataTypeIds[i]));
+        }
+    }
+
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FlowClassificationRuleResolverBenchmark.class.getSimpleName())
+                .build())
+            .run();
+    }
+
+
+    // --- helpers ---
+
+    /**
+     * Balanced tree, node 0 is the root, each node has (up to) `fanOut` children
+     */
+    private static HierarchySnapshot mkTree(int size, int fanOut) {
+        List<FlatNode<Long, Long>> nodes = new ArrayList<>();
+        for (long id = 0; id < size; id++) {
+            Optional<Long> parentId = id == 0
+                    ? Optional.empty()
+                    : Optional.of((id - 1) / fanOut);
+            nodes.add(new FlatNode<>(id, parentId, id));
+        }
+        return HierarchySnapshot.build(1, nodes);
+    }
+
+
+    private static FlowClassificationRuleVantagePoint mkVantagePoint(long ruleId,
+                                                                     long ouId,
+                                                                     int ouRank,
+                                                                     long dtId,
+                                                                     int dtRank,
+                                                                     long appId,
+                                                                     String code) {
+        return ImmutableFlowClassificationRuleVantagePoint
+                .builder()
+                .ruleId(ruleId)
+                .vantagePoint(mkRef(EntityKind.ORG_UNIT, ouId))
+                .vantagePointRank(ouRank)
+                .dataType(mkRef(EntityKind.DATA_TYPE, dtId))
+                .dataTypeRank(dtRank)
+                .subjectReference(mkRef(EntityKind.APPLICATION, appId))
+                .classificationCode(code)
+                .build();
+    }
+
+
+    /**
+     * The nested map based resolver previously used, kept as a baseline.
+     */
+    private static class MapBasedResolver {
+
+        private final Map<EntityReference, Map<Long, Map<EntityReference, Optional<FlowClassificationRuleVantagePoint>>>> byOuThenDataTypeThenSubject;
+
+
+        private MapBasedResolver(List<FlowClassificationRuleVantagePoint> vantagePoints) {
+            byOuThenDataTypeThenSubject = groupAndThen(
+                    vantagePoints,
+                    FlowClassificationRuleVantagePoint::vantagePoint,
+                    byOus -> groupAndThen(
+                            byOus,
+                            byOu -> byOu.dataType().id(),
+                            byDts -> groupAndThen(
+                                    byDts,
+                                    FlowClassificationRuleVantagePoint::subjectReference,
+                                    FlowClassificationRuleResolver::getMostSpecificRanked)));
+        }
+
+
+        private AuthoritativenessRatingValue resolve(EntityReference vantagePoint,
+                                                     EntityReference source,
+                                                     Long dataTypeId) {
+            Map<Long, Map<EntityReference, Optional<FlowClassificationRuleVantagePoint>>> ouGroup = byOuThenDataTypeThenSubject.get(vantagePoint);
+            if (isEmpty(ouGroup)) {
+                return AuthoritativenessRatingValue.NO_OPINION;
+            }
+
+            Map<EntityReference, Optional<FlowClassificationRuleVantagePoint>> dataTypeGroup = ouGroup.get(dataTypeId);
+            if (isEmpty(dataTypeGroup)) {
+                return AuthoritativenessRatingValue.NO_OPINION;
+            }
+
+            return dataTypeGroup
+                    .getOrDefault(source, Optional.empty())
+                    .map(r -> AuthoritativenessRatingValue.of(r.classificationCode()))
+                    .orElse(AuthoritativenessRatingValue.DISCOURAGED);
+        }
+    }
+
+}
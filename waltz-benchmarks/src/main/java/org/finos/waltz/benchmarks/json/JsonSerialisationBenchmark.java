@@ -0,0 +1,153 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.benchmarks.json;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.finos.waltz.common.JacksonUtilities;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.application.Application;
+import org.finos.waltz.model.application.ApplicationKind;
+import org.finos.waltz.model.application.ImmutableApplication;
+import org.finos.waltz.model.application.LifecyclePhase;
+import org.finos.waltz.model.external_identifier.ExternalIdValue;
+import org.finos.waltz.model.logical_flow.ImmutableLogicalFlow;
+import org.finos.waltz.model.logical_flow.LogicalFlow;
+import org.finos.waltz.model.rating.RagRating;
+import org.finos.waltz.model.report_grid.ImmutableReportGridCell;
+import org.finos.waltz.model.report_grid.ReportGridCell;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.finos.waltz.model.EntityReference.mkRef;
+
+/**
+ * Serialising the larger responses sent to the UI with the mapper used by the
+ * web layer.  Sizes are roughly those of a large org unit page: several thousand
+ * applications, tens of thousands of flows and a populated report grid.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerialisationBenchmark {
+
+    private static final int APP_COUNT = 5_000;
+    private static final int FLOW_COUNT = 20_000;
+    private static final int GRID_CELL_COUNT = 50_000;
+
+    private final ObjectMapper mapper = JacksonUtilities.getJsonMapper();
+
+    private List<Application> apps;
+    private List<LogicalFlow> flows;
+    private List<ReportGridCell> gridCells;
+    private byte[] appsJson;
+
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+
+        apps = new ArrayList<>(APP_COUNT);
+        for (long id = 1; id <= APP_COUNT; id++) {
+            apps.add(ImmutableApplication
+                    .builder()
+                    .id(id)
+                    .name("app " + id)
+                    .description("Description of application " + id)
+                    .assetCode(ExternalIdValue.of("ASSET-" + id))
+                    .organisationalUnitId((long) random.nextInt(500))
+                    .applicationKind(ApplicationKind.IN_HOUSE)
+                    .lifecyclePhase(LifecyclePhase.PRODUCTION)
+                    .overallRating(RagRating.G)
+                    .commissionDate(now)
+                    .build());
+        }
+
+        flows = new ArrayList<>(FLOW_COUNT);
+        for (long id = 1; id <= FLOW_COUNT; id++) {
+            flows.add(ImmutableLogicalFlow
+                    .builder()
+                    .id(id)
+                    .source(mkRef(EntityKind.APPLICATION, random.nextInt(APP_COUNT), "source app"))
+                    .target(mkRef(EntityKind.APPLICATION, random.nextInt(APP_COUNT), "target app"))
+                    .lastUpdatedBy("benchmark")
+                    .lastUpdatedAt(now)
+                    .build());
+        }
+
+        gridCells = new ArrayList<>(GRID_CELL_COUNT);
+        for (int i = 0; i < GRID_CELL_COUNT; i++) {
+            gridCells.add(ImmutableReportGridCell
+                    .builder()
+                    .columnDefinitionId((long) (i % 20))
+                    .subjectId(i / 20)
+                    .numberValue(BigDecimal.valueOf(random.nextInt(10_000)))
+                    .textValue("value " + i)
+                    .build());
+        }
+
+        appsJson = mapper.writeValueAsBytes(apps);
+    }
+
+
+    @Benchmark
+    public byte[] writeApplications() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(apps);
+    }
+
+
+    @Benchmark
+    public byte[] writeLogicalFlows() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(flows);
+    }
+
+
+    @Benchmark
+    public byte[] writeReportGridCells() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(gridCells);
+    }
+
+
+    @Benchmark
+    public List<Application> readApplications() throws IOException {
+        return mapper.readValue(appsJson, new TypeReference<List<Application>>() {});
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.benchmarks.report_grid;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.application.LifecyclePhase;
+import org.finos.waltz.model.report_grid.ImmutableReportGridCell;
+import org.finos.waltz.model.report_grid.ImmutableReportGridDefinition;
+import org.finos.waltz.model.report_grid.ImmutableReportGridDerivedColumnDefinition;
+import org.finos.waltz.model.report_grid.ImmutableReportGridFixedColumnDefinition;
+import org.finos.waltz.model.report_grid.ImmutableReportGridInstance;
+import org.finos.waltz.model.report_grid.ImmutableReportSubject;
+import org.finos.waltz.model.report_grid.ReportGridCell;
+import org.finos.waltz.model.report_grid.ReportGridDefinition;
+import org.finos.waltz.model.report_grid.ReportGridDerivedColumnDefinition;
+import org.finos.waltz.model.report_grid.ReportGridFixedColumnDefinition;
+import org.finos.waltz.model.report_grid.ReportGridInstance;
+import org.finos.waltz.model.report_grid.ReportSubject;
+import org.finos.waltz.service.report_grid.ReportGridColumnCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.finos.waltz.model.EntityReference.mkRef;
+
+/**
+ * Evaluating the derived (scripted) columns of a report grid.  The grid has two
+ * fixed cost columns, sparsely populated, and derived columns which refer to
+ * the fixed columns, the subject and to each other.
+ *
+ * Small grids are evaluated on the calling thread, larger ones are split across
+ * the fork-join pool, hence the two sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportGridColumnCalculatorBenchmark {
+
+    private static final long RUN_COST_COL = 1L;
+    private static final long CHANGE_COST_COL = 2L;
+
+    @Param({"200", "10000"})
+    public int subjectCount;
+
+    private ReportGridDefinition definition;
+    private ReportGridInstance instance;
+
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+
+        definition = ImmutableReportGridDefinition
+                .builder()
+                .id(1L)
+                .name("benchmark grid")
+                .lastUpdatedBy("benchmark")
+                .subjectKind(EntityKind.APPLICATION)
+                .addFixedColumnDefinitions(
+                        mkFixedCol(RUN_COST_COL, "RUN_COST"),
+                        mkFixedCol(CHANGE_COST_COL, "CHANGE_COST"))
+                .addDerivedColumnDefinitions(
+                        // defined before the column it depends upon
+                        mkDerivedCol(10L, "REVIEW", "cell('COST_BAND') == 'HIGH' && subjectLifecyclePhase == 'PRODUCTION' ? 'REVIEW' : 'OK'"),
+                        mkDerivedCol(11L, "COST_BAND", "cell('RUN_COST') == null ? 'UNKNOWN' : (cell('RUN_COST').numberValue() > 5000 ? 'HIGH' : 'LOW')"),
+                        mkDerivedCol(12L, "COMPLETENESS", "percentageProvided('RUN_COST', 'CHANGE_COST')"),
+                        mkDerivedCol(13L, "LABEL", "subjectName + ' (' + subjectId + ')'"))
+                .build();
+
+        Set<ReportSubject> subjects = new HashSet<>();
+        Set<ReportGridCell> cells = new HashSet<>();
+
+        for (long id = 1; id <= subjectCount; id++) {
+            subjects.add(ImmutableReportSubject
+                    .builder()
+                    .entityReference(mkRef(EntityKind.APPLICATION, id, "app " + id))
+                    .lifecyclePhase(random.nextBoolean() ? LifecyclePhase.PRODUCTION : LifecyclePhase.DEVELOPMENT)
+                    .build());
+
+            if (random.nextInt(10) < 8) {
+                cells.add(mkCostCell(RUN_COST_COL, id, random.nextInt(10_000)));
+            }
+            if (random.nextInt(10) < 5) {
+                cells.add(mkCostCell(CHANGE_COST_COL, id, random.nextInt(10_000)));
+            }
+        }
+
+        instance = ImmutableReportGridInstance
+                .builder()
+                .subjects(subjects)
+                .cellData(cells)
+                .build();
+    }
+
+
+    @Benchmark
+    public Set<ReportGridCell> calculate() {
+        return ReportGridColumnCalculator.calculate(instance, definition);
+    }
+
+
+    // --- helpers ---
+
+    private static ReportGridFixedColumnDefinition mkFixedCol(long id, String extId) {
+        return ImmutableReportGridFixedColumnDefinition
+                .builder()
+                .id(id)
+                .gridColumnId(id)
+                .columnEntityKind(EntityKind.COST_KIND)
+                .columnEntityId(id)
+                .columnName(extId)
+                .externalId(extId)
+                .position((int) id)
+                .build();
+    }
+
+
+    private static ReportGridDerivedColumnDefinition mkDerivedCol(long id, String extId, String script) {
+        return ImmutableReportGridDerivedColumnDefinition
+                .builder()
+                .id(id)
+                .gridColumnId(id)
+                .displayName(extId)
+                .externalId(extId)
+                .position((int) id)
+                .derivationScript(script)
+                .build();
+    }
+
+
+    private static ReportGridCell mkCostCell(long columnId, long subjectId, int amount) {
+        return ImmutableReportGridCell
+                .builder()
+                .columnDefinitionId(columnId)
+                .subjectId(subjectId)
+                .numberValue(BigDecimal.valueOf(amount))
+                .build();
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.benchmarks.search;
+
+import org.finos.waltz.data.SearchUtilities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Relevancy sorting of search results, as done by the search DAOs after the
+ * database has returned its (unordered) matches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchUtilitiesBenchmark {
+
+    private static final String[] WORDS = {
+            "trade", "settlement", "risk", "ledger", "payments", "client", "reference",
+            "data", "equities", "rates", "credit", "reporting", "gateway", "hub", "engine"
+    };
+
+    @Param({"100", "5000"})
+    public int resultCount;
+
+    private List<String> results;
+    private Comparator<String> comparator;
+
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        results = new ArrayList<>(resultCount);
+        for (int i = 0; i < resultCount; i++) {
+            results.add(String.format(
+                    "%s %s %s %d",
+                    WORDS[random.nextInt(WORDS.length)],
+                    WORDS[random.nextInt(WORDS.length)],
+                    WORDS[random.nextInt(WORDS.length)],
+                    i));
+        }
+
+        comparator = SearchUtilities.mkRelevancyComparator(Function.identity(), "risk");
+    }
+
+
+    @Benchmark
+    public List<String> mkTerms() {
+        return SearchUtilities.mkTerms("Trade settlement risk 'payments hub'");
+    }
+
+
+    @Benchmark
+    public List<String> sortByRelevancy() {
+        List<String> sorted = new ArrayList<>(results);
+        sorted.sort(comparator);
+        return sorted;
+    }
+
+}
@@ -0,0 +1,281 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.common;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+
+import static java.lang.String.format;
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * An immutable set of (non-negative) database ids held as a bitmap.
+ *
+ * Intended for the case where many sets drawn from the same id space need to be
+ * intersected or counted, e.g. the applications associated to each cell of a diagram.
+ * Intersections and cardinality counts work a word (64 ids) at a time and
+ * `andCardinality` does not allocate.  Storage is proportional to the range of
+ * ids held (one bit per id), leading and trailing empty words are not stored.
+ */
+public class IdBitmap {
+
+    private static final IdBitmap EMPTY = new IdBitmap(0, new long[0]);
+
+    /** index of the word held in `words[0]`, i.e. the number of leading empty words not stored */
+    private final int firstWord;
+    private final long[] words;
+    private final int cardinality;
+
+
+    private IdBitmap(int firstWord, long[] words) {
+        this.firstWord = firstWord;
+        this.words = words;
+        this.cardinality = countBits(words, words.length);
+    }
+
+
+    public static IdBitmap empty() {
+        return EMPTY;
+    }
+
+
+    public static IdBitmap of(long... ids) {
+        checkNotNull(ids, "ids cannot be null");
+        Builder builder = builder();
+        for (long id : ids) {
+            builder.add(id);
+        }
+        return builder.build();
+    }
+
+
+    public static IdBitmap of(Collection<Long> ids) {
+        checkNotNull(ids, "ids cannot be null");
+        Builder builder = builder();
+        ids.forEach(builder::add);
+        return builder.build();
+    }
+
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+
+    public boolean contains(long id) {
+        if (id < 0) {
+            return false;
+        }
+        long wordIdx = (id >>> 6) - firstWord;
+        return wordIdx >= 0
+                && wordIdx < words.length
+                && (words[(int) wordIdx] & (1L << id)) != 0;
+    }
+
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+
+    /**
+     * @return approximate heap usage of this bitmap, in bytes
+     */
+    public long estimatedBytes() {
+        return 40L + 8L * words.length;
+    }
+
+
+    public IdBitmap and(IdBitmap other) {
+        checkNotNull(other, "other cannot be null");
+        int start = Math.max(firstWord, other.firstWord);
+        int end = Math.min(endWord(), other.endWord());
+        if (start >= end) {
+            return EMPTY;
+        }
+        long[] result = new long[end - start];
+        for (int w = start; w < end; w++) {
+            result[w - start] = words[w - firstWord] & other.words[w - other.firstWord];
+        }
+        return mk(start, result);
+    }
+
+
+    public IdBitmap or(IdBitmap other) {
+        checkNotNull(other, "other cannot be null");
+        if (other.isEmpty()) {
+            return this;
+        } else if (isEmpty()) {
+            return other;
+        }
+        int start = Math.min(firstWord, other.firstWord);
+        int end = Math.max(endWord(), other.endWord());
+        long[] result = new long[end - start];
+        System.arraycopy(words, 0, result, firstWord - start, words.length);
+        for (int i = 0; i < other.words.length; i++) {
+            result[other.firstWord - start + i] |= other.words[i];
+        }
+        return mk(start, result);
+    }
+
+
+    /**
+     * Equivalent to `and(other).cardinality()` without creating the intermediate bitmap.
+     */
+    public int andCardinality(IdBitmap other) {
+        checkNotNull(other, "other cannot be null");
+        int start = Math.max(firstWord, other.firstWord);
+        int end = Math.min(endWord(), other.endWord());
+        int count = 0;
+        for (int w = start; w < end; w++) {
+            count += Long.bitCount(words[w - firstWord] & other.words[w - other.firstWord]);
+        }
+        return count;
+    }
+
+
+    public void forEach(LongConsumer consumer) {
+        checkNotNull(consumer, "consumer cannot be null");
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i];
+            while (word != 0) {
+                int bit = Long.numberOfTrailingZeros(word);
+                consumer.accept(((long) (firstWord + i) << 6) + bit);
+                word &= word - 1;
+            }
+        }
+    }
+
+
+    /**
+     * @return the ids in ascending order
+     */
+    public LongStream stream() {
+        LongStream.Builder builder = LongStream.builder();
+        forEach(builder::add);
+        return builder.build();
+    }
+
+
+    public Set<Long> toSet() {
+        Set<Long> result = new HashSet<>(cardinality * 2);
+        forEach(result::add);
+        return result;
+    }
+
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        IdBitmap idBitmap = (IdBitmap) o;
+        return firstWord == idBitmap.firstWord
+                && Arrays.equals(words, idBitmap.words);
+    }
+
+
+    @Override
+    public int hashCode() {
+        return 31 * firstWord + Arrays.hashCode(words);
+    }
+
+
+    @Override
+    public String toString() {
+        return format("IdBitmap{cardinality=%d}", cardinality);
+    }
+
+
+    // --- helpers ---
+
+    private int endWord() {
+        return firstWord + words.length;
+    }
+
+
+    private static IdBitmap mk(int firstWord, long[] words) {
+        int from = 0;
+        int to = words.length;
+        while (to > 0 && words[to - 1] == 0) {
+            to--;
+        }
+        while (from < to && words[from] == 0) {
+            from++;
+        }
+        if (from == to) {
+            return EMPTY;
+        }
+        return new IdBitmap(
+                firstWord + from,
+                from == 0 && to == words.length
+                        ? words
+                        : Arrays.copyOfRange(words, from, to));
+    }
+
+
+    private static int countBits(long[] words, int len) {
+        int count = 0;
+        for (int i = 0; i < len; i++) {
+            count += Long.bitCount(words[i]);
+        }
+        return count;
+    }
+
+
+    /**
+     * Accumulates ids prior to building an immutable bitmap.  Not thread safe.
+     */
+    public static class Builder {
+
+        private final BitSet bits = new BitSet();
+
+
+        private Builder() {
+        }
+
+
+        /**
+         * @param id  a non-negative id no greater than `Integer.MAX_VALUE`
+         * @throws IllegalArgumentException if the id is out of range
+         */
+        public Builder add(long id) {
+            if (id < 0 || id > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(format("Id: %d cannot be held in an IdBitmap", id));
+            }
+            bits.set((int) id);
+            return this;
+        }
+
+
+        public IdBitmap build() {
+            return mk(0, bits.toLongArray());
+        }
+    }
+
+}
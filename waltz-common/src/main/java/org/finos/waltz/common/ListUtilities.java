@@ -27,6 +27,7 @@ import java.util.function.Predicate;
 
 import static java.util.stream.Collectors.toList;
 import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.Checks.checkTrue;
 
 
 public class ListUtilities {
@@ -166,6 +167,29 @@ public class ListUtilities {
     }
 
 
+    /**
+     * Splits the given collection into consecutive lists of (at most) <code>size</code>
+     * elements, in iteration order.  Typically used to keep statements within bind
+     * parameter limits.
+     *
+     * @param ts collection to split, throws if null
+     * @param size maximum number of elements in each partition, must be positive
+     * @param <T> type of elements
+     * @return list of partitions, empty if <code>ts</code> is empty
+     */
+    public static <T> List<List<T>> partition(Collection<T> ts, int size) {
+        checkNotNull(ts, "collection must not be null");
+        checkTrue(size > 0, "partition size must be positive");
+
+        List<T> all = new ArrayList<>(ts);
+        List<List<T>> partitions = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += size) {
+            partitions.add(all.subList(from, Math.min(from + size, all.size())));
+        }
+        return partitions;
+    }
+
+
     public static <T> boolean containsDuplicates(List<T> ts) {
         HashSet<T> seen = new HashSet<>();
 
@@ -0,0 +1,312 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.common.hierarchy;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.LongConsumer;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * An immutable snapshot of a hierarchy of long ids, held in primitive arrays.
+ *
+ * Nodes are numbered in the order of a depth first (Euler) tour of the forest.
+ * The descendants of a node therefore occupy a contiguous range of the tour,
+ * starting at the node itself, which gives:
+ *
+ * <ul>
+ *     <li>`isAncestorOf` in O(log n) (the cost of the id lookup)</li>
+ *     <li>`findDescendantIds` / `forEachDescendant` in O(log n + k)</li>
+ *     <li>`depthOf` in O(log n)</li>
+ * </ul>
+ *
+ * As with the `entity_hierarchy` table, a node is considered to be its own
+ * ancestor and descendant and root nodes have a depth of 1.  Nodes whose
+ * parent is not in the hierarchy are treated as roots.  Nodes which are only
+ * reachable via a cycle are not part of the tour, they are reported as having
+ * a depth of -1 and no ancestors or descendants.
+ */
+public class HierarchySnapshot {
+
+    private static final int UNREACHED = -1;
+
+    private static final HierarchySnapshot EMPTY = new HierarchySnapshot(0, new long[0], new int[0], new int[0], new int[0], new int[0], new long[0]);
+
+    private final long version;
+
+    // indexed by node number (position in the sorted id array)
+    private final long[] sortedIds;
+    private final int[] parents;
+    private final int[] depths;
+    private final int[] tourStarts;
+    private final int[] subtreeSizes;
+
+    // indexed by tour position
+    private final long[] tour;
+
+
+    private HierarchySnapshot(long version,
+                              long[] sortedIds,
+                              int[] parents,
+                              int[] depths,
+                              int[] tourStarts,
+                              int[] subtreeSizes,
+                              long[] tour) {
+        this.version = version;
+        this.sortedIds = sortedIds;
+        this.parents = parents;
+        this.depths = depths;
+        this.tourStarts = tourStarts;
+        this.subtreeSizes = subtreeSizes;
+        this.tour = tour;
+    }
+
+
+    /**
+     * @param version  identifies this snapshot, typically incremented each time the hierarchy is rebuilt
+     * @param flatNodes  id and (optional) parent id of every node in the hierarchy, duplicate ids are ignored
+     * @param <T>  type of the node data (ignored)
+     * @return  snapshot of the hierarchy
+     */
+    public static <T> HierarchySnapshot build(long version,
+                                              Collection<FlatNode<T, Long>> flatNodes) {
+        checkNotNull(flatNodes, "flatNodes cannot be null");
+
+        long[] ids = flatNodes
+                .stream()
+                .mapToLong(FlatNode::getId)
+                .sorted()
+                .distinct()
+                .toArray();
+
+        int n = ids.length;
+        int[] parents = new int[n];
+        boolean[] seen = new boolean[n];
+
+        for (FlatNode<T, Long> node : flatNodes) {
+            int idx = Arrays.binarySearch(ids, node.getId());
+            if (seen[idx]) {
+                continue;
+            }
+            seen[idx] = true;
+
+            // self references and parents outside the hierarchy give a root (binarySearch returns < 0 if not found)
+            int parentIdx = node.getParentId()
+                    .filter(pId -> !pId.equals(node.getId()))
+                    .map(pId -> Arrays.binarySearch(ids, pId))
+                    .orElse(UNREACHED);
+            parents[idx] = Math.max(parentIdx, UNREACHED);
+        }
+
+        // children, as a compressed adjacency list (offsets into a single array)
+        int[] childOffsets = new int[n + 1];
+        for (int p : parents) {
+            if (p != UNREACHED) {
+                childOffsets[p + 1]++;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            childOffsets[i + 1] += childOffsets[i];
+        }
+        int[] children = new int[childOffsets[n]];
+        int[] fill = Arrays.copyOf(childOffsets, n);
+        for (int i = 0; i < n; i++) {
+            if (parents[i] != UNREACHED) {
+                children[fill[parents[i]]++] = i;
+            }
+        }
+
+        int[] depths = new int[n];
+        int[] tourStarts = new int[n];
+        int[] subtreeSizes = new int[n];
+        Arrays.fill(depths, UNREACHED);
+        Arrays.fill(tourStarts, UNREACHED);
+
+        int[] tourNodes = new int[n];
+        int tourLength = 0;
+        int[] stack = new int[n];
+
+        for (int root = 0; root < n; root++) {
+            if (parents[root] != UNREACHED) {
+                continue;
+            }
+
+            int stackSize = 0;
+            stack[stackSize++] = root;
+            depths[root] = 1;
+
+            while (stackSize > 0) {
+                int node = stack[--stackSize];
+                tourStarts[node] = tourLength;
+                tourNodes[tourLength++] = node;
+
+                // pushed in reverse so that children are toured in id order
+                for (int c = childOffsets[node + 1] - 1; c >= childOffsets[node]; c--) {
+                    int child = children[c];
+                    depths[child] = depths[node] + 1;
+                    stack[stackSize++] = child;
+                }
+            }
+        }
+
+        // walking the tour backwards visits every child before its parent
+        for (int t = tourLength - 1; t >= 0; t--) {
+            int node = tourNodes[t];
+            subtreeSizes[node]++;
+            if (parents[node] != UNREACHED) {
+                subtreeSizes[parents[node]] += subtreeSizes[node];
+            }
+        }
+
+        long[] tour = new long[tourLength];
+        for (int t = 0; t < tourLength; t++) {
+            tour[t] = ids[tourNodes[t]];
+        }
+
+        return new HierarchySnapshot(version, ids, parents, depths, tourStarts, subtreeSizes, tour);
+    }
+
+
+    /**
+     * @return a snapshot with no nodes, useful where a hierarchy is optional
+     */
+    public static HierarchySnapshot empty() {
+        return EMPTY;
+    }
+
+
+    public long getVersion() {
+        return version;
+    }
+
+
+    /**
+     * @return number of nodes in the hierarchy (including any unreachable nodes)
+     */
+    public int size() {
+        return sortedIds.length;
+    }
+
+
+    public boolean contains(long id) {
+        return indexOf(id) >= 0;
+    }
+
+
+    /**
+     * @return depth of the node (roots are at depth 1), or -1 if the node is unknown or unreachable
+     */
+    public int depthOf(long id) {
+        int idx = indexOf(id);
+        return idx < 0
+                ? UNREACHED
+                : depths[idx];
+    }
+
+
+    /**
+     * Allows ancestors to be walked without allocating (see `findAncestorIds` for the allocating equivalent).
+     *
+     * @return id of the node's parent, or `dflt` if the node is a root, unknown or unreachable
+     */
+    public long parentIdOf(long id, long dflt) {
+        int idx = indexOf(id);
+        return idx < 0 || depths[idx] == UNREACHED || parents[idx] == UNREACHED
+                ? dflt
+                : sortedIds[parents[idx]];
+    }
+
+
+    /**
+     * @return true if `ancestorId` is `descendantId`, or one of its ancestors
+     */
+    public boolean isAncestorOf(long ancestorId, long descendantId) {
+        int ancestor = indexOf(ancestorId);
+        int descendant = indexOf(descendantId);
+
+        if (ancestor < 0 || descendant < 0 || tourStarts[ancestor] == UNREACHED || tourStarts[descendant] == UNREACHED) {
+            return false;
+        }
+
+        int start = tourStarts[ancestor];
+        return tourStarts[descendant] >= start
+                && tourStarts[descendant] < start + subtreeSizes[ancestor];
+    }
+
+
+    /**
+     * @return ids of the node and all of its descendants (in tour order, the node first)
+     */
+    public long[] findDescendantIds(long id) {
+        int idx = indexOf(id);
+
+        if (idx < 0 || tourStarts[idx] == UNREACHED) {
+            return new long[0];
+        }
+
+        return Arrays.copyOfRange(tour, tourStarts[idx], tourStarts[idx] + subtreeSizes[idx]);
+    }
+
+
+    /**
+     * Passes the id of the node, and each of its descendants, to the consumer without
+     * allocating an intermediate array.
+     */
+    public void forEachDescendant(long id, LongConsumer consumer) {
+        int idx = indexOf(id);
+
+        if (idx < 0 || tourStarts[idx] == UNREACHED) {
+            return;
+        }
+
+        for (int t = tourStarts[idx], end = t + subtreeSizes[idx]; t < end; t++) {
+            consumer.accept(tour[t]);
+        }
+    }
+
+
+    /**
+     * @return ids of the node and all of its ancestors (the node first, the root last)
+     */
+    public long[] findAncestorIds(long id) {
+        int idx = indexOf(id);
+
+        if (idx < 0 || depths[idx] == UNREACHED) {
+            return new long[0];
+        }
+
+        long[] result = new long[depths[idx]];
+        for (int i = 0; idx != UNREACHED; i++, idx = parents[idx]) {
+            result[i] = sortedIds[idx];
+        }
+        return result;
+    }
+
+
+    // --- helpers ---
+
+    private int indexOf(long id) {
+        int idx = Arrays.binarySearch(sortedIds, id);
+        return idx < 0
+                ? UNREACHED
+                : idx;
+    }
+
+}
@@ -0,0 +1,98 @@
+package org.finos.waltz.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IdBitmapTest {
+
+    private final IdBitmap a = IdBitmap.of(1, 2, 3, 64, 200);
+    private final IdBitmap b = IdBitmap.of(asList(2L, 64L, 65L, 1000L));
+
+
+    @Test
+    public void containsOnlyTheGivenIds() {
+        assertTrue(a.contains(1));
+        assertTrue(a.contains(200));
+        assertFalse(a.contains(4));
+        assertFalse(a.contains(-1));
+        assertFalse(a.contains(100_000));
+        assertEquals(5, a.cardinality());
+    }
+
+
+    @Test
+    public void duplicatesAreIgnored() {
+        assertEquals(IdBitmap.of(5, 7), IdBitmap.of(asList(7L, 5L, 7L, 5L)));
+        assertEquals(2, IdBitmap.of(5, 5, 7).cardinality());
+    }
+
+
+    @Test
+    public void andIntersects() {
+        IdBitmap result = a.and(b);
+        assertEquals(IdBitmap.of(2, 64), result);
+        assertEquals(2, a.andCardinality(b));
+        assertEquals(2, b.andCardinality(a));
+    }
+
+
+    @Test
+    public void orUnites() {
+        assertEquals(IdBitmap.of(1, 2, 3, 64, 65, 200, 1000), a.or(b));
+        assertEquals(a, a.or(IdBitmap.empty()));
+    }
+
+
+    @Test
+    public void disjointIntersectionsAreEmpty() {
+        IdBitmap result = IdBitmap.of(1, 2).and(IdBitmap.of(500, 600));
+        assertTrue(result.isEmpty());
+        assertSame(IdBitmap.empty(), result);
+        assertEquals(0, IdBitmap.of(1, 2).andCardinality(IdBitmap.empty()));
+    }
+
+
+    @Test
+    public void idsAreStreamedInAscendingOrder() {
+        assertArrayEquals(new long[]{2, 64, 65, 1000}, b.stream().toArray());
+
+        List<Long> visited = new ArrayList<>();
+        b.forEach(visited::add);
+        assertEquals(asList(2L, 64L, 65L, 1000L), visited);
+        assertEquals(SetUtilities.asSet(2L, 64L, 65L, 1000L), b.toSet());
+    }
+
+
+    @Test
+    public void idsOutOfRangeAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> IdBitmap.of(-1));
+        assertThrows(IllegalArgumentException.class, () -> IdBitmap.of(Integer.MAX_VALUE + 1L));
+    }
+
+
+    @Test
+    public void highIdsDoNotCostStorageForTheLowerIdRange() {
+        IdBitmap high = IdBitmap.of(1_000_000, 1_000_001, 1_000_640);
+        assertTrue(high.estimatedBytes() < 200, "leading empty words should not be stored");
+        assertTrue(high.contains(1_000_640));
+        assertFalse(high.contains(1));
+
+        IdBitmap mixed = high.or(a);
+        assertEquals(8, mixed.cardinality());
+        assertEquals(high, mixed.and(IdBitmap.of(1_000_000, 1_000_001, 1_000_640, 5_000_000)));
+        assertEquals(3, mixed.andCardinality(high));
+        assertEquals(0, high.andCardinality(a));
+        assertArrayEquals(new long[]{1, 2, 3, 64, 200, 1_000_000, 1_000_001, 1_000_640}, mixed.stream().toArray());
+    }
+
+}
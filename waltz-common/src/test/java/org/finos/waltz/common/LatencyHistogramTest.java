@@ -0,0 +1,84 @@
+package org.finos.waltz.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMeanMillis());
+        assertEquals(0, histogram.getPercentileMillis(99));
+    }
+
+
+    @Test
+    public void percentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        IntStream.rangeClosed(1, 1000).forEach(i -> histogram.record(i, TimeUnit.MILLISECONDS));
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500.5, histogram.getMeanMillis(), 0.001);
+        assertEquals(1000, histogram.getMaxMillis(), 0.001);
+        assertWithin(500, histogram.getPercentileMillis(50));
+        assertWithin(950, histogram.getPercentileMillis(95));
+        assertWithin(990, histogram.getPercentileMillis(99));
+    }
+
+
+    @Test
+    public void percentileNeverExceedsMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3, TimeUnit.MILLISECONDS);
+        assertEquals(3, histogram.getPercentileMillis(100), 0.001);
+    }
+
+
+    @Test
+    public void hugeDurationsAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(365, TimeUnit.DAYS);
+        assertEquals(1, histogram.getCount());
+        assertTrue(histogram.getPercentileMillis(50) > 0);
+    }
+
+
+    @Test
+    public void bucketBoundariesAreContiguous() {
+        for (long micros = 0; micros < 100_000; micros++) {
+            int idx = LatencyHistogram.toBucketIndex(micros);
+            assertTrue(LatencyHistogram.toBucketLowerBound(idx) <= micros);
+            assertTrue(LatencyHistogram.toBucketLowerBound(idx + 1) > micros);
+        }
+    }
+
+
+    @Test
+    public void resetClearsRecordings() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(10, TimeUnit.MILLISECONDS);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxMillis());
+    }
+
+
+    @Test
+    public void percentileMustBeInRange() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new LatencyHistogram().getPercentileMillis(101));
+    }
+
+
+    private static void assertWithin(double expected, double actual) {
+        assertEquals(expected, actual, expected * 0.07);
+    }
+}
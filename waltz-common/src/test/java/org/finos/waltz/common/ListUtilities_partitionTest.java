@@ -0,0 +1,48 @@
+package org.finos.waltz.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ListUtilities_partitionTest {
+
+    @Test
+    public void lastPartitionHoldsTheRemainder(){
+        List<String> elements = ListUtilities.newArrayList("a","b","c","d","e");
+        List<List<String>> result = ListUtilities.partition(elements,2);
+        assertEquals(3, result.size());
+        assertEquals(ListUtilities.newArrayList("a","b"), result.get(0));
+        assertEquals(ListUtilities.newArrayList("c","d"), result.get(1));
+        assertEquals(ListUtilities.newArrayList("e"), result.get(2));
+    }
+
+    @Test
+    public void smallCollectionsGiveOnePartition(){
+        List<String> elements = ListUtilities.newArrayList("a","b");
+        List<List<String>> result = ListUtilities.partition(elements,10);
+        assertEquals(1, result.size());
+        assertEquals(elements, result.get(0));
+    }
+
+    @Test
+    public void emptyCollectionGivesNoPartitions(){
+        assertTrue(ListUtilities.partition(Collections.emptyList(),10).isEmpty());
+    }
+
+    @Test
+    public void sizeMustBePositive(){
+        assertThrows(IllegalArgumentException.class,
+                () -> ListUtilities.partition(ListUtilities.newArrayList("a"),0));
+    }
+
+    @Test
+    public void nullCollectionThrows(){
+        assertThrows(IllegalArgumentException.class,
+                () -> ListUtilities.partition(null,1));
+    }
+}
@@ -0,0 +1,117 @@
+package org.finos.waltz.common.hierarchy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HierarchySnapshotTest {
+
+    /*
+     *  1
+     *  +-- 2
+     *  |   +-- 4
+     *  |   +-- 5
+     *  +-- 3
+     *  6 (parent 99 does not exist, so treated as a root)
+     *  7 <-> 8 (cycle)
+     */
+    private final HierarchySnapshot snapshot = HierarchySnapshot.build(3, Arrays.asList(
+            mkNode(5, 2L),
+            mkNode(1, null),
+            mkNode(2, 1L),
+            mkNode(3, 1L),
+            mkNode(4, 2L),
+            mkNode(6, 99L),
+            mkNode(7, 8L),
+            mkNode(8, 7L)));
+
+
+    @Test
+    public void depthsStartAtOneForRoots() {
+        assertEquals(1, snapshot.depthOf(1));
+        assertEquals(2, snapshot.depthOf(2));
+        assertEquals(3, snapshot.depthOf(5));
+        assertEquals(1, snapshot.depthOf(6));
+        assertEquals(-1, snapshot.depthOf(7), "nodes in a cycle are unreachable");
+        assertEquals(-1, snapshot.depthOf(42), "unknown nodes have no depth");
+    }
+
+
+    @Test
+    public void nodesAreTheirOwnAncestors() {
+        assertTrue(snapshot.isAncestorOf(1, 1));
+        assertTrue(snapshot.isAncestorOf(1, 5));
+        assertTrue(snapshot.isAncestorOf(2, 4));
+        assertFalse(snapshot.isAncestorOf(3, 4));
+        assertFalse(snapshot.isAncestorOf(5, 2));
+        assertFalse(snapshot.isAncestorOf(1, 6));
+        assertFalse(snapshot.isAncestorOf(7, 8));
+    }
+
+
+    @Test
+    public void descendantsIncludeTheNodeItself() {
+        assertArrayEquals(new long[]{1, 2, 4, 5, 3}, snapshot.findDescendantIds(1));
+        assertArrayEquals(new long[]{2, 4, 5}, snapshot.findDescendantIds(2));
+        assertArrayEquals(new long[]{3}, snapshot.findDescendantIds(3));
+        assertArrayEquals(new long[0], snapshot.findDescendantIds(7));
+        assertArrayEquals(new long[0], snapshot.findDescendantIds(42));
+    }
+
+
+    @Test
+    public void forEachDescendantVisitsTheSameIdsAsFind() {
+        List<Long> visited = new ArrayList<>();
+        snapshot.forEachDescendant(2, visited::add);
+        assertEquals(Arrays.asList(2L, 4L, 5L), visited);
+    }
+
+
+    @Test
+    public void ancestorsAreListedFromTheNodeToTheRoot() {
+        assertArrayEquals(new long[]{5, 2, 1}, snapshot.findAncestorIds(5));
+        assertArrayEquals(new long[]{1}, snapshot.findAncestorIds(1));
+        assertArrayEquals(new long[0], snapshot.findAncestorIds(8));
+    }
+
+
+    @Test
+    public void parentIdOfReturnsDefaultForRootsAndUnreachableNodes() {
+        assertEquals(2, snapshot.parentIdOf(5, -1));
+        assertEquals(-1, snapshot.parentIdOf(1, -1));
+        assertEquals(-1, snapshot.parentIdOf(6, -1));
+        assertEquals(-1, snapshot.parentIdOf(7, -1));
+        assertEquals(-1, snapshot.parentIdOf(42, -1));
+    }
+
+
+    @Test
+    public void sizeAndVersionAreReported() {
+        assertEquals(8, snapshot.size());
+        assertEquals(3, snapshot.getVersion());
+        assertTrue(snapshot.contains(7));
+        assertFalse(snapshot.contains(99));
+    }
+
+
+    @Test
+    public void emptyHierarchiesAreSupported() {
+        HierarchySnapshot empty = HierarchySnapshot.build(0, new ArrayList<FlatNode<Long, Long>>());
+        assertEquals(0, empty.size());
+        assertFalse(empty.isAncestorOf(1, 1));
+        assertEquals(0, HierarchySnapshot.empty().size());
+    }
+
+
+    private static FlatNode<Long, Long> mkNode(long id, Long parentId) {
+        return new FlatNode<>(id, Optional.ofNullable(parentId), id);
+    }
+}
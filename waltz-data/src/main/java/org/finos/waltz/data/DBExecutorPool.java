@@ -18,34 +18,295 @@
 
 package org.finos.waltz.data;
 
+import org.finos.waltz.common.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
 
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
+import static java.lang.String.format;
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.Checks.checkTrue;
+
+/**
+ * Runs database work in parallel on a bounded set of daemon threads.
+ *
+ * Threads are started on demand up to the maximum, the minimum being started
+ * eagerly, and are kept for the life of the pool.
+ *
+ * The queue of waiting tasks is bounded.  When it is full the task is either
+ * run on the submitting thread (`CALLER_RUNS`, the default, which naturally
+ * slows down callers) or rejected (`ABORT`).  Note that under `CALLER_RUNS`
+ * the number of queries running outside the pool is not limited by the pool,
+ * only by the number of request threads and the connection pool, so
+ * deployments which need a hard cap on concurrent queries should use `ABORT`.
+ *
+ * Tasks may be given a deadline.  A task still queued when its deadline passes
+ * is not run, its future completes with a `TimeoutException`.  Deadlines are
+ * propagated to any tasks submitted from within a running task.
+ *
+ * Queue wait and execution times are recorded, per task tag, and exposed via jmx.
+ */
+@ManagedResource(description = "Executor used to run database queries in parallel")
 public class DBExecutorPool implements DBExecutorPoolInterface {
 
-    private final ExecutorService executorPool;
+    private static final Logger LOG = LoggerFactory.getLogger(DBExecutorPool.class);
+
+    public static final int DEFAULT_QUEUE_SIZE = 500;
+    private static final String UNTAGGED = "untagged";
+    private static final int MAX_TAGS = 200;
+
+    /** nanoTime based deadline of the task currently running on this thread (if any) */
+    private static final ThreadLocal<Long> CURRENT_DEADLINE = new ThreadLocal<>();
+
+    public enum SaturationPolicy {
+        CALLER_RUNS,
+        ABORT
+    }
+
+    private final ThreadPoolExecutor executorPool;
+    private final SaturationPolicy saturationPolicy;
+    private final long defaultQueueTimeoutMillis;
+    private final ConcurrentMap<String, TaskStatistics> statisticsByTag = new ConcurrentHashMap<>();
 
 
     @Autowired
     public DBExecutorPool(int dbPoolMin, int dbPoolMax) {
-        executorPool = Executors.newFixedThreadPool(
+        this(dbPoolMin,
                 Integer.max(dbPoolMax / 2, 1),
+                DEFAULT_QUEUE_SIZE,
+                SaturationPolicy.CALLER_RUNS,
+                0);
+    }
+
+
+    /**
+     * @param minThreads  number of threads started eagerly
+     * @param maxThreads  maximum number of threads, should not exceed the size of the connection pool
+     * @param queueSize  maximum number of tasks waiting for a thread
+     * @param saturationPolicy  what to do with tasks submitted when the queue is full
+     * @param defaultQueueTimeoutMillis  maximum time a task may wait for a thread (0 means no limit), may be tightened per task
+     */
+    public DBExecutorPool(int minThreads,
+                          int maxThreads,
+                          int queueSize,
+                          SaturationPolicy saturationPolicy,
+                          long defaultQueueTimeoutMillis) {
+        checkTrue(maxThreads > 0, "maxThreads must be positive");
+        checkTrue(queueSize > 0, "queueSize must be positive");
+        checkNotNull(saturationPolicy, "saturationPolicy cannot be null");
+
+        AtomicInteger threadCounter = new AtomicInteger();
+
+        this.executorPool = new ThreadPoolExecutor(
+                maxThreads,
+                maxThreads,
+                0,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize),
                 (runnable) -> {
-                    Thread t = new Thread(runnable, "DB Executor");
+                    Thread t = new Thread(runnable, "DB Executor-" + threadCounter.incrementAndGet());
                     t.setDaemon(true);
                     return t;
-                });
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        // all threads are core threads (so they are created before tasks are queued), none expire
+        for (int i = 0; i < Integer.min(minThreads, maxThreads); i++) {
+            executorPool.prestartCoreThread();
+        }
 
+        this.saturationPolicy = saturationPolicy;
+        this.defaultQueueTimeoutMillis = defaultQueueTimeoutMillis;
+
+        LOG.info(
+                "DB executor initialised with {}-{} threads, queue size: {}, policy: {}, queue timeout: {}ms",
+                minThreads,
+                maxThreads,
+                queueSize,
+                saturationPolicy,
+                defaultQueueTimeoutMillis);
     }
 
 
     @Override
     public <T> Future<T> submit(Callable<T> task) {
-        return executorPool.submit(task);
+        return submit(UNTAGGED, task);
+    }
+
+
+    @Override
+    public <T> Future<T> submit(String tag, Callable<T> task) {
+        return submit(tag, defaultQueueTimeoutMillis, task);
+    }
+
+
+    @Override
+    public <T> Future<T> submit(String tag, long timeoutMillis, Callable<T> task) {
+        checkNotNull(task, "task cannot be null");
+
+        TaskStatistics stats = lookupStatistics(tag);
+        Long deadline = determineDeadline(timeoutMillis);
+        long submittedAt = System.nanoTime();
+
+        Callable<T> instrumentedTask = () -> run(tag, task, stats, submittedAt, deadline);
+
+        stats.submitted.increment();
+        try {
+            return executorPool.submit(instrumentedTask);
+        } catch (RejectedExecutionException e) {
+            stats.saturated.increment();
+            if (saturationPolicy == SaturationPolicy.ABORT || executorPool.isShutdown()) {
+                throw e;
+            }
+            LOG.debug("DB executor queue full, running task [{}] on calling thread", tag);
+            FutureTask<T> callerRunsTask = new FutureTask<>(instrumentedTask);
+            callerRunsTask.run();
+            return callerRunsTask;
+        }
+    }
+
+
+    @ManagedAttribute(description = "Number of tasks waiting for a thread")
+    public int getQueueDepth() {
+        return executorPool.getQueue().size();
+    }
+
+
+    @ManagedAttribute(description = "Number of threads currently running tasks")
+    public int getActiveCount() {
+        return executorPool.getActiveCount();
+    }
+
+
+    @ManagedAttribute(description = "Number of threads currently in the pool")
+    public int getPoolSize() {
+        return executorPool.getPoolSize();
+    }
+
+
+    @ManagedAttribute(description = "Queue wait and execution times, by task tag")
+    public Map<String, String> getTaskStatistics() {
+        Map<String, String> result = new TreeMap<>();
+        statisticsByTag.forEach((tag, stats) -> result.put(tag, stats.toString()));
+        return result;
+    }
+
+
+    @ManagedOperation(description = "Reset the task statistics")
+    public void resetTaskStatistics() {
+        statisticsByTag.clear();
+    }
+
+
+    // --- helpers ---
+
+    private static <T> T run(String tag,
+                             Callable<T> task,
+                             TaskStatistics stats,
+                             long submittedAt,
+                             Long deadline) throws Exception {
+        long startedAt = System.nanoTime();
+        stats.queueWait.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+
+        if (deadline != null && startedAt > deadline) {
+            stats.expired.increment();
+            throw new TimeoutException(format(
+                    "DB task [%s] was not started before its deadline, waited %dms",
+                    tag,
+                    TimeUnit.NANOSECONDS.toMillis(startedAt - submittedAt)));
+        }
+
+        Long priorDeadline = CURRENT_DEADLINE.get();
+        setCurrentDeadline(deadline);
+        try {
+            return task.call();
+        } finally {
+            setCurrentDeadline(priorDeadline);
+            stats.execution.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+
+    private static Long determineDeadline(long timeoutMillis) {
+        Long inherited = CURRENT_DEADLINE.get();
+        Long requested = timeoutMillis > 0
+                ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis)
+                : null;
+
+        if (inherited == null) {
+            return requested;
+        } else if (requested == null) {
+            return inherited;
+        } else {
+            // nanoTime values must be compared by difference
+            return requested - inherited < 0 ? requested : inherited;
+        }
+    }
+
+
+    private static void setCurrentDeadline(Long deadline) {
+        if (deadline == null) {
+            CURRENT_DEADLINE.remove();
+        } else {
+            CURRENT_DEADLINE.set(deadline);
+        }
+    }
+
+
+    private TaskStatistics lookupStatistics(String tag) {
+        String key = tag == null ? UNTAGGED : tag;
+        TaskStatistics existing = statisticsByTag.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        return statisticsByTag.computeIfAbsent(
+                statisticsByTag.size() >= MAX_TAGS ? "[other]" : key,
+                k -> new TaskStatistics());
+    }
+
+
+    private static class TaskStatistics {
+
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder saturated = new LongAdder();
+        private final LongAdder expired = new LongAdder();
+        private final LatencyHistogram queueWait = new LatencyHistogram();
+        private final LatencyHistogram execution = new LatencyHistogram();
+
+
+        @Override
+        public String toString() {
+            return format(
+                    "submitted: %d, saturated: %d, expired: %d, wait p50/p95/p99: %.1f/%.1f/%.1fms, exec p50/p95/p99: %.1f/%.1f/%.1fms",
+                    submitted.sum(),
+                    saturated.sum(),
+                    expired.sum(),
+                    queueWait.getPercentileMillis(50),
+                    queueWait.getPercentileMillis(95),
+                    queueWait.getPercentileMillis(99),
+                    execution.getPercentileMillis(50),
+                    execution.getPercentileMillis(95),
+                    execution.getPercentileMillis(99));
+        }
     }
 
 }
@@ -25,4 +25,24 @@ import java.util.concurrent.Future;
 public interface DBExecutorPoolInterface {
 
     <T> Future<T> submit(Callable<T> task);
+
+
+    /**
+     * Submits a task, tagged with the type of work it performs.  Tags are
+     * used to break down executor metrics (queue wait, execution time etc).
+     */
+    default <T> Future<T> submit(String tag, Callable<T> task) {
+        return submit(task);
+    }
+
+
+    /**
+     * Submits a tagged task which must start within the given timeout.
+     * If the task is still queued when the deadline passes it is not run
+     * and its future completes with a `TimeoutException`.  The deadline is
+     * inherited by any tasks submitted whilst this task is running.
+     */
+    default <T> Future<T> submit(String tag, long timeoutMillis, Callable<T> task) {
+        return submit(tag, task);
+    }
 }
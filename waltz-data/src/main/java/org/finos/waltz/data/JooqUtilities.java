@@ -18,6 +18,7 @@
 
 package org.finos.waltz.data;
 
+import org.finos.waltz.common.ListUtilities;
 import org.finos.waltz.common.SetUtilities;
 import org.finos.waltz.common.StringUtilities;
 import org.finos.waltz.model.EndOfLifeStatus;
@@ -34,6 +35,7 @@ import org.jooq.CommonTableExpression;
 import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.Field;
+import org.jooq.InsertSetMoreStep;
 import org.jooq.Record;
 import org.jooq.Record1;
 import org.jooq.Record2;
@@ -51,13 +53,19 @@ import org.jooq.impl.DSL;
 
 import java.sql.Date;
 import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.StringJoiner;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -66,6 +74,7 @@ import java.util.stream.Stream;
 import static java.util.stream.Collectors.counting;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
+import static org.finos.waltz.common.Checks.checkNotEmpty;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.DateTimeUtilities.toLocalDate;
 import static org.finos.waltz.common.DateTimeUtilities.toSqlDate;
@@ -79,6 +88,12 @@ public class JooqUtilities {
 
     public static final Field<Integer> TALLY_COUNT_FIELD = DSL.field("count", Integer.class);
 
+    /**
+     * Upper bound on the bind values used by a single statement, keeps below the
+     * lowest limit of the supported databases (SQL Server allows ~2100).
+     */
+    public static final int MAX_BIND_VALUES = 2_000;
+
 
     public static Optional<EntityReference> maybeReadRef(Record record,
                                                          Field<String> kindField,
@@ -403,4 +418,91 @@ public class JooqUtilities {
         return IntStream.of(rcs).sum();
     }
 
+
+    /**
+     * Inserts the records using multi-row insert statements, chunked to stay within
+     * `MAX_BIND_VALUES`, and returns the generated ids in the same order as the records.
+     *
+     * Neither a multi-row `RETURNING` nor SQL Server's `OUTPUT` clause guarantees rows
+     * come back in insertion order, so the generated ids are matched back to the records
+     * via the given key fields.  Records with equal keys receive their ids in an arbitrary
+     * order, therefore the key fields should cover everything callers tell records apart by.
+     *
+     * @param tx  context to insert with, typically a transaction
+     * @param idField  the generated identity field
+     * @param records  records to insert, all with the same set of changed fields
+     * @param keyFields  fields identifying each record, must be round-trip safe (e.g. ids, strings)
+     * @return generated ids, one per record, in record order
+     */
+    public static <R extends TableRecord<R>> List<Long> insertReturningIds(DSLContext tx,
+                                                                          TableField<R, Long> idField,
+                                                                          List<R> records,
+                                                                          List<TableField<R, ?>> keyFields) {
+        return insertReturningIds(tx, idField, records, keyFields, inserted -> {});
+    }
+
+
+    /**
+     * As `insertReturningIds(tx, idField, records, keyFields)`, additionally reporting
+     * progress after each chunk, e.g. for logging when inserting very large numbers of rows.
+     *
+     * @param onChunkInserted  called after each chunk with the number of records inserted so far
+     */
+    public static <R extends TableRecord<R>> List<Long> insertReturningIds(DSLContext tx,
+                                                                          TableField<R, Long> idField,
+                                                                          List<R> records,
+                                                                          List<TableField<R, ?>> keyFields,
+                                                                          IntConsumer onChunkInserted) {
+        checkNotNull(records, "records cannot be null");
+        checkNotNull(onChunkInserted, "onChunkInserted cannot be null");
+        checkNotEmpty(keyFields, "keyFields cannot be empty");
+
+        Table<R> table = idField.getTable();
+        int rowsPerStatement = Math.max(1, MAX_BIND_VALUES / table.fields().length);
+
+        Field<?>[] returnedFields = Stream
+                .concat(Stream.of(idField), keyFields.stream())
+                .toArray(Field<?>[]::new);
+
+        List<Long> ids = new ArrayList<>(records.size());
+
+        for (List<R> chunk : ListUtilities.partition(records, rowsPerStatement)) {
+            InsertSetMoreStep<R> rows = null;
+            for (R record : chunk) {
+                rows = rows == null
+                        ? tx.insertInto(table).set(record)
+                        : rows.newRecord().set(record);
+            }
+
+            Map<List<Object>, Deque<Long>> idsByKey = new HashMap<>();
+            rows.returning(returnedFields)
+                    .fetch()
+                    .forEach(r -> idsByKey
+                            .computeIfAbsent(keyOf(r, keyFields), k -> new ArrayDeque<>())
+                            .add(r.get(idField)));
+
+            for (R record : chunk) {
+                Deque<Long> candidates = idsByKey.getOrDefault(keyOf(record, keyFields), new ArrayDeque<>());
+                if (candidates.isEmpty()) {
+                    throw new IllegalStateException(String.format(
+                            "No generated id returned for %s with key: %s",
+                            table.getName(),
+                            keyOf(record, keyFields)));
+                }
+                ids.add(candidates.poll());
+            }
+
+            onChunkInserted.accept(ids.size());
+        }
+
+        return ids;
+    }
+
+
+    private static List<Object> keyOf(Record record, List<? extends Field<?>> keyFields) {
+        List<Object> key = new ArrayList<>(keyFields.size());
+        keyFields.forEach(f -> key.add(record.get(f)));
+        return key;
+    }
+
 }
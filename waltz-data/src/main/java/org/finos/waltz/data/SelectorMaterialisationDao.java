@@ -0,0 +1,141 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data;
+
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record1;
+import org.jooq.Row1;
+import org.jooq.Select;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.data.JooqUtilities.isPostgres;
+
+/**
+ * Evaluates id selectors and converts the resulting ids back into selectors which
+ * can be embedded, as sub-queries, without re-evaluating the original query.
+ *
+ * How the ids are supplied to the database depends on the dialect:
+ *
+ * <ul>
+ *     <li>Postgres: a single array bind, unnested (`select unnest(?)`)</li>
+ *     <li>Others: an inlined `VALUES` list, avoiding bind parameter limits (e.g. 2100 on SQL Server)</li>
+ * </ul>
+ *
+ * Temporary tables are not used as the materialised selectors are typically shared by
+ * queries running in parallel, on different pooled connections.
+ */
+@Repository
+public class SelectorMaterialisationDao implements DatabaseVendorSpecific {
+
+    private static final int MAX_ARRAY_BIND_SIZE = 250_000;
+    private static final int MAX_VALUES_LIST_SIZE = 10_000;
+
+    private static final Field<Long> ID = DSL.field(DSL.name("id"), Long.class);
+
+    private final DSLContext dsl;
+
+
+    @Autowired
+    public SelectorMaterialisationDao(DSLContext dsl) {
+        checkNotNull(dsl, "dsl cannot be null");
+        this.dsl = dsl;
+    }
+
+
+    /**
+     * Executes the selector, returning the distinct ids it selects.
+     *
+     * @param selector  an id selector
+     * @return distinct ids, in ascending order
+     */
+    public long[] resolveIds(Select<Record1<Long>> selector) {
+        checkNotNull(selector, "selector cannot be null");
+
+        return dsl
+                .fetch(selector)
+                .stream()
+                .map(Record1::value1)
+                .filter(id -> id != null)
+                .mapToLong(Long::longValue)
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+
+    /**
+     * Creates a selector which selects exactly the given ids.
+     *
+     * @param ids  ids to select
+     * @return selector for the ids, or empty if there are too many ids for the dialect
+     */
+    public Optional<Select<Record1<Long>>> mkSelector(long[] ids) {
+        checkNotNull(ids, "ids cannot be null");
+
+        if (ids.length == 0) {
+            return Optional.of(DSL
+                    .select(DSL.inline(-1L))
+                    .where(DSL.falseCondition()));
+        }
+
+        if (isPostgres(dsl.dialect())) {
+            return ids.length > MAX_ARRAY_BIND_SIZE
+                    ? Optional.empty()
+                    : Optional.of(mkArraySelector(ids));
+        } else {
+            return ids.length > MAX_VALUES_LIST_SIZE
+                    ? Optional.empty()
+                    : Optional.of(mkValuesSelector(ids));
+        }
+    }
+
+
+    // --- helpers ---
+
+    private static Select<Record1<Long>> mkArraySelector(long[] ids) {
+        Long[] boxed = new Long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            boxed[i] = ids[i];
+        }
+
+        return DSL
+                .select(ID)
+                .from(DSL.unnest(DSL.val(boxed)).as("materialised_ids", ID.getName()));
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static Select<Record1<Long>> mkValuesSelector(long[] ids) {
+        Row1<Long>[] rows = new Row1[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            rows[i] = DSL.row(DSL.inline(ids[i]));
+        }
+
+        return DSL
+                .select(ID)
+                .from(DSL.values(rows).as("materialised_ids", ID.getName()));
+    }
+
+}
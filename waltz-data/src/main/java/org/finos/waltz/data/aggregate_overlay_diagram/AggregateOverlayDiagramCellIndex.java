@@ -0,0 +1,96 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data.aggregate_overlay_diagram;
+
+import org.finos.waltz.common.IdBitmap;
+
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Collections.unmodifiableMap;
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * The aggregated entities (e.g. applications) associated to each cell of an overlay
+ * diagram, for a given selector and target date, held as bitmaps.
+ *
+ * Widgets combine these with bitmaps of their own (e.g. the apps with a given
+ * assessment rating) using intersections and cardinality counts rather than
+ * repeatedly walking sets of boxed ids.  Instances are immutable and are shared
+ * between requests via the `AggregateOverlayDiagramCellIndexCache`.
+ */
+public class AggregateOverlayDiagramCellIndex {
+
+    private final Map<String, IdBitmap> entityIdsByCellExtId;
+    private final IdBitmap allEntityIds;
+    private final long estimatedBytes;
+
+
+    public AggregateOverlayDiagramCellIndex(Map<String, IdBitmap> entityIdsByCellExtId) {
+        checkNotNull(entityIdsByCellExtId, "entityIdsByCellExtId cannot be null");
+
+        this.entityIdsByCellExtId = unmodifiableMap(entityIdsByCellExtId);
+        this.allEntityIds = entityIdsByCellExtId
+                .values()
+                .stream()
+                .reduce(IdBitmap.empty(), IdBitmap::or);
+
+        // bitmaps plus a rough allowance for each map entry and its key
+        this.estimatedBytes = entityIdsByCellExtId
+                .entrySet()
+                .stream()
+                .mapToLong(e -> 64L + 2L * e.getKey().length() + e.getValue().estimatedBytes())
+                .sum() + allEntityIds.estimatedBytes();
+    }
+
+
+    /**
+     * @return every cell of the diagram, cells with no aggregated entities map to an empty bitmap
+     */
+    public Map<String, IdBitmap> entityIdsByCellExtId() {
+        return entityIdsByCellExtId;
+    }
+
+
+    public IdBitmap entityIdsForCell(String cellExtId) {
+        return entityIdsByCellExtId.getOrDefault(cellExtId, IdBitmap.empty());
+    }
+
+
+    /**
+     * @return the union of the entities across all cells of the diagram
+     */
+    public IdBitmap allEntityIds() {
+        return allEntityIds;
+    }
+
+
+    public Set<String> cellExtIds() {
+        return entityIdsByCellExtId.keySet();
+    }
+
+
+    /**
+     * @return approximate heap usage of this index, in bytes
+     */
+    public long estimatedBytes() {
+        return estimatedBytes;
+    }
+
+}
@@ -0,0 +1,210 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data.aggregate_overlay_diagram;
+
+import org.finos.waltz.model.EntityKind;
+import org.jooq.DSLContext;
+import org.jooq.Record1;
+import org.jooq.Select;
+import org.jooq.lambda.tuple.Tuple4;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadCellIndex;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+/**
+ * Holds cell indexes keyed by (diagram id, aggregated entity kind, target date, selector).
+ *
+ * A diagram view typically issues several widget requests for the same diagram and
+ * selector in quick succession, each of which previously re-derived the cell to entity
+ * mapping.  The selector is keyed by its inlined sql, so equivalent selectors share an
+ * entry.  Entries are discarded after `MAX_AGE_MS` (ratings and usages are not tracked),
+ * and immediately when the backing entities of a diagram are altered.
+ *
+ * The cache is bounded both by entry count and by the estimated size of the held
+ * indexes, the oldest entries being evicted first.  An index too large to fit within
+ * `MAX_ESTIMATED_BYTES` on its own is returned but not cached.
+ */
+@Component
+@ManagedResource(description = "Cache of aggregate overlay diagram cell indexes")
+public class AggregateOverlayDiagramCellIndexCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AggregateOverlayDiagramCellIndexCache.class);
+
+    private static final int MAX_ENTRIES = 100;
+    private static final long MAX_ESTIMATED_BYTES = 64L * 1024 * 1024;
+    private static final long MAX_AGE_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private final DSLContext dsl;
+
+    private final ConcurrentMap<Tuple4<Long, EntityKind, Optional<LocalDate>, String>, CachedIndex> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+
+    @Autowired
+    public AggregateOverlayDiagramCellIndexCache(DSLContext dsl) {
+        checkNotNull(dsl, "dsl cannot be null");
+        this.dsl = dsl;
+    }
+
+
+    /**
+     * Returns the cell index for the given diagram/selector, loading it if it is absent or stale.
+     *
+     * @param diagramId  diagram whose cells are being indexed
+     * @param aggregatedEntityKind  kind of entity aggregated by the diagram (applications or change initiatives)
+     * @param inScopeEntityIdSelector  selector restricting the aggregated entities
+     * @param targetStateDate  if present, measurable ratings are resolved to their target state (replacements etc)
+     * @return the (possibly cached) cell index
+     */
+    public AggregateOverlayDiagramCellIndex getOrLoad(long diagramId,
+                                                      EntityKind aggregatedEntityKind,
+                                                      Select<Record1<Long>> inScopeEntityIdSelector,
+                                                      Optional<LocalDate> targetStateDate) {
+        checkNotNull(aggregatedEntityKind, "aggregatedEntityKind cannot be null");
+        checkNotNull(inScopeEntityIdSelector, "inScopeEntityIdSelector cannot be null");
+        checkNotNull(targetStateDate, "targetStateDate cannot be null");
+
+        Tuple4<Long, EntityKind, Optional<LocalDate>, String> key = tuple(
+                diagramId,
+                aggregatedEntityKind,
+                targetStateDate,
+                dsl.renderInlined(inScopeEntityIdSelector));
+
+        CachedIndex cached = entries.get(key);
+
+        if (cached != null && isFresh(cached)) {
+            hitCount.incrementAndGet();
+            return cached.index;
+        }
+
+        missCount.incrementAndGet();
+
+        AggregateOverlayDiagramCellIndex index = loadCellIndex(
+                dsl,
+                diagramId,
+                aggregatedEntityKind,
+                inScopeEntityIdSelector,
+                targetStateDate);
+
+        if (index.estimatedBytes() > MAX_ESTIMATED_BYTES) {
+            LOG.info("Not caching cell index for diagram: {}, estimated size: {} bytes exceeds limit", diagramId, index.estimatedBytes());
+            entries.remove(key);
+            return index;
+        }
+
+        entries.put(key, new CachedIndex(index));
+
+        while (entries.size() > MAX_ENTRIES || getEstimatedBytes() > MAX_ESTIMATED_BYTES) {
+            evictOldest();
+        }
+
+        return index;
+    }
+
+
+    /**
+     * Removes all cached indexes of the given diagram, regardless of selector.
+     * Should be called whenever the backing entities of the diagram are altered.
+     *
+     * @param diagramId  identifier of the diagram to evict
+     */
+    public void evictDiagram(long diagramId) {
+        entries.keySet().removeIf(k -> k.v1 == diagramId);
+    }
+
+
+    @ManagedAttribute(description = "Number of widget requests served from a cached cell index")
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+
+    @ManagedAttribute(description = "Number of widget requests which required the cell index to be loaded")
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+
+    @ManagedAttribute(description = "Number of cell indexes currently held")
+    public int getEntryCount() {
+        return entries.size();
+    }
+
+
+    @ManagedAttribute(description = "Approximate heap used by the cached cell indexes, in bytes")
+    public long getEstimatedBytes() {
+        return entries
+                .values()
+                .stream()
+                .mapToLong(c -> c.index.estimatedBytes())
+                .sum();
+    }
+
+
+    @ManagedOperation(description = "Discard all cached cell indexes")
+    public void clear() {
+        LOG.warn("Clearing aggregate overlay diagram cell index cache (via jmx)");
+        entries.clear();
+    }
+
+
+    // --- helpers ---
+
+    private void evictOldest() {
+        entries.entrySet()
+                .stream()
+                .min(Comparator.comparing(e -> e.getValue().loadedAt))
+                .ifPresent(e -> entries.remove(e.getKey()));
+    }
+
+
+    private static boolean isFresh(CachedIndex cached) {
+        return System.currentTimeMillis() - cached.loadedAt <= MAX_AGE_MS;
+    }
+
+
+    private static class CachedIndex {
+
+        private final AggregateOverlayDiagramCellIndex index;
+        private final long loadedAt = System.currentTimeMillis();
+
+
+        private CachedIndex(AggregateOverlayDiagramCellIndex index) {
+            this.index = index;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 
 package org.finos.waltz.data.aggregate_overlay_diagram;
 
+import org.finos.waltz.common.IdBitmap;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.ReleaseLifecycleStatus;
@@ -28,23 +29,17 @@ import org.jooq.lambda.tuple.Tuple2;
 
 import java.sql.Date;
 import java.time.LocalDate;
-import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 
 import static java.lang.String.format;
-import static java.util.Collections.emptyList;
-import static java.util.Collections.emptySet;
-import static java.util.stream.Collectors.groupingBy;
-import static java.util.stream.Collectors.mapping;
 import static java.util.stream.Collectors.toMap;
 import static java.util.stream.Collectors.toSet;
 import static org.finos.waltz.common.DateTimeUtilities.toLocalDateTime;
-import static org.finos.waltz.common.MapUtilities.groupBy;
-import static org.finos.waltz.common.SetUtilities.fromCollection;
-import static org.finos.waltz.common.SetUtilities.union;
 import static org.finos.waltz.data.JooqUtilities.readRef;
 import static org.finos.waltz.model.EntityReference.mkRef;
 import static org.finos.waltz.schema.Tables.*;
@@ -99,64 +94,71 @@ public class AggregateOverlayDiagramUtilities {
     }
 
 
-    protected static Map<String, Set<Long>> loadCellExtIdToAggregatedEntities(DSLContext dsl,
-                                                                              Set<Tuple2<String, EntityReference>> cellMappings,
-                                                                              EntityKind aggregatedEntityKind,
-                                                                              Select<Record1<Long>> inScopeEntityIdSelector,
-                                                                              Optional<LocalDate> targetStateDate) {
+    /**
+     * Resolves the aggregated entities (restricted by the selector) of every cell of the
+     * diagram.  Each backing measurable / data type is resolved to a bitmap of entities
+     * once, cells are then the union of the bitmaps of their backing entities.
+     */
+    protected static AggregateOverlayDiagramCellIndex loadCellIndex(DSLContext dsl,
+                                                                    long diagramId,
+                                                                    EntityKind aggregatedEntityKind,
+                                                                    Select<Record1<Long>> inScopeEntityIdSelector,
+                                                                    Optional<LocalDate> targetStateDate) {
 
+        Set<Tuple2<String, EntityReference>> cellMappings = loadExpandedCellMappingsForDiagram(dsl, diagramId);
 
-        Set<Long> backingMeasurableEntityIds = toMeasurableIds(cellMappings);
-        Set<Long> backingDataTypeEntityIds = toDataTypeIds(cellMappings);
-
-        Map<Long, List<Long>> measurableIdToEntityIds = findMeasurableIdToAggregatedEntityIdMap(
+        Map<Long, IdBitmap> measurableIdToEntityIds = toBitmaps(findMeasurableIdToAggregatedEntityIdMap(
                 dsl,
                 aggregatedEntityKind,
                 inScopeEntityIdSelector,
-                backingMeasurableEntityIds,
-                targetStateDate);
+                toMeasurableIds(cellMappings),
+                targetStateDate));
 
-        Map<Long, List<Long>> dataTypeIdToEntityIds = findDataTypeIdToAggregatedEntityIdMap(
+        Map<Long, IdBitmap> dataTypeIdToEntityIds = toBitmaps(findDataTypeIdToAggregatedEntityIdMap(
                 dsl,
                 aggregatedEntityKind,
                 inScopeEntityIdSelector,
-                backingDataTypeEntityIds);
+                toDataTypeIds(cellMappings)));
+
+        Map<String, IdBitmap> entityIdsByCellExtId = new HashMap<>();
+
+        cellMappings.forEach(t -> {
+            EntityReference backingEntity = t.v2;
+
+            //only supports measurables and data types at the moment
+            IdBitmap entityIds;
+            switch (backingEntity.kind()) {
+                case MEASURABLE:
+                    entityIds = measurableIdToEntityIds.getOrDefault(backingEntity.id(), IdBitmap.empty());
+                    break;
+                case DATA_TYPE:
+                    entityIds = dataTypeIdToEntityIds.getOrDefault(backingEntity.id(), IdBitmap.empty());
+                    break;
+                default:
+                    entityIds = IdBitmap.empty();
+            }
+
+            entityIdsByCellExtId.merge(t.v1, entityIds, IdBitmap::or);
+        });
+
+        return new AggregateOverlayDiagramCellIndex(entityIdsByCellExtId);
+    }
 
-        Map<String, Collection<EntityReference>> cellBackingEntitiesByCellExtId = groupBy(
-                cellMappings,
-                t -> t.v1,
-                t -> t.v2);
 
-        return cellBackingEntitiesByCellExtId
+    private static Map<Long, IdBitmap> toBitmaps(Map<Long, List<Long>> idToEntityIds) {
+        return idToEntityIds
                 .entrySet()
                 .stream()
-                .map(e -> {
-                    Set<EntityReference> value = fromCollection(e.getValue());
-                    String cellExtId = e.getKey();
-
-                    Map<EntityKind, Set<Long>> aggregatedEntitiesByKind = value
-                            .stream()
-                            .collect(groupingBy(
-                                    EntityReference::kind,
-                                    mapping(EntityReference::id, toSet())));
-
-                    //only supports measurables at the moment
-                    Set<Long> measurableIds = aggregatedEntitiesByKind.getOrDefault(EntityKind.MEASURABLE, emptySet());
-                    Set<Long> dataTypeIds = aggregatedEntitiesByKind.getOrDefault(EntityKind.DATA_TYPE, emptySet());
-
-                    Set<Long> entityIdsViaMeasurable = measurableIds
-                            .stream()
-                            .flatMap(mID -> measurableIdToEntityIds.getOrDefault(mID, emptyList()).stream())
-                            .collect(toSet());
-
-                    Set<Long> entityIdsViaDataType= dataTypeIds
-                            .stream()
-                            .flatMap(dID -> dataTypeIdToEntityIds.getOrDefault(dID, emptyList()).stream())
-                            .collect(toSet());
-
-                    return tuple(cellExtId, union(entityIdsViaMeasurable, entityIdsViaDataType));
-                })
-                .collect(toMap(k -> k.v1, k -> k.v2));
+                .collect(toMap(
+                        Map.Entry::getKey,
+                        e -> {
+                            IdBitmap.Builder builder = IdBitmap.builder();
+                            e.getValue()
+                                    .stream()
+                                    .filter(Objects::nonNull) // target state resolution may yield no app
+                                    .forEach(builder::add);
+                            return builder.build();
+                        }));
     }
 
 
@@ -1,5 +1,6 @@
 package org.finos.waltz.data.aggregate_overlay_diagram;
 
+import org.finos.waltz.common.IdBitmap;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.AggregatedEntitiesWidgetDatum;
@@ -7,7 +8,6 @@ import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ImmutableAggregat
 import org.jooq.DSLContext;
 import org.jooq.Record1;
 import org.jooq.Select;
-import org.jooq.lambda.tuple.Tuple2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
@@ -18,19 +18,20 @@ import java.util.Optional;
 import java.util.Set;
 
 import static java.util.stream.Collectors.toSet;
-import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadCellExtIdToAggregatedEntities;
 import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadEntityIdToRefMap;
-import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadExpandedCellMappingsForDiagram;
 
 @Repository
 public class AggregatedEntitiesWidgetDao {
 
     private final DSLContext dsl;
+    private final AggregateOverlayDiagramCellIndexCache cellIndexCache;
 
 
     @Autowired
-    public AggregatedEntitiesWidgetDao(DSLContext dsl) {
+    public AggregatedEntitiesWidgetDao(DSLContext dsl,
+                                       AggregateOverlayDiagramCellIndexCache cellIndexCache) {
         this.dsl = dsl;
+        this.cellIndexCache = cellIndexCache;
     }
 
 
@@ -39,28 +40,26 @@ public class AggregatedEntitiesWidgetDao {
                                                              Select<Record1<Long>> inScopeEntityIdSelector,
                                                              Optional<LocalDate> targetStateDate) {
 
-        Set<Tuple2<String, EntityReference>> cellWithBackingEntities = loadExpandedCellMappingsForDiagram(dsl, diagramId);
-
-        Map<String, Set<Long>> cellExtIdsToAggregatedEntities = loadCellExtIdToAggregatedEntities(
-                dsl,
-                cellWithBackingEntities,
+        AggregateOverlayDiagramCellIndex cellIndex = cellIndexCache.getOrLoad(
+                diagramId,
                 aggregatedEntityKind,
                 inScopeEntityIdSelector,
                 targetStateDate);
 
         Map<Long, EntityReference> entityIdToRefMap = loadEntityIdToRefMap(dsl, aggregatedEntityKind, inScopeEntityIdSelector);
 
-        return cellExtIdsToAggregatedEntities
+        return cellIndex
+                .entityIdsByCellExtId()
                 .entrySet()
                 .stream()
                 .map(e -> {
 
                     String cellExtId = e.getKey();
-                    Set<Long> entityIds = e.getValue();
+                    IdBitmap entityIds = e.getValue();
 
                     Set<EntityReference> entityRefs = entityIds
                             .stream()
-                            .map(entityIdToRefMap::get)
+                            .mapToObj(entityIdToRefMap::get)
                             .filter(Objects::nonNull)
                             .collect(toSet());
 
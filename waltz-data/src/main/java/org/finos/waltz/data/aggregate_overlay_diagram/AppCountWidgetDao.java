@@ -1,7 +1,7 @@
 package org.finos.waltz.data.aggregate_overlay_diagram;
 
+import org.finos.waltz.common.IdBitmap;
 import org.finos.waltz.model.EntityKind;
-import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.CountWidgetDatum;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ImmutableCountWidgetDatum;
 import org.jooq.DSLContext;
@@ -17,27 +17,25 @@ import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
 import java.time.LocalDate;
-import java.util.Collection;
-import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
 import static java.util.stream.Collectors.toSet;
-import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadCellExtIdToAggregatedEntities;
-import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadExpandedCellMappingsForDiagram;
 import static org.finos.waltz.schema.Tables.APPLICATION;
 import static org.jooq.lambda.tuple.Tuple.tuple;
 
 @Repository
 public class AppCountWidgetDao {
 
-    private static final Tuple2<Integer, Integer> ZERO_COUNT = tuple(0, 0);
     private final DSLContext dsl;
+    private final AggregateOverlayDiagramCellIndexCache cellIndexCache;
 
 
     @Autowired
-    public AppCountWidgetDao(DSLContext dsl) {
+    public AppCountWidgetDao(DSLContext dsl,
+                             AggregateOverlayDiagramCellIndexCache cellIndexCache) {
         this.dsl = dsl;
+        this.cellIndexCache = cellIndexCache;
     }
 
 
@@ -45,54 +43,33 @@ public class AppCountWidgetDao {
                                                 Select<Record1<Long>> inScopeApplicationSelector,
                                                 LocalDate targetStateDate) {
 
-        Set<Tuple2<String, EntityReference>> cellWithBackingEntities = loadExpandedCellMappingsForDiagram(dsl, diagramId);
-
-        Map<String, Set<Long>> cellExtIdsToAggregatedEntities = loadCellExtIdToAggregatedEntities(
-                dsl,
-                cellWithBackingEntities,
+        AggregateOverlayDiagramCellIndex cellIndex = cellIndexCache.getOrLoad(
+                diagramId,
                 EntityKind.APPLICATION,
                 inScopeApplicationSelector,
                 Optional.empty());
 
-        Set<Long> appIds = cellExtIdsToAggregatedEntities.values()
-                .stream()
-                .flatMap(Collection::stream)
-                .collect(toSet());
-
-        Map<Long, Tuple2<Integer, Integer>> appToTargetStateCounts = fetchAppIdToTargetStatePresenceIndicator(
+        // v1: all apps on the diagram, v2: those still alive at the target date
+        Tuple2<IdBitmap, IdBitmap> currentAndTargetAppIds = fetchCurrentAndTargetStateAppIds(
                 targetStateDate,
-                appIds);
+                cellIndex.allEntityIds());
 
-        return cellExtIdsToAggregatedEntities
+        return cellIndex
+                .entityIdsByCellExtId()
                 .entrySet()
                 .stream()
-                .map(e -> {
-                    String cellExtId = e.getKey();
-                    Set<Long> appIdsForCell = e.getValue();
-
-                    int currentCount = appIdsForCell
-                            .stream()
-                            .mapToInt(v -> appToTargetStateCounts.getOrDefault(v, ZERO_COUNT).v1)
-                            .sum();
-
-                    int targetCount = appIdsForCell
-                            .stream()
-                            .mapToInt(v -> appToTargetStateCounts.getOrDefault(v, ZERO_COUNT).v2)
-                            .sum();
-
-                    return ImmutableCountWidgetDatum.builder()
-                            .cellExternalId(cellExtId)
-                            .currentStateCount(currentCount)
-                            .targetStateCount(targetCount)
-                            .build();
-                })
+                .map(e -> ImmutableCountWidgetDatum.builder()
+                        .cellExternalId(e.getKey())
+                        .currentStateCount(e.getValue().andCardinality(currentAndTargetAppIds.v1))
+                        .targetStateCount(e.getValue().andCardinality(currentAndTargetAppIds.v2))
+                        .build())
                 .filter(d -> d.currentStateCount() != 0 && d.targetStateCount() != 0)
                 .collect(toSet());
     }
 
 
-    private Map<Long, Tuple2<Integer, Integer>> fetchAppIdToTargetStatePresenceIndicator(LocalDate targetStateDate,
-                                                                                         Set<Long> diagramApplicationIdSelector) {
+    private Tuple2<IdBitmap, IdBitmap> fetchCurrentAndTargetStateAppIds(LocalDate targetStateDate,
+                                                                       IdBitmap diagramApplicationIds) {
         Timestamp targetStateTimestamp = Timestamp.valueOf(targetStateDate.atStartOfDay());
 
         // actual: 2022, target: 2025  -> 0   (it has retired)
@@ -111,11 +88,19 @@ public class AppCountWidgetDao {
         SelectConditionStep<Record2<Long, Integer>> countStuff = dsl
                 .selectDistinct(APPLICATION.ID, isAppStillAlive)
                 .from(APPLICATION)
-                .where(dsl.renderInlined(APPLICATION.ID.in(diagramApplicationIdSelector)));
+                .where(dsl.renderInlined(APPLICATION.ID.in(diagramApplicationIds.toSet())));
+
+        IdBitmap.Builder currentAppIds = IdBitmap.builder();
+        IdBitmap.Builder targetAppIds = IdBitmap.builder();
+
+        countStuff.forEach(r -> {
+            currentAppIds.add(r.get(APPLICATION.ID));
+            if (r.get(isAppStillAlive) == 1) {
+                targetAppIds.add(r.get(APPLICATION.ID));
+            }
+        });
 
-        return countStuff.fetchMap(
-                APPLICATION.ID,
-                r -> tuple(1, r.get(isAppStillAlive)));
+        return tuple(currentAppIds.build(), targetAppIds.build());
     }
 
 
@@ -1,31 +1,27 @@
 package org.finos.waltz.data.aggregate_overlay_diagram;
 
-import org.finos.waltz.common.CollectionUtilities;
-import org.finos.waltz.common.MapUtilities;
+import org.finos.waltz.common.IdBitmap;
 import org.finos.waltz.data.rating_scheme.RatingSchemeDAO;
 import org.finos.waltz.model.EntityKind;
-import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.AssessmentRatingCount;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.AssessmentRatingsWidgetDatum;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ImmutableAssessmentRatingCount;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ImmutableAssessmentRatingsWidgetDatum;
+import org.finos.waltz.model.rating.RatingSchemeItem;
 import org.finos.waltz.schema.tables.AssessmentRating;
 import org.jooq.DSLContext;
 import org.jooq.Record1;
 import org.jooq.Select;
-import org.jooq.lambda.tuple.Tuple2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
 
+import static java.util.stream.Collectors.toMap;
 import static java.util.stream.Collectors.toSet;
-import static org.finos.waltz.common.CollectionUtilities.isEmpty;
-import static org.finos.waltz.common.SetUtilities.map;
-import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.*;
 import static org.finos.waltz.model.utils.IdUtilities.indexById;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 @Repository
 public class AssessmentRatingWidgetDao {
@@ -34,13 +30,16 @@ public class AssessmentRatingWidgetDao {
 
     private final RatingSchemeDAO ratingSchemeDAO;
     private final DSLContext dsl;
+    private final AggregateOverlayDiagramCellIndexCache cellIndexCache;
 
 
     @Autowired
     public AssessmentRatingWidgetDao(DSLContext dsl,
-                                     RatingSchemeDAO ratingSchemeDAO) {
+                                     RatingSchemeDAO ratingSchemeDAO,
+                                     AggregateOverlayDiagramCellIndexCache cellIndexCache) {
         this.dsl = dsl;
         this.ratingSchemeDAO = ratingSchemeDAO;
+        this.cellIndexCache = cellIndexCache;
     }
 
 
@@ -50,65 +49,57 @@ public class AssessmentRatingWidgetDao {
                                                             Select<Record1<Long>> inScopeEntityIdSelector,
                                                             Optional<LocalDate> targetStateDate) {
 
-        Set<Tuple2<String, EntityReference>> cellWithBackingEntities = loadExpandedCellMappingsForDiagram(dsl, diagramId);
-
-        Map<String, Set<Long>> cellExtIdsToAggregatedEntities = loadCellExtIdToAggregatedEntities(
-                dsl,
-                cellWithBackingEntities,
+        AggregateOverlayDiagramCellIndex cellIndex = cellIndexCache.getOrLoad(
+                diagramId,
                 aggregatedEntityKind,
                 inScopeEntityIdSelector,
                 targetStateDate);
 
-        Set<Long> diagramEntityIds = cellExtIdsToAggregatedEntities.values()
-                .stream()
-                .flatMap(Collection::stream)
-                .collect(toSet());
-
-        Map<Long, org.finos.waltz.model.rating.RatingSchemeItem> itemsById = indexById(ratingSchemeDAO.findRatingSchemeItemsForAssessmentDefinition(assessmentId));
+        Map<Long, RatingSchemeItem> itemsById = indexById(ratingSchemeDAO.findRatingSchemeItemsForAssessmentDefinition(assessmentId));
 
         if (itemsById.isEmpty()) {
             return Collections.emptySet();
         }
 
-        Map<Long, List<Long>> entityToRatingMap = dsl
-                .select(ar.RATING_ID, ar.ENTITY_ID)
+        Map<Long, IdBitmap.Builder> entityIdsByRatingId = new HashMap<>();
+
+        dsl.select(ar.RATING_ID, ar.ENTITY_ID)
                 .from(ar)
                 .where(ar.ASSESSMENT_DEFINITION_ID.eq(assessmentId))
-                .and(ar.ENTITY_ID.in(diagramEntityIds))
+                .and(ar.ENTITY_ID.in(cellIndex.allEntityIds().toSet()))
                 .and(ar.ENTITY_KIND.eq(aggregatedEntityKind.name()))
-                .fetchGroups(ar.ENTITY_ID, ar.RATING_ID);
+                .forEach(r -> entityIdsByRatingId
+                        .computeIfAbsent(r.get(ar.RATING_ID), k -> IdBitmap.builder())
+                        .add(r.get(ar.ENTITY_ID)));
 
-        return cellExtIdsToAggregatedEntities
+        Map<Long, IdBitmap> ratingToEntityIds = entityIdsByRatingId
+                .entrySet()
+                .stream()
+                .collect(toMap(Map.Entry::getKey, kv -> kv.getValue().build()));
+
+        return cellIndex
+                .entityIdsByCellExtId()
                 .entrySet()
                 .stream()
                 .map(e -> {
                     String cellExtId = e.getKey();
-                    Set<Long> entityIds = e.getValue();
-
-                    Map<Long, AtomicInteger> counts = MapUtilities.newHashMap();
-                    entityIds.forEach(id -> {
-                        List<Long> ratings = entityToRatingMap.get(id);
-                        if (isEmpty(ratings)) {
-                            return;
-                        }
-                        ratings.forEach(rating -> {
-                            AtomicInteger count = counts.getOrDefault(rating, new AtomicInteger());
-                            count.incrementAndGet();
-                            counts.put(rating, count);
-                        });
-                    });
-
-                    if (counts.isEmpty()) {
+                    IdBitmap entityIds = e.getValue();
+
+                    Set<AssessmentRatingCount> countsWithRating = ratingToEntityIds
+                            .entrySet()
+                            .stream()
+                            .map(kv -> tuple(kv.getKey(), entityIds.andCardinality(kv.getValue())))
+                            .filter(t -> t.v2 > 0)
+                            .map(t -> ImmutableAssessmentRatingCount.builder()
+                                    .rating(itemsById.get(t.v1))
+                                    .count(t.v2)
+                                    .build())
+                            .collect(toSet());
+
+                    if (countsWithRating.isEmpty()) {
                         return null;
                     }
 
-                    Set<AssessmentRatingCount> countsWithRating = map(
-                            counts.entrySet(),
-                            kv -> ImmutableAssessmentRatingCount.builder()
-                                    .rating(itemsById.get(kv.getKey()))
-                                    .count(kv.getValue().get())
-                                    .build());
-
                     return ImmutableAssessmentRatingsWidgetDatum.builder()
                             .cellExternalId(cellExtId)
                             .counts(countsWithRating)
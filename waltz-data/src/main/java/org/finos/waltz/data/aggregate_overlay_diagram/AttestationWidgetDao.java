@@ -1,7 +1,6 @@
 package org.finos.waltz.data.aggregate_overlay_diagram;
 
 import org.finos.waltz.model.EntityKind;
-import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.AttestationEntry;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.AttestationWidgetDatum;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ImmutableAttestationEntry;
@@ -15,7 +14,6 @@ import org.jooq.Record5;
 import org.jooq.Select;
 import org.jooq.SelectConditionStep;
 import org.jooq.impl.DSL;
-import org.jooq.lambda.tuple.Tuple2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
@@ -27,8 +25,6 @@ import java.util.Set;
 import static java.util.stream.Collectors.toSet;
 import static org.finos.waltz.common.DateTimeUtilities.toLocalDateTime;
 import static org.finos.waltz.common.SetUtilities.map;
-import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadCellExtIdToAggregatedEntities;
-import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadExpandedCellMappingsForDiagram;
 
 @Repository
 public class AttestationWidgetDao {
@@ -37,11 +33,14 @@ public class AttestationWidgetDao {
     private static final AttestationRun att_r = AttestationRun.ATTESTATION_RUN;
 
     private final DSLContext dsl;
+    private final AggregateOverlayDiagramCellIndexCache cellIndexCache;
 
 
     @Autowired
-    public AttestationWidgetDao(DSLContext dsl) {
+    public AttestationWidgetDao(DSLContext dsl,
+                                AggregateOverlayDiagramCellIndexCache cellIndexCache) {
         this.dsl = dsl;
+        this.cellIndexCache = cellIndexCache;
     }
 
 
@@ -50,11 +49,8 @@ public class AttestationWidgetDao {
                                                       Optional<Long> attestedEntityId,
                                                       Select<Record1<Long>> inScopeEntityIdSelector) {
 
-        Set<Tuple2<String, EntityReference>> cellWithBackingEntities = loadExpandedCellMappingsForDiagram(dsl, diagramId);
-
-        Map<String, Set<Long>> cellExtIdsToAggregatedEntities = loadCellExtIdToAggregatedEntities(
-                dsl,
-                cellWithBackingEntities,
+        AggregateOverlayDiagramCellIndex cellIndex = cellIndexCache.getOrLoad(
+                diagramId,
                 EntityKind.APPLICATION,
                 inScopeEntityIdSelector,
                 Optional.empty());
@@ -92,14 +88,14 @@ public class AttestationWidgetDao {
                         .appId(r.get("ref_i", Long.class))
                         .build());
 
-        return cellExtIdsToAggregatedEntities
+        return cellIndex
+                .entityIdsByCellExtId()
                 .entrySet()
                 .stream()
                 .map(e -> {
                     String cellExtId = e.getKey();
-                    Set<Long> entityIds = e.getValue();
                     Set<AttestationEntry> attestations = map(
-                            entityIds,
+                            e.getValue().toSet(),
                             id -> entityIdToAttestationInfo.getOrDefault(id, AttestationEntry.mkUnattestedEntry(id)));
                     return ImmutableAttestationWidgetDatum
                             .builder()
@@ -1,7 +1,7 @@
 package org.finos.waltz.data.aggregate_overlay_diagram;
 
+import org.finos.waltz.common.IdBitmap;
 import org.finos.waltz.model.EntityKind;
-import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ComplexityEntry;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ComplexityWidgetDatum;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ImmutableComplexityEntry;
@@ -19,8 +19,6 @@ import java.util.*;
 
 import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.toSet;
-import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadCellExtIdToAggregatedEntities;
-import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadExpandedCellMappingsForDiagram;
 import static org.jooq.lambda.tuple.Tuple.tuple;
 
 @Repository
@@ -30,10 +28,13 @@ public class ComplexityWidgetDao {
     private static final ComplexityKind ck = ComplexityKind.COMPLEXITY_KIND;
 
     private final DSLContext dsl;
+    private final AggregateOverlayDiagramCellIndexCache cellIndexCache;
 
     @Autowired
-    public ComplexityWidgetDao(DSLContext dsl) {
+    public ComplexityWidgetDao(DSLContext dsl,
+                               AggregateOverlayDiagramCellIndexCache cellIndexCache) {
         this.dsl = dsl;
+        this.cellIndexCache = cellIndexCache;
     }
 
     // cellExtId,
@@ -42,11 +43,8 @@ public class ComplexityWidgetDao {
                                                      Set<Long> costKindIds,
                                                      Select<Record1<Long>> inScopeEntityIdSelector) {
 
-        Set<Tuple2<String, EntityReference>> cellWithBackingEntities = loadExpandedCellMappingsForDiagram(dsl, diagramId);
-
-        Map<String, Set<Long>> cellExtIdsToAggregatedEntities = loadCellExtIdToAggregatedEntities(
-                dsl,
-                cellWithBackingEntities,
+        AggregateOverlayDiagramCellIndex cellIndex = cellIndexCache.getOrLoad(
+                diagramId,
                 aggregatedEntityKind,
                 inScopeEntityIdSelector,
                 Optional.empty());
@@ -55,20 +53,17 @@ public class ComplexityWidgetDao {
                 dsl,
                 costKindIds,
                 aggregatedEntityKind,
-                cellExtIdsToAggregatedEntities);
+                cellIndex);
     }
 
 
     private Set<ComplexityWidgetDatum> fetchComplexityData(DSLContext dsl,
                                                            Set<Long> costKindIds,
                                                            EntityKind aggregatedEntityKind,
-                                                           Map<String, Set<Long>> cellExtIdToAggEntities) {
+                                                           AggregateOverlayDiagramCellIndex cellIndex) {
 
 
-        Set<Long> diagramEntityIds = cellExtIdToAggEntities.values()
-                .stream()
-                .flatMap(Collection::stream)
-                .collect(toSet());
+        Set<Long> diagramEntityIds = cellIndex.allEntityIds().toSet();
 
         Map<Long, List<Tuple2<Long, BigDecimal>>> entityIdToScoreMap = dsl
                 .select(c.ENTITY_ID, c.COMPLEXITY_KIND_ID, c.SCORE)
@@ -78,16 +73,18 @@ public class ComplexityWidgetDao {
                         .and(c.ENTITY_KIND.eq(aggregatedEntityKind.name())))
                 .fetchGroups(r -> r.get(c.ENTITY_ID), r -> tuple(r.get(c.COMPLEXITY_KIND_ID), r.get(c.SCORE)));
 
-        return cellExtIdToAggEntities
+        return cellIndex
+                .entityIdsByCellExtId()
                 .entrySet()
                 .stream()
                 .map(e -> {
 
                     String cellExtId = e.getKey();
-                    Set<Long> entityIds = e.getValue();
+                    IdBitmap entityIds = e.getValue();
 
                     Set<ComplexityEntry> complexities = entityIds
                             .stream()
+                            .boxed()
                             .flatMap(id -> {
 
                                 List<Tuple2<Long, BigDecimal>> complexityScores = entityIdToScoreMap.getOrDefault(id, emptyList());
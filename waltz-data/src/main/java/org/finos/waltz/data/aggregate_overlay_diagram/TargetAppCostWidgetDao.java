@@ -1,7 +1,7 @@
 package org.finos.waltz.data.aggregate_overlay_diagram;
 
+import org.finos.waltz.common.IdBitmap;
 import org.finos.waltz.model.EntityKind;
-import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ImmutableTargetCostWidgetDatum;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.TargetCostWidgetDatum;
 import org.jooq.Condition;
@@ -19,14 +19,11 @@ import org.springframework.stereotype.Repository;
 import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.time.LocalDate;
-import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
 import static java.util.stream.Collectors.toSet;
-import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadCellExtIdToAggregatedEntities;
-import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadExpandedCellMappingsForDiagram;
 import static org.finos.waltz.schema.Tables.*;
 import static org.jooq.lambda.tuple.Tuple.tuple;
 
@@ -35,11 +32,14 @@ public class TargetAppCostWidgetDao {
 
     private static final Tuple2<BigDecimal, BigDecimal> ZERO_COST = tuple(BigDecimal.ZERO, BigDecimal.ZERO);
     private final DSLContext dsl;
+    private final AggregateOverlayDiagramCellIndexCache cellIndexCache;
 
 
     @Autowired
-    public TargetAppCostWidgetDao(DSLContext dsl) {
+    public TargetAppCostWidgetDao(DSLContext dsl,
+                                  AggregateOverlayDiagramCellIndexCache cellIndexCache) {
         this.dsl = dsl;
+        this.cellIndexCache = cellIndexCache;
     }
 
 
@@ -47,40 +47,34 @@ public class TargetAppCostWidgetDao {
                                                      Select<Record1<Long>> inScopeApplicationSelector,
                                                      LocalDate targetStateDate) {
 
-        Set<Tuple2<String, EntityReference>> cellWithBackingEntities = loadExpandedCellMappingsForDiagram(dsl, diagramId);
-
-        Map<String, Set<Long>> cellExtIdsToAggregatedEntities = loadCellExtIdToAggregatedEntities(
-                dsl,
-                cellWithBackingEntities,
+        AggregateOverlayDiagramCellIndex cellIndex = cellIndexCache.getOrLoad(
+                diagramId,
                 EntityKind.APPLICATION,
                 inScopeApplicationSelector,
                 Optional.empty());
 
-        Set<Long> diagramAppIds = cellExtIdsToAggregatedEntities
-                .values()
-                .stream()
-                .flatMap(Collection::stream)
-                .collect(toSet());
+        Set<Long> diagramAppIds = cellIndex.allEntityIds().toSet();
 
         Map<Long, Tuple2<BigDecimal, BigDecimal>> appToTargetStateCosts = fetchAppIdToTargetStateCostIndicator(
                 targetStateDate,
                 diagramAppIds);
 
-        return cellExtIdsToAggregatedEntities
+        return cellIndex
+                .entityIdsByCellExtId()
                 .entrySet()
                 .stream()
                 .map(e -> {
                     String cellExtId = e.getKey();
-                    Set<Long> appIds = e.getValue();
+                    IdBitmap appIds = e.getValue();
 
                     BigDecimal currentCost = appIds
                             .stream()
-                            .map(v -> appToTargetStateCosts.getOrDefault(v, ZERO_COST).v1)
+                            .mapToObj(v -> appToTargetStateCosts.getOrDefault(v, ZERO_COST).v1)
                             .reduce(BigDecimal.ZERO, BigDecimal::add);
 
                     BigDecimal targetCost = appIds
                             .stream()
-                            .map(v -> appToTargetStateCosts.getOrDefault(v, ZERO_COST).v2)
+                            .mapToObj(v -> appToTargetStateCosts.getOrDefault(v, ZERO_COST).v2)
                             .reduce(BigDecimal.ZERO, BigDecimal::add);
 
                     return ImmutableTargetCostWidgetDatum.builder()
@@ -77,7 +77,7 @@ public class ApplicationSearchDao implements SearchDao<Application> {
         Condition aliasCondition = ENTITY_ALIAS.KIND.eq(EntityKind.APPLICATION.name())
                 .and(JooqUtilities.mkBasicTermSearch(ENTITY_ALIAS.ALIAS, terms));
 
-        Future<List<Application>> appsViaAssetCode = dbExecutorPool.submit(() -> dsl
+        Future<List<Application>> appsViaAssetCode = dbExecutorPool.submit("application-search", () -> dsl
                 .select(APPLICATION.fields())
                 .from(APPLICATION)
                 .where(assetCodeCondition)
@@ -86,7 +86,7 @@ public class ApplicationSearchDao implements SearchDao<Application> {
                 .limit(options.limit())
                 .fetch(ApplicationDao.TO_DOMAIN_MAPPER));
 
-        Future<List<Application>> appsViaAlias = dbExecutorPool.submit(() -> dsl
+        Future<List<Application>> appsViaAlias = dbExecutorPool.submit("application-search", () -> dsl
                 .selectDistinct(APPLICATION.fields())
                 .from(APPLICATION)
                 .innerJoin(ENTITY_ALIAS)
@@ -97,7 +97,7 @@ public class ApplicationSearchDao implements SearchDao<Application> {
                 .limit(options.limit())
                 .fetch(ApplicationDao.TO_DOMAIN_MAPPER));
 
-        Future<List<Application>> appsViaName = dbExecutorPool.submit(() -> sort(
+        Future<List<Application>> appsViaName = dbExecutorPool.submit("application-search", () -> sort(
                 dsl
                     .select(APPLICATION.fields())
                     .from(APPLICATION)
@@ -108,7 +108,7 @@ public class ApplicationSearchDao implements SearchDao<Application> {
                     .fetch(ApplicationDao.TO_DOMAIN_MAPPER),
                 SearchUtilities.mkRelevancyComparator(NameProvider::name, terms.get(0))));
 
-        Future<List<Application>> appsViaFullText = dbExecutorPool.submit(() -> searcher.searchFullText(dsl, options));
+        Future<List<Application>> appsViaFullText = dbExecutorPool.submit("application-search", () -> searcher.searchFullText(dsl, options));
 
         Supplier<Set<Application>> result = Unchecked.supplier(() -> orderedUnion(
                 appsViaAssetCode.get(),
@@ -151,6 +151,138 @@ public class AttestationInstanceDao {
     }
 
 
+    /**
+     * Creates (via `INSERT ... SELECT`) an instance for each selected parent entity.  If involvement
+     * kinds are given only entities with an active person holding one of those involvements are included.
+     *
+     * Entities which already have an instance in the run are skipped, so this may safely be re-run
+     * to resume a partially issued run.
+     *
+     * @param attestationRunId  run the instances belong to
+     * @param parentKind  kind of the selected entities
+     * @param parentIdSelector  selects the ids of the entities to attest
+     * @param involvementKindIds  involvement kinds of the recipients, may be empty
+     * @param attestedEntityKind  what is being attested
+     * @return number of instances created
+     */
+    public int createInstancesForRun(long attestationRunId,
+                                     EntityKind parentKind,
+                                     Select<Record1<Long>> parentIdSelector,
+                                     Set<Long> involvementKindIds,
+                                     EntityKind attestedEntityKind) {
+        checkNotNull(parentKind, "parentKind cannot be null");
+        checkNotNull(parentIdSelector, "parentIdSelector cannot be null");
+        checkNotNull(involvementKindIds, "involvementKindIds cannot be null");
+        checkNotNull(attestedEntityKind, "attestedEntityKind cannot be null");
+
+        Select<Record1<Long>> parentIds = involvementKindIds.isEmpty()
+                ? parentIdSelector
+                : DSL
+                    .select(INVOLVEMENT.ENTITY_ID)
+                    .from(INVOLVEMENT)
+                    .innerJoin(PERSON).on(PERSON.EMPLOYEE_ID.eq(INVOLVEMENT.EMPLOYEE_ID))
+                    .where(PERSON.IS_REMOVED.isFalse())
+                    .and(INVOLVEMENT.ENTITY_KIND.eq(parentKind.name()))
+                    .and(INVOLVEMENT.ENTITY_ID.in(parentIdSelector))
+                    .and(INVOLVEMENT.KIND_ID.in(involvementKindIds));
+
+        Table<Record1<Long>> parentIdTable = parentIds.asTable("parent_ids", "parent_id");
+        Field<Long> parentId = parentIdTable.field("parent_id", Long.class);
+
+        Select<Record1<Integer>> existingInstance = DSL
+                .selectOne()
+                .from(ATTESTATION_INSTANCE)
+                .where(ATTESTATION_INSTANCE.ATTESTATION_RUN_ID.eq(attestationRunId))
+                .and(ATTESTATION_INSTANCE.PARENT_ENTITY_KIND.eq(parentKind.name()))
+                .and(ATTESTATION_INSTANCE.PARENT_ENTITY_ID.eq(parentId));
+
+        return dsl
+                .insertInto(ATTESTATION_INSTANCE)
+                .columns(ATTESTATION_INSTANCE.ATTESTATION_RUN_ID,
+                        ATTESTATION_INSTANCE.PARENT_ENTITY_KIND,
+                        ATTESTATION_INSTANCE.PARENT_ENTITY_ID,
+                        ATTESTATION_INSTANCE.ATTESTED_ENTITY_KIND)
+                .select(DSL
+                        .selectDistinct(
+                                DSL.val(attestationRunId),
+                                DSL.val(parentKind.name()),
+                                parentId,
+                                DSL.val(attestedEntityKind.name()))
+                        .from(parentIdTable)
+                        .whereNotExists(existingInstance))
+                .execute();
+    }
+
+
+    /**
+     * Creates (via `INSERT ... SELECT`) a recipient for each active person holding one of the
+     * involvement kinds against the parent entity of an instance in the run.  Existing recipients
+     * are skipped, so this may safely be re-run.
+     *
+     * @param attestationRunId  run whose instances need recipients
+     * @param involvementKindIds  involvement kinds of the recipients
+     * @return number of recipients created
+     */
+    public int createRecipientsForRun(long attestationRunId,
+                                      Set<Long> involvementKindIds) {
+        checkNotNull(involvementKindIds, "involvementKindIds cannot be null");
+
+        Select<Record1<Integer>> existingRecipient = DSL
+                .selectOne()
+                .from(ATTESTATION_INSTANCE_RECIPIENT)
+                .where(ATTESTATION_INSTANCE_RECIPIENT.ATTESTATION_INSTANCE_ID.eq(ATTESTATION_INSTANCE.ID))
+                .and(ATTESTATION_INSTANCE_RECIPIENT.USER_ID.eq(PERSON.EMAIL));
+
+        return dsl
+                .insertInto(ATTESTATION_INSTANCE_RECIPIENT)
+                .columns(ATTESTATION_INSTANCE_RECIPIENT.ATTESTATION_INSTANCE_ID,
+                        ATTESTATION_INSTANCE_RECIPIENT.USER_ID)
+                .select(DSL
+                        .selectDistinct(ATTESTATION_INSTANCE.ID, PERSON.EMAIL)
+                        .from(ATTESTATION_INSTANCE)
+                        .innerJoin(INVOLVEMENT)
+                        .on(INVOLVEMENT.ENTITY_ID.eq(ATTESTATION_INSTANCE.PARENT_ENTITY_ID)
+                                .and(INVOLVEMENT.ENTITY_KIND.eq(ATTESTATION_INSTANCE.PARENT_ENTITY_KIND)))
+                        .innerJoin(PERSON)
+                        .on(PERSON.EMPLOYEE_ID.eq(INVOLVEMENT.EMPLOYEE_ID)
+                                .and(PERSON.IS_REMOVED.isFalse()))
+                        .where(ATTESTATION_INSTANCE.ATTESTATION_RUN_ID.eq(attestationRunId))
+                        .and(INVOLVEMENT.KIND_ID.in(involvementKindIds))
+                        .andNotExists(existingRecipient))
+                .execute();
+    }
+
+
+    /**
+     * Adds the given user as a recipient of every instance in the run, unless they already are.
+     *
+     * @param attestationRunId  run whose instances need the recipient
+     * @param userId  the recipient
+     * @return number of recipients created
+     */
+    public int createRecipientForRun(long attestationRunId,
+                                     String userId) {
+        checkNotNull(userId, "userId cannot be null");
+
+        Select<Record1<Integer>> existingRecipient = DSL
+                .selectOne()
+                .from(ATTESTATION_INSTANCE_RECIPIENT)
+                .where(ATTESTATION_INSTANCE_RECIPIENT.ATTESTATION_INSTANCE_ID.eq(ATTESTATION_INSTANCE.ID))
+                .and(ATTESTATION_INSTANCE_RECIPIENT.USER_ID.eq(userId));
+
+        return dsl
+                .insertInto(ATTESTATION_INSTANCE_RECIPIENT)
+                .columns(ATTESTATION_INSTANCE_RECIPIENT.ATTESTATION_INSTANCE_ID,
+                        ATTESTATION_INSTANCE_RECIPIENT.USER_ID)
+                .select(DSL
+                        .select(ATTESTATION_INSTANCE.ID, DSL.val(userId))
+                        .from(ATTESTATION_INSTANCE)
+                        .where(ATTESTATION_INSTANCE.ATTESTATION_RUN_ID.eq(attestationRunId))
+                        .andNotExists(existingRecipient))
+                .execute();
+    }
+
+
     public List<AttestationInstance> findByRecipient(String userId, boolean unattestedOnly) {
         Condition condition = ATTESTATION_INSTANCE_RECIPIENT.USER_ID.eq(userId);
         if(unattestedOnly) {
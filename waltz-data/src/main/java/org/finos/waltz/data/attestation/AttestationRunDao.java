@@ -53,6 +53,8 @@ import static org.finos.waltz.common.DateTimeUtilities.nowUtcTimestamp;
 import static org.finos.waltz.common.DateTimeUtilities.toLocalDate;
 import static org.finos.waltz.common.DateTimeUtilities.toSqlDate;
 import static org.finos.waltz.common.ListUtilities.newArrayList;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.common.SetUtilities.map;
 import static org.finos.waltz.schema.tables.AttestationInstance.ATTESTATION_INSTANCE;
 import static org.finos.waltz.schema.tables.AttestationInstanceRecipient.ATTESTATION_INSTANCE_RECIPIENT;
 import static org.finos.waltz.schema.tables.AttestationRun.ATTESTATION_RUN;
@@ -257,6 +259,12 @@ public class AttestationRunDao {
 
 
     public Set<AttestationRun> findPendingRuns() {
+        return findRunsWithStatus(asSet(AttestationStatus.PENDING));
+    }
+
+
+    public Set<AttestationRun> findRunsWithStatus(Set<AttestationStatus> statuses) {
+        checkNotNull(statuses, "statuses cannot be null");
 
         Map<Long, List<Long>> involvementsByGroupId = InvolvementGroupDao.findAllInvolvementsByGroupId(dsl);
 
@@ -265,7 +273,7 @@ public class AttestationRunDao {
                 .select(ENTITY_NAME_FIELD)
                 .select(ATTESTED_ENTITY_NAME_FIELD)
                 .from(ATTESTATION_RUN)
-                .where(ATTESTATION_RUN.STATUS.eq(AttestationStatus.PENDING.name()))
+                .where(ATTESTATION_RUN.STATUS.in(map(statuses, Enum::name)))
                 .fetchSet(r -> mkAttestationRun(r, involvementsByGroupId));
     }
 
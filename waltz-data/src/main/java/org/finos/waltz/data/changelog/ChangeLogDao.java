@@ -46,8 +46,10 @@ import java.sql.Date;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.finos.waltz.common.Checks.checkNotEmpty;
 import static org.finos.waltz.common.Checks.checkNotNull;
@@ -344,6 +346,71 @@ public class ChangeLogDao {
     }
 
 
+    /**
+     * @return the id of the most recent change log entry, or zero if the change log is empty
+     */
+    public long getMaxId() {
+        Long maxId = dsl
+                .select(DSL.max(CHANGE_LOG.ID))
+                .from(CHANGE_LOG)
+                .fetchOne()
+                .value1();
+
+        return maxId == null ? 0L : maxId;
+    }
+
+
+    /**
+     * Determines which entity kinds have been the parent of change log entries with
+     * ids in the range: (afterId, upToId].  Child kinds are not included as they
+     * describe what was changed about the parent (e.g. a measurable rating of an
+     * application) rather than a change to an entity of that kind.
+     *
+     * @param afterId  exclusive lower bound of change log ids
+     * @param upToId  inclusive upper bound of change log ids
+     * @return set of parent entity kinds mentioned in the change log entries
+     */
+    public Set<EntityKind> findParentKindsChangedBetween(long afterId, long upToId) {
+        return dsl
+                .selectDistinct(CHANGE_LOG.PARENT_KIND)
+                .from(CHANGE_LOG)
+                .where(CHANGE_LOG.ID.gt(afterId))
+                .and(CHANGE_LOG.ID.le(upToId))
+                .fetchSet(r -> EntityKind.valueOf(r.get(CHANGE_LOG.PARENT_KIND)));
+    }
+
+
+    /**
+     * Determines which entities (either as parent or child) have been mentioned
+     * in change log entries with ids in the range: (afterId, upToId].
+     *
+     * @param afterId  exclusive lower bound of change log ids
+     * @param upToId  inclusive upper bound of change log ids
+     * @return set of entity references (without names) mentioned in the change log entries
+     */
+    public Set<EntityReference> findEntitiesChangedBetween(long afterId, long upToId) {
+        Set<EntityReference> refs = new HashSet<>();
+
+        dsl.selectDistinct(CHANGE_LOG.PARENT_KIND, CHANGE_LOG.PARENT_ID, CHANGE_LOG.CHILD_KIND, CHANGE_LOG.CHILD_ID)
+                .from(CHANGE_LOG)
+                .where(CHANGE_LOG.ID.gt(afterId))
+                .and(CHANGE_LOG.ID.le(upToId))
+                .forEach(r -> {
+                    refs.add(EntityReference.mkRef(
+                            EntityKind.valueOf(r.get(CHANGE_LOG.PARENT_KIND)),
+                            r.get(CHANGE_LOG.PARENT_ID)));
+
+                    String childKind = r.get(CHANGE_LOG.CHILD_KIND);
+                    Long childId = r.get(CHANGE_LOG.CHILD_ID);
+                    if (childKind != null && childId != null) {
+                        refs.add(EntityReference.mkRef(EntityKind.valueOf(childKind), childId));
+                    }
+                });
+
+        return refs;
+    }
+
+
     /**
      * Given an entity ref this function will determine all changelog entries made _after_ the latest
      * attestations for that entity.  Change log is matched between the attestation kind and the change
@@ -33,23 +33,24 @@ import org.finos.waltz.model.usage_info.UsageKind;
 import org.finos.waltz.schema.tables.records.DataTypeUsageRecord;
 import org.jooq.Condition;
 import org.jooq.DSLContext;
-import org.jooq.Field;
 import org.jooq.Record;
 import org.jooq.Record1;
 import org.jooq.Record3;
-import org.jooq.Record7;
 import org.jooq.RecordMapper;
 import org.jooq.Result;
 import org.jooq.Select;
-import org.jooq.SelectConditionStep;
-import org.jooq.SelectOrderByStep;
-import org.jooq.Table;
-import org.jooq.TableField;
 import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -57,6 +58,9 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.Checks.checkTrue;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.common.StringUtilities.isEmpty;
 import static org.finos.waltz.common.StringUtilities.limit;
 import static org.finos.waltz.data.application.ApplicationDao.IS_ACTIVE;
 import static org.finos.waltz.model.EntityLifecycleStatus.REMOVED;
@@ -67,7 +71,7 @@ import static org.finos.waltz.schema.tables.DataType.DATA_TYPE;
 import static org.finos.waltz.schema.tables.DataTypeUsage.DATA_TYPE_USAGE;
 import static org.finos.waltz.schema.tables.LogicalFlow.LOGICAL_FLOW;
 import static org.finos.waltz.schema.tables.LogicalFlowDecorator.LOGICAL_FLOW_DECORATOR;
-import static org.jooq.impl.DSL.*;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 @Repository
 public class DataTypeUsageDao {
@@ -77,16 +81,14 @@ public class DataTypeUsageDao {
     private final org.finos.waltz.schema.tables.LogicalFlow lf = LOGICAL_FLOW.as("lf");
     private final org.finos.waltz.schema.tables.LogicalFlowDecorator lfd = LOGICAL_FLOW_DECORATOR.as("lfd");
     private final org.finos.waltz.schema.tables.Application app = APPLICATION.as("app");
-    private final org.finos.waltz.schema.tables.Actor actor = ACTOR.as("actor");
     private final Condition NOT_REMOVED = lf.ENTITY_LIFECYCLE_STATUS.ne(REMOVED.name());
 
-    private final Field<String> originatorUsageKindField = val(UsageKind.ORIGINATOR.name());
+    private static final int RECALC_BATCH_SIZE = 1000;
 
-
-
-    private final Field<Long> nodeIdInner = DSL.field("node_id_inner", Long.class);
-    private final Field<Long> dataTypeIdInner = DSL.field("dt_id_inner", Long.class);
-    private final Field<String> usageKindInner = DSL.field("usage_kind_inner", String.class);
+    private static final Set<UsageKind> CALCULATED_USAGE_KINDS = EnumSet.of(
+            UsageKind.CONSUMER,
+            UsageKind.ORIGINATOR,
+            UsageKind.DISTRIBUTOR);
 
     private static final RecordMapper<Record, DataTypeUsage> TO_USAGE_MAPPER = r -> {
         DataTypeUsageRecord record = r.into(DATA_TYPE_USAGE);
@@ -270,272 +272,205 @@ public class DataTypeUsageDao {
 
 
     public boolean recalculateForIdSelector(EntityKind kind, Select<Record1<Long>> idSelector) {
-
-        dsl.transaction(configuration -> {
-            DSLContext tx = DSL.using(configuration);
-
-            Condition isCalculatedUsageKind = DATA_TYPE_USAGE.USAGE_KIND.in(
-                    UsageKind.CONSUMER.name(),
-                    UsageKind.ORIGINATOR.name(),
-                    UsageKind.DISTRIBUTOR.name());
-
-            // clear calculated usages
-            tx.deleteFrom(DATA_TYPE_USAGE)
-                    .where(isCalculatedUsageKind)
-                    .and(DATA_TYPE_USAGE.DESCRIPTION.eq(""))
-                    .and(DATA_TYPE_USAGE.ENTITY_ID.in(idSelector))
-                    .and(DATA_TYPE_USAGE.ENTITY_KIND.eq(kind.name()))
-                    .execute();
-
-            // clear usages where the datatype is not tied to an active logical flow
-            List<DataTypeUsageRecord> recordsToDelete = findAllNonActiveDataTypeUsages(tx, kind, idSelector);
-            tx.batchDelete(recordsToDelete)
-                    .execute();
-
-
-
-            // mark commented usages inactive
-            tx.update(DATA_TYPE_USAGE)
-                    .set(DATA_TYPE_USAGE.IS_SELECTED, false)
-                    .where(isCalculatedUsageKind)
-                    .and(DATA_TYPE_USAGE.DESCRIPTION.ne(""))
-                    .and(DATA_TYPE_USAGE.ENTITY_ID.in(idSelector))
-                    .and(DATA_TYPE_USAGE.ENTITY_KIND.eq(kind.name()))
-                    .execute();
-
-            insertUsages(
-                    tx,
-                    mkConsumerDistributorUsagesToInsertSelector(kind, idSelector));
-            updateUsageKinds(
-                    tx,
-                    mkFlowWithTypesForConsumerDistributors(kind, idSelector));
-
-            insertUsages(
-                    tx,
-                    mkOriginatorUsagesToInsertSelector(kind, idSelector));
-            updateUsageKinds(
-                    tx,
-                    mkFlowWithTypesForOriginators(kind, idSelector));
-        });
-
+        checkNotNull(idSelector, "idSelector cannot be null");
+        recalculateForEntities(kind, dsl.fetch(idSelector).intoSet(0, Long.class));
         return true;
-
     }
 
 
-    private List<DataTypeUsageRecord> findAllNonActiveDataTypeUsages(DSLContext tx,
-                                                                     EntityKind kind,
-                                                                     Select<Record1<Long>> idSelector) {
-        Field<String> entityKind = field("entity_kind", String.class);
-        Field<Long> entityId = field("entity_id", Long.class);
-        Field<Long> dataTypeId = field("data_type_id", Long.class);
-
-        SelectConditionStep<Record3<String, Long, Long>> logicalSourcesWithDataTypes = tx.select(
-                LOGICAL_FLOW.SOURCE_ENTITY_KIND.as(entityKind),
-                LOGICAL_FLOW.SOURCE_ENTITY_ID.as(entityId),
-                LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID.as(dataTypeId)
-        )
-        .from(LOGICAL_FLOW_DECORATOR)
-        .innerJoin(LOGICAL_FLOW).on(LOGICAL_FLOW.ID.eq(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID))
-        .where(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND.eq(EntityKind.DATA_TYPE.name()))
-        .and(LOGICAL_FLOW.IS_REMOVED.isFalse().and(LOGICAL_FLOW.ENTITY_LIFECYCLE_STATUS.ne(REMOVED.name())))
-        .and(LOGICAL_FLOW.SOURCE_ENTITY_ID.in(idSelector))
-        .and(LOGICAL_FLOW.SOURCE_ENTITY_KIND.eq(kind.name()));
-
-
-        SelectConditionStep<Record3<String, Long, Long>> logicalTargetsWithDataTypes = tx.select(
-                LOGICAL_FLOW.TARGET_ENTITY_KIND.as(entityKind),
-                LOGICAL_FLOW.TARGET_ENTITY_ID.as(entityId),
-                LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID.as(dataTypeId)
-        )
-        .from(LOGICAL_FLOW_DECORATOR)
-        .innerJoin(LOGICAL_FLOW).on(LOGICAL_FLOW.ID.eq(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID))
-        .where(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND.eq(EntityKind.DATA_TYPE.name()))
-        .and(LOGICAL_FLOW.IS_REMOVED.isFalse().and(LOGICAL_FLOW.ENTITY_LIFECYCLE_STATUS.ne(REMOVED.name())))
-        .and(LOGICAL_FLOW.TARGET_ENTITY_ID.in(idSelector))
-        .and(LOGICAL_FLOW.TARGET_ENTITY_KIND.eq(kind.name()));
-
-        SelectOrderByStep<Record3<String, Long, Long>> refsWithActiveFlowDataTypes = logicalSourcesWithDataTypes
-                .union(logicalTargetsWithDataTypes);
-
-        SelectConditionStep<Record> dataTypeUsagesThatNeedDeleting = tx
-                .select(DATA_TYPE_USAGE.fields())
-                .from(DATA_TYPE_USAGE)
-                .leftOuterJoin(refsWithActiveFlowDataTypes)
-                .on(DATA_TYPE_USAGE.ENTITY_KIND.eq(refsWithActiveFlowDataTypes.field(entityKind)))
-                .and(DATA_TYPE_USAGE.ENTITY_ID.eq(refsWithActiveFlowDataTypes.field(entityId)))
-                .and(DATA_TYPE_USAGE.DATA_TYPE_ID.eq(refsWithActiveFlowDataTypes.field(dataTypeId)))
-                .where(refsWithActiveFlowDataTypes.field(entityId).isNull())
-                .and(DATA_TYPE_USAGE.ENTITY_KIND.eq(kind.name()))
-                .and(DATA_TYPE_USAGE.ENTITY_ID.in(idSelector));
-
-        return dataTypeUsagesThatNeedDeleting
-                .fetch()
-                .map(r -> r.into(DATA_TYPE_USAGE));
-    }
-
-
-
-    private void insertUsages(DSLContext tx,
-                              Select<Record7<Long, String, Long, String, String, String, Boolean>> usagesSelector) {
-        tx.insertInto(DATA_TYPE_USAGE)
-                .columns(
-                        DATA_TYPE_USAGE.ENTITY_ID,
-                        DATA_TYPE_USAGE.ENTITY_KIND,
-                        DATA_TYPE_USAGE.DATA_TYPE_ID,
-                        DATA_TYPE_USAGE.USAGE_KIND,
-                        DATA_TYPE_USAGE.DESCRIPTION,
-                        DATA_TYPE_USAGE.PROVENANCE,
-                        DATA_TYPE_USAGE.IS_SELECTED)
-                .select(usagesSelector)
-                .execute();
-    }
-
-
-    private void updateUsageKinds(DSLContext tx,
-                                  Table<Record3<Long, Long, String>> flowTable) {
-        tx.update(DATA_TYPE_USAGE)
-                .set(DATA_TYPE_USAGE.IS_SELECTED, true)
-                .where(DATA_TYPE_USAGE.IS_SELECTED.eq(false))
-                .and(exists(
-                        select(flowTable.fields())
-                                .from(flowTable)
-                                .where(DATA_TYPE_USAGE.ENTITY_ID.eq(nodeIdInner))
-                                .and(DATA_TYPE_USAGE.ENTITY_KIND.eq(EntityKind.APPLICATION.name()))
-                                .and(DATA_TYPE_USAGE.DATA_TYPE_ID.eq(dataTypeIdInner))
-                                .and(DATA_TYPE_USAGE.USAGE_KIND.eq(usageKindInner))))
-                .execute();
-    }
-
+    /**
+     * Recalculates the consumer, distributor and originator usages of the given entities
+     * from their (active) logical flows and data type decorators.
+     *
+     * The calculated usages are compared with the existing usages and only the differences
+     * are written, via batched inserts, updates and deletes.  Entities are processed
+     * `RECALC_BATCH_SIZE` at a time, each batch in its own transaction.  Usages with a
+     * description are never removed, instead they are (de)selected to reflect the flows.
+     * Usages of any kind are removed if the entity no longer has an active flow of that data type.
+     *
+     * @param kind  either `APPLICATION` or `ACTOR`
+     * @param entityIds  ids of the entities to recalculate
+     * @return number of usages inserted, updated or deleted
+     */
+    public int recalculateForEntities(EntityKind kind, Collection<Long> entityIds) {
+        checkNotNull(kind, "kind cannot be null");
+        checkNotNull(entityIds, "entityIds cannot be null");
+        checkTrue(
+                kind == EntityKind.APPLICATION || kind == EntityKind.ACTOR,
+                "Cannot calculate data type usages for entity kind: " + kind);
+
+        List<Long> ids = new ArrayList<>(entityIds);
+        int changeCount = 0;
+
+        for (int from = 0; from < ids.size(); from += RECALC_BATCH_SIZE) {
+            Set<Long> batch = new HashSet<>(ids.subList(from, Math.min(from + RECALC_BATCH_SIZE, ids.size())));
+            changeCount += dsl.transactionResult(configuration -> recalculateBatch(
+                    DSL.using(configuration),
+                    kind,
+                    batch));
+        }
 
-    private Select<Record7<Long, String, Long, String, String, String, Boolean>> mkOriginatorUsagesToInsertSelector(
-            EntityKind nodeKind,
-            Select<Record1<Long>> nodeIdSelector)
-    {
-        return mkUsagesToInsertSelector(
-                nodeKind,
-                mkFlowWithTypesForOriginators(
-                        nodeKind,
-                        nodeIdSelector));
+        return changeCount;
     }
 
-    private Select<Record7<Long, String, Long, String, String, String, Boolean>> mkConsumerDistributorUsagesToInsertSelector(
-            EntityKind kind,
-            Select<Record1<Long>> idSelector)
-    {
-        return mkUsagesToInsertSelector(
-                kind,
-                mkFlowWithTypesForConsumerDistributors(
-                        kind,
-                        idSelector));
-    }
 
+    /**
+     * Determines which applications and actors have logical flows or data type decorators
+     * which have been created or modified since the given time.  Used to restrict
+     * recalculation to the entities which may have changed.
+     *
+     * Decorators which are deleted leave no trace, callers which delete decorators
+     * should recalculate the affected entities directly.
+     *
+     * @param since  only changes made at or after this time are considered
+     * @return references to the entities at either end of the changed flows
+     */
+    public Set<EntityReference> findEntitiesWithFlowChangesSince(LocalDateTime since) {
+        checkNotNull(since, "since cannot be null");
+
+        Timestamp sinceTs = Timestamp.valueOf(since);
+
+        Select<Record1<Long>> changedFlowIds = DSL
+                .select(LOGICAL_FLOW.ID)
+                .from(LOGICAL_FLOW)
+                .where(LOGICAL_FLOW.LAST_UPDATED_AT.ge(sinceTs))
+                .union(DSL
+                        .select(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID)
+                        .from(LOGICAL_FLOW_DECORATOR)
+                        .where(LOGICAL_FLOW_DECORATOR.LAST_UPDATED_AT.ge(sinceTs))
+                        .and(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND.eq(EntityKind.DATA_TYPE.name())));
+
+        Set<String> calculableKinds = asSet(EntityKind.APPLICATION.name(), EntityKind.ACTOR.name());
 
-    private Select<Record7<Long, String, Long, String, String, String, Boolean>> mkUsagesToInsertSelector(
-            EntityKind nodeKind,
-            Table<Record3<Long, Long, String>> flowsWithTypesTable)
-    {
-        return selectDistinct(
-                nodeIdInner,
-                val(nodeKind.name()),
-                dataTypeIdInner,
-                usageKindInner,
-                val(""),
-                val("waltz"),
-                val(true))
-            .from(flowsWithTypesTable)
-            .leftJoin(dtu)
-                .on(mkDataTypeUsageJoin(nodeKind, usageKindInner))
-            .where(dtu.ENTITY_ID.isNull());
+        return dsl
+                .select(LOGICAL_FLOW.SOURCE_ENTITY_KIND, LOGICAL_FLOW.SOURCE_ENTITY_ID)
+                .from(LOGICAL_FLOW)
+                .where(LOGICAL_FLOW.ID.in(changedFlowIds))
+                .and(LOGICAL_FLOW.SOURCE_ENTITY_KIND.in(calculableKinds))
+                .union(DSL
+                        .select(LOGICAL_FLOW.TARGET_ENTITY_KIND, LOGICAL_FLOW.TARGET_ENTITY_ID)
+                        .from(LOGICAL_FLOW)
+                        .where(LOGICAL_FLOW.ID.in(changedFlowIds))
+                        .and(LOGICAL_FLOW.TARGET_ENTITY_KIND.in(calculableKinds)))
+                .fetchSet(r -> mkRef(EntityKind.valueOf(r.value1()), r.value2()));
     }
 
 
-    private Table<Record3<Long, Long, String>> mkFlowWithTypesForConsumerDistributors(
-            EntityKind nodeKind,
-            Select<Record1<Long>> nodeIdSelector)
-    {
-
-        switch (nodeKind) {
-            case ACTOR:
-                return mkFlowWithTypesForConsumerDistributors(nodeKind, actor, actor.ID, nodeIdSelector);
-            case APPLICATION:
-                return mkFlowWithTypesForConsumerDistributors(nodeKind, app, app.ID, nodeIdSelector);
-            default:
-                throw new UnsupportedOperationException("Cannot create dt usage records for node kind: "+nodeKind);
-        }
-    }
+    private int recalculateBatch(DSLContext tx,
+                                 EntityKind kind,
+                                 Set<Long> entityIds) {
 
+        // usage kinds (by entity id and data type id) implied by the active flows of the entities
+        Map<Tuple2<Long, Long>, Set<UsageKind>> calculatedUsages = new HashMap<>();
 
-    private Table<Record3<Long, Long, String>> mkFlowWithTypesForConsumerDistributors(EntityKind nodeKind,
-                                                                                        Table nodeTable,
-                                                                                        TableField<? extends Record, Long> nodeIdField,
-                                                                                        Select<Record1<Long>> nodeIdSelector) {
-        return DSL
-                .select(
-                    nodeIdField.as(nodeIdInner),
-                    dt.ID.as(dataTypeIdInner),
-                    mkConsumerDistributorCaseField(nodeIdField).as(usageKindInner))
+        tx.select(lf.SOURCE_ENTITY_KIND,
+                    lf.SOURCE_ENTITY_ID,
+                    lf.TARGET_ENTITY_KIND,
+                    lf.TARGET_ENTITY_ID,
+                    dt.ID)
                 .from(lf)
-                .innerJoin(nodeTable)
-                .on(mkMatchingFlowCondition(nodeKind, nodeIdField))
                 .innerJoin(lfd)
                 .on(lfd.LOGICAL_FLOW_ID.eq(lf.ID))
                 .and(lfd.DECORATOR_ENTITY_KIND.eq(EntityKind.DATA_TYPE.name()))
                 .innerJoin(dt)
                 .on(dt.ID.eq(lfd.DECORATOR_ENTITY_ID))
-                .where(nodeIdField.in(nodeIdSelector))
+                .where(lf.SOURCE_ENTITY_KIND.eq(kind.name()).and(lf.SOURCE_ENTITY_ID.in(entityIds))
+                        .or(lf.TARGET_ENTITY_KIND.eq(kind.name()).and(lf.TARGET_ENTITY_ID.in(entityIds))))
+                .and(lf.IS_REMOVED.isFalse())
                 .and(NOT_REMOVED)
-                .asTable("cons_dist");
-    }
-
-
-    private Condition mkMatchingFlowCondition(EntityKind nodeKind, TableField<? extends Record, Long> nodeIdField) {
-        Condition matchingSourceCondition = nodeIdField.eq(lf.SOURCE_ENTITY_ID).and(lf.SOURCE_ENTITY_KIND.eq(nodeKind.name()));
-        Condition matchingTargetCondition = nodeIdField.eq(lf.TARGET_ENTITY_ID).and(lf.TARGET_ENTITY_KIND.eq(nodeKind.name()));
-        return matchingSourceCondition.or(matchingTargetCondition);
-    }
+                .forEach(r -> {
+                    long dataTypeId = r.get(dt.ID);
+                    boolean isSource = isInBatch(kind, entityIds, r.get(lf.SOURCE_ENTITY_KIND), r.get(lf.SOURCE_ENTITY_ID));
+                    boolean isTarget = isInBatch(kind, entityIds, r.get(lf.TARGET_ENTITY_KIND), r.get(lf.TARGET_ENTITY_ID));
+                    boolean isSelfFlow = r.get(lf.SOURCE_ENTITY_KIND).equals(r.get(lf.TARGET_ENTITY_KIND))
+                            && r.get(lf.SOURCE_ENTITY_ID).equals(r.get(lf.TARGET_ENTITY_ID));
+
+                    if (isSource) {
+                        addUsage(calculatedUsages, r.get(lf.SOURCE_ENTITY_ID), dataTypeId, UsageKind.DISTRIBUTOR);
+                    }
+                    if (isTarget && !isSelfFlow) {
+                        addUsage(calculatedUsages, r.get(lf.TARGET_ENTITY_ID), dataTypeId, UsageKind.CONSUMER);
+                    }
+                });
+
+        // data which is distributed, but not consumed, must originate with the entity
+        calculatedUsages.values().forEach(kinds -> {
+            if (kinds.contains(UsageKind.DISTRIBUTOR) && !kinds.contains(UsageKind.CONSUMER)) {
+                kinds.add(UsageKind.ORIGINATOR);
+            }
+        });
 
+        List<DataTypeUsageRecord> toDelete = new ArrayList<>();
+        List<DataTypeUsageRecord> toUpdate = new ArrayList<>();
+
+        tx.selectFrom(DATA_TYPE_USAGE)
+                .where(DATA_TYPE_USAGE.ENTITY_KIND.eq(kind.name()))
+                .and(DATA_TYPE_USAGE.ENTITY_ID.in(entityIds))
+                .forEach(r -> {
+                    Set<UsageKind> kinds = calculatedUsages.get(tuple(r.getEntityId(), r.getDataTypeId()));
+                    UsageKind usageKind = UsageKind.valueOf(r.getUsageKind());
+
+                    if (kinds == null) {
+                        // data type is no longer tied to an active flow
+                        toDelete.add(r);
+                    } else if (CALCULATED_USAGE_KINDS.contains(usageKind)) {
+                        boolean isCalculated = kinds.remove(usageKind);
+                        if (isEmpty(r.getDescription())) {
+                            if (!isCalculated) {
+                                toDelete.add(r);
+                            } else if (!r.getIsSelected()) {
+                                r.setIsSelected(true);
+                                toUpdate.add(r);
+                            }
+                        } else if (r.getIsSelected() != isCalculated) {
+                            // commented usages are retained, but only selected if backed by a flow
+                            r.setIsSelected(isCalculated);
+                            toUpdate.add(r);
+                        }
+                    }
+                });
+
+        List<DataTypeUsageRecord> toInsert = new ArrayList<>();
+        calculatedUsages.forEach((entityAndDataType, kinds) -> kinds.forEach(usageKind -> {
+            DataTypeUsageRecord record = tx.newRecord(DATA_TYPE_USAGE);
+            record.setEntityKind(kind.name());
+            record.setEntityId(entityAndDataType.v1);
+            record.setDataTypeId(entityAndDataType.v2);
+            record.setUsageKind(usageKind.name());
+            record.setDescription("");
+            record.setProvenance("waltz");
+            record.setIsSelected(true);
+            toInsert.add(record);
+        }));
+
+        if (!toDelete.isEmpty()) {
+            tx.batchDelete(toDelete).execute();
+        }
+        if (!toUpdate.isEmpty()) {
+            tx.batchUpdate(toUpdate).execute();
+        }
+        if (!toInsert.isEmpty()) {
+            tx.batchInsert(toInsert).execute();
+        }
 
-    private Field<String> mkConsumerDistributorCaseField(TableField<? extends Record, Long> nodeIdTableField) {
-        return DSL
-                .when(lf.SOURCE_ENTITY_ID.eq(nodeIdTableField),
-                        UsageKind.DISTRIBUTOR.name())
-                .otherwise(UsageKind.CONSUMER.name());
+        return toDelete.size() + toUpdate.size() + toInsert.size();
     }
 
 
-    private Table<Record3<Long, Long, String>> mkFlowWithTypesForOriginators(EntityKind nodeKind,
-                                                                               Select<Record1<Long>> nodeIdSelector) {
-
-        org.finos.waltz.schema.tables.DataTypeUsage dtuConsumer = DATA_TYPE_USAGE.as("dtu_consumer");
-
-        return DSL.select(
-                    dtu.ENTITY_ID.as(nodeIdInner),
-                    dtu.DATA_TYPE_ID.as(dataTypeIdInner),
-                    originatorUsageKindField.as(usageKindInner))
-                .from(dtu)
-                .where(dtu.ENTITY_ID.in(nodeIdSelector))
-                .and(dtu.ENTITY_KIND.eq(nodeKind.name()))
-                .and(dtu.USAGE_KIND.eq(UsageKind.DISTRIBUTOR.name()))
-                .and(dtu.IS_SELECTED.eq(true))
-                .and(DSL.notExists(DSL.select(dtuConsumer.fields())
-                        .from(dtuConsumer)
-                        .where(dtuConsumer.ENTITY_ID.eq(dtu.ENTITY_ID))
-                        .and(dtuConsumer.ENTITY_KIND.eq(dtu.ENTITY_KIND))
-                        .and(dtuConsumer.DATA_TYPE_ID.eq(dtu.DATA_TYPE_ID))
-                        .and(dtuConsumer.USAGE_KIND.eq(UsageKind.CONSUMER.name()))
-                        .and(dtuConsumer.IS_SELECTED.eq(true))))
-                .asTable("originators");
-
+    private static boolean isInBatch(EntityKind kind,
+                                     Set<Long> entityIds,
+                                     String entityKind,
+                                     Long entityId) {
+        return kind.name().equals(entityKind) && entityIds.contains(entityId);
     }
 
 
-    private Condition mkDataTypeUsageJoin(EntityKind nodeKind, Field<String> usageKindField) {
-        return dtu.ENTITY_ID.eq(nodeIdInner)
-                        .and(dtu.ENTITY_KIND.eq(nodeKind.name()))
-                        .and(dtu.DATA_TYPE_ID.eq(dataTypeIdInner))
-                        .and(dtu.USAGE_KIND.eq(usageKindField))
-                        .and(dtu.IS_SELECTED.eq(false));
+    private static void addUsage(Map<Tuple2<Long, Long>, Set<UsageKind>> usages,
+                                 long entityId,
+                                 long dataTypeId,
+                                 UsageKind usageKind) {
+        usages.computeIfAbsent(tuple(entityId, dataTypeId), k -> EnumSet.noneOf(UsageKind.class))
+                .add(usageKind);
     }
 
 
@@ -28,9 +28,12 @@ import org.finos.waltz.model.datatype.DataTypeUsageCharacteristics;
 import org.finos.waltz.model.datatype.ImmutableDataTypeDecorator;
 import org.finos.waltz.model.datatype.ImmutableDataTypeUsageCharacteristics;
 import org.finos.waltz.model.flow_classification_rule.FlowClassificationRuleVantagePoint;
+import org.finos.waltz.model.flow_classification_rule.FlowDecoratorRatingCandidate;
+import org.finos.waltz.model.flow_classification_rule.ImmutableFlowDecoratorRatingCandidate;
 import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
 import org.finos.waltz.schema.tables.LogicalFlowDecorator;
 import org.finos.waltz.schema.tables.records.LogicalFlowDecoratorRecord;
+import org.jooq.BatchBindStep;
 import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.Field;
@@ -47,11 +50,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.stream.IntStream;
 
 import static java.lang.String.format;
 import static java.util.stream.Collectors.toList;
@@ -77,6 +82,8 @@ public class LogicalFlowDecoratorDao extends DataTypeDecoratorDao {
             LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND,
             newArrayList(EntityKind.DATA_TYPE));
 
+    private static final int RATING_UPDATE_BATCH_SIZE = 1000;
+
 
     private static final RecordMapper<Record, DataTypeDecorator> TO_DECORATOR_MAPPER = r -> {
         LogicalFlowDecoratorRecord record = r.into(LOGICAL_FLOW_DECORATOR);
@@ -98,6 +105,20 @@ public class LogicalFlowDecoratorDao extends DataTypeDecoratorDao {
     };
 
 
+    private static final RecordMapper<Record, FlowDecoratorRatingCandidate> TO_RATING_CANDIDATE_MAPPER = r -> ImmutableFlowDecoratorRatingCandidate
+            .builder()
+            .decoratorId(r.get(LOGICAL_FLOW_DECORATOR.ID))
+            .dataTypeId(r.get(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID))
+            .sourceKind(EntityKind.valueOf(r.get(LOGICAL_FLOW.SOURCE_ENTITY_KIND)))
+            .sourceId(r.get(LOGICAL_FLOW.SOURCE_ENTITY_ID))
+            .targetKind(EntityKind.valueOf(r.get(LOGICAL_FLOW.TARGET_ENTITY_KIND)))
+            .targetId(r.get(LOGICAL_FLOW.TARGET_ENTITY_ID))
+            .targetOrgUnitId(Optional.ofNullable(r.get(APPLICATION.ORGANISATIONAL_UNIT_ID)))
+            .rating(AuthoritativenessRatingValue.ofNullable(r.get(LOGICAL_FLOW_DECORATOR.RATING)))
+            .flowClassificationRuleId(Optional.ofNullable(r.get(LOGICAL_FLOW_DECORATOR.FLOW_CLASSIFICATION_RULE_ID)))
+            .build();
+
+
     private static final Function<DataTypeDecorator, LogicalFlowDecoratorRecord> TO_RECORD = d -> {
         LogicalFlowDecoratorRecord r = new LogicalFlowDecoratorRecord();
         r.setId(d.id().orElse(null));
@@ -318,6 +339,69 @@ public class LogicalFlowDecoratorDao extends DataTypeDecoratorDao {
     }
 
 
+    /**
+     * Loads every data type decorator along with the source and target of its flow
+     * (and the org unit of the target, if it is an application).  Used when
+     * recalculating all flow classification ratings in memory.
+     *
+     * @return all logical flow data type decorators
+     */
+    public List<FlowDecoratorRatingCandidate> findRatingCandidates() {
+        return dsl
+                .select(LOGICAL_FLOW_DECORATOR.ID,
+                        LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID,
+                        LOGICAL_FLOW_DECORATOR.RATING,
+                        LOGICAL_FLOW_DECORATOR.FLOW_CLASSIFICATION_RULE_ID,
+                        LOGICAL_FLOW.SOURCE_ENTITY_KIND,
+                        LOGICAL_FLOW.SOURCE_ENTITY_ID,
+                        LOGICAL_FLOW.TARGET_ENTITY_KIND,
+                        LOGICAL_FLOW.TARGET_ENTITY_ID,
+                        APPLICATION.ORGANISATIONAL_UNIT_ID)
+                .from(LOGICAL_FLOW_DECORATOR)
+                .innerJoin(LOGICAL_FLOW)
+                .on(LOGICAL_FLOW.ID.eq(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID))
+                .leftJoin(APPLICATION)
+                .on(APPLICATION.ID.eq(LOGICAL_FLOW.TARGET_ENTITY_ID)
+                        .and(LOGICAL_FLOW.TARGET_ENTITY_KIND.eq(EntityKind.APPLICATION.name())))
+                .where(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND.eq(DATA_TYPE.name()))
+                .fetch(TO_RATING_CANDIDATE_MAPPER);
+    }
+
+
+    /**
+     * Writes the rating and flow classification rule of each of the given decorators,
+     * using batches of a single (parameterised) update statement.
+     *
+     * @param ratings  decorators with their new rating and rule id
+     * @return number of decorators updated
+     */
+    public int updateRatings(Collection<FlowDecoratorRatingCandidate> ratings) {
+        checkNotNull(ratings, "ratings cannot be null");
+
+        List<FlowDecoratorRatingCandidate> toUpdate = new ArrayList<>(ratings);
+        int updateCount = 0;
+
+        for (int from = 0; from < toUpdate.size(); from += RATING_UPDATE_BATCH_SIZE) {
+            BatchBindStep batch = dsl.batch(dsl
+                    .update(LOGICAL_FLOW_DECORATOR)
+                    .set(LOGICAL_FLOW_DECORATOR.RATING, (String) null)
+                    .set(LOGICAL_FLOW_DECORATOR.FLOW_CLASSIFICATION_RULE_ID, (Long) null)
+                    .where(LOGICAL_FLOW_DECORATOR.ID.eq((Long) null)));
+
+            toUpdate
+                    .subList(from, Math.min(from + RATING_UPDATE_BATCH_SIZE, toUpdate.size()))
+                    .forEach(d -> batch.bind(
+                            AuthoritativenessRatingValue.orElse(d.rating(), AuthoritativenessRatingValue.NO_OPINION.value()),
+                            d.flowClassificationRuleId().orElse(null),
+                            d.decoratorId()));
+
+            updateCount += IntStream.of(batch.execute()).sum();
+        }
+
+        return updateCount;
+    }
+
+
     @Override
     public List<DataTypeUsageCharacteristics> findDatatypeUsageCharacteristics(EntityReference ref) {
 
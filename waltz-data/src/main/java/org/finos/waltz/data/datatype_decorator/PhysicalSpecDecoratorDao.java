@@ -51,6 +51,8 @@ import static java.util.stream.Collectors.toList;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.DateTimeUtilities.nowUtc;
 import static org.finos.waltz.common.DateTimeUtilities.toLocalDateTime;
+import static org.finos.waltz.common.ListUtilities.partition;
+import static org.finos.waltz.data.JooqUtilities.MAX_BIND_VALUES;
 import static org.finos.waltz.model.EntityKind.DATA_TYPE;
 import static org.finos.waltz.model.EntityKind.PHYSICAL_SPECIFICATION;
 import static org.finos.waltz.model.EntityReference.mkRef;
@@ -147,6 +149,21 @@ public class PhysicalSpecDecoratorDao extends DataTypeDecoratorDao {
     }
 
 
+    public List<DataTypeDecorator> findBySpecificationIds(Collection<Long> specIds) {
+        checkNotNull(specIds, "specIds cannot be null");
+
+        return partition(specIds, MAX_BIND_VALUES)
+                .stream()
+                .flatMap(ids -> dsl
+                        .select(PHYSICAL_SPEC_DATA_TYPE.fields())
+                        .from(PHYSICAL_SPEC_DATA_TYPE)
+                        .where(PHYSICAL_SPEC_DATA_TYPE.SPECIFICATION_ID.in(ids))
+                        .fetch(TO_DOMAIN_MAPPER)
+                        .stream())
+                .collect(toList());
+    }
+
+
     @Override
     public int[] addDecorators(Collection<DataTypeDecorator> specificationDataTypes) {
         checkNotNull(specificationDataTypes, "specificationDataTypes cannot be null");
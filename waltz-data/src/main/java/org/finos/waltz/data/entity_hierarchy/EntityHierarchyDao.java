@@ -20,6 +20,7 @@ package org.finos.waltz.data.entity_hierarchy;
 
 import org.finos.waltz.schema.tables.EntityHierarchy;
 import org.finos.waltz.schema.tables.records.EntityHierarchyRecord;
+import org.finos.waltz.common.hierarchy.FlatNode;
 import org.finos.waltz.data.JooqUtilities;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
@@ -28,20 +29,31 @@ import org.finos.waltz.model.entity_hierarchy.ImmutableEntityHierarchyItem;
 import org.finos.waltz.model.tally.Tally;
 import org.jooq.Condition;
 import org.jooq.DSLContext;
+import org.jooq.Query;
 import org.jooq.Record;
 import org.jooq.RecordMapper;
 import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import static java.util.stream.Collectors.toMap;
 import static org.finos.waltz.schema.tables.EntityHierarchy.ENTITY_HIERARCHY;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.ListUtilities.map;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 @Repository
 public class EntityHierarchyDao {
@@ -120,6 +132,90 @@ public class EntityHierarchyDao {
     }
 
 
+    /**
+     * Brings the stored hierarchy for the given kind into line with the given items,
+     * writing only the rows which differ.  Rows are matched on (id, ancestor id);
+     * unmatched stored rows are deleted, unmatched items are inserted and matched
+     * rows with different levels are updated.
+     *
+     * Unlike `replaceHierarchy` unchanged rows are left untouched, so selectors
+     * joining to the hierarchy are not blocked for the duration of a rebuild.
+     *
+     * @param kind  the entity kind of the hierarchy
+     * @param hierarchyItems  the complete set of items which should exist within the scope
+     * @param scope  restricts which stored rows are considered (e.g. to a subtree), use
+     *               `DSL.trueCondition()` to consider every row for the kind
+     * @return number of hierarchy records inserted, updated or deleted
+     */
+    public int applyHierarchy(EntityKind kind,
+                              Collection<EntityHierarchyItem> hierarchyItems,
+                              Condition scope) {
+        checkNotNull(kind, "kind cannot be null");
+        checkNotNull(hierarchyItems, "hierarchyItems cannot be null");
+        checkNotNull(scope, "scope cannot be null");
+
+        return dsl.transactionResult(configuration -> {
+            DSLContext txDsl = DSL.using(configuration);
+
+            Map<Tuple2<Long, Long>, EntityHierarchyRecord> existingByKey = txDsl
+                    .selectFrom(ENTITY_HIERARCHY)
+                    .where(ENTITY_HIERARCHY.KIND.eq(kind.name()))
+                    .and(scope)
+                    .fetch()
+                    .stream()
+                    .collect(toMap(
+                            r -> tuple(r.getId(), r.getAncestorId()),
+                            r -> r,
+                            (r1, r2) -> r1));
+
+            List<EntityHierarchyRecord> toInsert = new ArrayList<>();
+            List<EntityHierarchyRecord> toUpdate = new ArrayList<>();
+
+            for (EntityHierarchyItem item : hierarchyItems) {
+                EntityHierarchyRecord desired = ITEM_TO_RECORD_MAPPER.apply(item);
+                EntityHierarchyRecord existing = existingByKey.remove(tuple(desired.getId(), desired.getAncestorId()));
+
+                if (existing == null) {
+                    toInsert.add(desired);
+                } else if (!Objects.equals(existing.getLevel(), desired.getLevel())
+                        || !Objects.equals(existing.getDescendantLevel(), desired.getDescendantLevel())) {
+                    toUpdate.add(desired);
+                }
+            }
+
+            // anything left over is no longer part of the hierarchy
+            Collection<EntityHierarchyRecord> toDelete = existingByKey.values();
+
+            LOG.info(
+                    "Applying hierarchy changes for kind: {}, inserting: {}, updating: {}, deleting: {}",
+                    kind,
+                    toInsert.size(),
+                    toUpdate.size(),
+                    toDelete.size());
+
+            List<Query> changes = new ArrayList<>();
+            toDelete.forEach(r -> changes.add(txDsl
+                    .deleteFrom(ENTITY_HIERARCHY)
+                    .where(mkRowCondition(kind, r))));
+            toUpdate.forEach(r -> changes.add(txDsl
+                    .update(ENTITY_HIERARCHY)
+                    .set(ENTITY_HIERARCHY.LEVEL, r.getLevel())
+                    .set(ENTITY_HIERARCHY.DESCENDANT_LEVEL, r.getDescendantLevel())
+                    .where(mkRowCondition(kind, r))));
+
+            if (!changes.isEmpty()) {
+                txDsl.batch(changes).execute();
+            }
+
+            if (!toInsert.isEmpty()) {
+                txDsl.batchInsert(toInsert).execute();
+            }
+
+            return toInsert.size() + toUpdate.size() + toDelete.size();
+        });
+    }
+
+
     public List<Tally<String>> tallyByKind() {
         return JooqUtilities.calculateStringTallies(dsl, eh, eh.KIND, DSL.trueCondition());
     }
@@ -145,4 +241,53 @@ public class EntityHierarchyDao {
                 .fetch(TO_DOMAIN_MAPPER);
     }
 
+
+    /**
+     * Reconstructs the (id, parent id) nodes of a hierarchy from its closure rows.
+     * A node's parent is the ancestor exactly one level above it, roots only have
+     * their self row.
+     *
+     * @param kind  the entity kind of the hierarchy
+     * @return a node for every entity in the hierarchy
+     */
+    public List<FlatNode<Long, Long>> findHierarchyNodes(EntityKind kind) {
+        checkNotNull(kind, "kind cannot be null");
+
+        Map<Long, Long> parentsById = new HashMap<>();
+
+        dsl.select(ENTITY_HIERARCHY.ID, ENTITY_HIERARCHY.ANCESTOR_ID)
+                .from(ENTITY_HIERARCHY)
+                .where(ENTITY_HIERARCHY.KIND.eq(kind.name()))
+                .and(ENTITY_HIERARCHY.ID.eq(ENTITY_HIERARCHY.ANCESTOR_ID)
+                        .or(ENTITY_HIERARCHY.LEVEL.eq(ENTITY_HIERARCHY.DESCENDANT_LEVEL.minus(1))))
+                .forEach(r -> {
+                    Long id = r.get(ENTITY_HIERARCHY.ID);
+                    Long ancestorId = r.get(ENTITY_HIERARCHY.ANCESTOR_ID);
+                    if (id.equals(ancestorId)) {
+                        parentsById.putIfAbsent(id, null);
+                    } else {
+                        parentsById.put(id, ancestorId);
+                    }
+                });
+
+        return parentsById
+                .entrySet()
+                .stream()
+                .map(e -> new FlatNode<>(e.getKey(), Optional.ofNullable(e.getValue()), e.getKey()))
+                .collect(Collectors.toList());
+    }
+
+
+    // --- helpers ---
+
+    private static Condition mkRowCondition(EntityKind kind, EntityHierarchyRecord r) {
+        Condition ancestorCondition = r.getAncestorId() == null
+                ? ENTITY_HIERARCHY.ANCESTOR_ID.isNull()
+                : ENTITY_HIERARCHY.ANCESTOR_ID.eq(r.getAncestorId());
+
+        return ENTITY_HIERARCHY.KIND.eq(kind.name())
+                .and(ENTITY_HIERARCHY.ID.eq(r.getId()))
+                .and(ancestorCondition);
+    }
+
 }
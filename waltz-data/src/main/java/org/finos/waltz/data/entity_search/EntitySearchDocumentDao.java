@@ -0,0 +1,235 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data.entity_search;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityLifecycleStatus;
+import org.finos.waltz.model.ImmutableEntityReference;
+import org.finos.waltz.model.entity_search.EntitySearchDocument;
+import org.finos.waltz.model.entity_search.ImmutableEntitySearchDocument;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static java.util.Collections.emptyList;
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.EnumUtilities.readEnum;
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.finos.waltz.common.MapUtilities.groupBy;
+import static org.finos.waltz.schema.Tables.ACTOR;
+import static org.finos.waltz.schema.Tables.APPLICATION;
+import static org.finos.waltz.schema.Tables.CHANGE_INITIATIVE;
+import static org.finos.waltz.schema.Tables.DATA_TYPE;
+import static org.finos.waltz.schema.Tables.ENTITY_ALIAS;
+import static org.finos.waltz.schema.Tables.EXTERNAL_IDENTIFIER;
+import static org.finos.waltz.schema.Tables.LEGAL_ENTITY;
+import static org.finos.waltz.schema.Tables.MEASURABLE;
+import static org.finos.waltz.schema.Tables.ORGANISATIONAL_UNIT;
+import static org.finos.waltz.schema.Tables.PERSON;
+import static org.finos.waltz.schema.Tables.SERVER_INFORMATION;
+
+/**
+ * Loads the searchable attributes (names, codes, aliases and external identifiers)
+ * of entities so they can be held in the in-memory search index.
+ */
+@Repository
+public class EntitySearchDocumentDao {
+
+    private static final Map<EntityKind, DocumentSource> SOURCES = new EnumMap<>(EntityKind.class);
+
+    static {
+        SOURCES.put(EntityKind.ACTOR, new DocumentSource(ACTOR, ACTOR.ID, ACTOR.NAME, asList(ACTOR.EXTERNAL_ID), null, null));
+        SOURCES.put(EntityKind.APPLICATION, new DocumentSource(APPLICATION, APPLICATION.ID, APPLICATION.NAME, asList(APPLICATION.ASSET_CODE), APPLICATION.ENTITY_LIFECYCLE_STATUS, APPLICATION.IS_REMOVED));
+        SOURCES.put(EntityKind.CHANGE_INITIATIVE, new DocumentSource(CHANGE_INITIATIVE, CHANGE_INITIATIVE.ID, CHANGE_INITIATIVE.NAME, asList(CHANGE_INITIATIVE.EXTERNAL_ID), null, null));
+        SOURCES.put(EntityKind.DATA_TYPE, new DocumentSource(DATA_TYPE, DATA_TYPE.ID, DATA_TYPE.NAME, asList(DATA_TYPE.CODE), null, null));
+        SOURCES.put(EntityKind.LEGAL_ENTITY, new DocumentSource(LEGAL_ENTITY, LEGAL_ENTITY.ID, LEGAL_ENTITY.NAME, asList(LEGAL_ENTITY.EXTERNAL_ID), LEGAL_ENTITY.ENTITY_LIFECYCLE_STATUS, null));
+        SOURCES.put(EntityKind.MEASURABLE, new DocumentSource(MEASURABLE, MEASURABLE.ID, MEASURABLE.NAME, asList(MEASURABLE.EXTERNAL_ID), MEASURABLE.ENTITY_LIFECYCLE_STATUS, null));
+        SOURCES.put(EntityKind.ORG_UNIT, new DocumentSource(ORGANISATIONAL_UNIT, ORGANISATIONAL_UNIT.ID, ORGANISATIONAL_UNIT.NAME, asList(ORGANISATIONAL_UNIT.EXTERNAL_ID), null, null));
+        SOURCES.put(EntityKind.PERSON, new DocumentSource(PERSON, PERSON.ID, PERSON.DISPLAY_NAME, asList(PERSON.EMAIL, PERSON.EMPLOYEE_ID), null, PERSON.IS_REMOVED));
+        SOURCES.put(EntityKind.SERVER, new DocumentSource(SERVER_INFORMATION, SERVER_INFORMATION.ID, SERVER_INFORMATION.HOSTNAME, asList(SERVER_INFORMATION.EXTERNAL_ID), null, null));
+    }
+
+
+    private final DSLContext dsl;
+
+
+    @Autowired
+    public EntitySearchDocumentDao(DSLContext dsl) {
+        checkNotNull(dsl, "dsl cannot be null");
+        this.dsl = dsl;
+    }
+
+
+    /**
+     * @return the entity kinds which this dao can load documents for
+     */
+    public static Set<EntityKind> supportedKinds() {
+        return Collections.unmodifiableSet(SOURCES.keySet());
+    }
+
+
+    public List<EntitySearchDocument> findAllForKind(EntityKind kind) {
+        return findForKind(kind, DSL.trueCondition(), DSL.trueCondition(), DSL.trueCondition());
+    }
+
+
+    /**
+     * Loads documents for the given entities.  Ids which no longer exist are simply absent from the result.
+     */
+    public List<EntitySearchDocument> findForKindAndIds(EntityKind kind, Collection<Long> ids) {
+        DocumentSource source = SOURCES.get(kind);
+        if (source == null || ids.isEmpty()) {
+            return emptyList();
+        }
+
+        return findForKind(
+                kind,
+                source.idField.in(ids),
+                ENTITY_ALIAS.ID.in(ids),
+                EXTERNAL_IDENTIFIER.ENTITY_ID.in(ids));
+    }
+
+
+    // --- helpers ---
+
+    private List<EntitySearchDocument> findForKind(EntityKind kind,
+                                                   Condition entityCondition,
+                                                   Condition aliasCondition,
+                                                   Condition externalIdCondition) {
+        DocumentSource source = SOURCES.get(kind);
+        if (source == null) {
+            return emptyList();
+        }
+
+        Map<Long, Collection<String>> aliasesById = groupBy(
+                dsl.select(ENTITY_ALIAS.ID, ENTITY_ALIAS.ALIAS)
+                        .from(ENTITY_ALIAS)
+                        .where(ENTITY_ALIAS.KIND.eq(kind.name()))
+                        .and(aliasCondition)
+                        .fetch(),
+                r -> r.get(ENTITY_ALIAS.ID),
+                r -> r.get(ENTITY_ALIAS.ALIAS));
+
+        Map<Long, Collection<String>> externalIdsById = groupBy(
+                dsl.select(EXTERNAL_IDENTIFIER.ENTITY_ID, EXTERNAL_IDENTIFIER.EXTERNAL_ID)
+                        .from(EXTERNAL_IDENTIFIER)
+                        .where(EXTERNAL_IDENTIFIER.ENTITY_KIND.eq(kind.name()))
+                        .and(externalIdCondition)
+                        .fetch(),
+                r -> r.get(EXTERNAL_IDENTIFIER.ENTITY_ID),
+                r -> r.get(EXTERNAL_IDENTIFIER.EXTERNAL_ID));
+
+        return dsl
+                .select(source.fields())
+                .from(source.table)
+                .where(entityCondition)
+                .fetch(r -> toDocument(kind, source, r, aliasesById, externalIdsById));
+    }
+
+
+    private static EntitySearchDocument toDocument(EntityKind kind,
+                                                   DocumentSource source,
+                                                   Record r,
+                                                   Map<Long, Collection<String>> aliasesById,
+                                                   Map<Long, Collection<String>> externalIdsById) {
+        long id = r.get(source.idField);
+
+        List<String> codes = new ArrayList<>();
+        source.codeFields.forEach(f -> Optional.ofNullable(r.get(f)).ifPresent(codes::add));
+        codes.addAll(externalIdsById.getOrDefault(id, emptyList()));
+
+        ImmutableEntityReference ref = ImmutableEntityReference
+                .builder()
+                .kind(kind)
+                .id(id)
+                .name(Optional.ofNullable(r.get(source.nameField)))
+                .externalId(codes.stream().findFirst())
+                .entityLifecycleStatus(determineLifecycleStatus(source, r))
+                .build();
+
+        return ImmutableEntitySearchDocument
+                .builder()
+                .entityReference(ref)
+                .codes(codes)
+                .aliases(aliasesById.getOrDefault(id, emptyList()))
+                .build();
+    }
+
+
+    private static EntityLifecycleStatus determineLifecycleStatus(DocumentSource source, Record r) {
+        if (source.isRemovedField != null && Boolean.TRUE.equals(r.get(source.isRemovedField))) {
+            return EntityLifecycleStatus.REMOVED;
+        }
+
+        return source.lifecycleField == null
+                ? EntityLifecycleStatus.ACTIVE
+                : readEnum(r.get(source.lifecycleField), EntityLifecycleStatus.class, s -> EntityLifecycleStatus.ACTIVE);
+    }
+
+
+    private static class DocumentSource {
+
+        private final Table<?> table;
+        private final Field<Long> idField;
+        private final Field<String> nameField;
+        private final List<Field<String>> codeFields;
+        private final Field<String> lifecycleField;
+        private final Field<Boolean> isRemovedField;
+
+
+        private DocumentSource(Table<?> table,
+                               Field<Long> idField,
+                               Field<String> nameField,
+                               List<Field<String>> codeFields,
+                               Field<String> lifecycleField,
+                               Field<Boolean> isRemovedField) {
+            this.table = table;
+            this.idField = idField;
+            this.nameField = nameField;
+            this.codeFields = codeFields;
+            this.lifecycleField = lifecycleField;
+            this.isRemovedField = isRemovedField;
+        }
+
+
+        private List<Field<?>> fields() {
+            List<Field<?>> fields = new ArrayList<>();
+            fields.add(idField);
+            fields.add(nameField);
+            fields.addAll(codeFields);
+            Optional.ofNullable(lifecycleField).ifPresent(fields::add);
+            Optional.ofNullable(isRemovedField).ifPresent(fields::add);
+            return fields;
+        }
+    }
+}
@@ -153,7 +153,7 @@ public class EntityStatisticSummaryDao {
         }
 
         List<Future<TallyPack<String>>> summaryFutures = statisticIds.stream()
-                .map(statId -> dbExecutorPool.submit(() ->
+                .map(statId -> dbExecutorPool.submit("entity-statistic-summary", () ->
                         generateWithNoRollup(statId, entityReference)))
                 .collect(toList());
 
@@ -291,7 +291,7 @@ public class EntityStatisticSummaryDao {
         }
 
         List<Future<TallyPack<String>>> summaryFutures = statisticIds.stream()
-                .map(statId -> dbExecutorPool.submit(() ->
+                .map(statId -> dbExecutorPool.submit("entity-statistic-summary", () ->
                         generateSummary(statId, appIdSelector, aggregateField, toTally)))
                 .collect(toList());
 
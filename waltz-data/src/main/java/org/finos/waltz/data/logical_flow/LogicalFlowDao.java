@@ -392,6 +392,7 @@ public class LogicalFlowDao {
                 .update(LOGICAL_FLOW)
                 .set(LOGICAL_FLOW.ENTITY_LIFECYCLE_STATUS, REMOVED.name())
                 .set(LOGICAL_FLOW.IS_REMOVED, true)
+                .set(LOGICAL_FLOW.LAST_UPDATED_AT, Timestamp.valueOf(nowUtc()))
                 .where(requiringCleanup)
                 .execute();
     }
@@ -418,6 +419,7 @@ public class LogicalFlowDao {
                 .update(LOGICAL_FLOW)
                 .set(LOGICAL_FLOW.ENTITY_LIFECYCLE_STATUS, REMOVED.name())
                 .set(LOGICAL_FLOW.IS_REMOVED, true)
+                .set(LOGICAL_FLOW.LAST_UPDATED_AT, Timestamp.valueOf(nowUtc()))
                 .where(requiringCleanup)
                 .execute();
     }
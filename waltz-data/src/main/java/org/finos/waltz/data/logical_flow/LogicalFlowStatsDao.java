@@ -119,9 +119,9 @@ public class LogicalFlowStatsDao {
                     .from(APPLICATION)
                     .where(dsl.renderInlined(APPLICATION.ID.in(appIdSelector)));
 
-        Future<Integer> inAppCount = dbExecutorPool.submit(() -> inAppCounter.fetchOne().value1());
-        Future<Integer> outAppCount = dbExecutorPool.submit(() -> outAppCounter.fetchOne().value1());
-        Future<Integer> intraAppCount = dbExecutorPool.submit(() -> intraAppCounter.fetchOne().value1());
+        Future<Integer> inAppCount = dbExecutorPool.submit("logical-flow-stats", () -> inAppCounter.fetchOne().value1());
+        Future<Integer> outAppCount = dbExecutorPool.submit("logical-flow-stats", () -> outAppCounter.fetchOne().value1());
+        Future<Integer> intraAppCount = dbExecutorPool.submit("logical-flow-stats", () -> intraAppCounter.fetchOne().value1());
 
         Supplier<ImmutableLogicalFlowMeasures> appCountSupplier = Unchecked.supplier(() -> ImmutableLogicalFlowMeasures.builder()
                 .inbound(inAppCount.get())
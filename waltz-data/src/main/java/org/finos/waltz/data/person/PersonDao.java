@@ -18,6 +18,7 @@
 
 package org.finos.waltz.data.person;
 
+import org.finos.waltz.common.hierarchy.FlatNode;
 import org.finos.waltz.schema.tables.records.PersonRecord;
 import org.finos.waltz.model.person.ImmutablePerson;
 import org.finos.waltz.model.person.Person;
@@ -280,4 +281,25 @@ public class PersonDao {
         return qry
                 .fetch(personMapper);
     }
+
+
+    /**
+     * Returns the management hierarchy of active people as (person id, manager person id) nodes.
+     * People whose manager cannot be found have no parent.
+     */
+    public List<FlatNode<Long, Long>> findManagementHierarchyNodes() {
+        org.finos.waltz.schema.tables.Person manager = PERSON.as("manager");
+
+        return dsl
+                .select(PERSON.ID, manager.ID)
+                .from(PERSON)
+                .leftJoin(manager)
+                .on(manager.EMPLOYEE_ID.eq(PERSON.MANAGER_EMPLOYEE_ID)
+                        .and(manager.IS_REMOVED.isFalse()))
+                .where(PERSON.IS_REMOVED.isFalse())
+                .fetch(r -> new FlatNode<>(
+                        r.value1(),
+                        Optional.ofNullable(r.value2()),
+                        r.value1()));
+    }
 }
@@ -64,8 +64,8 @@ public class PersonSearchDao implements SearchDao<Person> {
 
         Condition displayNameCondition = mkBasicTermSearch(PERSON.DISPLAY_NAME, terms);
 
-        Future<List<Person>> peopleViaEmail = dbExecutorPool.submit(() -> executeWithCondition(options, PERSON.EMAIL.startsWithIgnoreCase(options.searchQuery())));
-        Future<List<Person>> peopleViaName = dbExecutorPool.submit(() -> executeWithCondition(options, displayNameCondition));
+        Future<List<Person>> peopleViaEmail = dbExecutorPool.submit("person-search", () -> executeWithCondition(options, PERSON.EMAIL.startsWithIgnoreCase(options.searchQuery())));
+        Future<List<Person>> peopleViaName = dbExecutorPool.submit("person-search", () -> executeWithCondition(options, displayNameCondition));
 
         return new ArrayList<>(Unchecked.supplier(() ->
                 orderedUnion(
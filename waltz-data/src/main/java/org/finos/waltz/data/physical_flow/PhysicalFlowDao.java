@@ -50,16 +50,27 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.stream.Collectors.toList;
 import static org.finos.waltz.common.Checks.checkFalse;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.DateTimeUtilities.nowUtcTimestamp;
+import static org.finos.waltz.common.ListUtilities.asList;
 import static org.finos.waltz.common.ListUtilities.newArrayList;
+import static org.finos.waltz.common.ListUtilities.partition;
+import static org.finos.waltz.common.SetUtilities.map;
+import static org.finos.waltz.data.JooqUtilities.MAX_BIND_VALUES;
+import static org.finos.waltz.data.JooqUtilities.insertReturningIds;
 import static org.finos.waltz.data.logical_flow.LogicalFlowDao.LOGICAL_NOT_REMOVED;
 import static org.finos.waltz.model.EntityLifecycleStatus.REMOVED;
 import static org.finos.waltz.model.EntityReference.mkRef;
@@ -105,6 +116,19 @@ public class PhysicalFlowDao {
             .and(PHYSICAL_FLOW.ENTITY_LIFECYCLE_STATUS.ne(EntityLifecycleStatus.REMOVED.name()));
 
 
+    // identifies a new flow when matching generated ids back to the flows given to `createAll`
+    private static final List<TableField<PhysicalFlowRecord, ?>> NEW_FLOW_KEY_FIELDS = asList(
+            PHYSICAL_FLOW.LOGICAL_FLOW_ID,
+            PHYSICAL_FLOW.SPECIFICATION_ID,
+            PHYSICAL_FLOW.FREQUENCY,
+            PHYSICAL_FLOW.TRANSPORT,
+            PHYSICAL_FLOW.BASIS_OFFSET,
+            PHYSICAL_FLOW.CRITICALITY,
+            PHYSICAL_FLOW.EXTERNAL_ID);
+
+    // each parsed flow adds up to four values (source, target, owner and name) to a lookup, leaving headroom for the rest
+    private static final int PARSED_FLOWS_PER_LOOKUP = MAX_BIND_VALUES / 5;
+
     private final DSLContext dsl;
 
 
@@ -243,6 +267,105 @@ public class PhysicalFlowDao {
     }
 
 
+    /**
+     * Set based equivalent of `getByParsedFlow`.  One query per chunk of parsed flows
+     * fetches the candidate flows between their sources and targets, these are then
+     * matched to the parsed flows in memory using the same criteria as `getByParsedFlow`.
+     *
+     * @param flows  parsed flows, all references and enum values must be resolved
+     * @return  existing physical flows keyed by the parsed flow they match, unmatched flows are omitted
+     */
+    public Map<PhysicalFlowParsed, PhysicalFlow> findByParsedFlows(Collection<PhysicalFlowParsed> flows) {
+        checkNotNull(flows, "flows cannot be null");
+
+        if (flows.isEmpty()) {
+            return emptyMap();
+        }
+
+        Map<List<Object>, PhysicalFlow> candidatesByKey = new HashMap<>();
+
+        partition(flows, PARSED_FLOWS_PER_LOOKUP)
+                .forEach(chunk -> findCandidatesForParsedFlows(chunk)
+                        .forEach(candidatesByKey::putIfAbsent));
+
+        Map<PhysicalFlowParsed, PhysicalFlow> matches = new HashMap<>();
+
+        for (PhysicalFlowParsed flow : flows) {
+            PhysicalFlow match = candidatesByKey.get(mkParsedFlowKey(
+                    flow.source().kind().name(),
+                    flow.source().id(),
+                    flow.target().kind().name(),
+                    flow.target().id(),
+                    flow.owner().kind().name(),
+                    flow.owner().id(),
+                    flow.format().value(),
+                    flow.name(),
+                    flow.dataType().id(),
+                    flow.basisOffset(),
+                    flow.frequency().value(),
+                    flow.transport().value(),
+                    flow.criticality().value()));
+
+            if (match != null) {
+                matches.put(flow, match);
+            }
+        }
+
+        return matches;
+    }
+
+
+    private Map<List<Object>, PhysicalFlow> findCandidatesForParsedFlows(Collection<PhysicalFlowParsed> flows) {
+        Condition logicalFlowMatch = LOGICAL_FLOW.SOURCE_ENTITY_ID.in(map(flows, f -> f.source().id()))
+                .and(LOGICAL_FLOW.TARGET_ENTITY_ID.in(map(flows, f -> f.target().id())))
+                .and(LOGICAL_FLOW.ENTITY_LIFECYCLE_STATUS.ne(REMOVED.name()));
+
+        Condition specMatch = PHYSICAL_SPECIFICATION.OWNING_ENTITY_ID.in(map(flows, f -> f.owner().id()))
+                .and(PHYSICAL_SPECIFICATION.NAME.in(map(flows, PhysicalFlowParsed::name)))
+                .and(PHYSICAL_SPECIFICATION.IS_REMOVED.isFalse());
+
+        Map<List<Object>, PhysicalFlow> candidatesByKey = new HashMap<>();
+
+        dsl
+            .select(PHYSICAL_FLOW.fields())
+            .select(LOGICAL_FLOW.SOURCE_ENTITY_KIND,
+                    LOGICAL_FLOW.SOURCE_ENTITY_ID,
+                    LOGICAL_FLOW.TARGET_ENTITY_KIND,
+                    LOGICAL_FLOW.TARGET_ENTITY_ID,
+                    PHYSICAL_SPECIFICATION.OWNING_ENTITY_KIND,
+                    PHYSICAL_SPECIFICATION.OWNING_ENTITY_ID,
+                    PHYSICAL_SPECIFICATION.FORMAT,
+                    PHYSICAL_SPECIFICATION.NAME,
+                    PHYSICAL_SPEC_DATA_TYPE.DATA_TYPE_ID)
+            .from(PHYSICAL_FLOW)
+            .join(LOGICAL_FLOW).on(LOGICAL_FLOW.ID.eq(PHYSICAL_FLOW.LOGICAL_FLOW_ID))
+            .join(PHYSICAL_SPECIFICATION).on(PHYSICAL_SPECIFICATION.ID.eq(PHYSICAL_FLOW.SPECIFICATION_ID))
+            .join(PHYSICAL_SPEC_DATA_TYPE).on(PHYSICAL_SPEC_DATA_TYPE.SPECIFICATION_ID.eq(PHYSICAL_SPECIFICATION.ID))
+            .where(logicalFlowMatch)
+            .and(specMatch)
+            .and(PHYSICAL_FLOW_NOT_REMOVED)
+            .fetch()
+            .forEach(r -> candidatesByKey.putIfAbsent(
+                    mkParsedFlowKey(
+                            r.get(LOGICAL_FLOW.SOURCE_ENTITY_KIND),
+                            r.get(LOGICAL_FLOW.SOURCE_ENTITY_ID),
+                            r.get(LOGICAL_FLOW.TARGET_ENTITY_KIND),
+                            r.get(LOGICAL_FLOW.TARGET_ENTITY_ID),
+                            r.get(PHYSICAL_SPECIFICATION.OWNING_ENTITY_KIND),
+                            r.get(PHYSICAL_SPECIFICATION.OWNING_ENTITY_ID),
+                            r.get(PHYSICAL_SPECIFICATION.FORMAT),
+                            r.get(PHYSICAL_SPECIFICATION.NAME),
+                            r.get(PHYSICAL_SPEC_DATA_TYPE.DATA_TYPE_ID),
+                            r.get(PHYSICAL_FLOW.BASIS_OFFSET),
+                            r.get(PHYSICAL_FLOW.FREQUENCY),
+                            r.get(PHYSICAL_FLOW.TRANSPORT),
+                            r.get(PHYSICAL_FLOW.CRITICALITY)),
+                    TO_DOMAIN_MAPPER.map(r)));
+
+        return candidatesByKey;
+    }
+
+
     /**
      * Returns the flow in the database that matches the parameter based on all attributes except possibly id
      *
@@ -269,6 +392,22 @@ public class PhysicalFlowDao {
     }
 
 
+    /**
+     * Returns all physical flows (including removed flows) for the given logical flows,
+     * allows callers to perform `matchPhysicalFlow` style matching in memory.
+     *
+     * @param logicalFlowIds  logical flow ids
+     * @return  physical flows belonging to the logical flows
+     */
+    public List<PhysicalFlow> findByLogicalFlowIds(Collection<Long> logicalFlowIds) {
+        checkNotNull(logicalFlowIds, "logicalFlowIds cannot be null");
+
+        return partition(logicalFlowIds, MAX_BIND_VALUES)
+                .stream()
+                .flatMap(ids -> findByCondition(PHYSICAL_FLOW.LOGICAL_FLOW_ID.in(ids)).stream())
+                .collect(toList());
+    }
+
     /**
      * Soft deletes the physical flow in the database that matches the parameter flowId
      *
@@ -298,30 +437,36 @@ public class PhysicalFlowDao {
         checkNotNull(flow, "flow cannot be null");
         checkFalse(flow.id().isPresent(), "flow must not have an id");
 
-        PhysicalFlowRecord record = dsl.newRecord(PHYSICAL_FLOW);
-        record.setLogicalFlowId(flow.logicalFlowId());
+        PhysicalFlowRecord record = mkRecord(dsl, flow);
+        record.store();
+        return record.getId();
+    }
 
-        record.setFrequency(flow.frequency().value());
-        record.setTransport(flow.transport().value());
-        record.setBasisOffset(flow.basisOffset());
-        record.setCriticality(flow.criticality().value());
 
-        record.setSpecificationId(flow.specificationId());
+    /**
+     * Creates the given flows using multi-row inserts (in a single transaction).
+     *
+     * @param flows  flows to create, must not have ids
+     * @return  generated ids, in the same order as the given flows
+     */
+    public List<Long> createAll(List<PhysicalFlow> flows) {
+        checkNotNull(flows, "flows cannot be null");
 
-        record.setDescription(flow.description());
-        record.setLastUpdatedBy(flow.lastUpdatedBy());
-        record.setLastUpdatedAt(Timestamp.valueOf(flow.lastUpdatedAt()));
-        record.setLastAttestedBy(flow.lastAttestedBy().orElse(null));
-        record.setLastAttestedAt(flow.lastAttestedAt().map(Timestamp::valueOf).orElse(null));
-        record.setIsRemoved(flow.isRemoved());
-        record.setProvenance("waltz");
-        record.setExternalId(flow.externalId().orElse(null));
+        if (flows.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-        record.setCreatedAt(flow.created().map(UserTimestamp::atTimestamp).orElse(Timestamp.valueOf(flow.lastUpdatedAt())));
-        record.setCreatedBy(flow.created().map(UserTimestamp::by).orElse(flow.lastUpdatedBy()));
+        return dsl.transactionResult(ctx -> {
+            DSLContext tx = ctx.dsl();
 
-        record.store();
-        return record.getId();
+            List<PhysicalFlowRecord> records = flows
+                    .stream()
+                    .peek(flow -> checkFalse(flow.id().isPresent(), "flow must not have an id"))
+                    .map(flow -> mkRecord(tx, flow))
+                    .collect(toList());
+
+            return insertReturningIds(tx, PHYSICAL_FLOW.ID, records, NEW_FLOW_KEY_FIELDS);
+        });
     }
 
 
@@ -546,4 +691,35 @@ public class PhysicalFlowDao {
                 .where(PHYSICAL_FLOW.ID.eq(flowId))
                 .execute();
     }
+
+
+    private static PhysicalFlowRecord mkRecord(DSLContext ctx, PhysicalFlow flow) {
+        PhysicalFlowRecord record = ctx.newRecord(PHYSICAL_FLOW);
+        record.setLogicalFlowId(flow.logicalFlowId());
+
+        record.setFrequency(flow.frequency().value());
+        record.setTransport(flow.transport().value());
+        record.setBasisOffset(flow.basisOffset());
+        record.setCriticality(flow.criticality().value());
+
+        record.setSpecificationId(flow.specificationId());
+
+        record.setDescription(flow.description());
+        record.setLastUpdatedBy(flow.lastUpdatedBy());
+        record.setLastUpdatedAt(Timestamp.valueOf(flow.lastUpdatedAt()));
+        record.setLastAttestedBy(flow.lastAttestedBy().orElse(null));
+        record.setLastAttestedAt(flow.lastAttestedAt().map(Timestamp::valueOf).orElse(null));
+        record.setIsRemoved(flow.isRemoved());
+        record.setProvenance("waltz");
+        record.setExternalId(flow.externalId().orElse(null));
+
+        record.setCreatedAt(flow.created().map(UserTimestamp::atTimestamp).orElse(Timestamp.valueOf(flow.lastUpdatedAt())));
+        record.setCreatedBy(flow.created().map(UserTimestamp::by).orElse(flow.lastUpdatedBy()));
+        return record;
+    }
+
+
+    private static List<Object> mkParsedFlowKey(Object... parts) {
+        return Arrays.asList(parts);
+    }
 }
@@ -50,20 +50,32 @@ import org.jooq.SelectConditionStep;
 import org.jooq.SelectHavingConditionStep;
 import org.jooq.SelectJoinStep;
 import org.jooq.SelectOrderByStep;
+import org.jooq.TableField;
 import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
+import static java.lang.String.format;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
 import static org.finos.waltz.common.Checks.checkFalse;
 import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.ListUtilities.asList;
 import static org.finos.waltz.common.ListUtilities.newArrayList;
+import static org.finos.waltz.common.ListUtilities.partition;
 import static org.finos.waltz.common.SetUtilities.asSet;
 import static org.finos.waltz.common.SetUtilities.union;
+import static org.finos.waltz.data.JooqUtilities.MAX_BIND_VALUES;
+import static org.finos.waltz.data.JooqUtilities.insertReturningIds;
 import static org.finos.waltz.data.logical_flow.LogicalFlowDao.LOGICAL_NOT_REMOVED;
 import static org.finos.waltz.data.physical_flow.PhysicalFlowDao.PHYSICAL_FLOW_NOT_REMOVED;
 import static org.finos.waltz.model.EntityReference.mkRef;
@@ -115,6 +127,14 @@ public class PhysicalSpecificationDao {
 
     public static final Condition PHYSICAL_SPEC_NOT_REMOVED = PHYSICAL_SPECIFICATION.IS_REMOVED.isFalse();
 
+    // identifies a new specification when matching generated ids back to the specifications given to `createAll`
+    private static final List<TableField<PhysicalSpecificationRecord, ?>> NEW_SPECIFICATION_KEY_FIELDS = asList(
+            PHYSICAL_SPECIFICATION.OWNING_ENTITY_KIND,
+            PHYSICAL_SPECIFICATION.OWNING_ENTITY_ID,
+            PHYSICAL_SPECIFICATION.NAME,
+            PHYSICAL_SPECIFICATION.EXTERNAL_ID,
+            PHYSICAL_SPECIFICATION.FORMAT);
+
 
     private final DSLContext dsl;
 
@@ -184,6 +204,33 @@ public class PhysicalSpecificationDao {
     }
 
 
+    /**
+     * Set based equivalent of `getByParsedFlow`, returns all active specifications
+     * owned by any of the given entities (queried in chunks of owners).  Callers are
+     * expected to match on name and format in memory.
+     *
+     * @param owners  owning entities (applications or actors)
+     * @return  active specifications owned by the given entities
+     */
+    public List<PhysicalSpecification> findActiveByOwningEntities(Collection<EntityReference> owners) {
+        checkNotNull(owners, "owners cannot be null");
+
+        return owners
+                .stream()
+                .collect(groupingBy(EntityReference::kind, mapping(EntityReference::id, toSet())))
+                .entrySet()
+                .stream()
+                .flatMap(e -> partition(e.getValue(), MAX_BIND_VALUES)
+                        .stream()
+                        .map(ids -> PHYSICAL_SPECIFICATION.OWNING_ENTITY_KIND.eq(e.getKey().name())
+                                .and(PHYSICAL_SPECIFICATION.OWNING_ENTITY_ID.in(ids))))
+                .flatMap(ownerCondition -> basicSelectByCondition(ownerCondition.and(PHYSICAL_SPEC_NOT_REMOVED))
+                        .fetch(TO_DOMAIN_MAPPER)
+                        .stream())
+                .collect(toList());
+    }
+
+
     public boolean isUsed(long id) {
         Field<Boolean> specUsed = DSL.when(
                     exists(select(PHYSICAL_FLOW.ID)
@@ -204,24 +251,36 @@ public class PhysicalSpecificationDao {
         checkNotNull(specification, "specification cannot be null");
         checkFalse(specification.id().isPresent(), "specification must not have an id");
 
-        PhysicalSpecificationRecord record = dsl.newRecord(PHYSICAL_SPECIFICATION);
-        record.setOwningEntityKind(specification.owningEntity().kind().name());
-        record.setOwningEntityId(specification.owningEntity().id());
+        PhysicalSpecificationRecord record = mkRecord(dsl, specification);
+        record.store();
+        return record.getId();
+    }
 
-        record.setName(specification.name());
-        record.setExternalId(specification.externalId().orElse(""));
-        record.setDescription(specification.description());
-        record.setFormat(specification.format().value());
-        record.setLastUpdatedAt(Timestamp.valueOf(specification.lastUpdatedAt()));
-        record.setLastUpdatedBy(specification.lastUpdatedBy());
-        record.setIsRemoved(specification.isRemoved());
-        record.setProvenance("waltz");
 
-        record.setCreatedAt(specification.created().get().atTimestamp());
-        record.setCreatedBy(specification.created().get().by());
+    /**
+     * Creates the given specifications using multi-row inserts (in a single transaction).
+     *
+     * @param specifications  specifications to create, must not have ids
+     * @return  generated ids, in the same order as the given specifications
+     */
+    public List<Long> createAll(List<PhysicalSpecification> specifications) {
+        checkNotNull(specifications, "specifications cannot be null");
 
-        record.store();
-        return record.getId();
+        if (specifications.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        return dsl.transactionResult(ctx -> {
+            DSLContext tx = ctx.dsl();
+
+            List<PhysicalSpecificationRecord> records = specifications
+                    .stream()
+                    .peek(spec -> checkFalse(spec.id().isPresent(), "specification must not have an id"))
+                    .map(spec -> mkRecord(tx, spec))
+                    .collect(toList());
+
+            return insertReturningIds(tx, PHYSICAL_SPECIFICATION.ID, records, NEW_SPECIFICATION_KEY_FIELDS);
+        });
     }
 
 
@@ -430,4 +489,24 @@ public class PhysicalSpecificationDao {
             return operationsForEntity;
         }
     }
+
+
+    private static PhysicalSpecificationRecord mkRecord(DSLContext ctx, PhysicalSpecification specification) {
+        PhysicalSpecificationRecord record = ctx.newRecord(PHYSICAL_SPECIFICATION);
+        record.setOwningEntityKind(specification.owningEntity().kind().name());
+        record.setOwningEntityId(specification.owningEntity().id());
+
+        record.setName(specification.name());
+        record.setExternalId(specification.externalId().orElse(""));
+        record.setDescription(specification.description());
+        record.setFormat(specification.format().value());
+        record.setLastUpdatedAt(Timestamp.valueOf(specification.lastUpdatedAt()));
+        record.setLastUpdatedBy(specification.lastUpdatedBy());
+        record.setIsRemoved(specification.isRemoved());
+        record.setProvenance("waltz");
+
+        record.setCreatedAt(specification.created().get().atTimestamp());
+        record.setCreatedBy(specification.created().get().by());
+        return record;
+    }
 }
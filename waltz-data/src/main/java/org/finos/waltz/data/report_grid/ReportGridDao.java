@@ -27,6 +27,7 @@ import org.finos.waltz.common.StringUtilities;
 import org.finos.waltz.common.hierarchy.FlatNode;
 import org.finos.waltz.common.hierarchy.Forest;
 import org.finos.waltz.common.hierarchy.Node;
+import org.finos.waltz.data.DBExecutorPoolInterface;
 import org.finos.waltz.data.GenericSelector;
 import org.finos.waltz.data.InlineSelectFieldFactory;
 import org.finos.waltz.model.Cardinality;
@@ -81,6 +82,7 @@ import org.jooq.SelectOrderByStep;
 import org.jooq.Table;
 import org.jooq.TableField;
 import org.jooq.impl.DSL;
+import org.jooq.lambda.Unchecked;
 import org.jooq.lambda.tuple.Tuple2;
 import org.jooq.lambda.tuple.Tuple3;
 import org.slf4j.Logger;
@@ -95,11 +97,17 @@ import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
@@ -111,6 +119,7 @@ import static java.util.Comparator.comparing;
 import static java.util.Optional.ofNullable;
 import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.*;
+import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.CollectionUtilities.isEmpty;
 import static org.finos.waltz.common.DateTimeUtilities.toLocalDate;
 import static org.finos.waltz.common.DateTimeUtilities.toLocalDateTime;
@@ -145,7 +154,21 @@ public class ReportGridDao {
 
     private static final Logger LOG = LoggerFactory.getLogger(ReportGridDao.class);
 
+    /**
+     * Upper bound on the number of column family queries a single grid
+     * may have in flight at once, this stops one wide grid from
+     * monopolising the shared db executor pool.
+     */
+    private static final int MAX_CONCURRENT_FETCHES_PER_GRID = 4;
+
+    /**
+     * Grids which take longer than this to fetch will have their
+     * per column family timings logged at info level (otherwise debug).
+     */
+    private static final long SLOW_GRID_THRESHOLD_MS = 1000;
+
     private final DSLContext dsl;
+    private final DBExecutorPoolInterface dbExecutorPool;
 
     private final org.finos.waltz.schema.tables.Measurable m = MEASURABLE.as("m");
     private final org.finos.waltz.schema.tables.MeasurableRating mr = MEASURABLE_RATING.as("mr");
@@ -211,8 +234,12 @@ public class ReportGridDao {
 
 
     @Autowired
-    public ReportGridDao(DSLContext dsl) {
+    public ReportGridDao(DSLContext dsl, DBExecutorPoolInterface dbExecutorPool) {
+        checkNotNull(dsl, "dsl cannot be null");
+        checkNotNull(dbExecutorPool, "dbExecutorPool cannot be null");
+
         this.dsl = dsl;
+        this.dbExecutorPool = dbExecutorPool;
     }
 
 
@@ -889,30 +916,119 @@ public class ReportGridDao {
                     .collect(groupingBy(t -> t.v2.entityKind(), toSet()));
 
 
-            return union(
-                    fetchAssessmentData(genericSelector, colsByKind.get(EntityKind.ASSESSMENT_DEFINITION)),
-                    fetchInvolvementData(genericSelector, colsByKind.get(EntityKind.INVOLVEMENT_KIND)),
-                    fetchCostData(genericSelector, colsByKind.get(EntityKind.COST_KIND)),
-                    fetchComplexityData(genericSelector, colsByKind.get(EntityKind.COMPLEXITY_KIND)),
-                    fetchSummaryMeasurableData(
+            List<Tuple2<String, Callable<Set<ReportGridCell>>>> fetchers = asList(
+                    mkFetcher("assessments", () -> fetchAssessmentData(genericSelector, colsByKind.get(EntityKind.ASSESSMENT_DEFINITION))),
+                    mkFetcher("involvements", () -> fetchInvolvementData(genericSelector, colsByKind.get(EntityKind.INVOLVEMENT_KIND))),
+                    mkFetcher("costs", () -> fetchCostData(genericSelector, colsByKind.get(EntityKind.COST_KIND))),
+                    mkFetcher("complexities", () -> fetchComplexityData(genericSelector, colsByKind.get(EntityKind.COMPLEXITY_KIND))),
+                    mkFetcher("summaryMeasurables", () -> fetchSummaryMeasurableData(
                             genericSelector,
                             measurableColumnsByRollupKind.getOrDefault(AdditionalColumnOptions.PICK_HIGHEST, emptySet()),
-                            measurableColumnsByRollupKind.getOrDefault(AdditionalColumnOptions.PICK_LOWEST, emptySet())),
-                    fetchExactMeasurableData(genericSelector, measurableColumnsByRollupKind.get(AdditionalColumnOptions.NONE)),
-                    fetchSurveyQuestionResponseData(genericSelector, colsByKind.get(EntityKind.SURVEY_QUESTION)),
-                    fetchSurveyTemplateResponseData(genericSelector, colsByKind.get(EntityKind.SURVEY_TEMPLATE)),
-                    fetchAppGroupData(genericSelector, colsByKind.get(EntityKind.APP_GROUP)),
-                    fetchApplicationFieldReferenceData(genericSelector, fieldRefColsByKind.get(EntityKind.APPLICATION)),
-                    fetchExactDataTypeData(genericSelector, dataTypeColumnsByIsExact.get(Boolean.TRUE)),
-                    fetchSummaryDataTypeData(genericSelector, dataTypeColumnsByIsExact.get(Boolean.FALSE)),
-                    fetchSurveyFieldReferenceData(genericSelector, fieldRefColsByKind.get(EntityKind.SURVEY_INSTANCE)),
-                    fetchChangeInitiativeFieldReferenceData(genericSelector, fieldRefColsByKind.get(EntityKind.CHANGE_INITIATIVE)),
-                    fetchAttestationData(genericSelector, colsByKind.get(EntityKind.ATTESTATION)),
-                    fetchOrgUnitFieldReferenceData(genericSelector, fieldRefColsByKind.get(EntityKind.ORG_UNIT)),
-                    fetchTagData(genericSelector, colsByKind.get(EntityKind.TAG)),
-                    fetchAliasData(genericSelector, colsByKind.get(EntityKind.ENTITY_ALIAS)),
-                    fetchMeasurableHierarchyData(genericSelector, colsByKind.get(EntityKind.MEASURABLE_CATEGORY)),
-                    fetchEntityStatisticData(genericSelector, colsByKind.get(EntityKind.ENTITY_STATISTIC)));
+                            measurableColumnsByRollupKind.getOrDefault(AdditionalColumnOptions.PICK_LOWEST, emptySet()))),
+                    mkFetcher("exactMeasurables", () -> fetchExactMeasurableData(genericSelector, measurableColumnsByRollupKind.get(AdditionalColumnOptions.NONE))),
+                    mkFetcher("surveyQuestions", () -> fetchSurveyQuestionResponseData(genericSelector, colsByKind.get(EntityKind.SURVEY_QUESTION))),
+                    mkFetcher("surveyTemplates", () -> fetchSurveyTemplateResponseData(genericSelector, colsByKind.get(EntityKind.SURVEY_TEMPLATE))),
+                    mkFetcher("appGroups", () -> fetchAppGroupData(genericSelector, colsByKind.get(EntityKind.APP_GROUP))),
+                    mkFetcher("applicationFields", () -> fetchApplicationFieldReferenceData(genericSelector, fieldRefColsByKind.get(EntityKind.APPLICATION))),
+                    mkFetcher("exactDataTypes", () -> fetchExactDataTypeData(genericSelector, dataTypeColumnsByIsExact.get(Boolean.TRUE))),
+                    mkFetcher("summaryDataTypes", () -> fetchSummaryDataTypeData(genericSelector, dataTypeColumnsByIsExact.get(Boolean.FALSE))),
+                    mkFetcher("surveyFields", () -> fetchSurveyFieldReferenceData(genericSelector, fieldRefColsByKind.get(EntityKind.SURVEY_INSTANCE))),
+                    mkFetcher("changeInitiativeFields", () -> fetchChangeInitiativeFieldReferenceData(genericSelector, fieldRefColsByKind.get(EntityKind.CHANGE_INITIATIVE))),
+                    mkFetcher("attestations", () -> fetchAttestationData(genericSelector, colsByKind.get(EntityKind.ATTESTATION))),
+                    mkFetcher("orgUnitFields", () -> fetchOrgUnitFieldReferenceData(genericSelector, fieldRefColsByKind.get(EntityKind.ORG_UNIT))),
+                    mkFetcher("tags", () -> fetchTagData(genericSelector, colsByKind.get(EntityKind.TAG))),
+                    mkFetcher("aliases", () -> fetchAliasData(genericSelector, colsByKind.get(EntityKind.ENTITY_ALIAS))),
+                    mkFetcher("measurableHierarchies", () -> fetchMeasurableHierarchyData(genericSelector, colsByKind.get(EntityKind.MEASURABLE_CATEGORY))),
+                    mkFetcher("entityStatistics", () -> fetchEntityStatisticData(genericSelector, colsByKind.get(EntityKind.ENTITY_STATISTIC))));
+
+            return fetchConcurrently(gridDefn, fetchers);
+        }
+    }
+
+
+    /**
+     * Runs the column family fetchers on the shared db executor pool, keeping at most
+     * `MAX_CONCURRENT_FETCHES_PER_GRID` in flight.  Cells are merged into the result
+     * as each fetcher completes (rather than waiting for the slowest) and the elapsed
+     * time for each family is logged so slow grids can be diagnosed.
+     *
+     * @param gridDefn  the grid being fetched, used for logging
+     * @param fetchers  list of (column family name, fetcher) tuples
+     * @return union of all cells produced by the fetchers
+     */
+    private Set<ReportGridCell> fetchConcurrently(ReportGridDefinition gridDefn,
+                                                  List<Tuple2<String, Callable<Set<ReportGridCell>>>> fetchers) {
+
+        long start = System.currentTimeMillis();
+
+        CompletionService<Tuple3<String, Long, Set<ReportGridCell>>> completionService = new ExecutorCompletionService<>(
+                task -> dbExecutorPool.submit("report-grid", Executors.callable(task)));
+
+        Iterator<Tuple2<String, Callable<Set<ReportGridCell>>>> pending = fetchers.iterator();
+        int inFlight = 0;
+
+        while (inFlight < MAX_CONCURRENT_FETCHES_PER_GRID && pending.hasNext()) {
+            submitTimedFetch(completionService, pending.next());
+            inFlight++;
+        }
+
+        Set<ReportGridCell> result = new HashSet<>();
+        List<Tuple2<String, Long>> timings = newArrayList();
+
+        while (inFlight > 0) {
+            Tuple3<String, Long, Set<ReportGridCell>> completed = Unchecked
+                    .supplier(() -> completionService.take().get())
+                    .get();
+            inFlight--;
+
+            result.addAll(completed.v3);
+            timings.add(tuple(completed.v1, completed.v2));
+
+            if (pending.hasNext()) {
+                submitTimedFetch(completionService, pending.next());
+                inFlight++;
+            }
+        }
+
+        logFetchTimings(gridDefn, System.currentTimeMillis() - start, timings);
+
+        return result;
+    }
+
+
+    private static Tuple2<String, Callable<Set<ReportGridCell>>> mkFetcher(String columnFamily,
+                                                                      Callable<Set<ReportGridCell>> fetcher) {
+        return tuple(columnFamily, fetcher);
+    }
+
+
+    private void submitTimedFetch(CompletionService<Tuple3<String, Long, Set<ReportGridCell>>> completionService,
+                                  Tuple2<String, Callable<Set<ReportGridCell>>> fetcher) {
+        completionService.submit(() -> {
+            long st = System.currentTimeMillis();
+            Set<ReportGridCell> cells = fetcher.v2.call();
+            return tuple(fetcher.v1, System.currentTimeMillis() - st, cells);
+        });
+    }
+
+
+    private void logFetchTimings(ReportGridDefinition gridDefn,
+                                 long totalDuration,
+                                 List<Tuple2<String, Long>> timings) {
+
+        String breakdown = timings
+                .stream()
+                .filter(t -> t.v2 > 0)
+                .sorted(Comparator.comparing((Tuple2<String, Long> t) -> t.v2).reversed())
+                .map(t -> format("%s=%dms", t.v1, t.v2))
+                .collect(joining(", "));
+
+        String msg = "Fetched cells for grid [{}/{}] in {}ms: [{}]";
+
+        if (totalDuration > SLOW_GRID_THRESHOLD_MS) {
+            LOG.info(msg, gridDefn.id().orElse(null), gridDefn.name(), totalDuration, breakdown);
+        } else {
+            LOG.debug(msg, gridDefn.id().orElse(null), gridDefn.name(), totalDuration, breakdown);
         }
     }
 
@@ -19,21 +19,46 @@
 package org.finos.waltz.data.scheduled_job;
 
 
+import org.finos.waltz.common.EnumUtilities;
+import org.finos.waltz.model.scheduled_job.ImmutableScheduledJobRun;
 import org.finos.waltz.model.scheduled_job.JobKey;
 import org.finos.waltz.model.scheduled_job.JobLifecycleStatus;
+import org.finos.waltz.model.scheduled_job.ScheduledJobRun;
+import org.finos.waltz.schema.tables.records.ScheduledJobRunRecord;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
+import org.jooq.RecordMapper;
 import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
-import static org.finos.waltz.schema.tables.Settings.SETTINGS;
 import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.Checks.checkTrue;
+import static org.finos.waltz.schema.tables.ScheduledJobRun.SCHEDULED_JOB_RUN;
+import static org.finos.waltz.schema.tables.Settings.SETTINGS;
 
 @Repository
 public class ScheduledJobDao {
 
+    private static final RecordMapper<ScheduledJobRunRecord, ScheduledJobRun> TO_RUN_MAPPER = r -> ImmutableScheduledJobRun
+            .builder()
+            .id(r.getId())
+            .jobKey(JobKey.valueOf(r.getJobKey()))
+            .startedAt(r.getStartedAt().toLocalDateTime())
+            .completedAt(r.getCompletedAt().toLocalDateTime())
+            .durationMs(r.getDurationMs())
+            .status(JobLifecycleStatus.valueOf(r.getStatus()))
+            .message(Optional.ofNullable(r.getMessage()))
+            .build();
+
     private final DSLContext dsl;
 
 
@@ -66,6 +91,22 @@ public class ScheduledJobDao {
     }
 
 
+    /**
+     * Marks the job as runnable unless it is currently running.
+     *
+     * @return true if the job was marked as runnable
+     */
+    public boolean markJobAsRunnable(JobKey jobKey) {
+        return dsl.update(SETTINGS)
+                .set(SETTINGS.VALUE, JobLifecycleStatus.RUNNABLE.name())
+                .where(SETTINGS.NAME.eq(jobKey.name()))
+                .and(SETTINGS.VALUE.isNull().or(SETTINGS.VALUE.ne(JobLifecycleStatus.RUNNING.name())))
+                .execute()
+                ==
+                1;
+    }
+
+
     public void updateJobStatus(JobKey jobKey, JobLifecycleStatus newStatus) {
         dsl.update(SETTINGS)
                 .set(SETTINGS.VALUE, newStatus.name())
@@ -74,6 +115,22 @@ public class ScheduledJobDao {
     }
 
 
+    /**
+     * Returns a job marked as running to runnable, e.g. when the server running it died.
+     *
+     * @return true if the job was running and is now runnable
+     */
+    public boolean resetRunningJob(JobKey jobKey) {
+        return dsl.update(SETTINGS)
+                .set(SETTINGS.VALUE, JobLifecycleStatus.RUNNABLE.name())
+                .where(SETTINGS.NAME.eq(jobKey.name()))
+                .and(SETTINGS.VALUE.eq(JobLifecycleStatus.RUNNING.name()))
+                .execute()
+                ==
+                1;
+    }
+
+
     public boolean anyJobsRunning(Set<JobKey> jobKeys) {
         return dsl
                 .fetchExists(DSL
@@ -83,4 +140,132 @@ public class ScheduledJobDao {
                                 .and(SETTINGS.VALUE.eq(JobLifecycleStatus.RUNNING.name()))));
     }
 
+
+    /**
+     * Returns the current status of every job which has an entry in the settings table.
+     * Settings whose names are not job keys are ignored, as are unrecognised statuses.
+     *
+     * @return status by job key, fetched in a single query
+     */
+    public Map<JobKey, JobLifecycleStatus> findJobStatuses() {
+        Map<JobKey, JobLifecycleStatus> result = new EnumMap<>(JobKey.class);
+
+        dsl.select(SETTINGS.NAME, SETTINGS.VALUE)
+                .from(SETTINGS)
+                .where(SETTINGS.NAME.in(EnumUtilities.names(JobKey.values())))
+                .forEach(r -> {
+                    JobKey jobKey = JobKey.valueOf(r.get(SETTINGS.NAME));
+                    JobLifecycleStatus status = EnumUtilities.readEnum(
+                            r.get(SETTINGS.VALUE),
+                            JobLifecycleStatus.class,
+                            s -> null);
+                    if (status != null) {
+                        result.put(jobKey, status);
+                    }
+                });
+
+        return result;
+    }
+
+
+    public long createRun(ScheduledJobRun run) {
+        checkNotNull(run, "run cannot be null");
+
+        ScheduledJobRunRecord record = dsl.newRecord(SCHEDULED_JOB_RUN);
+        record.setJobKey(run.jobKey().name());
+        record.setStartedAt(Timestamp.valueOf(run.startedAt()));
+        record.setCompletedAt(Timestamp.valueOf(run.completedAt()));
+        record.setDurationMs(run.durationMs());
+        record.setStatus(run.status().name());
+        record.setMessage(run.message().orElse(null));
+        record.store();
+
+        return record.getId();
+    }
+
+
+    /**
+     * Records the outcome of a run previously created (as `RUNNING`) via `createRun`.
+     */
+    public void updateRun(ScheduledJobRun run) {
+        checkNotNull(run, "run cannot be null");
+        checkTrue(run.id().isPresent(), "run must have an id");
+
+        dsl.update(SCHEDULED_JOB_RUN)
+                .set(SCHEDULED_JOB_RUN.COMPLETED_AT, Timestamp.valueOf(run.completedAt()))
+                .set(SCHEDULED_JOB_RUN.DURATION_MS, run.durationMs())
+                .set(SCHEDULED_JOB_RUN.STATUS, run.status().name())
+                .set(SCHEDULED_JOB_RUN.MESSAGE, run.message().orElse(null))
+                .where(SCHEDULED_JOB_RUN.ID.eq(run.id().get()))
+                .execute();
+    }
+
+
+    /**
+     * Marks any runs of the job still recorded as `RUNNING` as `ERRORED`.
+     *
+     * @return number of runs updated
+     */
+    public int abandonRuns(JobKey jobKey, String message) {
+        return dsl.update(SCHEDULED_JOB_RUN)
+                .set(SCHEDULED_JOB_RUN.STATUS, JobLifecycleStatus.ERRORED.name())
+                .set(SCHEDULED_JOB_RUN.MESSAGE, message)
+                .where(SCHEDULED_JOB_RUN.JOB_KEY.eq(jobKey.name()))
+                .and(SCHEDULED_JOB_RUN.STATUS.eq(JobLifecycleStatus.RUNNING.name()))
+                .execute();
+    }
+
+
+    /**
+     * @return start time of the most recently started run of each job which has any runs
+     */
+    public Map<JobKey, LocalDateTime> findLatestRunStarts() {
+        Map<JobKey, LocalDateTime> result = new EnumMap<>(JobKey.class);
+
+        dsl.select(SCHEDULED_JOB_RUN.JOB_KEY, DSL.max(SCHEDULED_JOB_RUN.STARTED_AT))
+                .from(SCHEDULED_JOB_RUN)
+                .groupBy(SCHEDULED_JOB_RUN.JOB_KEY)
+                .forEach(r -> {
+                    JobKey jobKey = EnumUtilities.readEnum(r.value1(), JobKey.class, s -> null);
+                    if (jobKey != null) {
+                        result.put(jobKey, r.value2().toLocalDateTime());
+                    }
+                });
+
+        return result;
+    }
+
+
+    /**
+     * @param jobKey  if empty runs of all jobs are returned
+     * @param limit  maximum number of runs to return
+     * @return runs, most recently started first
+     */
+    public List<ScheduledJobRun> findRecentRuns(Optional<JobKey> jobKey, int limit) {
+        Condition condition = jobKey
+                .map(jk -> SCHEDULED_JOB_RUN.JOB_KEY.eq(jk.name()))
+                .orElse(DSL.trueCondition());
+
+        return dsl
+                .selectFrom(SCHEDULED_JOB_RUN)
+                .where(condition)
+                .orderBy(SCHEDULED_JOB_RUN.STARTED_AT.desc(), SCHEDULED_JOB_RUN.ID.desc())
+                .limit(limit)
+                .fetch(TO_RUN_MAPPER);
+    }
+
+
+    /**
+     * @return the most recently started run of the job which finished with the given status
+     */
+    public Optional<ScheduledJobRun> findLatestRun(JobKey jobKey, JobLifecycleStatus status) {
+        return dsl
+                .selectFrom(SCHEDULED_JOB_RUN)
+                .where(SCHEDULED_JOB_RUN.JOB_KEY.eq(jobKey.name()))
+                .and(SCHEDULED_JOB_RUN.STATUS.eq(status.name()))
+                .orderBy(SCHEDULED_JOB_RUN.STARTED_AT.desc(), SCHEDULED_JOB_RUN.ID.desc())
+                .limit(1)
+                .fetchOptional(TO_RUN_MAPPER);
+    }
+
 }
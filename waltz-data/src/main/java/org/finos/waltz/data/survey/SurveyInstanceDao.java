@@ -31,6 +31,7 @@ import org.finos.waltz.model.survey.ImmutableSurveyInstance;
 import org.finos.waltz.model.survey.ImmutableSurveyRunCompletionRate;
 import org.finos.waltz.model.survey.SurveyInstance;
 import org.finos.waltz.model.survey.SurveyInstanceCreateCommand;
+import org.finos.waltz.model.survey.SurveyInstanceIssuance;
 import org.finos.waltz.model.survey.SurveyInstanceStatus;
 import org.finos.waltz.model.survey.SurveyInvolvementKind;
 import org.finos.waltz.model.survey.SurveyRunCompletionRate;
@@ -42,6 +43,7 @@ import org.jooq.CommonTableExpression;
 import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.Field;
+import org.jooq.InsertValuesStep2;
 import org.jooq.Record;
 import org.jooq.Record1;
 import org.jooq.Record2;
@@ -51,7 +53,10 @@ import org.jooq.RecordMapper;
 import org.jooq.Result;
 import org.jooq.Select;
 import org.jooq.SelectConditionStep;
+import org.jooq.Table;
+import org.jooq.TableField;
 import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -59,6 +64,7 @@ import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -75,12 +81,17 @@ import static java.util.stream.Collectors.toSet;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.CollectionUtilities.map;
 import static org.finos.waltz.common.DateTimeUtilities.*;
+import static org.finos.waltz.common.ListUtilities.asList;
 import static org.finos.waltz.common.ListUtilities.newArrayList;
+import static org.finos.waltz.common.ListUtilities.partition;
 import static org.finos.waltz.common.StringUtilities.lower;
+import static org.finos.waltz.data.JooqUtilities.MAX_BIND_VALUES;
+import static org.finos.waltz.data.JooqUtilities.insertReturningIds;
 import static org.finos.waltz.data.JooqUtilities.maybeReadRef;
 import static org.finos.waltz.model.EntityReference.mkRef;
 import static org.finos.waltz.schema.Tables.*;
 import static org.finos.waltz.schema.tables.InvolvementGroup.INVOLVEMENT_GROUP;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 @Repository
 public class SurveyInstanceDao {
@@ -113,6 +124,16 @@ public class SurveyInstanceDao {
             .as("external_id");
 
 
+    // identifies an issued instance when matching generated ids back to their issuances
+    private static final List<TableField<SurveyInstanceRecord, ?>> ISSUED_INSTANCE_KEY_FIELDS = asList(
+            si.ENTITY_KIND,
+            si.ENTITY_ID,
+            si.OWNING_ROLE,
+            si.NAME);
+
+    // two bind values (instance id, person id) per row
+    private static final int INVOLVEMENT_INSERT_CHUNK_SIZE = MAX_BIND_VALUES / 2;
+
     private static final Condition IS_ORIGINAL_INSTANCE_CONDITION = si.ORIGINAL_INSTANCE_ID.isNull();
 
     private static final Set<SurveyInstanceStatus> UPDATABLE_RECIPIENT_STATUSES = SetUtilities.asSet(
@@ -258,6 +279,109 @@ public class SurveyInstanceDao {
     }
 
 
+    /**
+     * Replaces all instances (and their owners and recipients) of a survey run, in a single transaction.
+     *
+     * Rows are written using multi-row inserts, in chunks, with the generated instance ids
+     * matched back to their issuances by subject, owning role and name (see
+     * `JooqUtilities.insertReturningIds`).  Issuances which agree on all of those
+     * differ only by recipient, so either may take either id.
+     *
+     * @param surveyRunId  the run whose instances should be replaced
+     * @param issuances  instances to create, with their owners and recipients
+     * @return number of instances created
+     */
+    public int replaceInstancesForSurveyRun(long surveyRunId, List<SurveyInstanceIssuance> issuances) {
+        checkNotNull(issuances, "issuances cannot be null");
+
+        return dsl.transactionResult(ctx -> {
+            DSLContext tx = ctx.dsl();
+
+            Select<Record1<Long>> existingInstanceIds = DSL
+                    .select(si.ID)
+                    .from(si)
+                    .where(si.SURVEY_RUN_ID.eq(surveyRunId));
+
+            int removedRecipients = tx.deleteFrom(sir).where(sir.SURVEY_INSTANCE_ID.in(existingInstanceIds)).execute();
+            int removedOwners = tx.deleteFrom(sio).where(sio.SURVEY_INSTANCE_ID.in(existingInstanceIds)).execute();
+            int removedInstances = tx.deleteFrom(si).where(si.SURVEY_RUN_ID.eq(surveyRunId)).execute();
+
+            LOG.debug(format(
+                    "Removed [%d] instances, [%d] owners and [%d] recipients from survey run: %d",
+                    removedInstances,
+                    removedOwners,
+                    removedRecipients,
+                    surveyRunId));
+
+            if (issuances.isEmpty()) {
+                return 0;
+            }
+
+            List<SurveyInstanceRecord> records = issuances
+                    .stream()
+                    .map(issuance -> mkInstanceRecord(tx, issuance.instance()))
+                    .collect(Collectors.toList());
+
+            List<Long> instanceIds = insertReturningIds(
+                    tx,
+                    si.ID,
+                    records,
+                    ISSUED_INSTANCE_KEY_FIELDS,
+                    inserted -> LOG.info(format("Issued [%d/%d] instances for survey run: %d", inserted, records.size(), surveyRunId)));
+
+            List<Tuple2<Long, Long>> owners = new ArrayList<>();
+            List<Tuple2<Long, Long>> recipients = new ArrayList<>();
+
+            for (int idx = 0; idx < issuances.size(); idx++) {
+                Long instanceId = instanceIds.get(idx);
+                SurveyInstanceIssuance issuance = issuances.get(idx);
+                issuance.ownerIds().forEach(personId -> owners.add(tuple(instanceId, personId)));
+                issuance.recipientIds().forEach(personId -> recipients.add(tuple(instanceId, personId)));
+            }
+
+            insertInvolvements(tx, sio, sio.SURVEY_INSTANCE_ID, sio.PERSON_ID, owners);
+            insertInvolvements(tx, sir, sir.SURVEY_INSTANCE_ID, sir.PERSON_ID, recipients);
+
+            LOG.info(format(
+                    "Issued [%d] instances, with [%d] owners and [%d] recipients, for survey run: %d",
+                    issuances.size(),
+                    owners.size(),
+                    recipients.size(),
+                    surveyRunId));
+
+            return issuances.size();
+        });
+    }
+
+
+    private static SurveyInstanceRecord mkInstanceRecord(DSLContext tx, SurveyInstanceCreateCommand command) {
+        SurveyInstanceRecord record = tx.newRecord(si);
+        record.setSurveyRunId(command.surveyRunId());
+        record.setEntityKind(command.entityReference().kind().name());
+        record.setEntityId(command.entityReference().id());
+        record.setStatus(command.status().name());
+        record.setDueDate(toSqlDate(command.dueDate()));
+        record.setApprovalDueDate(toSqlDate(command.approvalDueDate()));
+        record.setOwningRole(command.owningRole());
+        record.setName(command.name());
+        record.setIssuedOn(toSqlDate(command.issuedOn()));
+        return record;
+    }
+
+
+    private static <R extends Record> void insertInvolvements(DSLContext tx,
+                                                              Table<R> table,
+                                                              TableField<R, Long> instanceIdField,
+                                                              TableField<R, Long> personIdField,
+                                                              List<Tuple2<Long, Long>> instanceAndPersonIds) {
+        for (List<Tuple2<Long, Long>> chunk : partition(instanceAndPersonIds, INVOLVEMENT_INSERT_CHUNK_SIZE)) {
+            InsertValuesStep2<R, Long, Long> insert = tx.insertInto(table, instanceIdField, personIdField);
+            chunk.forEach(t -> insert.values(t.v1, t.v2));
+            insert.execute();
+        }
+    }
+
+
     public int updateStatus(long instanceId, SurveyInstanceStatus newStatus) {
         checkNotNull(newStatus, "newStatus cannot be null");
 
@@ -6,6 +6,7 @@ import liquibase.integration.spring.SpringLiquibase;
 import org.finos.waltz.common.ExcludeFromIntegrationTesting;
 import org.finos.waltz.data.DBExecutorPool;
 import org.finos.waltz.data.DBExecutorPoolInterface;
+import org.finos.waltz.service.QueryStatistics;
 import org.jooq.DSLContext;
 import org.jooq.SQLDialect;
 import org.jooq.conf.RenderNameCase;
@@ -36,6 +37,12 @@ public class DIInMemoryTestConfiguration {
     }
 
 
+    @Bean
+    public QueryStatistics queryStatistics() {
+        return new QueryStatistics();
+    }
+
+
 
     @Bean
     public DataSource dataSource() {
@@ -0,0 +1,144 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.integration_test.inmem.dao;
+
+import org.finos.waltz.data.data_type_usage.DataTypeUsageDao;
+import org.finos.waltz.integration_test.inmem.BaseInMemoryIntegrationTest;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.logical_flow.LogicalFlow;
+import org.finos.waltz.model.usage_info.UsageKind;
+import org.finos.waltz.test_common.helpers.AppHelper;
+import org.finos.waltz.test_common.helpers.DataTypeHelper;
+import org.finos.waltz.test_common.helpers.LogicalFlowHelper;
+import org.jooq.lambda.tuple.Tuple2;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Set;
+
+import static java.util.Collections.emptySet;
+import static org.finos.waltz.common.DateTimeUtilities.nowUtc;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.common.SetUtilities.map;
+import static org.finos.waltz.test_common.helpers.NameHelper.mkName;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DataTypeUsageDaoTest extends BaseInMemoryIntegrationTest {
+
+    @Autowired
+    private DataTypeUsageDao dao;
+
+    @Autowired
+    private AppHelper appHelper;
+
+    @Autowired
+    private DataTypeHelper dataTypeHelper;
+
+    @Autowired
+    private LogicalFlowHelper flowHelper;
+
+
+    @Test
+    public void usagesAreDerivedFromFlows() {
+        EntityReference a = appHelper.createNewApp(mkName("a"), ouIds.a);
+        EntityReference b = appHelper.createNewApp(mkName("b"), ouIds.a);
+        EntityReference c = appHelper.createNewApp(mkName("c"), ouIds.a);
+        Long dt1 = dataTypeHelper.createDataType("dt1");
+        Long dt2 = dataTypeHelper.createDataType("dt2");
+
+        // a -[dt1]-> b -[dt1, dt2]-> c
+        LogicalFlow ab = flowHelper.createLogicalFlow(a, b);
+        LogicalFlow bc = flowHelper.createLogicalFlow(b, c);
+        flowHelper.createLogicalFlowDecorators(ab.entityReference(), asSet(dt1));
+        flowHelper.createLogicalFlowDecorators(bc.entityReference(), asSet(dt1, dt2));
+
+        dao.recalculateForEntities(EntityKind.APPLICATION, asSet(a.id(), b.id(), c.id()));
+
+        assertEquals(
+                asSet(tuple(dt1, UsageKind.DISTRIBUTOR), tuple(dt1, UsageKind.ORIGINATOR)),
+                usages(a),
+                "a only distributes dt1 so must be the originator");
+
+        assertEquals(
+                asSet(tuple(dt1, UsageKind.CONSUMER),
+                        tuple(dt1, UsageKind.DISTRIBUTOR),
+                        tuple(dt2, UsageKind.DISTRIBUTOR),
+                        tuple(dt2, UsageKind.ORIGINATOR)),
+                usages(b),
+                "b passes on dt1 but originates dt2");
+
+        assertEquals(
+                asSet(tuple(dt1, UsageKind.CONSUMER), tuple(dt2, UsageKind.CONSUMER)),
+                usages(c),
+                "c only consumes");
+
+        assertEquals(
+                0,
+                dao.recalculateForEntities(EntityKind.APPLICATION, asSet(a.id(), b.id(), c.id())),
+                "recalculating without any flow changes should not alter any usages");
+    }
+
+
+    @Test
+    public void usagesAreRemovedWhenFlowsAreRemoved() {
+        EntityReference a = appHelper.createNewApp(mkName("a"), ouIds.a);
+        EntityReference b = appHelper.createNewApp(mkName("b"), ouIds.a);
+        Long dt1 = dataTypeHelper.createDataType("dt1");
+
+        LogicalFlow ab = flowHelper.createLogicalFlow(a, b);
+        flowHelper.createLogicalFlowDecorators(ab.entityReference(), asSet(dt1));
+        dao.recalculateForEntities(EntityKind.APPLICATION, asSet(a.id(), b.id()));
+
+        assertFalse(usages(b).isEmpty());
+
+        flowHelper.removeFlow(ab.id().get());
+        int changeCount = dao.recalculateForEntities(EntityKind.APPLICATION, asSet(a.id(), b.id()));
+
+        assertEquals(3, changeCount, "a's distributor and originator usages and b's consumer usage should be removed");
+        assertEquals(emptySet(), usages(a));
+        assertEquals(emptySet(), usages(b));
+    }
+
+
+    @Test
+    public void entitiesWithRecentFlowChangesCanBeFound() {
+        EntityReference a = appHelper.createNewApp(mkName("a"), ouIds.a);
+        EntityReference b = appHelper.createNewApp(mkName("b"), ouIds.a);
+
+        flowHelper.createLogicalFlow(a, b);
+
+        Set<EntityReference> changedRecently = dao.findEntitiesWithFlowChangesSince(nowUtc().minusMinutes(1));
+        Set<EntityReference> changedInFuture = dao.findEntitiesWithFlowChangesSince(nowUtc().plusMinutes(1));
+
+        assertTrue(map(changedRecently, EntityReference::id).containsAll(asSet(a.id(), b.id())));
+        assertFalse(map(changedInFuture, EntityReference::id).contains(a.id()));
+    }
+
+
+    private Set<Tuple2<Long, UsageKind>> usages(EntityReference ref) {
+        return map(
+                dao.findForEntity(ref),
+                u -> tuple(u.dataTypeId(), u.usage().kind()));
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.integration_test.inmem.dao;
+
+import org.finos.waltz.common.DateTimeUtilities;
+import org.finos.waltz.integration_test.inmem.BaseInMemoryIntegrationTest;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.survey.SurveyInstanceStatus;
+import org.finos.waltz.schema.tables.records.SurveyInstanceRecord;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.finos.waltz.data.JooqUtilities.MAX_BIND_VALUES;
+import static org.finos.waltz.data.JooqUtilities.insertReturningIds;
+import static org.finos.waltz.schema.Tables.SURVEY_INSTANCE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class JooqUtilitiesTest extends BaseInMemoryIntegrationTest {
+
+    @Autowired
+    private DSLContext dsl;
+
+
+    @Test
+    public void insertReturningIdsReportsProgressAfterEachChunk() {
+        long surveyRunId = counter.incrementAndGet();
+        int rowsPerStatement = MAX_BIND_VALUES / SURVEY_INSTANCE.fields().length;
+        int recordCount = rowsPerStatement * 2 + 1;
+
+        List<SurveyInstanceRecord> records = new ArrayList<>();
+        for (long entityId = 1; entityId <= recordCount; entityId++) {
+            records.add(mkInstanceRecord(surveyRunId, entityId));
+        }
+
+        List<Integer> progress = new ArrayList<>();
+        List<Long> ids = insertReturningIds(
+                dsl,
+                SURVEY_INSTANCE.ID,
+                records,
+                asList(SURVEY_INSTANCE.ENTITY_KIND, SURVEY_INSTANCE.ENTITY_ID),
+                progress::add);
+
+        assertEquals(
+                asList(rowsPerStatement, rowsPerStatement * 2, recordCount),
+                progress,
+                "progress should be reported once per chunk, with the running total");
+
+        Map<Long, Long> entityIdsById = dsl
+                .select(SURVEY_INSTANCE.ID, SURVEY_INSTANCE.ENTITY_ID)
+                .from(SURVEY_INSTANCE)
+                .where(SURVEY_INSTANCE.SURVEY_RUN_ID.eq(surveyRunId))
+                .fetchMap(SURVEY_INSTANCE.ID, SURVEY_INSTANCE.ENTITY_ID);
+
+        assertEquals(recordCount, ids.size());
+        for (int idx = 0; idx < recordCount; idx++) {
+            assertEquals(
+                    records.get(idx).getEntityId(),
+                    entityIdsById.get(ids.get(idx)),
+                    "returned ids should be in record order");
+        }
+
+        dsl.deleteFrom(SURVEY_INSTANCE).where(SURVEY_INSTANCE.SURVEY_RUN_ID.eq(surveyRunId)).execute();
+    }
+
+
+    private SurveyInstanceRecord mkInstanceRecord(long surveyRunId, long entityId) {
+        Date today = Date.valueOf(DateTimeUtilities.today());
+
+        SurveyInstanceRecord record = dsl.newRecord(SURVEY_INSTANCE);
+        record.setSurveyRunId(surveyRunId);
+        record.setEntityKind(EntityKind.APPLICATION.name());
+        record.setEntityId(entityId);
+        record.setStatus(SurveyInstanceStatus.NOT_STARTED.name());
+        record.setDueDate(today);
+        record.setApprovalDueDate(today);
+        record.setName("jooq-utilities-test");
+        record.setIssuedOn(today);
+        return record;
+    }
+
+}
@@ -44,6 +44,7 @@ import static org.finos.waltz.common.SetUtilities.asSet;
 import static org.finos.waltz.model.EntityReference.mkRef;
 import static org.finos.waltz.model.IdSelectionOptions.mkOpts;
 import static org.finos.waltz.schema.tables.AttestationInstance.ATTESTATION_INSTANCE;
+import static org.finos.waltz.schema.tables.AttestationRun.ATTESTATION_RUN;
 import static org.finos.waltz.test_common.helpers.NameHelper.mkName;
 import static org.finos.waltz.test_common.helpers.NameHelper.mkUserId;
 import static org.junit.jupiter.api.Assertions.*;
@@ -237,4 +238,41 @@ public class AttestationServiceTest extends BaseInMemoryIntegrationTest {
     }
 
 
+    @Test
+    public void interruptedIssuanceCanBeResumedWithoutDuplicates() {
+
+        EntityReference app = appHelper.createNewApp(mkName("resumeIssuance"), ouIds.b);
+        long invId = involvementHelper.mkInvolvementKind(mkName("resumeIssuance"));
+        Long pId = personHelper.createPerson(mkName("resumeIssuanceUser"));
+        involvementHelper.createInvolvement(pId, invId, app);
+
+        AttestationRunCreateCommand cmd = ImmutableAttestationRunCreateCommand.builder()
+                .dueDate(DateTimeUtilities.today().plusMonths(1))
+                .targetEntityKind(EntityKind.APPLICATION)
+                .attestedEntityKind(EntityKind.LOGICAL_DATA_FLOW)
+                .selectionOptions(mkOpts(mkRef(EntityKind.ORG_UNIT, ouIds.b)))
+                .addInvolvementKindIds(invId)
+                .name("resumeIssuance Name")
+                .description("resumeIssuance Desc")
+                .sendEmailNotifications(false)
+                .build();
+
+        Long runId = arSvc.create(mkUserId("resumeIssuance"), cmd).id().get();
+
+        // simulate an issuance which failed part way through
+        dsl.update(ATTESTATION_RUN)
+                .set(ATTESTATION_RUN.STATUS, AttestationStatus.ISSUING.name())
+                .where(ATTESTATION_RUN.ID.eq(runId))
+                .execute();
+
+        arSvc.issueInstancesForPendingRuns();
+
+        List<AttestationInstance> instances = aiSvc.findByRunId(runId);
+        assertEquals(1, instances.size(), "existing instances should not be duplicated");
+        assertEquals(app, first(instances).parentEntity());
+        assertEquals(1, aiSvc.findPersonsByInstanceId(first(instances).id().get()).size(), "existing recipients should not be duplicated");
+        assertEquals(AttestationStatus.ISSUED, arSvc.getById(runId).status());
+    }
+
+
 }
\ No newline at end of file
@@ -33,11 +33,15 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
 import static java.util.Collections.emptySet;
+import static java.util.Collections.singletonMap;
 import static org.finos.waltz.common.CollectionUtilities.first;
 import static org.finos.waltz.common.ListUtilities.asList;
 import static org.finos.waltz.common.SetUtilities.asSet;
@@ -272,6 +276,43 @@ public class DataTypeDecoratorServiceTest extends BaseInMemoryIntegrationTest {
     }
 
 
+    @Test
+    public void addDecoratorsInBulk() {
+
+        String username = mkName("addDecoratorsInBulk");
+
+        EntityReference a = appHelper.createNewApp("a", ouIds.a);
+        EntityReference b = appHelper.createNewApp("b", ouIds.a1);
+        EntityReference c = appHelper.createNewApp("c", ouIds.a1);
+        LogicalFlow abFlow = lfHelper.createLogicalFlow(a, b);
+        LogicalFlow acFlow = lfHelper.createLogicalFlow(a, c);
+
+        assertEquals(0, dtdSvc.addDecorators(username, EntityKind.LOGICAL_DATA_FLOW, emptyMap()).length,
+                "Nothing is written if no data types are given");
+
+        Long dtId = dataTypeHelper.createDataType("addDecoratorsInBulk");
+        Long dtId2 = dataTypeHelper.createDataType("addDecoratorsInBulk2");
+
+        Map<Long, Set<Long>> dataTypeIdsByFlowId = new HashMap<>();
+        dataTypeIdsByFlowId.put(abFlow.entityReference().id(), asSet(dtId, dtId2));
+        dataTypeIdsByFlowId.put(acFlow.entityReference().id(), asSet(dtId));
+
+        dtdSvc.addDecorators(username, EntityKind.LOGICAL_DATA_FLOW, dataTypeIdsByFlowId);
+
+        Collection<DataTypeDecorator> abDecorators = dtdSvc.findByFlowIds(asSet(abFlow.entityReference().id()), EntityKind.LOGICAL_DATA_FLOW);
+        Collection<DataTypeDecorator> acDecorators = dtdSvc.findByFlowIds(asSet(acFlow.entityReference().id()), EntityKind.LOGICAL_DATA_FLOW);
+        assertEquals(asSet(dtId, dtId2), map(abDecorators, DataTypeDecorator::dataTypeId), "Adds all data types to the first flow");
+        assertEquals(asSet(dtId), map(acDecorators, DataTypeDecorator::dataTypeId), "Adds data types to the second flow");
+
+        Long specId = psHelper.createPhysicalSpec(a, "addDecoratorsInBulk");
+        dtdSvc.addDecorators(username, EntityKind.PHYSICAL_SPECIFICATION, singletonMap(specId, asSet(dtId2)));
+
+        assertEquals(asSet(dtId2),
+                map(dtdSvc.findByEntityId(mkRef(EntityKind.PHYSICAL_SPECIFICATION, specId)), DataTypeDecorator::dataTypeId),
+                "Adds data types to specifications");
+    }
+
+
     @Test
     public void findSuggestedByEntityRef() {
         String username = mkName("updateDecorators");
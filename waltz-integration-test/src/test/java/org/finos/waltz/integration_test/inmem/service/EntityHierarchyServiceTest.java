@@ -0,0 +1,98 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.integration_test.inmem.service;
+
+import org.finos.waltz.data.entity_hierarchy.EntityHierarchyDao;
+import org.finos.waltz.integration_test.inmem.BaseInMemoryIntegrationTest;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.service.entity_hierarchy.EntityHierarchyService;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Set;
+
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.common.SetUtilities.map;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.schema.Tables.ORGANISATIONAL_UNIT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class EntityHierarchyServiceTest extends BaseInMemoryIntegrationTest {
+
+    @Autowired
+    private EntityHierarchyService entityHierarchyService;
+
+    @Autowired
+    private EntityHierarchyDao entityHierarchyDao;
+
+    @Autowired
+    private DSLContext dsl;
+
+
+    @Test
+    public void movingANodeOnlyRewritesItsSubtree() {
+        Long root = createOrgUnit("ehRoot", null);
+        Long a = createOrgUnit("ehA", root);
+        Long aa = createOrgUnit("ehAA", a);
+        Long b = createOrgUnit("ehB", root);
+
+        rebuildHierarchy(EntityKind.ORG_UNIT);
+        assertEquals(0, entityHierarchyService.buildFor(EntityKind.ORG_UNIT), "an unchanged hierarchy should not be rewritten");
+
+        dsl.update(ORGANISATIONAL_UNIT)
+                .set(ORGANISATIONAL_UNIT.PARENT_ID, b)
+                .where(ORGANISATIONAL_UNIT.ID.eq(aa))
+                .execute();
+
+        // aa: delete (aa, a), insert (aa, b), the self and root rows are unchanged
+        assertEquals(2, entityHierarchyService.buildForSubtree(mkRef(EntityKind.ORG_UNIT, aa)));
+
+        assertEquals(asSet(a), findDescendantIds(a));
+        assertEquals(asSet(b, aa), findDescendantIds(b));
+        assertEquals(asSet(root, a, b, aa), findDescendantIds(root));
+    }
+
+
+    @Test
+    public void removingANodeRemovesItsHierarchyEntries() {
+        Long root = createOrgUnit("ehRemRoot", null);
+        Long a = createOrgUnit("ehRemA", root);
+
+        rebuildHierarchy(EntityKind.ORG_UNIT);
+
+        dsl.deleteFrom(ORGANISATIONAL_UNIT)
+                .where(ORGANISATIONAL_UNIT.ID.eq(a))
+                .execute();
+
+        entityHierarchyService.buildForSubtree(mkRef(EntityKind.ORG_UNIT, a));
+
+        assertEquals(asSet(root), findDescendantIds(root));
+        assertEquals(asSet(), findDescendantIds(a));
+    }
+
+
+    // --- helpers ---
+
+    private Set<Long> findDescendantIds(Long id) {
+        EntityReference ref = mkRef(EntityKind.ORG_UNIT, id);
+        return map(entityHierarchyDao.findDesendents(ref), d -> d.id().get());
+    }
+}
@@ -18,6 +18,7 @@
 
 package org.finos.waltz.integration_test.inmem.service;
 
+import org.finos.waltz.common.DateTimeUtilities;
 import org.finos.waltz.integration_test.inmem.BaseInMemoryIntegrationTest;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityLifecycleStatus;
@@ -33,6 +34,8 @@ import org.jooq.lambda.tuple.Tuple2;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
@@ -363,6 +366,7 @@ public class LogicalFlowServiceTest extends BaseInMemoryIntegrationTest {
 
         appHelper.removeApp(c.id());
 
+        LocalDateTime beforeCleanup = DateTimeUtilities.nowUtc().truncatedTo(ChronoUnit.MILLIS);
         int flowsRemovedAfterAppRemoved = lfSvc.cleanupOrphans();
 
         assertEquals(2,
@@ -374,6 +378,9 @@ public class LogicalFlowServiceTest extends BaseInMemoryIntegrationTest {
         assertEquals(EntityLifecycleStatus.REMOVED,
                 flowWhereTargetRemoved.entityLifecycleStatus(),
                 "If target removed, flow still exists but has entity lifecycle status of 'REMOVED'");
+
+        assertFalse(flowWhereTargetRemoved.lastUpdatedAt().isBefore(beforeCleanup),
+                "Removed flows have their last updated time set, so usage recalculations pick them up");
     }
 
 
@@ -396,11 +403,13 @@ public class LogicalFlowServiceTest extends BaseInMemoryIntegrationTest {
         LogicalFlow aa = helper.createLogicalFlow(a, a);
         LogicalFlow bb = helper.createLogicalFlow(b, b);
 
+        LocalDateTime beforeCleanup = DateTimeUtilities.nowUtc().truncatedTo(ChronoUnit.MILLIS);
         int removedAllWhereSelfReferencingFlows = lfSvc.cleanupSelfReferencingFlows();
         assertEquals(2, removedAllWhereSelfReferencingFlows, "Removed all self-referencing logical flows");
 
         LogicalFlow aaFlow = lfSvc.getById(aa.id().get());
         assertEquals(EntityLifecycleStatus.REMOVED, aaFlow.entityLifecycleStatus(), "Self referencing flow still exists but is removed");
+        assertFalse(aaFlow.lastUpdatedAt().isBefore(beforeCleanup), "Removed flows have their last updated time set");
     }
 
 
@@ -0,0 +1,204 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.integration_test.inmem.service;
+
+import org.finos.waltz.common.exception.NotFoundException;
+import org.finos.waltz.integration_test.inmem.BaseInMemoryIntegrationTest;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.command.CommandOutcome;
+import org.finos.waltz.model.datatype.DataTypeDecorator;
+import org.finos.waltz.model.physical_flow.ImmutablePhysicalFlowUploadCommand;
+import org.finos.waltz.model.physical_flow.PhysicalFlow;
+import org.finos.waltz.model.physical_flow.PhysicalFlowUploadCommand;
+import org.finos.waltz.model.physical_flow.PhysicalFlowUploadCommandResponse;
+import org.finos.waltz.model.physical_flow.PhysicalFlowUploadJob;
+import org.finos.waltz.model.scheduled_job.JobLifecycleStatus;
+import org.finos.waltz.service.data_type.DataTypeDecoratorService;
+import org.finos.waltz.service.data_type.DataTypeService;
+import org.finos.waltz.service.physical_flow.PhysicalFlowService;
+import org.finos.waltz.service.physical_flow.PhysicalFlowUploadService;
+import org.finos.waltz.test_common.helpers.AppHelper;
+import org.finos.waltz.test_common.helpers.DataTypeHelper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.common.SetUtilities.map;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.test_common.helpers.NameHelper.mkName;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PhysicalFlowUploadServiceTest extends BaseInMemoryIntegrationTest {
+
+    @Autowired
+    private PhysicalFlowUploadService uploadSvc;
+
+    @Autowired
+    private PhysicalFlowService pfSvc;
+
+    @Autowired
+    private DataTypeDecoratorService dtdSvc;
+
+    @Autowired
+    private DataTypeService dtSvc;
+
+    @Autowired
+    private AppHelper appHelper;
+
+    @Autowired
+    private DataTypeHelper dataTypeHelper;
+
+
+    @Test
+    public void validateReportsUnresolvedValues() {
+        EntityReference a = appHelper.createNewApp(mkName("a"), ouIds.a);
+        String dataTypeCode = mkDataTypeCode("validate");
+
+        List<PhysicalFlowUploadCommandResponse> responses = uploadSvc.validate(asList(
+                mkCommand(a.name().get(), mkName("unknownTarget"), a.name().get(), "validate", dataTypeCode),
+                mkCommand(a.name().get(), a.name().get(), a.name().get(), "validate", mkName("unknownDataType"))));
+
+        assertEquals(2, responses.size(), "Returns a response per command");
+        assertEquals(CommandOutcome.FAILURE, responses.get(0).outcome());
+        assertEquals(asSet("target"), responses.get(0).errors().keySet(), "Unknown targets are reported");
+        assertEquals(CommandOutcome.FAILURE, responses.get(1).outcome());
+        assertEquals(asSet("dataType"), responses.get(1).errors().keySet(), "Unknown data types are reported");
+    }
+
+
+    @Test
+    public void uploadCreatesFlowsAndValidateMatchesThem() {
+        String username = mkName("uploadCreatesFlows");
+        EntityReference a = appHelper.createNewApp(mkName("a"), ouIds.a);
+        EntityReference b = appHelper.createNewApp(mkName("b"), ouIds.a1);
+        EntityReference c = appHelper.createNewApp(mkName("c"), ouIds.a1);
+        String dataTypeCode = mkDataTypeCode("uploadCreatesFlows");
+
+        List<PhysicalFlowUploadCommand> cmds = asList(
+                mkCommand(a.name().get(), b.name().get(), a.name().get(), "spec1", dataTypeCode),
+                mkCommand(a.name().get(), c.name().get(), a.name().get(), "spec1", dataTypeCode),
+                mkCommand(b.name().get(), c.name().get(), b.name().get(), "spec2", dataTypeCode));
+
+        List<PhysicalFlowUploadCommandResponse> validated = uploadSvc.validate(cmds);
+        assertTrue(validated.stream().allMatch(r -> r.outcome() == CommandOutcome.SUCCESS), "All commands are valid");
+        assertTrue(validated.stream().allMatch(r -> r.entityReference() == null), "No flows exist before the upload");
+
+        List<PhysicalFlowUploadCommandResponse> created = uploadSvc.upload(username, cmds);
+        assertEquals(3, created.size(), "A physical flow is created per command");
+
+        List<PhysicalFlow> flows = asList(
+                pfSvc.getById(created.get(0).entityReference().id()),
+                pfSvc.getById(created.get(1).entityReference().id()),
+                pfSvc.getById(created.get(2).entityReference().id()));
+
+        assertEquals(flows.get(0).specificationId(), flows.get(1).specificationId(), "Flows with the same owner, name and format share a specification");
+        assertNotEquals(flows.get(0).specificationId(), flows.get(2).specificationId(), "Flows with different owners have their own specification");
+        assertEquals(3, map(flows, PhysicalFlow::logicalFlowId).size(), "A logical flow is created per source and target");
+
+        long dataTypeId = dtSvc.getDataTypeByCode(dataTypeCode).id().get();
+        flows.forEach(f -> {
+            assertEquals(asSet(dataTypeId),
+                    map(dtdSvc.findByEntityId(mkRef(EntityKind.LOGICAL_DATA_FLOW, f.logicalFlowId())), DataTypeDecorator::dataTypeId),
+                    "Logical flows are decorated with the uploaded data type");
+            assertEquals(asSet(dataTypeId),
+                    map(dtdSvc.findByEntityId(mkRef(EntityKind.PHYSICAL_SPECIFICATION, f.specificationId())), DataTypeDecorator::dataTypeId),
+                    "Specifications are decorated with the uploaded data type");
+        });
+
+        List<PhysicalFlowUploadCommandResponse> revalidated = uploadSvc.validate(cmds);
+        for (int i = 0; i < cmds.size(); i++) {
+            assertEquals(created.get(i).entityReference(), revalidated.get(i).entityReference(), "Validate matches the existing flows");
+        }
+
+        assertTrue(uploadSvc.upload(username, cmds).isEmpty(), "Re-uploading existing flows creates nothing");
+    }
+
+
+    @Test
+    public void uploadRejectsInvalidCommands() {
+        EntityReference a = appHelper.createNewApp(mkName("a"), ouIds.a);
+        String dataTypeCode = mkDataTypeCode("uploadRejectsInvalidCommands");
+
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> uploadSvc.upload(
+                        mkName("uploadRejectsInvalidCommands"),
+                        asList(mkCommand(a.name().get(), mkName("unknownTarget"), a.name().get(), "invalid", dataTypeCode))));
+    }
+
+
+    @Test
+    public void uploadJobsAreOnlyVisibleToTheirSubmitter() throws InterruptedException {
+        String username = mkName("uploadJobs");
+        EntityReference a = appHelper.createNewApp(mkName("a"), ouIds.a);
+        EntityReference b = appHelper.createNewApp(mkName("b"), ouIds.a1);
+        String dataTypeCode = mkDataTypeCode("uploadJobs");
+
+        assertThrows(NotFoundException.class, () -> uploadSvc.getJob(username, mkName("unknownJob")), "Unknown jobs are not found");
+
+        PhysicalFlowUploadJob submitted = uploadSvc.submitUpload(
+                username,
+                asList(mkCommand(a.name().get(), b.name().get(), a.name().get(), "job", dataTypeCode)));
+
+        assertThrows(NotFoundException.class, () -> uploadSvc.getJob(mkName("someoneElse"), submitted.id()), "Jobs are not visible to other users");
+
+        PhysicalFlowUploadJob job = uploadSvc.getJob(username, submitted.id());
+        for (int i = 0; i < 300 && !job.completedAt().isPresent(); i++) {
+            Thread.sleep(100);
+            job = uploadSvc.getJob(username, submitted.id());
+        }
+
+        assertEquals(JobLifecycleStatus.COMPLETED, job.status(), "Job completes");
+        assertEquals(1, job.responses().size(), "Completed job holds the upload responses");
+        assertNotNull(pfSvc.getById(job.responses().get(0).entityReference().id()), "Job creates the physical flow");
+    }
+
+
+    // -- helpers
+
+    private String mkDataTypeCode(String stem) {
+        return dtSvc.getDataTypeById(dataTypeHelper.createDataType(stem)).code();
+    }
+
+
+    private static PhysicalFlowUploadCommand mkCommand(String source,
+                                                       String target,
+                                                       String owner,
+                                                       String name,
+                                                       String dataType) {
+        return ImmutablePhysicalFlowUploadCommand
+                .builder()
+                .source(source)
+                .target(target)
+                .owner(owner)
+                .name(name)
+                .format("FLAT_FILE")
+                .basisOffset("0")
+                .criticality("MEDIUM")
+                .description("uploaded")
+                .frequency("DAILY")
+                .transport("FILE_TRANSPORT")
+                .dataType(dataType)
+                .build();
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.integration_test.inmem.service;
+
+import org.finos.waltz.integration_test.inmem.BaseInMemoryIntegrationTest;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.assessment_definition.AssessmentVisibility;
+import org.finos.waltz.model.survey.ImmutableSurveyQuestion;
+import org.finos.waltz.model.survey.SurveyQuestion;
+import org.finos.waltz.model.survey.SurveyQuestionFieldType;
+import org.finos.waltz.service.survey.inclusion_evaluator.QuestionPredicateEvaluator;
+import org.finos.waltz.test_common.helpers.AppHelper;
+import org.finos.waltz.test_common.helpers.AssessmentHelper;
+import org.finos.waltz.test_common.helpers.DataTypeHelper;
+import org.finos.waltz.test_common.helpers.InvolvementHelper;
+import org.finos.waltz.test_common.helpers.PersonHelper;
+import org.finos.waltz.test_common.helpers.RatingSchemeHelper;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.stream.Collectors.toList;
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.finos.waltz.schema.Tables.ASSESSMENT_DEFINITION;
+import static org.finos.waltz.schema.Tables.DATA_TYPE;
+import static org.finos.waltz.schema.Tables.DATA_TYPE_USAGE;
+import static org.finos.waltz.test_common.helpers.NameHelper.mkName;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the inclusion predicates give the same answers, when evaluated against
+ * prefetched subject facts, as the per-predicate queries they replaced.
+ */
+public class QuestionPredicateEvaluatorTest extends BaseInMemoryIntegrationTest {
+
+    private static final AtomicLong questionIds = new AtomicLong(1);
+
+    @Autowired
+    private QuestionPredicateEvaluator evaluator;
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Autowired
+    private AppHelper appHelper;
+
+    @Autowired
+    private AssessmentHelper assessmentHelper;
+
+    @Autowired
+    private DataTypeHelper dataTypeHelper;
+
+    @Autowired
+    private InvolvementHelper involvementHelper;
+
+    @Autowired
+    private PersonHelper personHelper;
+
+    @Autowired
+    private RatingSchemeHelper ratingSchemeHelper;
+
+
+    @Test
+    public void belongsToOrgUnitMatchesAncestorsByName() {
+        EntityReference app = appHelper.createNewApp(mkName("belongsToOrgUnit"), ouIds.a1);
+
+        assertEquals(
+                asList("a1Name", "aName", "rootName"),
+                activeQuestions(
+                        app,
+                        "belongsToOrgUnit('a1Name')",
+                        "belongsToOrgUnit('aName')",
+                        "belongsToOrgUnit('rootName')",
+                        "belongsToOrgUnit('bName')"),
+                "app should belong to its own org unit and all of its ancestors, but not siblings");
+    }
+
+
+    @Test
+    public void hasDataTypeMatchesNameOrCodeIncludingParents() {
+        EntityReference app = appHelper.createNewApp(mkName("hasDataType"), ouIds.a);
+
+        long parentId = counter.incrementAndGet();
+        long childId = counter.incrementAndGet();
+        long unusedId = counter.incrementAndGet();
+        String parentName = mkName("parentDt");
+        String childName = mkName("childDt");
+        String unusedName = mkName("unusedDt");
+
+        dataTypeHelper.createDataType(parentId, parentName, parentName + "Code");
+        dataTypeHelper.createDataType(childId, childName, childName + "Code");
+        dataTypeHelper.createDataType(unusedId, unusedName, unusedName + "Code");
+        dsl.update(DATA_TYPE)
+                .set(DATA_TYPE.PARENT_ID, parentId)
+                .where(DATA_TYPE.ID.eq(childId))
+                .execute();
+        rebuildHierarchy(EntityKind.DATA_TYPE);
+
+        dsl.insertInto(DATA_TYPE_USAGE)
+                .set(DATA_TYPE_USAGE.ENTITY_KIND, EntityKind.APPLICATION.name())
+                .set(DATA_TYPE_USAGE.ENTITY_ID, app.id())
+                .set(DATA_TYPE_USAGE.DATA_TYPE_ID, childId)
+                .set(DATA_TYPE_USAGE.USAGE_KIND, "CONSUMER")
+                .set(DATA_TYPE_USAGE.DESCRIPTION, "")
+                .set(DATA_TYPE_USAGE.PROVENANCE, PROVENANCE)
+                .set(DATA_TYPE_USAGE.IS_SELECTED, true)
+                .execute();
+
+        assertEquals(
+                asList(childName, childName + "Code", parentName, parentName + "Code"),
+                activeQuestions(
+                        app,
+                        "hasDataType('" + childName + "')",
+                        "hasDataType('" + childName + "Code')",
+                        "hasDataType('" + parentName + "')",
+                        "hasDataType('" + parentName + "Code')",
+                        "hasDataType('" + unusedName + "')"),
+                "data types should match by name or code, and usages of a child count towards its parents");
+    }
+
+
+    @Test
+    public void hasInvolvementIgnoresCase() {
+        EntityReference app = appHelper.createNewApp(mkName("hasInvolvement"), ouIds.a);
+        String kindName = mkName("Involvement Kind");
+        String unusedKindName = mkName("Unused Kind");
+        long kindId = involvementHelper.mkInvolvementKind(kindName);
+        involvementHelper.mkInvolvementKind(unusedKindName);
+        Long personId = personHelper.createPerson(mkName("person"));
+        involvementHelper.createInvolvement(personId, kindId, app);
+
+        assertEquals(
+                asList(kindName, kindName.toUpperCase(), kindName.toLowerCase()),
+                activeQuestions(
+                        app,
+                        "hasInvolvement('" + kindName + "')",
+                        "hasInvolvement('" + kindName.toUpperCase() + "')",
+                        "hasInvolvement('" + kindName.toLowerCase() + "')",
+                        "hasInvolvement('" + unusedKindName + "')"),
+                "involvement kinds should match regardless of case");
+    }
+
+
+    @Test
+    public void assessmentRatingMatchesDefinitionByNameOrExternalId() {
+        EntityReference app = appHelper.createNewApp(mkName("assessmentRating"), ouIds.a);
+        long schemeId = ratingSchemeHelper.createEmptyRatingScheme(mkName("scheme"));
+        Long yesId = ratingSchemeHelper.saveRatingItem(schemeId, "Yes", 0, "green", "Y");
+        ratingSchemeHelper.saveRatingItem(schemeId, "No", 1, "red", "N");
+
+        String defName = mkName("definition");
+        long defId = assessmentHelper.createDefinition(schemeId, defName, null, AssessmentVisibility.PRIMARY, null);
+        String defExternalId = dsl
+                .select(ASSESSMENT_DEFINITION.EXTERNAL_ID)
+                .from(ASSESSMENT_DEFINITION)
+                .where(ASSESSMENT_DEFINITION.ID.eq(defId))
+                .fetchOne()
+                .value1();
+        assessmentHelper.createAssessment(defId, app, yesId);
+
+        String unratedName = mkName("unrated");
+        assessmentHelper.createDefinition(schemeId, unratedName, null, AssessmentVisibility.PRIMARY, null);
+
+        long templateId = counter.incrementAndGet();
+
+        assertEquals(
+                asList("byName", "byExternalId", "defaulted"),
+                activeQuestionLabels(
+                        app,
+                        asList(
+                                mkQuestion(templateId, "byName", "assessmentRating('" + defName + "') == 'Y'"),
+                                mkQuestion(templateId, "byExternalId", "assessmentRating('" + defExternalId + "') == 'Y'"),
+                                mkQuestion(templateId, "notNo", "assessmentRating('" + defName + "') == 'N'"),
+                                mkQuestion(templateId, "defaulted", "assessmentRating('" + unratedName + "', 'X') == 'X'"))),
+                "assessments should be found by definition name or external id and give the rating code");
+    }
+
+
+    // --- helpers ---
+
+    /**
+     * Evaluates one question per predicate and returns the argument of each
+     * predicate whose question is active.
+     */
+    private List<String> activeQuestions(EntityReference subject, String... predicates) {
+        long templateId = counter.incrementAndGet();
+
+        List<SurveyQuestion> qs = asList(predicates)
+                .stream()
+                .map(p -> mkQuestion(templateId, p.substring(p.indexOf('\'') + 1, p.lastIndexOf('\'')), p))
+                .collect(toList());
+
+        return activeQuestionLabels(subject, qs);
+    }
+
+
+    private List<String> activeQuestionLabels(EntityReference subject, List<SurveyQuestion> qs) {
+        return evaluator
+                .eval(qs, subject, Collections.emptyMap())
+                .stream()
+                .map(q -> q.label().get())
+                .collect(toList());
+    }
+
+
+    private SurveyQuestion mkQuestion(long templateId, String label, String predicate) {
+        return ImmutableSurveyQuestion
+                .builder()
+                .id(questionIds.incrementAndGet())
+                .surveyTemplateId(templateId)
+                .fieldType(SurveyQuestionFieldType.TEXT)
+                .questionText(label)
+                .label(label)
+                .inclusionPredicate(predicate)
+                .build();
+    }
+}
@@ -142,6 +142,73 @@ public class SurveyRunServiceTest extends BaseInMemoryIntegrationTest {
     }
 
 
+    @Test
+    public void individualIssuanceAttachesEachRecipientToAnInstanceForTheirEntity() throws InsufficientPrivelegeException {
+        String stem = "srt_individualIssuanceAttachesEachRecipientToAnInstanceForTheirEntity";
+
+        String admin = mkName(stem, "admin");
+        personHelper.createPerson(admin);
+
+        String u1 = mkName(stem, "user1");
+        Long u1Id = personHelper.createPerson(u1);
+        String u2 = mkName(stem, "user2");
+        Long u2Id = personHelper.createPerson(u2);
+        String u3 = mkName(stem, "user3");
+        Long u3Id = personHelper.createPerson(u3);
+
+        EntityReference appA = appHelper.createNewApp(mkName(stem, "appA"), ouIds.a);
+        EntityReference appB = appHelper.createNewApp(mkName(stem, "appB"), ouIds.b);
+
+        long invKind = involvementHelper.mkInvolvementKind(mkName(stem, "invKind"));
+        involvementHelper.createInvolvement(u1Id, invKind, appA);
+        involvementHelper.createInvolvement(u2Id, invKind, appA);
+        involvementHelper.createInvolvement(u3Id, invKind, appB);
+
+        Long grpId = groupHelper.createAppGroupWithAppRefs(mkName(stem, "group"), asSet(appA, appB));
+
+        long tId = templateHelper.createTemplate(admin, mkName(stem, "template"));
+        templateHelper.updateStatus(admin, tId, ReleaseLifecycleStatus.ACTIVE);
+
+        SurveyRunCreateCommand cmd = ImmutableSurveyRunCreateCommand.builder()
+                .issuanceKind(SurveyIssuanceKind.INDIVIDUAL)
+                .name("test")
+                .description("run desc")
+                .selectionOptions(IdSelectionOptions.mkOpts(EntityReference.mkRef(EntityKind.APP_GROUP, grpId)))
+                .surveyTemplateId(tId)
+                .addInvolvementKindIds(invKind)
+                .dueDate(DateTimeUtilities.today().plusMonths(1))
+                .approvalDueDate(DateTimeUtilities.today().plusMonths(1))
+                .contactEmail("someone@somewhere.com")
+                .build();
+
+        IdCommandResponse runResp = runService.createSurveyRun(admin, cmd);
+        Long surveyRunId = runResp.id().orElseThrow(() -> new AssertionFailedError("Failed to create run"));
+
+        ImmutableInstancesAndRecipientsCreateCommand createCmd = ImmutableInstancesAndRecipientsCreateCommand.builder()
+                .surveyRunId(surveyRunId)
+                .dueDate(toLocalDate(nowUtcTimestamp()))
+                .approvalDueDate(toLocalDate(nowUtcTimestamp()))
+                .excludedRecipients(emptySet())
+                .build();
+        runService.createSurveyInstancesAndRecipients(createCmd);
+        // issuing again replaces, rather than adds to, the existing instances
+        runService.createSurveyInstancesAndRecipients(createCmd);
+
+        Set<SurveyInstance> instances = instanceService.findForSurveyRun(surveyRunId);
+        assertEquals(3, instances.size(), "should be one instance per recipient");
+
+        assertEquals(asSet(appA), map(instanceService.findForRecipient(u1Id), SurveyInstance::surveyEntity), "user1 should only have an instance for appA");
+        assertEquals(asSet(appA), map(instanceService.findForRecipient(u2Id), SurveyInstance::surveyEntity), "user2 should only have an instance for appA");
+        assertEquals(asSet(appB), map(instanceService.findForRecipient(u3Id), SurveyInstance::surveyEntity), "user3 should only have an instance for appB");
+
+        instances.forEach(instance -> {
+            Long instanceId = instance.id().orElseThrow(() -> new AssertionFailedError("Instance should have an id"));
+            assertEquals(1, instanceService.findRecipients(instanceId).size(), "each individual instance has a single recipient");
+            assertNotNull(instanceService.checkPersonIsOwnerOrAdmin(admin, instanceId), "admin is owner of every instance");
+        });
+    }
+
+
     private Set<String> recipsToUserIds(List<Person> aRecips) {
         return map(aRecips, Person::userId);
     }
@@ -0,0 +1,100 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.jobs.generators.large_estate;
+
+import org.jooq.DSLContext;
+import org.jooq.InsertSetMoreStep;
+import org.jooq.Table;
+import org.jooq.TableRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * Accumulates records and writes them using multi-row insert statements
+ * (`insert into t (...) values (...), (...), ...`), one round trip per chunk
+ * rather than per record.
+ *
+ * The chunk size keeps the number of bind values per statement under the
+ * lowest limit of the supported databases (SQL Server allows ~2100).  All
+ * records given to an inserter must have the same set of changed fields.
+ */
+public class BulkInserter<R extends TableRecord<R>> implements AutoCloseable {
+
+    private static final int MAX_BIND_VALUES = 2_000;
+
+    private final DSLContext dsl;
+    private final Table<R> table;
+    private final int rowsPerStatement;
+    private final List<R> pending;
+
+    private int inserted = 0;
+
+
+    public BulkInserter(DSLContext dsl, Table<R> table) {
+        checkNotNull(dsl, "dsl cannot be null");
+        checkNotNull(table, "table cannot be null");
+
+        this.dsl = dsl;
+        this.table = table;
+        this.rowsPerStatement = Math.max(1, MAX_BIND_VALUES / table.fields().length);
+        this.pending = new ArrayList<>(rowsPerStatement);
+    }
+
+
+    public void add(R record) {
+        pending.add(record);
+        if (pending.size() >= rowsPerStatement) {
+            flush();
+        }
+    }
+
+
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        InsertSetMoreStep<R> insert = null;
+        for (R record : pending) {
+            insert = insert == null
+                    ? dsl.insertInto(table).set(record)
+                    : insert.newRecord().set(record);
+        }
+
+        inserted += insert.execute();
+        pending.clear();
+    }
+
+
+    /**
+     * @return number of rows written so far (excludes any records not yet flushed)
+     */
+    public int inserted() {
+        return inserted;
+    }
+
+
+    @Override
+    public void close() {
+        flush();
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.jobs.generators.large_estate;
+
+import static java.lang.String.format;
+import static org.finos.waltz.common.Checks.checkTrue;
+
+/**
+ * The number of each kind of entity in a generated estate.
+ *
+ * A size factor of `1.0` approximates a large production estate (50k apps,
+ * 1M logical flows, 100k people), every count is scaled linearly by the factor.
+ * Hierarchy depths and the per-entity maximums (ratings per app, data types
+ * per flow, etc.) are not scaled so smaller estates keep the same shape.
+ */
+public class EstateSize {
+
+    private static final int BASE_ORG_UNITS = 2_500;
+    private static final int BASE_DATA_TYPES = 400;
+    private static final int BASE_MEASURABLES_PER_CATEGORY = 5_000;
+    private static final int BASE_APPS = 50_000;
+    private static final int BASE_FLOWS = 1_000_000;
+    private static final int BASE_PHYSICAL_FLOWS = 250_000;
+    private static final int BASE_PEOPLE = 100_000;
+    private static final int BASE_CHANGE_INITIATIVES = 5_000;
+
+    private final double factor;
+
+
+    private EstateSize(double factor) {
+        this.factor = factor;
+    }
+
+
+    public static EstateSize scaledBy(double factor) {
+        checkTrue(factor > 0, "size factor must be greater than zero");
+        return new EstateSize(factor);
+    }
+
+
+    public double factor() {
+        return factor;
+    }
+
+
+    public int orgUnits() {
+        return scale(BASE_ORG_UNITS);
+    }
+
+
+    public int orgUnitDepth() {
+        return 7;
+    }
+
+
+    public int dataTypes() {
+        return scale(BASE_DATA_TYPES);
+    }
+
+
+    public int dataTypeDepth() {
+        return 5;
+    }
+
+
+    public int measurableCategories() {
+        return 4;
+    }
+
+
+    public int measurablesPerCategory() {
+        return scale(BASE_MEASURABLES_PER_CATEGORY);
+    }
+
+
+    public int measurableDepth() {
+        return 8;
+    }
+
+
+    public int apps() {
+        return scale(BASE_APPS);
+    }
+
+
+    public int flows() {
+        // a flow needs two distinct apps, the most we can have is n * (n - 1)
+        long maxFlows = (long) apps() * (apps() - 1);
+        return (int) Math.min(scale(BASE_FLOWS), maxFlows);
+    }
+
+
+    public int maxDataTypesPerFlow() {
+        return 3;
+    }
+
+
+    public int maxRatingsPerApp() {
+        return 15;
+    }
+
+
+    public int maxSpecificationsPerApp() {
+        return 3;
+    }
+
+
+    public int physicalFlows() {
+        // each physical flow belongs to a distinct logical flow
+        return Math.min(scale(BASE_PHYSICAL_FLOWS), flows());
+    }
+
+
+    public int people() {
+        return scale(BASE_PEOPLE);
+    }
+
+
+    public int peopleDepth() {
+        return 8;
+    }
+
+
+    public int changeInitiatives() {
+        return scale(BASE_CHANGE_INITIATIVES);
+    }
+
+
+    public int changeInitiativeDepth() {
+        // initiative, programme, project
+        return 3;
+    }
+
+
+    public int maxAppsPerChangeInitiative() {
+        return 5;
+    }
+
+
+    @Override
+    public String toString() {
+        return format(
+                "EstateSize{factor=%s, orgUnits=%d, dataTypes=%d, measurables=%d x %d, apps=%d, flows=%d, physicalFlows=%d, people=%d, changeInitiatives=%d}",
+                factor,
+                orgUnits(),
+                dataTypes(),
+                measurableCategories(),
+                measurablesPerCategory(),
+                apps(),
+                flows(),
+                physicalFlows(),
+                people(),
+                changeInitiatives());
+    }
+
+
+    // --- helpers ---
+
+    private int scale(int base) {
+        return (int) Math.max(1, Math.round(base * factor));
+    }
+}
@@ -0,0 +1,884 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.jobs.generators.large_estate;
+
+import org.finos.waltz.common.LoggingUtilities;
+import org.finos.waltz.data.report_grid.ReportGridDao;
+import org.finos.waltz.jobs.WaltzUtilities;
+import org.finos.waltz.jobs.generators.SampleDataGenerator;
+import org.finos.waltz.model.Criticality;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityLifecycleStatus;
+import org.finos.waltz.model.application.ApplicationKind;
+import org.finos.waltz.model.application.LifecyclePhase;
+import org.finos.waltz.model.change_initiative.ChangeInitiativeKind;
+import org.finos.waltz.model.person.PersonKind;
+import org.finos.waltz.model.rating.RagRating;
+import org.finos.waltz.model.report_grid.ImmutableReportGridColumnDefinitionsUpdateCommand;
+import org.finos.waltz.model.report_grid.ImmutableReportGridCreateCommand;
+import org.finos.waltz.model.report_grid.ImmutableReportGridFixedColumnDefinition;
+import org.finos.waltz.model.report_grid.ReportGridFixedColumnDefinition;
+import org.finos.waltz.model.report_grid.ReportGridKind;
+import org.finos.waltz.schema.tables.records.ApplicationRecord;
+import org.finos.waltz.schema.tables.records.ChangeInitiativeRecord;
+import org.finos.waltz.schema.tables.records.DataTypeRecord;
+import org.finos.waltz.schema.tables.records.EntityRelationshipRecord;
+import org.finos.waltz.schema.tables.records.LogicalFlowDecoratorRecord;
+import org.finos.waltz.schema.tables.records.LogicalFlowRecord;
+import org.finos.waltz.schema.tables.records.MeasurableRatingRecord;
+import org.finos.waltz.schema.tables.records.MeasurableRecord;
+import org.finos.waltz.schema.tables.records.OrganisationalUnitRecord;
+import org.finos.waltz.schema.tables.records.PersonRecord;
+import org.finos.waltz.schema.tables.records.PhysicalFlowRecord;
+import org.finos.waltz.schema.tables.records.PhysicalSpecificationRecord;
+import org.finos.waltz.service.DIConfiguration;
+import org.finos.waltz.service.entity_hierarchy.EntityHierarchyService;
+import org.finos.waltz.service.person_hierarchy.PersonHierarchyService;
+import org.finos.waltz.service.usage_info.DataTypeUsageService;
+import org.jooq.DSLContext;
+import org.jooq.Record2;
+import org.jooq.impl.DSL;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static java.lang.String.format;
+import static org.finos.waltz.common.IOUtilities.readLines;
+import static org.finos.waltz.schema.Tables.APPLICATION;
+import static org.finos.waltz.schema.Tables.CHANGE_INITIATIVE;
+import static org.finos.waltz.schema.Tables.DATA_TYPE;
+import static org.finos.waltz.schema.Tables.DATA_TYPE_USAGE;
+import static org.finos.waltz.schema.Tables.ENTITY_RELATIONSHIP;
+import static org.finos.waltz.schema.Tables.LOGICAL_FLOW;
+import static org.finos.waltz.schema.Tables.LOGICAL_FLOW_DECORATOR;
+import static org.finos.waltz.schema.Tables.MEASURABLE;
+import static org.finos.waltz.schema.Tables.MEASURABLE_CATEGORY;
+import static org.finos.waltz.schema.Tables.MEASURABLE_RATING;
+import static org.finos.waltz.schema.Tables.ORGANISATIONAL_UNIT;
+import static org.finos.waltz.schema.Tables.PERSON;
+import static org.finos.waltz.schema.Tables.PHYSICAL_FLOW;
+import static org.finos.waltz.schema.Tables.PHYSICAL_SPECIFICATION;
+import static org.finos.waltz.schema.Tables.REPORT_GRID;
+import static org.finos.waltz.schema.Tables.REPORT_GRID_COLUMN_DEFINITION;
+import static org.finos.waltz.schema.Tables.REPORT_GRID_FIXED_COLUMN_DEFINITION;
+
+
+/**
+ * Generates a large, synthetic estate (org units, people, data types,
+ * measurable taxonomies, apps, logical flows with data types, physical flows,
+ * measurable ratings and change initiatives) suitable for load testing, see
+ * `EstateSize` for the volumes.
+ *
+ * The estate is deterministic: the same size factor and seed always produce
+ * the same entities, names and relationships.  Each step uses its own seeded
+ * random source so a change to one step does not alter the others, and
+ * timestamps are fixed.  Rows are written with multi-row inserts (see
+ * `BulkInserter`) rather than via the DAOs/services.
+ *
+ * Everything generated is tagged with the `large-estate` provenance (data
+ * types and people, which have no provenance, are identified by their
+ * `EXTERNAL_ID_PREFIX`ed codes and employee ids), so the estate can be
+ * removed without touching other data.  The workload in
+ * `tools.load_test.WorkloadReplayer` is designed to run against this estate.
+ *
+ * Usage: `LargeEstateGenerator [sizeFactor=0.1] [seed=42]`
+ */
+public class LargeEstateGenerator implements SampleDataGenerator {
+
+    public static final String PROVENANCE = "large-estate";
+    public static final String EXTERNAL_ID_PREFIX = "LE-";
+    public static final String REPORT_GRID_NAME = "Large Estate Overview";
+    public static final long ID_OFFSET = 10_000_000L;
+
+    private static final String DATA_TYPE_CODE_PREFIX = EXTERNAL_ID_PREFIX + "DT-";
+    private static final String EMPLOYEE_ID_PREFIX = EXTERNAL_ID_PREFIX + "P-";
+
+    private static final String USER = SAMPLE_DATA_USER;
+    private static final Timestamp TIMESTAMP = Timestamp.valueOf("2020-01-01 00:00:00");
+    private static final Date START_DATE = Date.valueOf("2020-01-01");
+
+    private static final String[] ORG_UNIT_LEVELS = {
+            "Group", "Division", "Business Unit", "Department", "Function", "Team", "Squad", "Pod" };
+
+    private static final String[] MEASURABLE_CATEGORIES = {
+            "Function", "Product", "Process", "Regulation" };
+
+    private final EstateSize size;
+    private final long seed;
+
+
+    public LargeEstateGenerator(EstateSize size, long seed) {
+        this.size = size;
+        this.seed = seed;
+    }
+
+
+    public static void main(String[] args) {
+        double sizeFactor = args.length > 0 ? Double.parseDouble(args[0]) : 0.1;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+
+        LoggingUtilities.configureLogging();
+        AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext(DIConfiguration.class);
+
+        LargeEstateGenerator generator = new LargeEstateGenerator(EstateSize.scaledBy(sizeFactor), seed);
+
+        generator.log("Removing existing large estate");
+        generator.remove(ctx);
+
+        generator.log("Generating: %s, seed: %d", generator.size, seed);
+        Map<String, Integer> counts = generator.create(ctx);
+        generator.log("Done: %s", counts);
+    }
+
+
+    @Override
+    public Map<String, Integer> create(ApplicationContext ctx) {
+        DSLContext dsl = getDsl(ctx);
+        EntityHierarchyService ehSvc = ctx.getBean(EntityHierarchyService.class);
+        Map<String, Integer> counts = new HashMap<>();
+
+        long start = System.currentTimeMillis();
+
+        List<Long> orgUnitIds = time("org units", () -> createOrgUnits(dsl));
+        counts.put("orgUnits", orgUnitIds.size());
+
+        counts.put("people", time("people", () -> createPeople(dsl, orgUnitIds)));
+
+        List<Long> dataTypeIds = time("data types", () -> createDataTypes(dsl));
+        counts.put("dataTypes", dataTypeIds.size());
+
+        Map<Long, List<Long>> measurableIdsByCategoryId = time("measurables", () -> createMeasurables(dsl));
+        List<Long> measurableIds = new ArrayList<>();
+        measurableIdsByCategoryId.values().forEach(measurableIds::addAll);
+        counts.put("measurables", measurableIds.size());
+
+        time("hierarchies", () -> {
+            ehSvc.buildFor(EntityKind.ORG_UNIT);
+            ehSvc.buildFor(EntityKind.DATA_TYPE);
+            ehSvc.buildFor(EntityKind.MEASURABLE);
+            ctx.getBean(PersonHierarchyService.class).build();
+            return null;
+        });
+
+        List<Long> appIds = time("apps", () -> createApps(dsl, orgUnitIds));
+        counts.put("apps", appIds.size());
+
+        counts.put("flows", time("flows", () -> createFlows(dsl, appIds)));
+        counts.put("flowDecorators", time("flow decorators", () -> createFlowDecorators(dsl, dataTypeIds)));
+        counts.put("measurableRatings", time("measurable ratings", () -> createMeasurableRatings(dsl, appIds, measurableIds)));
+
+        Map<Long, List<Long>> specIdsByAppId = time("physical specifications", () -> createPhysicalSpecifications(dsl, appIds));
+        counts.put("physicalSpecifications", specIdsByAppId.values().stream().mapToInt(List::size).sum());
+        counts.put("physicalFlows", time("physical flows", () -> createPhysicalFlows(dsl, specIdsByAppId)));
+
+        List<Long> changeInitiativeIds = time("change initiatives", () -> createChangeInitiatives(dsl, orgUnitIds));
+        counts.put("changeInitiatives", changeInitiativeIds.size());
+        counts.put("changeInitiativeRelationships", time("change initiative relationships", () -> createChangeInitiativeRelationships(dsl, changeInitiativeIds, appIds)));
+        time("change initiative hierarchy", () -> ehSvc.buildFor(EntityKind.CHANGE_INITIATIVE));
+
+        time("data type usages", () -> ctx.getBean(DataTypeUsageService.class).recalculateForAllApplications());
+        time("report grid", () -> createReportGrid(ctx, measurableIdsByCategoryId));
+
+        log("Generated estate in %dms", System.currentTimeMillis() - start);
+
+        return counts;
+    }
+
+
+    @Override
+    public boolean remove(ApplicationContext ctx) {
+        DSLContext dsl = getDsl(ctx);
+
+        dsl.deleteFrom(ENTITY_RELATIONSHIP)
+                .where(ENTITY_RELATIONSHIP.PROVENANCE.eq(PROVENANCE))
+                .execute();
+
+        dsl.deleteFrom(CHANGE_INITIATIVE)
+                .where(CHANGE_INITIATIVE.PROVENANCE.eq(PROVENANCE))
+                .execute();
+
+        dsl.deleteFrom(PHYSICAL_FLOW)
+                .where(PHYSICAL_FLOW.PROVENANCE.eq(PROVENANCE))
+                .execute();
+
+        dsl.deleteFrom(PHYSICAL_SPECIFICATION)
+                .where(PHYSICAL_SPECIFICATION.PROVENANCE.eq(PROVENANCE))
+                .execute();
+
+        dsl.deleteFrom(LOGICAL_FLOW_DECORATOR)
+                .where(LOGICAL_FLOW_DECORATOR.PROVENANCE.eq(PROVENANCE))
+                .execute();
+
+        dsl.deleteFrom(LOGICAL_FLOW)
+                .where(LOGICAL_FLOW.PROVENANCE.eq(PROVENANCE))
+                .execute();
+
+        dsl.deleteFrom(MEASURABLE_RATING)
+                .where(MEASURABLE_RATING.PROVENANCE.eq(PROVENANCE))
+                .execute();
+
+        removeReportGrid(ctx);
+
+        dsl.deleteFrom(DATA_TYPE_USAGE)
+                .where(DATA_TYPE_USAGE.ENTITY_KIND.eq(EntityKind.APPLICATION.name()))
+                .and(DATA_TYPE_USAGE.ENTITY_ID.in(DSL
+                        .select(APPLICATION.ID)
+                        .from(APPLICATION)
+                        .where(APPLICATION.PROVENANCE.eq(PROVENANCE))))
+                .execute();
+
+        dsl.deleteFrom(APPLICATION)
+                .where(APPLICATION.PROVENANCE.eq(PROVENANCE))
+                .execute();
+
+        dsl.deleteFrom(MEASURABLE)
+                .where(MEASURABLE.MEASURABLE_CATEGORY_ID.in(DSL
+                        .select(MEASURABLE_CATEGORY.ID)
+                        .from(MEASURABLE_CATEGORY)
+                        .where(MEASURABLE_CATEGORY.EXTERNAL_ID.startsWith(EXTERNAL_ID_PREFIX))))
+                .execute();
+
+        dsl.deleteFrom(PERSON)
+                .where(PERSON.EMPLOYEE_ID.startsWith(EMPLOYEE_ID_PREFIX))
+                .execute();
+
+        dsl.deleteFrom(ORGANISATIONAL_UNIT)
+                .where(ORGANISATIONAL_UNIT.PROVENANCE.eq(PROVENANCE))
+                .execute();
+
+        dsl.deleteFrom(DATA_TYPE)
+                .where(DATA_TYPE.CODE.startsWith(DATA_TYPE_CODE_PREFIX))
+                .and(DATA_TYPE.ID.ge(ID_OFFSET))
+                .execute();
+
+        EntityHierarchyService ehSvc = ctx.getBean(EntityHierarchyService.class);
+        ehSvc.buildFor(EntityKind.ORG_UNIT);
+        ehSvc.buildFor(EntityKind.DATA_TYPE);
+        ehSvc.buildFor(EntityKind.MEASURABLE);
+        ehSvc.buildFor(EntityKind.CHANGE_INITIATIVE);
+        ctx.getBean(PersonHierarchyService.class).build();
+
+        return true;
+    }
+
+
+    // --- steps ---
+
+    private List<Long> createOrgUnits(DSLContext dsl) {
+        TreeShape tree = TreeShape.of(size.orgUnits(), size.orgUnitDepth());
+        List<Long> ids = new ArrayList<>(tree.size());
+
+        try (BulkInserter<OrganisationalUnitRecord> inserter = new BulkInserter<>(dsl, ORGANISATIONAL_UNIT)) {
+            for (int i = 0; i < tree.size(); i++) {
+                long id = ID_OFFSET + i;
+                String name = format("%s %d", ORG_UNIT_LEVELS[tree.depth(i) % ORG_UNIT_LEVELS.length], i);
+
+                OrganisationalUnitRecord record = new OrganisationalUnitRecord();
+                record.setId(id);
+                record.setParentId(tree.isRoot(i) ? null : ID_OFFSET + tree.parent(i));
+                record.setName(name);
+                record.setDescription("Generated org unit: " + name);
+                record.setExternalId(EXTERNAL_ID_PREFIX + "OU-" + i);
+                record.setProvenance(PROVENANCE);
+                record.setCreatedBy(USER);
+                record.setLastUpdatedBy(USER);
+                record.setLastUpdatedAt(TIMESTAMP);
+                inserter.add(record);
+                ids.add(id);
+            }
+        }
+
+        return ids;
+    }
+
+
+    /**
+     * People form a management hierarchy (via their manager's employee id),
+     * each is placed in a random org unit.
+     */
+    private int createPeople(DSLContext dsl, List<Long> orgUnitIds) {
+        Random rnd = mkRandom(5);
+        TreeShape tree = TreeShape.of(size.people(), size.peopleDepth());
+
+        try (BulkInserter<PersonRecord> inserter = new BulkInserter<>(dsl, PERSON)) {
+            for (int i = 0; i < tree.size(); i++) {
+                String name = format("Person %d", i);
+
+                PersonRecord record = new PersonRecord();
+                record.setEmployeeId(EMPLOYEE_ID_PREFIX + i);
+                record.setManagerEmployeeId(tree.isRoot(i) ? "" : EMPLOYEE_ID_PREFIX + tree.parent(i));
+                record.setDisplayName(name);
+                record.setEmail(format("person.%d@large-estate.example", i));
+                record.setUserPrincipalName(format("person.%d", i));
+                record.setTitle(pick(rnd, jobTitles[Math.min(tree.depth(i), jobTitles.length - 1)]));
+                record.setDepartmentName(pick(rnd, departmentNames));
+                record.setKind(PersonKind.EMPLOYEE.name());
+                record.setOrganisationalUnitId(orgUnitIds.get(rnd.nextInt(orgUnitIds.size())));
+                record.setIsRemoved(false);
+                inserter.add(record);
+            }
+            inserter.flush();
+            return inserter.inserted();
+        }
+    }
+
+
+    private List<Long> createDataTypes(DSLContext dsl) {
+        TreeShape tree = TreeShape.of(size.dataTypes(), size.dataTypeDepth());
+        List<Long> ids = new ArrayList<>(tree.size());
+
+        try (BulkInserter<DataTypeRecord> inserter = new BulkInserter<>(dsl, DATA_TYPE)) {
+            for (int i = 0; i < tree.size(); i++) {
+                long id = ID_OFFSET + i;
+                String name = format("Data Type %d", i);
+
+                DataTypeRecord record = new DataTypeRecord();
+                record.setId(id);
+                record.setParentId(tree.isRoot(i) ? null : ID_OFFSET + tree.parent(i));
+                record.setCode(DATA_TYPE_CODE_PREFIX + i);
+                record.setName(name);
+                record.setDescription("Generated data type: " + name);
+                record.setConcrete(true);
+                record.setLastUpdatedAt(TIMESTAMP);
+                inserter.add(record);
+                ids.add(id);
+            }
+        }
+
+        return ids;
+    }
+
+
+    /**
+     * Measurable ids are generated by the database, so each level of a taxonomy
+     * is inserted (and its ids read back) before its children, allowing the
+     * children's parent ids to be set directly.
+     */
+    private Map<Long, List<Long>> createMeasurables(DSLContext dsl) {
+        Map<Long, List<Long>> idsByCategoryId = new LinkedHashMap<>();
+
+        for (int c = 0; c < size.measurableCategories(); c++) {
+            String categoryName = MEASURABLE_CATEGORIES[c % MEASURABLE_CATEGORIES.length];
+            String categoryExtId = EXTERNAL_ID_PREFIX + "CAT-" + c;
+            Long categoryId = WaltzUtilities.getOrCreateMeasurableCategory(dsl, categoryExtId, "Large Estate " + categoryName);
+
+            TreeShape tree = TreeShape.of(size.measurablesPerCategory(), size.measurableDepth());
+            long[] ids = new long[tree.size()];
+
+            for (int depth = 0, i = 0; i < tree.size(); depth++) {
+                int levelStart = i;
+
+                try (BulkInserter<MeasurableRecord> inserter = new BulkInserter<>(dsl, MEASURABLE)) {
+                    for (; i < tree.size() && tree.depth(i) == depth; i++) {
+                        String extId = format("%sM-%d-%d", EXTERNAL_ID_PREFIX, c, i);
+                        String name = format("%s %d", categoryName, i);
+
+                        MeasurableRecord record = new MeasurableRecord();
+                        record.setMeasurableCategoryId(categoryId);
+                        record.setParentId(tree.isRoot(i) ? null : ids[tree.parent(i)]);
+                        record.setExternalId(extId);
+                        record.setExternalParentId(tree.isRoot(i) ? null : format("%sM-%d-%d", EXTERNAL_ID_PREFIX, c, tree.parent(i)));
+                        record.setName(name);
+                        record.setDescription("Generated measurable: " + name);
+                        record.setConcrete(true);
+                        record.setProvenance(PROVENANCE);
+                        record.setLastUpdatedBy(USER);
+                        record.setLastUpdatedAt(TIMESTAMP);
+                        inserter.add(record);
+                    }
+                }
+
+                Map<String, Long> idsByExtId = dsl
+                        .select(MEASURABLE.EXTERNAL_ID, MEASURABLE.ID)
+                        .from(MEASURABLE)
+                        .where(MEASURABLE.MEASURABLE_CATEGORY_ID.eq(categoryId))
+                        .fetchMap(MEASURABLE.EXTERNAL_ID, MEASURABLE.ID);
+
+                for (int j = levelStart; j < i; j++) {
+                    ids[j] = idsByExtId.get(format("%sM-%d-%d", EXTERNAL_ID_PREFIX, c, j));
+                }
+            }
+
+            List<Long> categoryIds = new ArrayList<>(ids.length);
+            for (long id : ids) {
+                categoryIds.add(id);
+            }
+            idsByCategoryId.put(categoryId, categoryIds);
+        }
+
+        return idsByCategoryId;
+    }
+
+
+    private List<Long> createApps(DSLContext dsl, List<Long> orgUnitIds) {
+        Random rnd = mkRandom(1);
+        List<String> names = readLines(getClass().getResourceAsStream("/app-names.txt"));
+
+        try (BulkInserter<ApplicationRecord> inserter = new BulkInserter<>(dsl, APPLICATION)) {
+            for (int i = 0; i < size.apps(); i++) {
+                String name = format("%s - %d", names.get(i % names.size()), i);
+
+                ApplicationRecord record = new ApplicationRecord();
+                record.setName(name);
+                record.setDescription("All about " + name);
+                record.setAssetCode(EXTERNAL_ID_PREFIX + "APP-" + i);
+                record.setParentAssetCode("");
+                record.setOrganisationalUnitId(orgUnitIds.get(rnd.nextInt(orgUnitIds.size())));
+                record.setKind(pick(rnd, ApplicationKind.values()).name());
+                record.setLifecyclePhase(rnd.nextInt(10) > 7
+                        ? pick(rnd, LifecyclePhase.values()).name()
+                        : LifecyclePhase.PRODUCTION.name());
+                record.setOverallRating(pick(rnd, RagRating.R, RagRating.A, RagRating.A, RagRating.G, RagRating.G).name());
+                record.setBusinessCriticality(rnd.nextInt(10) > 7
+                        ? pick(rnd, Criticality.values()).name()
+                        : Criticality.HIGH.name());
+                record.setProvenance(PROVENANCE);
+                record.setUpdatedAt(TIMESTAMP);
+                inserter.add(record);
+            }
+        }
+
+        Map<String, Long> idsByAssetCode = dsl
+                .select(APPLICATION.ASSET_CODE, APPLICATION.ID)
+                .from(APPLICATION)
+                .where(APPLICATION.PROVENANCE.eq(PROVENANCE))
+                .fetchMap(APPLICATION.ASSET_CODE, APPLICATION.ID);
+
+        List<Long> ids = new ArrayList<>(size.apps());
+        for (int i = 0; i < size.apps(); i++) {
+            ids.add(idsByAssetCode.get(EXTERNAL_ID_PREFIX + "APP-" + i));
+        }
+        return ids;
+    }
+
+
+    /**
+     * Sources are chosen uniformly, targets are skewed towards the first apps
+     * so that, as in a real estate, a few apps act as hubs with many inbound flows.
+     */
+    private int createFlows(DSLContext dsl, List<Long> appIds) {
+        Random rnd = mkRandom(2);
+        int appCount = appIds.size();
+        int flowCount = size.flows();
+        long maxAttempts = flowCount * 10L;
+        Set<Long> seen = new HashSet<>(flowCount * 2);
+
+        try (BulkInserter<LogicalFlowRecord> inserter = new BulkInserter<>(dsl, LOGICAL_FLOW)) {
+            for (long attempt = 0; seen.size() < flowCount && attempt < maxAttempts; attempt++) {
+                int source = rnd.nextInt(appCount);
+                int target = (int) (appCount * Math.pow(rnd.nextDouble(), 2));
+
+                if (source == target || ! seen.add((long) source * appCount + target)) {
+                    continue;
+                }
+
+                LogicalFlowRecord record = WaltzUtilities.mkLogicalFlowRecord(
+                        appIds.get(source),
+                        appIds.get(target),
+                        PROVENANCE);
+                record.setCreatedAt(TIMESTAMP);
+                record.setLastUpdatedAt(TIMESTAMP);
+                inserter.add(record);
+            }
+            inserter.flush();
+            return inserter.inserted();
+        }
+    }
+
+
+    private int createFlowDecorators(DSLContext dsl, List<Long> dataTypeIds) {
+        Random rnd = mkRandom(3);
+
+        // ids are allocated in insertion order, so ordering by id keeps this step repeatable
+        List<Long> flowIds = dsl
+                .select(LOGICAL_FLOW.ID)
+                .from(LOGICAL_FLOW)
+                .where(LOGICAL_FLOW.PROVENANCE.eq(PROVENANCE))
+                .orderBy(LOGICAL_FLOW.ID)
+                .fetch(LOGICAL_FLOW.ID);
+
+        try (BulkInserter<LogicalFlowDecoratorRecord> inserter = new BulkInserter<>(dsl, LOGICAL_FLOW_DECORATOR)) {
+            for (Long flowId : flowIds) {
+                Set<Long> flowDataTypeIds = new HashSet<>();
+                int howMany = 1 + rnd.nextInt(size.maxDataTypesPerFlow());
+                for (int i = 0; i < howMany; i++) {
+                    Long dtId = dataTypeIds.get(rnd.nextInt(dataTypeIds.size()));
+                    if (flowDataTypeIds.add(dtId)) {
+                        LogicalFlowDecoratorRecord record = WaltzUtilities.mkLogicalFlowDecoratorRecord(flowId, dtId, PROVENANCE);
+                        record.setLastUpdatedAt(TIMESTAMP);
+                        inserter.add(record);
+                    }
+                }
+            }
+            inserter.flush();
+            return inserter.inserted();
+        }
+    }
+
+
+    private int createMeasurableRatings(DSLContext dsl, List<Long> appIds, List<Long> measurableIds) {
+        Random rnd = mkRandom(4);
+
+        try (BulkInserter<MeasurableRatingRecord> inserter = new BulkInserter<>(dsl, MEASURABLE_RATING)) {
+            for (Long appId : appIds) {
+                Set<Long> ratedMeasurableIds = new HashSet<>();
+                int howMany = rnd.nextInt(size.maxRatingsPerApp() + 1);
+                for (int i = 0; i < howMany; i++) {
+                    Long measurableId = measurableIds.get(rnd.nextInt(measurableIds.size()));
+                    if (ratedMeasurableIds.add(measurableId)) {
+                        MeasurableRatingRecord record = new MeasurableRatingRecord();
+                        record.setEntityId(appId);
+                        record.setEntityKind(EntityKind.APPLICATION.name());
+                        record.setMeasurableId(measurableId);
+                        record.setRating(pick(rnd, "R", "A", "G"));
+                        record.setLastUpdatedBy(USER);
+                        record.setLastUpdatedAt(TIMESTAMP);
+                        record.setProvenance(PROVENANCE);
+                        inserter.add(record);
+                    }
+                }
+            }
+            inserter.flush();
+            return inserter.inserted();
+        }
+    }
+
+
+    /**
+     * Every app owns at least one specification.
+     *
+     * @return specification ids, by owning app id
+     */
+    private Map<Long, List<Long>> createPhysicalSpecifications(DSLContext dsl, List<Long> appIds) {
+        Random rnd = mkRandom(6);
+
+        try (BulkInserter<PhysicalSpecificationRecord> inserter = new BulkInserter<>(dsl, PHYSICAL_SPECIFICATION)) {
+            for (int i = 0; i < appIds.size(); i++) {
+                int howMany = 1 + rnd.nextInt(size.maxSpecificationsPerApp());
+                for (int j = 0; j < howMany; j++) {
+                    String name = format("Specification %d-%d", i, j);
+
+                    PhysicalSpecificationRecord record = new PhysicalSpecificationRecord();
+                    record.setOwningEntityKind(EntityKind.APPLICATION.name());
+                    record.setOwningEntityId(appIds.get(i));
+                    record.setName(name);
+                    record.setExternalId(format("%sPS-%d-%d", EXTERNAL_ID_PREFIX, i, j));
+                    record.setDescription("Generated specification: " + name);
+                    record.setFormat(pick(rnd, "XML", "DATABASE", "JSON", "OTHER"));
+                    record.setProvenance(PROVENANCE);
+                    record.setLastUpdatedBy(USER);
+                    record.setLastUpdatedAt(TIMESTAMP);
+                    record.setCreatedBy(USER);
+                    record.setCreatedAt(TIMESTAMP);
+                    inserter.add(record);
+                }
+            }
+        }
+
+        Map<Long, List<Long>> specIdsByAppId = new HashMap<>();
+        dsl.select(PHYSICAL_SPECIFICATION.OWNING_ENTITY_ID, PHYSICAL_SPECIFICATION.ID)
+                .from(PHYSICAL_SPECIFICATION)
+                .where(PHYSICAL_SPECIFICATION.PROVENANCE.eq(PROVENANCE))
+                .orderBy(PHYSICAL_SPECIFICATION.ID)
+                .forEach(r -> specIdsByAppId
+                        .computeIfAbsent(r.value1(), k -> new ArrayList<>())
+                        .add(r.value2()));
+        return specIdsByAppId;
+    }
+
+
+    /**
+     * Exactly `physicalFlows` logical flows (fewer if fewer flows were generated)
+     * are chosen at random, each gets a physical flow using one of its source
+     * app's specifications.
+     */
+    private int createPhysicalFlows(DSLContext dsl, Map<Long, List<Long>> specIdsByAppId) {
+        Random rnd = mkRandom(7);
+
+        // ids are allocated in insertion order, so ordering by id keeps this step repeatable
+        List<Record2<Long, Long>> flows = dsl
+                .select(LOGICAL_FLOW.ID, LOGICAL_FLOW.SOURCE_ENTITY_ID)
+                .from(LOGICAL_FLOW)
+                .where(LOGICAL_FLOW.PROVENANCE.eq(PROVENANCE))
+                .orderBy(LOGICAL_FLOW.ID)
+                .fetch();
+
+        int remaining = size.physicalFlows();
+
+        try (BulkInserter<PhysicalFlowRecord> inserter = new BulkInserter<>(dsl, PHYSICAL_FLOW)) {
+            for (int i = 0; i < flows.size() && remaining > 0; i++) {
+                // selection sampling: each flow is chosen with probability remaining / flows left
+                if (rnd.nextInt(flows.size() - i) >= remaining) {
+                    continue;
+                }
+                remaining--;
+
+                Long logicalFlowId = flows.get(i).value1();
+                List<Long> specIds = specIdsByAppId.get(flows.get(i).value2());
+
+                PhysicalFlowRecord record = new PhysicalFlowRecord();
+                record.setSpecificationId(specIds.get(rnd.nextInt(specIds.size())));
+                record.setLogicalFlowId(logicalFlowId);
+                record.setExternalId(format("%sPF-%d", EXTERNAL_ID_PREFIX, i));
+                record.setDescription("Generated physical flow for logical flow: " + logicalFlowId);
+                record.setTransport(pick(rnd, "FILE_TRANSPORT", "FILE_SHARE", "MESSAGING", "EMAIL", "OTHER"));
+                record.setFrequency(pick(rnd, "DAILY", "DAILY", "WEEKLY", "MONTHLY", "ON_DEMAND"));
+                record.setBasisOffset(pick(rnd, 0, 0, 0, 1, -1));
+                record.setCriticality(pick(rnd, Criticality.values()).name());
+                record.setEntityLifecycleStatus(EntityLifecycleStatus.ACTIVE.name());
+                record.setProvenance(PROVENANCE);
+                record.setLastUpdatedBy(USER);
+                record.setLastUpdatedAt(TIMESTAMP);
+                record.setCreatedBy(USER);
+                record.setCreatedAt(TIMESTAMP);
+                inserter.add(record);
+            }
+            inserter.flush();
+            return inserter.inserted();
+        }
+    }
+
+
+    /**
+     * Initiatives, programmes and projects (by depth in the hierarchy).  Change
+     * initiative ids are not generated by the database, so are allocated from
+     * `ID_OFFSET`, as for org units.
+     */
+    private List<Long> createChangeInitiatives(DSLContext dsl, List<Long> orgUnitIds) {
+        Random rnd = mkRandom(8);
+        TreeShape tree = TreeShape.of(size.changeInitiatives(), size.changeInitiativeDepth());
+        ChangeInitiativeKind[] kinds = ChangeInitiativeKind.values();
+        List<Long> ids = new ArrayList<>(tree.size());
+
+        try (BulkInserter<ChangeInitiativeRecord> inserter = new BulkInserter<>(dsl, CHANGE_INITIATIVE)) {
+            for (int i = 0; i < tree.size(); i++) {
+                long id = ID_OFFSET + i;
+                ChangeInitiativeKind kind = kinds[Math.min(tree.depth(i), kinds.length - 1)];
+                String name = format("Change %s %d", kind.name().toLowerCase(), i);
+
+                ChangeInitiativeRecord record = new ChangeInitiativeRecord();
+                record.setId(id);
+                record.setParentId(tree.isRoot(i) ? null : ID_OFFSET + tree.parent(i));
+                record.setExternalId(EXTERNAL_ID_PREFIX + "CI-" + i);
+                record.setName(name);
+                record.setDescription("Generated change initiative: " + name);
+                record.setKind(kind.name());
+                record.setLifecyclePhase(pick(rnd, LifecyclePhase.values()).name());
+                record.setStartDate(START_DATE);
+                record.setEndDate(Date.valueOf(START_DATE.toLocalDate().plusDays(30 + rnd.nextInt(730))));
+                record.setOrganisationalUnitId(orgUnitIds.get(rnd.nextInt(orgUnitIds.size())));
+                record.setProvenance(PROVENANCE);
+                inserter.add(record);
+                ids.add(id);
+            }
+        }
+
+        return ids;
+    }
+
+
+    private int createChangeInitiativeRelationships(DSLContext dsl, List<Long> changeInitiativeIds, List<Long> appIds) {
+        Random rnd = mkRandom(9);
+
+        try (BulkInserter<EntityRelationshipRecord> inserter = new BulkInserter<>(dsl, ENTITY_RELATIONSHIP)) {
+            for (Long changeInitiativeId : changeInitiativeIds) {
+                Set<Long> supportedAppIds = new HashSet<>();
+                int howMany = rnd.nextInt(size.maxAppsPerChangeInitiative() + 1);
+                for (int i = 0; i < howMany; i++) {
+                    Long appId = appIds.get(rnd.nextInt(appIds.size()));
+                    if (supportedAppIds.add(appId)) {
+                        EntityRelationshipRecord record = new EntityRelationshipRecord();
+                        record.setKindA(EntityKind.APPLICATION.name());
+                        record.setIdA(appId);
+                        record.setKindB(EntityKind.CHANGE_INITIATIVE.name());
+                        record.setIdB(changeInitiativeId);
+                        record.setRelationship("SUPPORTS");
+                        record.setProvenance(PROVENANCE);
+                        record.setLastUpdatedBy(USER);
+                        record.setLastUpdatedAt(TIMESTAMP);
+                        inserter.add(record);
+                    }
+                }
+            }
+            inserter.flush();
+            return inserter.inserted();
+        }
+    }
+
+
+    /**
+     * A public, application based grid with a column per measurable taxonomy
+     * (rolled up from each taxonomy's root), used by the report grid requests
+     * in the load test workload.
+     */
+    private long createReportGrid(ApplicationContext ctx, Map<Long, List<Long>> measurableIdsByCategoryId) {
+        ReportGridDao reportGridDao = ctx.getBean(ReportGridDao.class);
+
+        long gridId = reportGridDao.create(
+                ImmutableReportGridCreateCommand.builder()
+                        .name(REPORT_GRID_NAME)
+                        .description("Generated grid for load testing")
+                        .subjectKind(EntityKind.APPLICATION)
+                        .kind(ReportGridKind.PUBLIC)
+                        .build(),
+                USER);
+
+        List<ReportGridFixedColumnDefinition> columns = new ArrayList<>();
+        measurableIdsByCategoryId.forEach((categoryId, measurableIds) -> columns.add(
+                ImmutableReportGridFixedColumnDefinition.builder()
+                        .columnEntityKind(EntityKind.MEASURABLE)
+                        .columnEntityId(measurableIds.get(0))
+                        .position(columns.size())
+                        .build()));
+
+        reportGridDao.updateColumnDefinitions(
+                gridId,
+                ImmutableReportGridColumnDefinitionsUpdateCommand.builder()
+                        .fixedColumnDefinitions(columns)
+                        .build());
+
+        return gridId;
+    }
+
+
+    private void removeReportGrid(ApplicationContext ctx) {
+        DSLContext dsl = getDsl(ctx);
+        ReportGridDao reportGridDao = ctx.getBean(ReportGridDao.class);
+
+        List<Long> gridIds = dsl
+                .select(REPORT_GRID.ID)
+                .from(REPORT_GRID)
+                .where(REPORT_GRID.NAME.eq(REPORT_GRID_NAME))
+                .fetch(REPORT_GRID.ID);
+
+        gridIds.forEach(gridId -> {
+            dsl.deleteFrom(REPORT_GRID_FIXED_COLUMN_DEFINITION)
+                    .where(REPORT_GRID_FIXED_COLUMN_DEFINITION.GRID_COLUMN_ID.in(DSL
+                            .select(REPORT_GRID_COLUMN_DEFINITION.ID)
+                            .from(REPORT_GRID_COLUMN_DEFINITION)
+                            .where(REPORT_GRID_COLUMN_DEFINITION.REPORT_GRID_ID.eq(gridId))))
+                    .execute();
+
+            dsl.deleteFrom(REPORT_GRID_COLUMN_DEFINITION)
+                    .where(REPORT_GRID_COLUMN_DEFINITION.REPORT_GRID_ID.eq(gridId))
+                    .execute();
+
+            reportGridDao.remove(gridId);
+        });
+    }
+
+
+    // --- helpers ---
+
+    private Random mkRandom(int step) {
+        return new Random(seed * 31 + step);
+    }
+
+
+    @SafeVarargs
+    private static <T> T pick(Random rnd, T... ts) {
+        return ts[rnd.nextInt(ts.length)];
+    }
+
+
+    private <T> T time(String step, Supplier<T> supplier) {
+        long start = System.currentTimeMillis();
+        T result = supplier.get();
+        log("Created %s in %dms", step, System.currentTimeMillis() - start);
+        return result;
+    }
+
+
+    /**
+     * The shape of a generated hierarchy: a complete tree, filled breadth first,
+     * with the smallest branching factor which fits the requested number of
+     * nodes within the requested depth.  Node 0 is the root and every node
+     * appears after its parent.
+     */
+    private static class TreeShape {
+
+        private final int[] parents;
+        private final int[] depths;
+
+
+        private TreeShape(int[] parents, int[] depths) {
+            this.parents = parents;
+            this.depths = depths;
+        }
+
+
+        static TreeShape of(int size, int maxDepth) {
+            int branching = 2;
+            while (capacity(branching, maxDepth) < size) {
+                branching++;
+            }
+
+            int[] parents = new int[size];
+            int[] depths = new int[size];
+            parents[0] = -1;
+            for (int i = 1; i < size; i++) {
+                parents[i] = (i - 1) / branching;
+                depths[i] = depths[parents[i]] + 1;
+            }
+            return new TreeShape(parents, depths);
+        }
+
+
+        int size() {
+            return parents.length;
+        }
+
+
+        boolean isRoot(int i) {
+            return parents[i] < 0;
+        }
+
+
+        int parent(int i) {
+            return parents[i];
+        }
+
+
+        int depth(int i) {
+            return depths[i];
+        }
+
+
+        private static long capacity(int branching, int depth) {
+            long capacity = 0;
+            long levelSize = 1;
+            for (int d = 0; d < depth; d++) {
+                capacity += levelSize;
+                levelSize *= branching;
+            }
+            return capacity;
+        }
+    }
+}
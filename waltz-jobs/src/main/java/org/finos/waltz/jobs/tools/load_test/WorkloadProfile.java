@@ -0,0 +1,253 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.jobs.tools.load_test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.finos.waltz.common.Checks.checkNotEmpty;
+import static org.finos.waltz.common.Checks.checkTrue;
+
+/**
+ * A recorded HTTP workload: a weighted set of request templates plus the
+ * default number of requests, warm up requests and concurrency to replay.
+ *
+ * Paths and bodies may contain placeholders (e.g. `${appId}`) which are
+ * substituted when a request is drawn.  A body value consisting solely of a
+ * placeholder takes the type of the substituted value, so `"id": "${appId}"`
+ * becomes `"id": 1234`.
+ */
+public class WorkloadProfile {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{([A-Za-z0-9_]+)}");
+
+    private final String name;
+    private final int requests;
+    private final int warmUp;
+    private final int concurrency;
+    private final List<RequestTemplate> templates;
+
+
+    private WorkloadProfile(String name,
+                            int requests,
+                            int warmUp,
+                            int concurrency,
+                            List<RequestTemplate> templates) {
+        this.name = name;
+        this.requests = requests;
+        this.warmUp = warmUp;
+        this.concurrency = concurrency;
+        this.templates = Collections.unmodifiableList(templates);
+    }
+
+
+    public static WorkloadProfile read(InputStream stream) throws IOException {
+        JsonNode json = new ObjectMapper().readTree(stream);
+
+        List<RequestTemplate> templates = new ArrayList<>();
+        json.get("templates").forEach(t -> templates.add(new RequestTemplate(
+                t.get("name").asText(),
+                t.path("weight").asInt(1),
+                t.path("method").asText("GET"),
+                t.get("path").asText(),
+                t.get("body"))));
+
+        checkNotEmpty(templates, "workload profile must contain at least one template");
+
+        return new WorkloadProfile(
+                json.path("name").asText("unnamed"),
+                json.path("requests").asInt(1000),
+                json.path("warmUp").asInt(0),
+                json.path("concurrency").asInt(4),
+                templates);
+    }
+
+
+    public String name() {
+        return name;
+    }
+
+
+    public int requests() {
+        return requests;
+    }
+
+
+    public int warmUp() {
+        return warmUp;
+    }
+
+
+    public int concurrency() {
+        return concurrency;
+    }
+
+
+    public List<RequestTemplate> templates() {
+        return templates;
+    }
+
+
+    /**
+     * @return a copy of this profile with only the templates whose placeholders can all be resolved
+     */
+    public WorkloadProfile restrictTo(Map<String, ?> availablePlaceholders) {
+        List<RequestTemplate> usable = new ArrayList<>();
+        templates.forEach(t -> {
+            if (availablePlaceholders.keySet().containsAll(t.placeholders())) {
+                usable.add(t);
+            }
+        });
+        return new WorkloadProfile(name, requests, warmUp, concurrency, usable);
+    }
+
+
+    public RequestTemplate pick(Random rnd) {
+        int totalWeight = templates.stream().mapToInt(RequestTemplate::weight).sum();
+        int target = rnd.nextInt(totalWeight);
+        for (RequestTemplate template : templates) {
+            target -= template.weight();
+            if (target < 0) {
+                return template;
+            }
+        }
+        throw new IllegalStateException("Could not pick a template, weights must be positive");
+    }
+
+
+    public static class RequestTemplate {
+
+        private final String name;
+        private final int weight;
+        private final String method;
+        private final String path;
+        private final JsonNode body;
+
+
+        private RequestTemplate(String name, int weight, String method, String path, JsonNode body) {
+            checkTrue(weight > 0, "template: %s must have a positive weight", name);
+            this.name = name;
+            this.weight = weight;
+            this.method = method;
+            this.path = path;
+            this.body = body;
+        }
+
+
+        public String name() {
+            return name;
+        }
+
+
+        public int weight() {
+            return weight;
+        }
+
+
+        public String method() {
+            return method;
+        }
+
+
+        /**
+         * @return names of all placeholders referred to by the path or body
+         */
+        public List<String> placeholders() {
+            List<String> names = new ArrayList<>();
+            Matcher matcher = PLACEHOLDER.matcher(path + (body == null ? "" : body.toString()));
+            while (matcher.find()) {
+                names.add(matcher.group(1));
+            }
+            return names;
+        }
+
+
+        public String resolvePath(Map<String, ?> values) {
+            return substitute(path, values);
+        }
+
+
+        /**
+         * @return the resolved body, or null if the template has no body
+         */
+        public String resolveBody(Map<String, ?> values) {
+            return body == null
+                    ? null
+                    : resolve(body, values).toString();
+        }
+    }
+
+
+    // --- helpers ---
+
+    private static JsonNode resolve(JsonNode node, Map<String, ?> values) {
+        if (node.isObject()) {
+            ObjectNode resolved = JsonNodeFactory.instance.objectNode();
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                resolved.set(field.getKey(), resolve(field.getValue(), values));
+            }
+            return resolved;
+        } else if (node.isArray()) {
+            List<JsonNode> items = new ArrayList<>();
+            node.forEach(item -> items.add(resolve(item, values)));
+            return JsonNodeFactory.instance.arrayNode().addAll(items);
+        } else if (node.isTextual()) {
+            Matcher matcher = PLACEHOLDER.matcher(node.asText());
+            if (matcher.matches()) {
+                Object value = values.get(matcher.group(1));
+                if (value instanceof Long) {
+                    return JsonNodeFactory.instance.numberNode((Long) value);
+                }
+            }
+            return JsonNodeFactory.instance.textNode(substitute(node.asText(), values));
+        } else {
+            return node;
+        }
+    }
+
+
+    private static String substitute(String text, Map<String, ?> values) {
+        Matcher matcher = PLACEHOLDER.matcher(text);
+        StringBuffer sb = new StringBuffer();
+        while (matcher.find()) {
+            Object value = values.get(matcher.group(1));
+            if (value == null) {
+                throw new IllegalArgumentException("No value for placeholder: " + matcher.group(1));
+            }
+            matcher.appendReplacement(sb, Matcher.quoteReplacement(String.valueOf(value)));
+        }
+        matcher.appendTail(sb);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.jobs.tools.load_test;
+
+import org.finos.waltz.jobs.generators.large_estate.LargeEstateGenerator;
+import org.finos.waltz.jobs.tools.load_test.WorkloadProfile.RequestTemplate;
+import org.finos.waltz.service.DIConfiguration;
+import org.jooq.DSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.String.format;
+import static java.util.stream.Collectors.toList;
+import static org.finos.waltz.common.Checks.checkNotEmpty;
+import static org.finos.waltz.common.IOUtilities.readLines;
+import static org.finos.waltz.schema.Tables.APPLICATION;
+import static org.finos.waltz.schema.Tables.DATA_TYPE;
+import static org.finos.waltz.schema.Tables.ORGANISATIONAL_UNIT;
+import static org.finos.waltz.schema.Tables.REPORT_GRID;
+
+/**
+ * Replays a workload profile against a running Waltz server and reports
+ * throughput and latency percentiles for each kind of request.
+ *
+ * The placeholders in the profile are filled from the estate created by the
+ * `LargeEstateGenerator`, read from the database configured for the jobs
+ * (which should be the one the server is using).  Requests are drawn from
+ * a seeded random source, so the same seed replays the same sequence of
+ * requests, although concurrent requests may complete in any order.
+ *
+ * Usage: `WorkloadReplayer [baseUrl=http://localhost:8443] [requests] [concurrency] [seed=42]`,
+ * where requests and concurrency default to the values in the profile.
+ *
+ * System properties:
+ * <ul>
+ *     <li>`waltz.loadtest.profile` - path to a profile, defaults to `load-test/large-estate-workload.json` on the classpath</li>
+ *     <li>`waltz.loadtest.authorization` - value for the `Authorization` header (e.g. `Bearer ...`)</li>
+ *     <li>`waltz.loadtest.remoteUser` - value for the `remote-user` header, for header based authentication</li>
+ * </ul>
+ *
+ * Note: the server's in memory search index should be refreshed (or the
+ * server restarted) after generating the estate, so search requests see it.
+ */
+public class WorkloadReplayer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WorkloadReplayer.class);
+
+    private static final String DEFAULT_PROFILE = "/load-test/large-estate-workload.json";
+    private static final int TIMEOUT_MILLIS = 5 * 60 * 1000;
+
+    private final String baseUrl;
+    private final WorkloadProfile profile;
+    private final Map<String, List<?>> placeholderValues;
+    private final String authorization = System.getProperty("waltz.loadtest.authorization");
+    private final String remoteUser = System.getProperty("waltz.loadtest.remoteUser");
+
+
+    public WorkloadReplayer(String baseUrl,
+                            WorkloadProfile profile,
+                            Map<String, List<?>> placeholderValues) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+        this.profile = profile.restrictTo(placeholderValues);
+        this.placeholderValues = placeholderValues;
+
+        profile.templates()
+                .stream()
+                .filter(t -> ! this.profile.templates().contains(t))
+                .forEach(t -> LOG.warn("Skipping template: {}, cannot resolve all of: {}", t.name(), t.placeholders()));
+
+        checkNotEmpty(
+                this.profile.templates(),
+                "None of the templates can be resolved, has the large estate been generated?");
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8443";
+
+        WorkloadProfile profile = readProfile(System.getProperty("waltz.loadtest.profile"));
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : profile.requests();
+        int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : profile.concurrency();
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42L;
+
+        AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext(DIConfiguration.class);
+        Map<String, List<?>> placeholderValues = loadPlaceholderValues(ctx.getBean(DSLContext.class));
+        ctx.close();
+
+        WorkloadReplayer replayer = new WorkloadReplayer(baseUrl, profile, placeholderValues);
+
+        LOG.info("Replaying profile: {} against: {}, warm up: {}, requests: {}, concurrency: {}, seed: {}",
+                profile.name(), baseUrl, profile.warmUp(), requests, concurrency, seed);
+
+        Random rnd = new Random(seed);
+        List<PreparedRequest> warmUp = replayer.prepare(rnd, profile.warmUp());
+        List<PreparedRequest> measured = replayer.prepare(rnd, requests);
+
+        replayer.run(warmUp, concurrency);
+        Run run = replayer.run(measured, concurrency);
+
+        System.out.println(report(run));
+    }
+
+
+    // --- preparation ---
+
+    private static WorkloadProfile readProfile(String path) throws IOException {
+        try (InputStream stream = path == null
+                ? WorkloadReplayer.class.getResourceAsStream(DEFAULT_PROFILE)
+                : new FileInputStream(path)) {
+            return WorkloadProfile.read(stream);
+        }
+    }
+
+
+    /**
+     * Values for each placeholder, in a stable order so a seed always picks the same values.
+     */
+    private static Map<String, List<?>> loadPlaceholderValues(DSLContext dsl) {
+        Map<String, List<?>> values = new HashMap<>();
+
+        values.put("orgUnitId", dsl
+                .select(ORGANISATIONAL_UNIT.ID)
+                .from(ORGANISATIONAL_UNIT)
+                .where(ORGANISATIONAL_UNIT.PROVENANCE.eq(LargeEstateGenerator.PROVENANCE))
+                .orderBy(ORGANISATIONAL_UNIT.ID)
+                .fetch(ORGANISATIONAL_UNIT.ID));
+
+        // the root and its immediate children, i.e. the broadest (and most expensive) selections
+        Long rootOrgUnitId = LargeEstateGenerator.ID_OFFSET;
+        values.put("topOrgUnitId", dsl
+                .select(ORGANISATIONAL_UNIT.ID)
+                .from(ORGANISATIONAL_UNIT)
+                .where(ORGANISATIONAL_UNIT.PROVENANCE.eq(LargeEstateGenerator.PROVENANCE))
+                .and(ORGANISATIONAL_UNIT.ID.eq(rootOrgUnitId).or(ORGANISATIONAL_UNIT.PARENT_ID.eq(rootOrgUnitId)))
+                .orderBy(ORGANISATIONAL_UNIT.ID)
+                .fetch(ORGANISATIONAL_UNIT.ID));
+
+        values.put("appId", dsl
+                .select(APPLICATION.ID)
+                .from(APPLICATION)
+                .where(APPLICATION.PROVENANCE.eq(LargeEstateGenerator.PROVENANCE))
+                .orderBy(APPLICATION.ID)
+                .fetch(APPLICATION.ID));
+
+        values.put("dataTypeId", dsl
+                .select(DATA_TYPE.ID)
+                .from(DATA_TYPE)
+                .where(DATA_TYPE.ID.ge(LargeEstateGenerator.ID_OFFSET))
+                .orderBy(DATA_TYPE.ID)
+                .fetch(DATA_TYPE.ID));
+
+        values.put("reportGridId", dsl
+                .select(REPORT_GRID.ID)
+                .from(REPORT_GRID)
+                .where(REPORT_GRID.NAME.eq(LargeEstateGenerator.REPORT_GRID_NAME))
+                .orderBy(REPORT_GRID.ID)
+                .fetch(REPORT_GRID.ID));
+
+        // the first word of an app name, as a user would type
+        values.put("searchTerm", readLines(WorkloadReplayer.class.getResourceAsStream("/app-names.txt"))
+                .stream()
+                .map(name -> name.split(" ")[0].toLowerCase())
+                .distinct()
+                .collect(toList()));
+
+        // drop placeholders with no values, templates using them will be skipped
+        values.values().removeIf(List::isEmpty);
+
+        return values;
+    }
+
+
+    private List<PreparedRequest> prepare(Random rnd, int howMany) {
+        List<PreparedRequest> requests = new ArrayList<>(howMany);
+        for (int i = 0; i < howMany; i++) {
+            RequestTemplate template = profile.pick(rnd);
+
+            Map<String, Object> values = new HashMap<>();
+            template.placeholders().forEach(p -> {
+                List<?> candidates = placeholderValues.get(p);
+                values.putIfAbsent(p, candidates.get(rnd.nextInt(candidates.size())));
+            });
+
+            requests.add(new PreparedRequest(
+                    template.name(),
+                    template.method(),
+                    baseUrl + template.resolvePath(values),
+                    template.resolveBody(values)));
+        }
+        return requests;
+    }
+
+
+    // --- execution ---
+
+    private Run run(List<PreparedRequest> requests, int concurrency) throws InterruptedException {
+        Result[] results = new Result[requests.size()];
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+
+        long start = System.nanoTime();
+
+        for (int t = 0; t < concurrency; t++) {
+            executor.submit(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < requests.size()) {
+                    results[i] = execute(requests.get(i));
+                }
+            });
+        }
+
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.DAYS);
+
+        long elapsedNanos = System.nanoTime() - start;
+        LOG.info("Completed {} requests in {}ms", requests.size(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+
+        return new Run(results, elapsedNanos);
+    }
+
+
+    private Result execute(PreparedRequest request) {
+        long start = System.nanoTime();
+        int status;
+
+        try {
+            HttpURLConnection conn = (HttpURLConnection) new URL(request.url).openConnection();
+            conn.setRequestMethod(request.method);
+            conn.setConnectTimeout(TIMEOUT_MILLIS);
+            conn.setReadTimeout(TIMEOUT_MILLIS);
+            conn.setRequestProperty("Accept", "*/*");
+            if (authorization != null) {
+                conn.setRequestProperty("Authorization", authorization);
+            }
+            if (remoteUser != null) {
+                conn.setRequestProperty("remote-user", remoteUser);
+            }
+
+            if (request.body != null) {
+                conn.setDoOutput(true);
+                conn.setRequestProperty("Content-Type", "application/json");
+                try (OutputStream out = conn.getOutputStream()) {
+                    out.write(request.body.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+
+            status = conn.getResponseCode();
+
+            // the response must be read in full, both for realistic timings and to allow connection reuse
+            try (InputStream in = status < 400 ? conn.getInputStream() : conn.getErrorStream()) {
+                if (in != null) {
+                    byte[] buffer = new byte[8192];
+                    while (in.read(buffer) != -1) {
+                        // discard
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Request failed: {} {}: {}", request.method, request.url, e.getMessage());
+            status = -1;
+        }
+
+        return new Result(request.name, status, System.nanoTime() - start);
+    }
+
+
+    // --- reporting ---
+
+    private static String report(Run run) {
+        Map<String, List<Result>> resultsByName = new LinkedHashMap<>();
+        for (Result result : run.results) {
+            resultsByName.computeIfAbsent(result.name, k -> new ArrayList<>()).add(result);
+        }
+
+        double seconds = run.elapsedNanos / 1e9;
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(format(
+                "%nRequests: %d, elapsed: %.1fs, throughput: %.1f req/s%n%n",
+                run.results.length,
+                seconds,
+                seconds > 0 ? run.results.length / seconds : 0));
+
+        sb.append(format(
+                "%-28s %7s %7s %9s %9s %9s %9s %9s%n",
+                "request", "count", "errors", "mean(ms)", "p50(ms)", "p90(ms)", "p99(ms)", "max(ms)"));
+
+        resultsByName.forEach((name, rs) -> {
+            long[] nanos = rs.stream().mapToLong(r -> r.nanos).sorted().toArray();
+            long errors = rs.stream().filter(r -> r.status < 200 || r.status >= 400).count();
+
+            sb.append(format(
+                    "%-28s %7d %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                    name,
+                    nanos.length,
+                    errors,
+                    Arrays.stream(nanos).average().orElse(0) / 1e6,
+                    percentile(nanos, 50) / 1e6,
+                    percentile(nanos, 90) / 1e6,
+                    percentile(nanos, 99) / 1e6,
+                    nanos[nanos.length - 1] / 1e6));
+        });
+
+        return sb.toString();
+    }
+
+
+    /**
+     * Nearest rank percentile of already sorted values.
+     */
+    private static long percentile(long[] sorted, int percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+
+    private static class PreparedRequest {
+
+        private final String name;
+        private final String method;
+        private final String url;
+        private final String body;
+
+
+        private PreparedRequest(String name, String method, String url, String body) {
+            this.name = name;
+            this.method = method;
+            this.url = url;
+            this.body = body;
+        }
+    }
+
+
+    private static class Result {
+
+        private final String name;
+        private final int status;
+        private final long nanos;
+
+
+        private Result(String name, int status, long nanos) {
+            this.name = name;
+            this.status = status;
+            this.nanos = nanos;
+        }
+    }
+
+
+    private static class Run {
+
+        private final Result[] results;
+        private final long elapsedNanos;
+
+
+        private Run(Result[] results, long elapsedNanos) {
+            this.results = results;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.model.entity_search;
+
+import org.finos.waltz.model.EntityReference;
+import org.immutables.value.Value;
+
+import java.util.List;
+
+
+/**
+ * The searchable attributes of an entity, as held by the in-memory search index.
+ *
+ * The entity reference supplies the name and lifecycle status.  Codes (asset codes,
+ * external ids, emails etc.) are matched by prefix, aliases by containment.
+ */
+@Value.Immutable
+public abstract class EntitySearchDocument {
+
+    public abstract EntityReference entityReference();
+
+    public abstract List<String> codes();
+
+    public abstract List<String> aliases();
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.model.flow_classification_rule;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
+import org.immutables.value.Value;
+
+import java.util.Optional;
+
+/**
+ * A logical flow data type decorator together with the details of its flow
+ * needed to (re)calculate its flow classification rating.
+ *
+ * Deliberately flat, as every decorator is loaded when recalculating all ratings.
+ */
+@Value.Immutable
+public abstract class FlowDecoratorRatingCandidate {
+
+    public abstract long decoratorId();
+    public abstract long dataTypeId();
+
+    public abstract EntityKind sourceKind();
+    public abstract long sourceId();
+
+    public abstract EntityKind targetKind();
+    public abstract long targetId();
+
+    /**
+     * Only present if the flow target is an application
+     */
+    public abstract Optional<Long> targetOrgUnitId();
+
+    public abstract Optional<AuthoritativenessRatingValue> rating();
+    public abstract Optional<Long> flowClassificationRuleId();
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.model.physical_flow;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.finos.waltz.model.scheduled_job.JobLifecycleStatus;
+import org.immutables.value.Value;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+
+/**
+ * Status of a physical flow upload running in the background.  The responses
+ * are only populated once the job has completed.
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutablePhysicalFlowUploadJob.class)
+@JsonDeserialize(as = ImmutablePhysicalFlowUploadJob.class)
+public abstract class PhysicalFlowUploadJob {
+
+    public abstract String id();
+
+    public abstract JobLifecycleStatus status();
+
+    public abstract String submittedBy();
+
+    public abstract LocalDateTime submittedAt();
+
+    public abstract Optional<LocalDateTime> completedAt();
+
+    public abstract int commandCount();
+
+    /**
+     * Description of the step currently being performed, or the failure reason if
+     * the job has errored
+     */
+    public abstract Optional<String> message();
+
+    public abstract List<PhysicalFlowUploadCommandResponse> responses();
+}
@@ -0,0 +1,59 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.model.scheduled_job;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.immutables.value.Value;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+
+/**
+ * A single execution of a scheduled job, used to track how long jobs take over time.
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutableScheduledJobRun.class)
+@JsonDeserialize(as = ImmutableScheduledJobRun.class)
+public abstract class ScheduledJobRun {
+
+    public abstract Optional<Long> id();
+
+    public abstract JobKey jobKey();
+
+    public abstract LocalDateTime startedAt();
+
+    /**
+     * Equal to `startedAt` (with a zero duration) whilst the run is in progress
+     */
+    public abstract LocalDateTime completedAt();
+
+    public abstract long durationMs();
+
+    /**
+     * `RUNNING` whilst in progress, then either `COMPLETED` or `ERRORED`
+     */
+    public abstract JobLifecycleStatus status();
+
+    /**
+     * Failure reason, if the job errored
+     */
+    public abstract Optional<String> message();
+}
@@ -0,0 +1,38 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.model.survey;
+
+import org.immutables.value.Value;
+
+import java.util.Set;
+
+/**
+ * A survey instance to be issued as part of a survey run, together with
+ * the people who will own it and the people who should complete it.
+ */
+@Value.Immutable
+public abstract class SurveyInstanceIssuance {
+
+    public abstract SurveyInstanceCreateCommand instance();
+
+    public abstract Set<Long> ownerIds();
+
+    public abstract Set<Long> recipientIds();
+
+}
@@ -37,6 +37,7 @@ import org.springframework.context.annotation.PropertySource;
 import org.springframework.jdbc.support.SQLStateSQLExceptionTranslator;
 
 import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
 
 
 @Configuration
@@ -68,12 +69,27 @@ public class DIBaseConfiguration {
     @Value("${database.pool.min:2}")
     private int dbPoolMin;
 
+    @Value("${database.executor.threads:-1}")
+    private int dbExecutorThreads;
+
+    @Value("${database.executor.queue.size:" + DBExecutorPool.DEFAULT_QUEUE_SIZE + "}")
+    private int dbExecutorQueueSize;
+
+    @Value("${database.executor.saturation.policy:CALLER_RUNS}")
+    private DBExecutorPool.SaturationPolicy dbExecutorSaturationPolicy;
+
+    @Value("${database.executor.queue.timeout.ms:0}")
+    private long dbExecutorQueueTimeoutMillis;
+
     @Value("${jooq.dialect}")
     private String dialect;
 
     @Value("${database.performance.query.slow.threshold:10}")
     private int databasePerformanceQuerySlowThreshold;
 
+    @Value("${database.performance.query.slow.threshold.ms:-1}")
+    private long databasePerformanceQuerySlowThresholdMillis;
+
     @Bean
     public DataSource dataSource() {
 
@@ -90,13 +106,29 @@ public class DIBaseConfiguration {
 
     @Bean
     public DBExecutorPoolInterface dbExecutorPool() {
-        return new DBExecutorPool(dbPoolMin, dbPoolMax);
+        // by default use half the connections, leaving the remainder for request threads
+        int maxThreads = dbExecutorThreads > 0
+                ? dbExecutorThreads
+                : Integer.max(dbPoolMax / 2, 1);
+
+        return new DBExecutorPool(
+                Integer.min(dbPoolMin, maxThreads),
+                maxThreads,
+                dbExecutorQueueSize,
+                dbExecutorSaturationPolicy,
+                dbExecutorQueueTimeoutMillis);
+    }
+
+
+    @Bean
+    public QueryStatistics queryStatistics() {
+        return new QueryStatistics();
     }
 
 
     @Bean
     @Autowired
-    public DSLContext dsl(DataSource dataSource) {
+    public DSLContext dsl(DataSource dataSource, QueryStatistics queryStatistics) {
         try {
             SQLDialect.valueOf(dialect);
         } catch (IllegalArgumentException iae) {
@@ -120,10 +152,17 @@ public class DIBaseConfiguration {
                 .set(dslSettings)
                 .set(
                     //new SlowDatabaseConnectionSimulator(2000),
-                    new SlowQueryListener(databasePerformanceQuerySlowThreshold),
+                    new SlowQueryListener(determineSlowQueryThresholdMillis(), queryStatistics),
                     new SpringExceptionTranslationExecuteListener(new SQLStateSQLExceptionTranslator()));
 
         return DSL.using(configuration);
     }
 
+
+    private long determineSlowQueryThresholdMillis() {
+        return databasePerformanceQuerySlowThresholdMillis >= 0
+                ? databasePerformanceQuerySlowThresholdMillis
+                : TimeUnit.SECONDS.toMillis(databasePerformanceQuerySlowThreshold);
+    }
+
 }
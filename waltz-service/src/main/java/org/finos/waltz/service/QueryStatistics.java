@@ -0,0 +1,146 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service;
+
+import org.finos.waltz.common.LatencyHistogram;
+import org.finos.waltz.model.query_performance.ImmutableQueryPerformanceSummary;
+import org.finos.waltz.model.query_performance.QueryPerformanceSummary;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.stream.Collectors.toList;
+
+
+/**
+ * Thread-safe accumulator of sql execution timings, populated by the
+ * {@link SlowQueryListener}.  Timings are held twice, once keyed by the
+ * normalised query fingerprint and once by the dao method which issued
+ * the query.
+ *
+ * The dao method is only known for a sample of executions (see
+ * {@link SlowQueryListener}), so summaries by dao method reflect the
+ * distribution of timings but under-count executions and rows.
+ *
+ * To bound memory, once `MAX_KEYS` distinct keys have been seen any further
+ * keys are accumulated under `OTHER_KEY`.
+ */
+public class QueryStatistics {
+
+    static final int MAX_KEYS = 1000;
+    static final String OTHER_KEY = "[other]";
+
+    private final ConcurrentMap<String, KeyedTimings> byFingerprint = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, KeyedTimings> byDaoMethod = new ConcurrentHashMap<>();
+
+
+    /**
+     * @param daoMethod  may be null if the caller was not sampled for this execution
+     */
+    public void record(String fingerprint,
+                       String daoMethod,
+                       long durationNanos,
+                       long rowsFetched) {
+        lookup(byFingerprint, fingerprint).record(durationNanos, rowsFetched);
+        if (daoMethod != null) {
+            lookup(byDaoMethod, daoMethod).record(durationNanos, rowsFetched);
+        }
+    }
+
+
+    /**
+     * @return summaries by query fingerprint, worst (by p95) first
+     */
+    public List<QueryPerformanceSummary> summariseByFingerprint() {
+        return summarise(byFingerprint);
+    }
+
+
+    /**
+     * @return summaries by dao method, worst (by p95) first
+     */
+    public List<QueryPerformanceSummary> summariseByDaoMethod() {
+        return summarise(byDaoMethod);
+    }
+
+
+    public void reset() {
+        byFingerprint.clear();
+        byDaoMethod.clear();
+    }
+
+
+    // --- helpers ---
+
+    private static KeyedTimings lookup(ConcurrentMap<String, KeyedTimings> timingsByKey,
+                                       String key) {
+        KeyedTimings existing = timingsByKey.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        String effectiveKey = timingsByKey.size() >= MAX_KEYS
+                ? OTHER_KEY
+                : key;
+
+        return timingsByKey.computeIfAbsent(effectiveKey, k -> new KeyedTimings());
+    }
+
+
+    private static List<QueryPerformanceSummary> summarise(ConcurrentMap<String, KeyedTimings> timingsByKey) {
+        return timingsByKey
+                .entrySet()
+                .stream()
+                .map(e -> e.getValue().toSummary(e.getKey()))
+                .sorted(Comparator.comparingDouble(QueryPerformanceSummary::p95Millis).reversed())
+                .collect(toList());
+    }
+
+
+    private static class KeyedTimings {
+
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final LongAdder rowsFetched = new LongAdder();
+
+
+        private void record(long durationNanos, long rows) {
+            histogram.record(durationNanos, TimeUnit.NANOSECONDS);
+            rowsFetched.add(rows);
+        }
+
+
+        private QueryPerformanceSummary toSummary(String key) {
+            return ImmutableQueryPerformanceSummary
+                    .builder()
+                    .key(key)
+                    .executionCount(histogram.getCount())
+                    .rowsFetched(rowsFetched.sum())
+                    .meanMillis(histogram.getMeanMillis())
+                    .p50Millis(histogram.getPercentileMillis(50))
+                    .p95Millis(histogram.getPercentileMillis(95))
+                    .p99Millis(histogram.getPercentileMillis(99))
+                    .maxMillis(histogram.getMaxMillis())
+                    .build();
+        }
+    }
+}
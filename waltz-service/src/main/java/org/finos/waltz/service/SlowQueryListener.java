@@ -24,20 +24,53 @@ import org.jooq.ExecuteContext;
 import org.jooq.conf.Settings;
 import org.jooq.impl.DSL;
 import org.jooq.impl.DefaultExecuteListener;
-import org.jooq.tools.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
+import static org.finos.waltz.common.Checks.checkNotNull;
 
+
+/**
+ * Times every sql execution (including fetching of results), recording
+ * the duration and number of rows fetched into {@link QueryStatistics}.
+ * Executions slower than the threshold are logged to the performance log.
+ *
+ * A single instance is shared by all concurrent executions, so all per
+ * execution state is held in the jOOQ `ExecuteContext`.
+ *
+ * To keep the overhead on fast queries low, fingerprints are computed once
+ * per distinct sql string and the (stack walking) caller lookup is only
+ * done for one in `CALLER_SAMPLE_RATE` executions and for slow queries.
+ */
 public class SlowQueryListener extends DefaultExecuteListener {
 
     private static final String PERFORMANCE_APPENDER = "WALTZ.PERFORMANCE";
     private static final Logger LOG = LoggerFactory.getLogger(PERFORMANCE_APPENDER);
 
-    private StopWatch stopWatch;
-    private long slowQueryThresholdInNanos;
+    private static final String START_KEY = "waltz.query.start";
+    private static final String ROWS_KEY = "waltz.query.rows";
+
+    private static final String DATA_PACKAGE = "org.finos.waltz.data.";
+    private static final String UNKNOWN_CALLER = "[unknown]";
+    private static final int MAX_FINGERPRINT_LENGTH = 2000;
+    private static final int MAX_CACHED_FINGERPRINTS = 5_000;
+    static final int CALLER_SAMPLE_RATE = 16;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMERIC_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final long slowQueryThresholdInNanos;
+    private final QueryStatistics queryStatistics;
+    private final ConcurrentMap<String, String> fingerprintsBySql = new ConcurrentHashMap<>();
+
 
     public class SQLPerformanceWarning
             extends Exception {
@@ -48,29 +81,168 @@ public class SlowQueryListener extends DefaultExecuteListener {
     }
 
 
-    public SlowQueryListener(int slowQueryThresholdSeconds) {
-        LOG.info("Initialising with {} second threshold", slowQueryThresholdSeconds);
-        this.slowQueryThresholdInNanos = TimeUnit.SECONDS.toNanos(slowQueryThresholdSeconds);
+    public SlowQueryListener(long slowQueryThresholdMillis,
+                             QueryStatistics queryStatistics) {
+        checkNotNull(queryStatistics, "queryStatistics cannot be null");
+        LOG.info("Initialising with {} millisecond threshold", slowQueryThresholdMillis);
+        this.slowQueryThresholdInNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMillis);
+        this.queryStatistics = queryStatistics;
+    }
+
+
+    @Override
+    public void start(ExecuteContext ctx) {
+        super.start(ctx);
+        ctx.data(START_KEY, System.nanoTime());
+        ctx.data(ROWS_KEY, new long[1]);
     }
 
 
     @Override
-    public void executeStart(ExecuteContext ctx) {
-        super.executeStart(ctx);
-        stopWatch = new StopWatch();
+    public void recordEnd(ExecuteContext ctx) {
+        super.recordEnd(ctx);
+        Object rows = ctx.data(ROWS_KEY);
+        if (rows != null) {
+            ((long[]) rows)[0]++;
+        }
     }
 
 
     @Override
-    public void executeEnd(ExecuteContext ctx) {
-        super.executeEnd(ctx);
-        long split = stopWatch.split();
-        if (split > slowQueryThresholdInNanos) {
+    public void end(ExecuteContext ctx) {
+        super.end(ctx);
+
+        Object start = ctx.data(START_KEY);
+        if (start == null) {
+            return;
+        }
+
+        long duration = System.nanoTime() - (Long) start;
+        Object rows = ctx.data(ROWS_KEY);
+        long rowCount = rows == null ? 0 : ((long[]) rows)[0];
+
+        String sql = ctx.sql();
+        if (sql == null && ctx.batchSQL().length > 0) {
+            sql = ctx.batchSQL()[0];
+        }
+
+        boolean isSlow = duration > slowQueryThresholdInNanos;
+        String caller = isSlow || ThreadLocalRandom.current().nextInt(CALLER_SAMPLE_RATE) == 0
+                ? determineCaller()
+                : null;
+
+        queryStatistics.record(
+                cachedFingerprint(sql),
+                caller,
+                duration,
+                rowCount);
+
+        if (isSlow) {
+            logSlowQuery(ctx, sql, caller, duration, rowCount);
+        }
+    }
+
+
+    /**
+     * Normalises the sql so that executions differing only in literal
+     * values, bind parameters, or the length of in-lists share a fingerprint.
+     */
+    static String fingerprint(String sql) {
+        if (sql == null) {
+            return UNKNOWN_CALLER;
+        }
+
+        String literalsReplaced = NUMERIC_LITERAL
+                .matcher(STRING_LITERAL.matcher(sql).replaceAll("?"))
+                .replaceAll("?");
+
+        String normalised = WHITESPACE
+                .matcher(PARAMETER_LIST.matcher(literalsReplaced).replaceAll("(?+)"))
+                .replaceAll(" ")
+                .trim();
+
+        return normalised.length() > MAX_FINGERPRINT_LENGTH
+                ? normalised.substring(0, MAX_FINGERPRINT_LENGTH)
+                : normalised;
+    }
+
+
+    /**
+     * Walks the stack to find the dao (or, failing that, service) method which issued the query.
+     */
+    static String determineCaller() {
+        StackTraceElement fallback = null;
+
+        for (StackTraceElement frame : Thread.currentThread().getStackTrace()) {
+            String className = frame.getClassName();
+            if (className.startsWith(DATA_PACKAGE)) {
+                return toCallerName(frame);
+            }
+            if (fallback == null && className.startsWith("org.finos.waltz.") && ! className.startsWith("org.finos.waltz.service.SlowQueryListener")) {
+                fallback = frame;
+            }
+        }
+
+        return fallback == null
+                ? UNKNOWN_CALLER
+                : toCallerName(fallback);
+    }
+
+
+    // --- helpers ---
+
+    private String cachedFingerprint(String sql) {
+        if (sql == null) {
+            return fingerprint(null);
+        }
+
+        String cached = fingerprintsBySql.get(sql);
+        if (cached != null) {
+            return cached;
+        }
+
+        String computed = fingerprint(sql);
+        if (fingerprintsBySql.size() < MAX_CACHED_FINGERPRINTS) {
+            fingerprintsBySql.putIfAbsent(sql, computed);
+        }
+        return computed;
+    }
+
+
+    private void logSlowQuery(ExecuteContext ctx, String sql, String caller, long duration, long rowCount) {
+        String renderedSql = sql;
+        if (ctx.query() != null) {
             DSLContext context = DSL.using(ctx.dialect(),
                     // ... and the flag for pretty-printing
                     new Settings().withRenderFormatted(true));
+            renderedSql = context.renderInlined(ctx.query());
+        }
+
+        LOG.info(
+                String.format(
+                        "Slow SQL executed in %d ms, fetching %d rows, by: %s",
+                        TimeUnit.NANOSECONDS.toMillis(duration),
+                        rowCount,
+                        caller),
+                new SQLPerformanceWarning(renderedSql));
+    }
 
-            LOG.info(String.format("Slow SQL executed in %d seconds", TimeUnit.NANOSECONDS.toSeconds(split)), new SQLPerformanceWarning(context.renderInlined(ctx.query())));
+
+    private static String toCallerName(StackTraceElement frame) {
+        String className = frame.getClassName();
+        String simpleName = className.substring(className.lastIndexOf('.') + 1);
+        int innerClassIdx = simpleName.indexOf('$');
+        String outerName = innerClassIdx > 0
+                ? simpleName.substring(0, innerClassIdx)
+                : simpleName;
+
+        // lambdas appear as 'lambda$methodName$0'
+        String methodName = frame.getMethodName();
+        if (methodName.startsWith("lambda$")) {
+            String[] parts = methodName.split("\\$");
+            methodName = parts.length > 1 ? parts[1] : methodName;
         }
+
+        return outerName + "." + methodName;
     }
 }
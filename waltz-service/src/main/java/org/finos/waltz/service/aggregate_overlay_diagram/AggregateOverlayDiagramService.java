@@ -4,6 +4,7 @@ import org.finos.waltz.common.Checks;
 import org.finos.waltz.common.SetUtilities;
 import org.finos.waltz.data.GenericSelector;
 import org.finos.waltz.data.GenericSelectorFactory;
+import org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramCellIndexCache;
 import org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramDao;
 import org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramPresetDao;
 import org.finos.waltz.data.aggregate_overlay_diagram.AggregatedEntitiesWidgetDao;
@@ -100,6 +101,7 @@ public class AggregateOverlayDiagramService {
     private final ComplexityKindDao complexityKindDao;
     private final ComplexityWidgetDao complexityWidgetDao;
     private final AttestationWidgetDao attestationWidgetDao;
+    private final AggregateOverlayDiagramCellIndexCache cellIndexCache;
 
     private final GenericSelectorFactory genericSelectorFactory = new GenericSelectorFactory();
 
@@ -118,7 +120,8 @@ public class AggregateOverlayDiagramService {
                                           CostKindDao costKindDao,
                                           ComplexityKindDao complexityKindDao,
                                           ComplexityWidgetDao complexityWidgetDao,
-                                          AttestationWidgetDao attestationWidgetDao) {
+                                          AttestationWidgetDao attestationWidgetDao,
+                                          AggregateOverlayDiagramCellIndexCache cellIndexCache) {
 
         this.aggregateOverlayDiagramDao = aggregateOverlayDiagramDao;
         this.appCountWidgetDao = appCountWidgetDao;
@@ -135,6 +138,7 @@ public class AggregateOverlayDiagramService {
         this.complexityKindDao = complexityKindDao;
         this.complexityWidgetDao = complexityWidgetDao;
         this.attestationWidgetDao = attestationWidgetDao;
+        this.cellIndexCache = cellIndexCache;
     }
 
 
@@ -360,6 +364,7 @@ public class AggregateOverlayDiagramService {
     public Long save(OverlayDiagramSaveCommand saveCmd, String username) {
         Long diagramId = aggregateOverlayDiagramDao.save(saveCmd, username);
         aggregateOverlayDiagramDao.updateBackingEntities(diagramId, saveCmd.backingEntities());
+        cellIndexCache.evictDiagram(diagramId);
         return diagramId;
     }
 
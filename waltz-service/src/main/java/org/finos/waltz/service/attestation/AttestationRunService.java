@@ -27,7 +27,6 @@ import org.finos.waltz.service.email.EmailService;
 import org.finos.waltz.data.GenericSelector;
 import org.finos.waltz.data.GenericSelectorFactory;
 import org.finos.waltz.data.attestation.AttestationInstanceDao;
-import org.finos.waltz.data.attestation.AttestationInstanceRecipientDao;
 import org.finos.waltz.data.attestation.AttestationRunDao;
 import org.finos.waltz.data.involvement.InvolvementDao;
 import org.finos.waltz.model.*;
@@ -36,43 +35,56 @@ import org.finos.waltz.model.person.Person;
 import org.finos.waltz.service.involvement_group.InvolvementGroupService;
 import org.jooq.Record1;
 import org.jooq.Select;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.util.*;
 
 import static java.lang.String.format;
-import static java.util.stream.Collectors.groupingBy;
-import static java.util.stream.Collectors.toList;
+import static java.util.Collections.emptySet;
 import static org.finos.waltz.common.Checks.checkNotNull;
-import static org.finos.waltz.common.ListUtilities.asList;
-import static org.finos.waltz.common.ListUtilities.isEmpty;
 import static org.finos.waltz.common.SetUtilities.asSet;
 import static org.finos.waltz.model.EntityReference.mkRef;
 import static org.finos.waltz.model.IdSelectionOptions.mkOpts;
 import static org.finos.waltz.model.attestation.AttestationStatus.ISSUED;
 import static org.finos.waltz.model.attestation.AttestationStatus.ISSUING;
-import static org.finos.waltz.model.utils.IdUtilities.toIds;
+import static org.finos.waltz.model.attestation.AttestationStatus.PENDING;
 
 @Service
+@ManagedResource(description = "Issues attestation runs")
 public class AttestationRunService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(AttestationRunService.class);
+
     private final AttestationInstanceDao attestationInstanceDao;
-    private final AttestationInstanceRecipientDao attestationInstanceRecipientDao;
     private final AttestationRunDao attestationRunDao;
     private final EmailService emailService;
     private final GenericSelectorFactory genericSelectorFactory = new GenericSelectorFactory();
     private final InvolvementDao involvementDao;
     private final InvolvementGroupService involvementGroupService;
 
+    private static final int MAX_ISSUANCE_SUMMARIES = 100;
+
+    // summaries of the most recently issued runs, the oldest is dropped once the limit is reached
+    private final Map<Long, AttestationIssuanceSummary> issuanceSummariesByRunId = Collections.synchronizedMap(
+            new LinkedHashMap<Long, AttestationIssuanceSummary>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, AttestationIssuanceSummary> eldest) {
+                    return size() > MAX_ISSUANCE_SUMMARIES;
+                }
+            });
+
     @Autowired
     public AttestationRunService(AttestationInstanceDao attestationInstanceDao,
-                                 AttestationInstanceRecipientDao attestationInstanceRecipientDao,
                                  AttestationRunDao attestationRunDao,
                                  EmailService emailService,
                                  InvolvementDao involvementDao, InvolvementGroupService involvementGroupService) {
-        checkNotNull(attestationInstanceRecipientDao, "attestationInstanceRecipientDao cannot be null");
         checkNotNull(attestationInstanceDao, "attestationInstanceDao cannot be null");
         checkNotNull(attestationRunDao, "attestationRunDao cannot be null");
         checkNotNull(emailService, "emailService cannot be null");
@@ -80,7 +92,6 @@ public class AttestationRunService {
         checkNotNull(involvementGroupService, "involvementGroupService cannot be null");
 
         this.attestationInstanceDao = attestationInstanceDao;
-        this.attestationInstanceRecipientDao = attestationInstanceRecipientDao;
         this.attestationRunDao = attestationRunDao;
         this.emailService = emailService;
         this.involvementDao = involvementDao;
@@ -152,14 +163,8 @@ public class AttestationRunService {
         Long runId = attestationRunDao.create(userId, command);
         createRecipientsGroup(runId, command.name(), command.involvementKindIds(), userId);
 
-        // generate instances and recipients
-        List<AttestationInstanceRecipient> instanceRecipients = generateAttestationInstanceRecipients(
-                runId,
-                command.attestedEntityKind(),
-                userId);
-
-        // store
-        createAttestationInstancesAndRecipients(instanceRecipients);
+        // create instances and recipients
+        issueInstances(attestationRunDao.getById(runId), userId);
 
         if (command.sendEmailNotifications()){
             emailService.sendEmailNotification(mkRef(EntityKind.ATTESTATION_RUN, runId));
@@ -171,30 +176,67 @@ public class AttestationRunService {
     }
 
 
-    private List<AttestationInstanceRecipient> generateAttestationInstanceRecipients(long attestationRunId,
-                                                                                     EntityKind attestedEntityKind,
-                                                                                     String userId) {
-        AttestationRun attestationRun = attestationRunDao.getById(attestationRunId);
-        checkNotNull(attestationRun, "attestationRun " + attestationRunId + " not found");
+    /**
+     * Creates the instances, and recipients, of the run using set based inserts.  Instances and
+     * recipients which already exist are skipped, allowing a partially issued run to be resumed.
+     */
+    private AttestationIssuanceSummary issueInstances(AttestationRun attestationRun,
+                                                      String userId) {
+        checkNotNull(attestationRun, "attestationRun cannot be null");
+
+        long start = System.currentTimeMillis();
+        long attestationRunId = attestationRun.id().get();
 
-        if(attestationRun.involvementKindIds().isEmpty()) {
+        int instancesCreated;
+        int recipientsCreated;
 
-            return asList(mkInstanceRecipient(attestationRunId, attestationRun.selectionOptions().entityReference(), userId, attestedEntityKind));
+        if (attestationRun.involvementKindIds().isEmpty()) {
+            // single entity, attested by the user issuing the run
+            EntityReference ref = attestationRun.selectionOptions().entityReference();
+            checkCanAttest(ref.kind());
 
+            instancesCreated = attestationInstanceDao.createInstancesForRun(
+                    attestationRunId,
+                    ref.kind(),
+                    DSL.select(DSL.val(ref.id())),
+                    emptySet(),
+                    attestationRun.attestedEntityKind());
+
+            recipientsCreated = attestationInstanceDao.createRecipientForRun(attestationRunId, userId);
         } else {
+            checkCanAttest(attestationRun.targetEntityKind());
 
-            Map<EntityReference, List<Person>> entityRefToPeople = getEntityReferenceToPeople(
+            instancesCreated = attestationInstanceDao.createInstancesForRun(
+                    attestationRunId,
                     attestationRun.targetEntityKind(),
-                    attestationRun.selectionOptions(),
-                    attestationRun.involvementKindIds());
+                    mkIdSelector(attestationRun.targetEntityKind(), attestationRun.selectionOptions()),
+                    attestationRun.involvementKindIds(),
+                    attestationRun.attestedEntityKind());
 
-            return entityRefToPeople.entrySet()
-                    .stream()
-                    .flatMap(e -> e.getValue().stream()
-                            .map(p -> mkInstanceRecipient(attestationRunId, e.getKey(), p.email(), attestedEntityKind)))
-                    .distinct()
-                    .collect(toList());
+            recipientsCreated = attestationInstanceDao.createRecipientsForRun(
+                    attestationRunId,
+                    attestationRun.involvementKindIds());
         }
+
+        AttestationIssuanceSummary summary = ImmutableAttestationIssuanceSummary.builder()
+                .attestationRunId(attestationRunId)
+                .instancesCreated(instancesCreated)
+                .recipientsCreated(recipientsCreated)
+                .durationMillis(System.currentTimeMillis() - start)
+                .build();
+
+        LOG.info(format(
+                "Issued attestation run: %d, created [%d] instances and [%d] recipients in %dms",
+                summary.attestationRunId(),
+                summary.instancesCreated(),
+                summary.recipientsCreated(),
+                summary.durationMillis()));
+
+        // remove first so a re-issued run counts as the most recent
+        issuanceSummariesByRunId.remove(attestationRunId);
+        issuanceSummariesByRunId.put(attestationRunId, summary);
+
+        return summary;
     }
 
 
@@ -215,49 +257,13 @@ public class AttestationRunService {
     }
 
 
-    private AttestationInstanceRecipient mkInstanceRecipient(long attestationRunId,
-                                                             EntityReference ref,
-                                                             String userId,
-                                                             EntityKind attestedKind) {
-        switch (ref.kind()) {
-            case APPLICATION:
-                return ImmutableAttestationInstanceRecipient.builder()
-                                .attestationInstance(ImmutableAttestationInstance.builder()
-                                        .attestationRunId(attestationRunId)
-                                        .parentEntity(ref)
-                                        .attestedEntityKind(attestedKind)
-                                        .build())
-                                .userId(userId)
-                                .build();
-            default:
-                throw new IllegalArgumentException("Cannot create attestation instances for entity kind: " + ref.kind());
+    private static void checkCanAttest(EntityKind kind) {
+        if (kind != EntityKind.APPLICATION) {
+            throw new IllegalArgumentException("Cannot create attestation instances for entity kind: " + kind);
         }
     }
 
 
-    private void createAttestationInstancesAndRecipients(List<AttestationInstanceRecipient> instanceRecipients) {
-
-        Map<AttestationInstance, List<AttestationInstanceRecipient>> instancesAndRecipientsToSave = instanceRecipients
-                .stream()
-                .collect(groupingBy(
-                        AttestationInstanceRecipient::attestationInstance,
-                        toList()
-                ));
-
-
-        // insert new instances and recipients
-        instancesAndRecipientsToSave.forEach(
-                (k, v) -> {
-                    // create instance
-                    long instanceId = attestationInstanceDao.create(k);
-
-                    // create recipients for the instance
-                    v.forEach(r -> attestationInstanceRecipientDao.create(instanceId, r.userId()));
-                }
-        );
-    }
-
-
     public IdCommandResponse createRunForEntity(String username, AttestEntityCommand entityRunCreateCommand) {
         return create(username, mkCreateCommand(entityRunCreateCommand));
     }
@@ -284,27 +290,41 @@ public class AttestationRunService {
     }
 
 
+    /**
+     * Issues all pending runs, along with any runs left in the issuing state by
+     * an earlier, interrupted, attempt.
+     *
+     * @return number of runs issued
+     */
     public int issueInstancesForPendingRuns() {
 
-        Set<AttestationRun> pendingRuns = attestationRunDao.findPendingRuns();
+        Set<AttestationRun> runsToIssue = attestationRunDao.findRunsWithStatus(asSet(PENDING, ISSUING));
 
-        List<AttestationInstanceRecipient> instanceRecipients = pendingRuns
-                .stream()
-                .flatMap(run -> generateAttestationInstanceRecipients(
-                            run.id().get(),
-                            run.attestedEntityKind(),
-                            "admin")
-                        .stream())
-                .collect(toList());
-
-        Set<Long> runsBeingIssued = toIds(pendingRuns);
-        attestationRunDao.updateStatusForRunIds(runsBeingIssued, ISSUING);
-
-        if (!isEmpty(instanceRecipients)) {
-            createAttestationInstancesAndRecipients(instanceRecipients);
+        int issuedCount = 0;
+        for (AttestationRun run : runsToIssue) {
+            Set<Long> runIds = asSet(run.id().get());
+
+            attestationRunDao.updateStatusForRunIds(runIds, ISSUING);
+            issueInstances(run, "admin");
+            issuedCount += attestationRunDao.updateStatusForRunIds(runIds, ISSUED);
         }
 
-        return attestationRunDao.updateStatusForRunIds(runsBeingIssued, ISSUED);
+        return issuedCount;
+    }
+
+
+    @ManagedAttribute(description = "Instance and recipient counts, and duration, of the most recently issued attestation runs (up to 100)")
+    public Map<Long, String> getIssuanceSummaries() {
+        Map<Long, String> result = new TreeMap<>();
+        synchronized (issuanceSummariesByRunId) {
+            issuanceSummariesByRunId.forEach((runId, summary) -> result.put(
+                    runId,
+                    format("instances: %d, recipients: %d, duration: %dms",
+                            summary.instancesCreated(),
+                            summary.recipientsCreated(),
+                            summary.durationMillis())));
+        }
+        return result;
     }
 
 
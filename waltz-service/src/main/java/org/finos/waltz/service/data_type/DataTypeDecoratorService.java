@@ -24,6 +24,7 @@ import org.finos.waltz.data.datatype_decorator.DataTypeDecoratorDaoSelectorFacto
 import org.finos.waltz.data.logical_flow.LogicalFlowDao;
 import org.finos.waltz.data.physical_specification.PhysicalSpecificationDao;
 import org.finos.waltz.model.*;
+import org.finos.waltz.model.changelog.ChangeLog;
 import org.finos.waltz.model.changelog.ImmutableChangeLog;
 import org.finos.waltz.model.datatype.DataTypeDecorator;
 import org.finos.waltz.model.datatype.DataTypeUsageCharacteristics;
@@ -45,12 +46,15 @@ import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static java.lang.String.format;
+import static java.util.function.Function.identity;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.CollectionUtilities.*;
 import static org.finos.waltz.common.DateTimeUtilities.nowUtc;
 import static org.finos.waltz.common.ListUtilities.newArrayList;
+import static org.finos.waltz.common.ListUtilities.partition;
 import static org.finos.waltz.model.EntityKind.*;
 import static org.finos.waltz.model.EntityReference.mkRef;
 import static org.finos.waltz.model.IdSelectionOptions.mkOpts;
@@ -58,6 +62,8 @@ import static org.finos.waltz.model.IdSelectionOptions.mkOpts;
 @Service
 public class DataTypeDecoratorService {
 
+    private static final int BULK_DECORATOR_CHUNK_SIZE = 500;
+
     private final ChangeLogService changeLogService;
     private final DataTypeDecoratorDaoSelectorFactory dataTypeDecoratorDaoSelectorFactory;
     private final LogicalFlowDao logicalFlowDao;
@@ -175,6 +181,89 @@ public class DataTypeDecoratorService {
     }
 
 
+    /**
+     * Bulk equivalent of `addDecorators`, used when decorating many entities of the same
+     * kind at once (e.g. physical flow uploads).  Ratings are calculated, decorators
+     * and change log entries are written and data type usages recalculated once per
+     * chunk of (up to 500) entities rather than once per entity.
+     *
+     * @param userName  user making the change
+     * @param entityKind  kind of the decorated entities
+     * @param dataTypeIdsByEntityId  data type ids to add, keyed by decorated entity id
+     * @return  batch insert results
+     */
+    public int[] addDecorators(String userName,
+                               EntityKind entityKind,
+                               Map<Long, Set<Long>> dataTypeIdsByEntityId) {
+        checkNotNull(userName, "userName cannot be null");
+        checkNotNull(entityKind, "entityKind cannot be null");
+        checkNotNull(dataTypeIdsByEntityId, "dataTypeIdsByEntityId cannot be null");
+
+        // chunked so the flow, application and usage lookups made per chunk stay within bind parameter limits
+        return partition(dataTypeIdsByEntityId.keySet(), BULK_DECORATOR_CHUNK_SIZE)
+                .stream()
+                .map(entityIds -> addDecoratorsForChunk(
+                        userName,
+                        entityKind,
+                        entityIds
+                                .stream()
+                                .collect(Collectors.toMap(identity(), dataTypeIdsByEntityId::get))))
+                .flatMapToInt(IntStream::of)
+                .toArray();
+    }
+
+
+    private int[] addDecoratorsForChunk(String userName,
+                                        EntityKind entityKind,
+                                        Map<Long, Set<Long>> dataTypeIdsByEntityId) {
+        List<LogicalFlow> logicalFlows = LOGICAL_DATA_FLOW.equals(entityKind)
+                ? logicalFlowDao.findAllByFlowIds(dataTypeIdsByEntityId.keySet())
+                : Collections.emptyList();
+
+        Collection<DataTypeDecorator> dataTypeDecorators = LOGICAL_DATA_FLOW.equals(entityKind)
+                ? mkLogicalFlowDecorators(userName, logicalFlows, dataTypeIdsByEntityId)
+                : dataTypeIdsByEntityId
+                    .entrySet()
+                    .stream()
+                    .flatMap(e -> e.getValue()
+                            .stream()
+                            .map(dtId -> mkDecorator(userName, mkRef(entityKind, e.getKey()), dtId, Optional.empty())))
+                    .collect(Collectors.toList());
+
+        int[] result = dataTypeDecoratorDaoSelectorFactory
+                .getDao(entityKind)
+                .addDecorators(dataTypeDecorators);
+
+        List<ChangeLog> changeLogs = dataTypeIdsByEntityId
+                .entrySet()
+                .stream()
+                .map(e -> mkAuditEntry(
+                        format("Added data types: %s", e.getValue().toString()),
+                        mkRef(entityKind, e.getKey()),
+                        userName))
+                .collect(Collectors.toList());
+
+        changeLogService.write(changeLogs);
+
+        if (LOGICAL_DATA_FLOW.equals(entityKind)) {
+            Set<EntityReference> endpoints = new HashSet<>();
+            logicalFlows.forEach(f -> {
+                endpoints.add(f.source());
+                endpoints.add(f.target());
+            });
+            dataTypeUsageService.recalculateForApplications(endpoints);
+        }
+
+        if (PHYSICAL_SPECIFICATION.equals(entityKind)) {
+            dataTypeIdsByEntityId
+                    .keySet()
+                    .forEach(specId -> physicalSpecificationService.propagateDataTypesToLogicalFlows(userName, specId));
+        }
+
+        return result;
+    }
+
+
     public int removeDataTypeDecorator(String userName, EntityReference entityReference, Set<Long> dataTypeIds) {
         checkNotNull(userName, "userName cannot be null");
         checkNotNull(dataTypeIds, "dataTypeIds cannot be null");
@@ -224,6 +313,34 @@ public class DataTypeDecoratorService {
     }
 
 
+    private Collection<DataTypeDecorator> mkLogicalFlowDecorators(String userName,
+                                                                  List<LogicalFlow> flows,
+                                                                  Map<Long, Set<Long>> dataTypeIdsByFlowId) {
+        List<DataTypeDecorator> requiringRating = new ArrayList<>();
+        List<DataTypeDecorator> decorators = new ArrayList<>();
+
+        flows.forEach(flow -> {
+            EntityReference flowRef = mkRef(LOGICAL_DATA_FLOW, flow.id().get());
+            boolean requiresRating = flow.source().kind() == APPLICATION && flow.target().kind() == APPLICATION;
+
+            dataTypeIdsByFlowId
+                    .getOrDefault(flowRef.id(), Collections.emptySet())
+                    .forEach(dtId -> (requiresRating ? requiringRating : decorators)
+                            .add(mkDecorator(
+                                    userName,
+                                    flowRef,
+                                    dtId,
+                                    Optional.of(AuthoritativenessRatingValue.NO_OPINION))));
+        });
+
+        if (!requiringRating.isEmpty()) {
+            decorators.addAll(ratingsCalculator.calculate(requiringRating));
+        }
+
+        return decorators;
+    }
+
+
     private ImmutableDataTypeDecorator mkDecorator(String userName,
                                                    EntityReference entityReference,
                                                    Long dtId,
@@ -277,8 +394,14 @@ public class DataTypeDecoratorService {
     private void audit(String message,
                        EntityReference entityReference,
                        String username) {
+        changeLogService.write(mkAuditEntry(message, entityReference, username));
+    }
 
-        ImmutableChangeLog logEntry = ImmutableChangeLog.builder()
+
+    private ChangeLog mkAuditEntry(String message,
+                                   EntityReference entityReference,
+                                   String username) {
+        return ImmutableChangeLog.builder()
                 .parentReference(entityReference)
                 .userId(username)
                 .severity(Severity.INFORMATION)
@@ -286,8 +409,6 @@ public class DataTypeDecoratorService {
                 .childKind(EntityKind.DATA_TYPE)
                 .operation(Operation.UPDATE)
                 .build();
-
-        changeLogService.write(logEntry);
     }
 
 
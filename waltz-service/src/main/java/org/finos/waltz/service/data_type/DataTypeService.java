@@ -26,6 +26,8 @@ import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.datatype.DataType;
 import org.finos.waltz.model.entity_search.EntitySearchOptions;
+import org.finos.waltz.service.reference_data.ReferenceDataCache;
+import org.finos.waltz.service.reference_data.ReferenceDataSnapshot;
 import org.jooq.Record1;
 import org.jooq.Select;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -38,6 +40,7 @@ import java.util.Optional;
 import java.util.Set;
 
 import static java.lang.String.format;
+import static org.finos.waltz.common.Checks.checkNotEmpty;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.CollectionUtilities.head;
 import static org.finos.waltz.common.SetUtilities.asSet;
@@ -51,34 +54,46 @@ public class DataTypeService {
     private final DataTypeDao dataTypeDao;
     private final DataTypeSearchDao searchDao;
     private final LogicalFlowDao logicalFlowDao;
+    private final ReferenceDataSnapshot<Long, DataType> dataTypesSnapshot;
 
 
     @Autowired
     public DataTypeService(DataTypeDao dataTypeDao,
                            DataTypeSearchDao searchDao,
-                           LogicalFlowDao logicalFlowDao) {
+                           LogicalFlowDao logicalFlowDao,
+                           ReferenceDataCache referenceDataCache) {
         checkNotNull(dataTypeDao, "dataTypeDao must not be null");
         checkNotNull(searchDao, "searchDao cannot be null");
         checkNotNull(logicalFlowDao, "logicalFlowService cannot be null");
+        checkNotNull(referenceDataCache, "referenceDataCache cannot be null");
 
         this.dataTypeDao = dataTypeDao;
         this.searchDao = searchDao;
         this.logicalFlowDao = logicalFlowDao;
+        this.dataTypesSnapshot = referenceDataCache.register(
+                "data_type",
+                dataTypeDao::findAll,
+                dt -> dt.id().get());
     }
 
 
     public List<DataType> findAll() {
-        return dataTypeDao.findAll();
+        return dataTypesSnapshot.all();
     }
 
 
     public DataType getDataTypeById(long dataTypeId) {
-        return dataTypeDao.getById(dataTypeId);
+        return dataTypesSnapshot
+                .get(dataTypeId)
+                .orElse(null);
     }
 
 
     public DataType getDataTypeByCode(String code) {
-        return dataTypeDao.getByCode(code);
+        checkNotEmpty(code, "Code cannot be null/empty");
+        return dataTypesSnapshot
+                .find(dt -> code.equals(dt.code()))
+                .orElse(null);
     }
 
     public List<EntityReference> findByIdSelector(Select<Record1<Long>> selector) {
@@ -95,11 +110,7 @@ public class DataTypeService {
      * @return `Optional.of(unknownDataType)` if an unknown datatype has been defined otherwise `Optional.empty()`.
      */
     public Optional<DataType> getUnknownDataType() {
-        return dataTypeDao
-                .findAll()
-                .stream()
-                .filter(DataType::unknown)
-                .findFirst();
+        return dataTypesSnapshot.find(DataType::unknown);
     }
 
 
@@ -62,6 +62,8 @@ import static org.jooq.impl.DSL.select;
 @Service
 public class EntityHierarchyService {
 
+    private static final int MAX_SUBTREE_SCOPE_SIZE = 1000;
+
     private final DSLContext dsl;
     private final ChangeInitiativeDao changeInitiativeDao;
     private final DataTypeDao dataTypeDao;
@@ -71,6 +73,7 @@ public class EntityHierarchyService {
     private final MeasurableDao measurableDao;
     private final OrganisationalUnitDao organisationalUnitDao;
     private final PersonHierarchyService personHierarchyService;
+    private final HierarchySnapshotService hierarchySnapshotService;
 
     @Autowired
     public EntityHierarchyService(DSLContext dsl,
@@ -80,7 +83,8 @@ public class EntityHierarchyService {
                                   EntityStatisticDao entityStatisticDao,
                                   MeasurableDao measurableDao, 
                                   OrganisationalUnitDao organisationalUnitDao,
-                                  PersonHierarchyService personHierarchyService) {
+                                  PersonHierarchyService personHierarchyService,
+                                  HierarchySnapshotService hierarchySnapshotService) {
 
         checkNotNull(dsl, "dsl cannot be null");
         checkNotNull(changeInitiativeDao, "changeInitiativeDao cannot be null");
@@ -90,6 +94,7 @@ public class EntityHierarchyService {
         checkNotNull(measurableDao, "measurableDao cannot be null");
         checkNotNull(organisationalUnitDao, "organisationalUnitDao cannot be null");
         checkNotNull(personHierarchyService, "personHierarchyService cannot be null");
+        checkNotNull(hierarchySnapshotService, "hierarchySnapshotService cannot be null");
 
         this.dsl = dsl;
         this.changeInitiativeDao = changeInitiativeDao;
@@ -99,6 +104,7 @@ public class EntityHierarchyService {
         this.measurableDao = measurableDao;
         this.organisationalUnitDao = organisationalUnitDao;
         this.personHierarchyService = personHierarchyService;
+        this.hierarchySnapshotService = hierarchySnapshotService;
     }
 
 
@@ -144,9 +150,18 @@ public class EntityHierarchyService {
     }
 
 
+    /**
+     * Rebuilds the hierarchy for the given kind.  Only rows which have changed
+     * are written (see `EntityHierarchyDao.applyHierarchy`).  Any in-memory
+     * snapshot of the hierarchy is then replaced.
+     *
+     * @param kind  kind of hierarchy to rebuild
+     * @return number of hierarchy records inserted, updated or deleted
+     */
     public int buildFor(EntityKind kind) {
         if (kind == PERSON) {
             int[] rc = personHierarchyService.build();
+            hierarchySnapshotService.reload(PERSON);
             return rc.length;
         } else {
             Table<?> table = determineTableToRebuild(kind);
@@ -165,14 +180,73 @@ public class EntityHierarchyService {
     }
 
 
+    /**
+     * Recomputes the hierarchy rows for a single node and everything beneath it.
+     * Should be called after a node has been added (pass the new node or its parent),
+     * moved or removed.  Rows for nodes outside the subtree are unaffected by such
+     * changes and so are not touched.
+     *
+     * @param ref  the node whose subtree should be recomputed
+     * @return number of hierarchy records inserted, updated or deleted
+     */
+    public int buildForSubtree(EntityReference ref) {
+        checkNotNull(ref, "ref cannot be null");
+
+        if (ref.kind() == PERSON) {
+            return buildFor(PERSON);
+        }
+
+        Table<?> table = determineTableToRebuild(ref.kind());
+        Forest<Long, Long> forest = HierarchyUtilities.toForest(fetchFlatNodes(table, DSL.trueCondition()));
+
+        // the subtree as currently stored (covers removals) and as it now stands (covers additions)
+        Set<Long> affectedIds = entityHierarchyDao
+                .findDesendents(ref)
+                .stream()
+                .map(d -> d.id().orElse(ref.id()))
+                .collect(Collectors.toSet());
+        affectedIds.add(ref.id());
+        Optional.ofNullable(forest.getAllNodes().get(ref.id()))
+                .ifPresent(node -> collectSubtreeIds(node, affectedIds));
+
+        // very large subtrees are diffed against the whole hierarchy to avoid huge in-clauses
+        boolean useWholeHierarchy = affectedIds.size() > MAX_SUBTREE_SCOPE_SIZE;
+
+        Condition scope = useWholeHierarchy
+                ? DSL.trueCondition()
+                : ENTITY_HIERARCHY.ID.in(affectedIds);
+
+        Set<Long> idsToConvert = useWholeHierarchy
+                ? forest.getAllNodes().keySet()
+                : affectedIds;
+
+        int changeCount = entityHierarchyDao.applyHierarchy(
+                ref.kind(),
+                convertForestToHierarchyItems(ref.kind(), forest, idsToConvert),
+                scope);
+
+        hierarchySnapshotService.reload(ref.kind());
+        return changeCount;
+    }
+
+
     private int buildFor(Table<?> table,
                          EntityKind kind,
                          Condition selectFilter,
-                         Condition deleteFilter) {
+                         Condition scope) {
         Collection<FlatNode<Long, Long>> flatNodes = fetchFlatNodes(table, selectFilter);
         List<EntityHierarchyItem> hierarchyItems = convertFlatNodesToHierarchyItems(kind, flatNodes);
 
-        return entityHierarchyDao.replaceHierarchy(kind, hierarchyItems, deleteFilter);
+        int changeCount = entityHierarchyDao.applyHierarchy(kind, hierarchyItems, scope);
+
+        hierarchySnapshotService.reload(kind);
+        return changeCount;
+    }
+
+
+    private static void collectSubtreeIds(Node<Long, Long> node, Set<Long> ids) {
+        ids.add(node.getId());
+        node.getChildren().forEach(c -> collectSubtreeIds(c, ids));
     }
 
 
@@ -198,11 +272,19 @@ public class EntityHierarchyService {
     private List<EntityHierarchyItem> convertFlatNodesToHierarchyItems(EntityKind kind,
                                                                        Collection<FlatNode<Long, Long>> flatNodes) {
         Forest<Long, Long> forest = HierarchyUtilities.toForest(flatNodes);
+        return convertForestToHierarchyItems(kind, forest, forest.getAllNodes().keySet());
+    }
+
+
+    private List<EntityHierarchyItem> convertForestToHierarchyItems(EntityKind kind,
+                                                                    Forest<Long, Long> forest,
+                                                                    Set<Long> nodeIds) {
         Map<Long, Integer> idToLevel = HierarchyUtilities.assignDepths(forest);
 
         return forest.getAllNodes()
                 .values()
                 .stream()
+                .filter(n -> nodeIds.contains(n.getId()))
                 .flatMap(streamItemsForNode(kind, idToLevel))
                 .collect(Collectors.toList());
     }
@@ -0,0 +1,184 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.entity_hierarchy;
+
+import org.finos.waltz.common.hierarchy.FlatNode;
+import org.finos.waltz.common.hierarchy.HierarchySnapshot;
+import org.finos.waltz.data.entity_hierarchy.EntityHierarchyDao;
+import org.finos.waltz.data.person.PersonDao;
+import org.finos.waltz.model.EntityKind;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.FunctionUtilities.time;
+
+/**
+ * Holds a shared, in-memory `HierarchySnapshot` per entity kind so that ancestor,
+ * descendant and depth questions can be answered without querying `entity_hierarchy`.
+ *
+ * Snapshots are loaded on first use and replaced (never mutated) whenever the
+ * hierarchy is rebuilt by the `EntityHierarchyService`.  Each snapshot carries a
+ * version, allowing callers to detect that a hierarchy has changed.
+ *
+ * Rebuilds made elsewhere (other nodes, loaders writing directly to the database)
+ * are not seen by this service, so snapshots older than `MAX_AGE_MS` are reloaded
+ * on next access.
+ */
+@Service
+@ManagedResource(description = "In-memory snapshots of entity hierarchies")
+public class HierarchySnapshotService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HierarchySnapshotService.class);
+
+    private static final long MAX_AGE_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private final EntityHierarchyDao entityHierarchyDao;
+    private final PersonDao personDao;
+
+    private final ConcurrentMap<EntityKind, LoadedSnapshot> snapshotsByKind = new ConcurrentHashMap<>();
+    private final AtomicLong versionCounter = new AtomicLong();
+
+    /** one lock per kind, so only one thread loads a given hierarchy and loads of other kinds are not held up */
+    private final Map<EntityKind, Object> loadLocks = new EnumMap<>(EntityKind.class);
+
+
+    @Autowired
+    public HierarchySnapshotService(EntityHierarchyDao entityHierarchyDao,
+                                    PersonDao personDao) {
+        checkNotNull(entityHierarchyDao, "entityHierarchyDao cannot be null");
+        checkNotNull(personDao, "personDao cannot be null");
+
+        this.entityHierarchyDao = entityHierarchyDao;
+        this.personDao = personDao;
+
+        for (EntityKind kind : EntityKind.values()) {
+            loadLocks.put(kind, new Object());
+        }
+    }
+
+
+    /**
+     * @param kind  hierarchical entity kind (e.g. MEASURABLE, ORG_UNIT, DATA_TYPE, PERSON)
+     * @return the current snapshot of the hierarchy for the kind, loading it if absent or stale
+     */
+    public HierarchySnapshot getSnapshot(EntityKind kind) {
+        checkNotNull(kind, "kind cannot be null");
+
+        LoadedSnapshot loaded = snapshotsByKind.get(kind);
+        if (loaded != null && isFresh(loaded)) {
+            return loaded.snapshot;
+        }
+
+        synchronized (loadLocks.get(kind)) {
+            // another thread may have loaded it whilst we were waiting
+            LoadedSnapshot current = snapshotsByKind.get(kind);
+            if (current != null && isFresh(current)) {
+                return current.snapshot;
+            }
+
+            LoadedSnapshot reloaded = load(kind);
+            snapshotsByKind.put(kind, reloaded);
+            return reloaded.snapshot;
+        }
+    }
+
+
+    /**
+     * Replaces the snapshot for the given kind, if one has been loaded.  Readers
+     * holding the previous snapshot are unaffected.
+     *
+     * @param kind  kind whose hierarchy has been rebuilt
+     */
+    public void reload(EntityKind kind) {
+        checkNotNull(kind, "kind cannot be null");
+        if (! snapshotsByKind.containsKey(kind)) {
+            return;
+        }
+
+        synchronized (loadLocks.get(kind)) {
+            snapshotsByKind.put(kind, load(kind));
+        }
+    }
+
+
+    @ManagedAttribute(description = "Size, version and age of each loaded hierarchy snapshot")
+    public Map<String, String> getSnapshotInfo() {
+        Map<String, String> result = new TreeMap<>();
+        snapshotsByKind.forEach((kind, loaded) -> result.put(
+                kind.name(),
+                format("nodes: %d, version: %d, ageMs: %d",
+                        loaded.snapshot.size(),
+                        loaded.snapshot.getVersion(),
+                        System.currentTimeMillis() - loaded.loadedAt)));
+        return result;
+    }
+
+
+    @ManagedOperation(description = "Discard all hierarchy snapshots, they will be reloaded on next use")
+    public void clear() {
+        LOG.warn("Clearing hierarchy snapshots (via jmx)");
+        snapshotsByKind.clear();
+    }
+
+
+    // --- helpers ---
+
+    private LoadedSnapshot load(EntityKind kind) {
+        return time("HierarchySnapshotService.load: " + kind, () -> {
+            List<FlatNode<Long, Long>> nodes = kind == EntityKind.PERSON
+                    ? personDao.findManagementHierarchyNodes()
+                    : entityHierarchyDao.findHierarchyNodes(kind);
+            return new LoadedSnapshot(HierarchySnapshot.build(versionCounter.incrementAndGet(), nodes));
+        });
+    }
+
+
+    private static boolean isFresh(LoadedSnapshot loaded) {
+        return System.currentTimeMillis() - loaded.loadedAt <= MAX_AGE_MS;
+    }
+
+
+    private static class LoadedSnapshot {
+
+        private final HierarchySnapshot snapshot;
+        private final long loadedAt = System.currentTimeMillis();
+
+
+        private LoadedSnapshot(HierarchySnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+    }
+
+}
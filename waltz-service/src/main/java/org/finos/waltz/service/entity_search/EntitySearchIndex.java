@@ -0,0 +1,564 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.entity_search;
+
+import org.finos.waltz.model.EntityLifecycleStatus;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.entity_search.EntitySearchDocument;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * An immutable, in-memory search index over the documents of a single entity kind.
+ *
+ * Names and aliases are indexed by character trigram, giving cheap candidate
+ * selection for substring matches and a similarity measure for fuzzy matches.
+ * Codes (asset codes, external ids etc.) are held in a sorted array and matched
+ * by prefix.  Results are ranked, best first:
+ *
+ * <ol>
+ *     <li>code equals the query</li>
+ *     <li>code starts with the query</li>
+ *     <li>name starts with the first term (and contains all terms)</li>
+ *     <li>a word in the name starts with the first term (and the name contains all terms)</li>
+ *     <li>name contains all terms</li>
+ *     <li>an alias contains all terms</li>
+ *     <li>name or alias shares at least half the trigrams of a single (4+ character) term</li>
+ * </ol>
+ *
+ * Within a rank, earlier matches and then shorter names are preferred.
+ *
+ * Changed documents are applied with `withChanges`, which gives a new index
+ * sharing all untouched posting lists with this one.  Replaced and removed
+ * documents leave a vacant slot behind, callers should rebuild the index once
+ * `vacantSlots` grows large.
+ */
+class EntitySearchIndex {
+
+    private static final int RANK_CODE_EXACT = 0;
+    private static final int RANK_CODE_PREFIX = 1;
+    private static final int RANK_NAME_PREFIX = 2;
+    private static final int RANK_WORD_PREFIX = 3;
+    private static final int RANK_NAME_CONTAINS = 4;
+    private static final int RANK_ALIAS_CONTAINS = 5;
+    private static final int RANK_FUZZY = 6;
+
+    private static final int FUZZY_MIN_TERM_LENGTH = 4;
+    private static final double FUZZY_MIN_OVERLAP = 0.5;
+
+    private final EntityReference[] refs;
+    private final String[] names;
+    private final String[][] aliases;
+    private final Map<Long, int[]> trigramPostings;
+    private final String[] codes;
+    private final int[] codeDocs;
+    private final int liveCount;
+
+
+    private EntitySearchIndex(EntityReference[] refs,
+                              String[] names,
+                              String[][] aliases,
+                              Map<Long, int[]> trigramPostings,
+                              String[] codes,
+                              int[] codeDocs,
+                              int liveCount) {
+        this.refs = refs;
+        this.names = names;
+        this.aliases = aliases;
+        this.trigramPostings = trigramPostings;
+        this.codes = codes;
+        this.codeDocs = codeDocs;
+        this.liveCount = liveCount;
+    }
+
+
+    static EntitySearchIndex build(Collection<EntitySearchDocument> documents) {
+        int size = documents.size();
+        EntityReference[] refs = new EntityReference[size];
+        String[] names = new String[size];
+        String[][] aliases = new String[size][];
+        Map<Long, List<Integer>> postingLists = new HashMap<>();
+        List<Map.Entry<String, Integer>> codeEntries = new ArrayList<>();
+
+        int doc = 0;
+        for (EntitySearchDocument document : documents) {
+            refs[doc] = document.entityReference();
+            names[doc] = normalise(document.entityReference().name().orElse(""));
+            aliases[doc] = document
+                    .aliases()
+                    .stream()
+                    .map(EntitySearchIndex::normalise)
+                    .toArray(String[]::new);
+
+            // docs are visited in order, so each posting list is naturally sorted
+            for (Long trigram : docTrigrams(names[doc], aliases[doc])) {
+                postingLists.computeIfAbsent(trigram, k -> new ArrayList<>()).add(doc);
+            }
+
+            for (String code : document.codes()) {
+                codeEntries.add(new AbstractMap.SimpleImmutableEntry<>(normalise(code), doc));
+            }
+
+            doc++;
+        }
+
+        Map<Long, int[]> postings = new HashMap<>(postingLists.size() * 2);
+        postingLists.forEach((trigram, docs) -> postings.put(trigram, toIntArray(docs)));
+
+        codeEntries.sort(Map.Entry.comparingByKey());
+
+        return new EntitySearchIndex(
+                refs,
+                names,
+                aliases,
+                postings,
+                codeKeys(codeEntries),
+                codeValues(codeEntries),
+                size);
+    }
+
+
+    /**
+     * Gives a new index reflecting changes to some of the documents.  Only the
+     * posting lists of trigrams found in the removed or added documents are copied,
+     * all others are shared with this index.
+     *
+     * @param changedIds  ids of entities which have changed, those without a document in `documents` are removed
+     * @param documents  the current documents of the changed entities
+     * @return  a new index, this index is left untouched
+     */
+    EntitySearchIndex withChanges(Set<Long> changedIds,
+                                  Collection<EntitySearchDocument> documents) {
+        Set<Long> affectedIds = new HashSet<>(changedIds);
+        documents.forEach(d -> affectedIds.add(d.entityReference().id()));
+
+        int firstNewDoc = refs.length;
+        EntityReference[] newRefs = Arrays.copyOf(refs, firstNewDoc + documents.size());
+        String[] newNames = Arrays.copyOf(names, newRefs.length);
+        String[][] newAliases = Arrays.copyOf(aliases, newRefs.length);
+
+        Map<Long, Set<Integer>> removalsByTrigram = new HashMap<>();
+        Set<Integer> vacatedDocs = new HashSet<>();
+
+        for (int doc = 0; doc < firstNewDoc; doc++) {
+            if (refs[doc] != null && affectedIds.contains(refs[doc].id())) {
+                vacatedDocs.add(doc);
+                for (Long trigram : docTrigrams(names[doc], aliases[doc])) {
+                    removalsByTrigram.computeIfAbsent(trigram, k -> new HashSet<>()).add(doc);
+                }
+                newRefs[doc] = null;
+                newNames[doc] = "";
+                newAliases[doc] = new String[0];
+            }
+        }
+
+        Map<Long, List<Integer>> additionsByTrigram = new HashMap<>();
+        List<Map.Entry<String, Integer>> addedCodes = new ArrayList<>();
+
+        int doc = firstNewDoc;
+        for (EntitySearchDocument document : documents) {
+            newRefs[doc] = document.entityReference();
+            newNames[doc] = normalise(document.entityReference().name().orElse(""));
+            newAliases[doc] = document
+                    .aliases()
+                    .stream()
+                    .map(EntitySearchIndex::normalise)
+                    .toArray(String[]::new);
+
+            // new docs are numbered after all existing ones, so appending keeps posting lists sorted
+            for (Long trigram : docTrigrams(newNames[doc], newAliases[doc])) {
+                additionsByTrigram.computeIfAbsent(trigram, k -> new ArrayList<>()).add(doc);
+            }
+
+            for (String code : document.codes()) {
+                addedCodes.add(new AbstractMap.SimpleImmutableEntry<>(normalise(code), doc));
+            }
+
+            doc++;
+        }
+
+        Map<Long, int[]> postings = new HashMap<>(trigramPostings);
+
+        removalsByTrigram.forEach((trigram, removedDocs) -> {
+            int[] remaining = Arrays
+                    .stream(postings.get(trigram))
+                    .filter(d -> !removedDocs.contains(d))
+                    .toArray();
+            if (remaining.length == 0) {
+                postings.remove(trigram);
+            } else {
+                postings.put(trigram, remaining);
+            }
+        });
+
+        additionsByTrigram.forEach((trigram, addedDocs) -> {
+            int[] existing = postings.getOrDefault(trigram, new int[0]);
+            int[] combined = Arrays.copyOf(existing, existing.length + addedDocs.size());
+            for (int i = 0; i < addedDocs.size(); i++) {
+                combined[existing.length + i] = addedDocs.get(i);
+            }
+            postings.put(trigram, combined);
+        });
+
+        addedCodes.sort(Map.Entry.comparingByKey());
+        List<Map.Entry<String, Integer>> mergedCodes = mergeCodes(vacatedDocs, addedCodes);
+
+        return new EntitySearchIndex(
+                newRefs,
+                newNames,
+                newAliases,
+                postings,
+                codeKeys(mergedCodes),
+                codeValues(mergedCodes),
+                liveCount - vacatedDocs.size() + documents.size());
+    }
+
+
+    int size() {
+        return liveCount;
+    }
+
+
+    /**
+     * @return  number of slots left behind by documents replaced or removed via `withChanges`
+     */
+    int vacantSlots() {
+        return refs.length - liveCount;
+    }
+
+
+    /**
+     * @param terms  search terms, as produced by `SearchUtilities.mkTerms`
+     * @param lifecycleStatuses  only entities with one of these statuses are returned
+     * @param limit  maximum number of results
+     * @return  matching entity references, best match first
+     */
+    List<EntityReference> search(List<String> terms,
+                                 Collection<EntityLifecycleStatus> lifecycleStatuses,
+                                 int limit) {
+        List<String> normalisedTerms = terms
+                .stream()
+                .map(EntitySearchIndex::normalise)
+                .filter(t -> !t.isEmpty())
+                .collect(toList());
+
+        if (normalisedTerms.isEmpty() || lifecycleStatuses.isEmpty() || limit <= 0) {
+            return emptyList();
+        }
+
+        Set<EntityLifecycleStatus> statuses = EnumSet.copyOf(lifecycleStatuses);
+        Map<Integer, Hit> hits = new HashMap<>();
+
+        matchCodes(String.join(" ", normalisedTerms), statuses, hits);
+        matchNamesAndAliases(normalisedTerms, statuses, hits);
+
+        if (hits.size() < limit && normalisedTerms.size() == 1) {
+            matchFuzzy(normalisedTerms.get(0), statuses, hits);
+        }
+
+        return hits
+                .values()
+                .stream()
+                .sorted(Comparator
+                        .comparingInt((Hit h) -> h.rank)
+                        .thenComparingInt(h -> h.position)
+                        .thenComparingInt(h -> names[h.doc].length())
+                        .thenComparing(h -> names[h.doc]))
+                .limit(limit)
+                .map(h -> refs[h.doc])
+                .collect(toList());
+    }
+
+
+    // --- helpers ---
+
+    private void matchCodes(String query,
+                            Set<EntityLifecycleStatus> statuses,
+                            Map<Integer, Hit> hits) {
+        for (int i = lowerBound(query); i < codes.length && codes[i].startsWith(query); i++) {
+            int doc = codeDocs[i];
+            if (statuses.contains(refs[doc].entityLifecycleStatus())) {
+                int rank = codes[i].length() == query.length()
+                        ? RANK_CODE_EXACT
+                        : RANK_CODE_PREFIX;
+                offer(hits, doc, rank, 0);
+            }
+        }
+    }
+
+
+    private void matchNamesAndAliases(List<String> terms,
+                                      Set<EntityLifecycleStatus> statuses,
+                                      Map<Integer, Hit> hits) {
+        int[] candidates = findCandidates(terms);
+        String firstTerm = terms.get(0);
+
+        for (int doc : candidates) {
+            if (!statuses.contains(refs[doc].entityLifecycleStatus())) {
+                continue;
+            }
+
+            String name = names[doc];
+            if (containsAll(name, terms)) {
+                int position = name.indexOf(firstTerm);
+                int rank = position == 0
+                        ? RANK_NAME_PREFIX
+                        : isWordStart(name, firstTerm) ? RANK_WORD_PREFIX : RANK_NAME_CONTAINS;
+                offer(hits, doc, rank, Math.max(position, 0));
+            } else {
+                for (String alias : aliases[doc]) {
+                    if (containsAll(alias, terms)) {
+                        offer(hits, doc, RANK_ALIAS_CONTAINS, alias.indexOf(firstTerm));
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+
+    private void matchFuzzy(String term,
+                            Set<EntityLifecycleStatus> statuses,
+                            Map<Integer, Hit> hits) {
+        if (term.length() < FUZZY_MIN_TERM_LENGTH) {
+            return;
+        }
+
+        Set<Long> termTrigrams = new HashSet<>();
+        addTrigrams(term, termTrigrams);
+
+        int[] overlaps = new int[refs.length];
+        for (Long trigram : termTrigrams) {
+            for (int doc : trigramPostings.getOrDefault(trigram, new int[0])) {
+                overlaps[doc]++;
+            }
+        }
+
+        int required = (int) Math.ceil(termTrigrams.size() * FUZZY_MIN_OVERLAP);
+        for (int doc = 0; doc < overlaps.length; doc++) {
+            if (overlaps[doc] >= required
+                    && !hits.containsKey(doc)
+                    && statuses.contains(refs[doc].entityLifecycleStatus())) {
+                // more shared trigrams gives a better (lower) position
+                offer(hits, doc, RANK_FUZZY, termTrigrams.size() - overlaps[doc]);
+            }
+        }
+    }
+
+
+    /**
+     * Intersects the posting lists of every trigram in the (3+ character) terms.
+     * If no term is long enough to have a trigram every document is a candidate.
+     */
+    private int[] findCandidates(List<String> terms) {
+        Set<Long> trigrams = new HashSet<>();
+        terms.forEach(t -> addTrigrams(t, trigrams));
+
+        if (trigrams.isEmpty()) {
+            return IntStream
+                    .range(0, refs.length)
+                    .filter(doc -> refs[doc] != null)
+                    .toArray();
+        }
+
+        List<int[]> postingLists = new ArrayList<>(trigrams.size());
+        for (Long trigram : trigrams) {
+            int[] posting = trigramPostings.get(trigram);
+            if (posting == null) {
+                return new int[0];
+            }
+            postingLists.add(posting);
+        }
+
+        postingLists.sort(Comparator.comparingInt(p -> p.length));
+
+        int[] result = postingLists.get(0);
+        for (int i = 1; i < postingLists.size() && result.length > 0; i++) {
+            result = intersect(result, postingLists.get(i));
+        }
+        return result;
+    }
+
+
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = codes.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (codes[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+
+    private static void offer(Map<Integer, Hit> hits, int doc, int rank, int position) {
+        Hit existing = hits.get(doc);
+        if (existing == null || rank < existing.rank) {
+            hits.put(doc, new Hit(doc, rank, position));
+        }
+    }
+
+
+    static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+
+    private static boolean containsAll(String str, List<String> terms) {
+        for (String term : terms) {
+            if (!str.contains(term)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static boolean isWordStart(String str, String term) {
+        for (int idx = str.indexOf(term); idx >= 0; idx = str.indexOf(term, idx + 1)) {
+            if (idx == 0 || !Character.isLetterOrDigit(str.charAt(idx - 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Merges the (sorted) existing code entries, less those of vacated docs, with
+     * the (sorted) added entries.
+     */
+    private List<Map.Entry<String, Integer>> mergeCodes(Set<Integer> vacatedDocs,
+                                                        List<Map.Entry<String, Integer>> addedCodes) {
+        List<Map.Entry<String, Integer>> merged = new ArrayList<>(codes.length + addedCodes.size());
+        int i = 0;
+        int j = 0;
+        while (i < codes.length || j < addedCodes.size()) {
+            if (i < codes.length && vacatedDocs.contains(codeDocs[i])) {
+                i++;
+            } else if (j >= addedCodes.size()
+                    || (i < codes.length && codes[i].compareTo(addedCodes.get(j).getKey()) <= 0)) {
+                merged.add(new AbstractMap.SimpleImmutableEntry<>(codes[i], codeDocs[i]));
+                i++;
+            } else {
+                merged.add(addedCodes.get(j));
+                j++;
+            }
+        }
+        return merged;
+    }
+
+
+    private static String[] codeKeys(List<Map.Entry<String, Integer>> codeEntries) {
+        return codeEntries
+                .stream()
+                .map(Map.Entry::getKey)
+                .toArray(String[]::new);
+    }
+
+
+    private static int[] codeValues(List<Map.Entry<String, Integer>> codeEntries) {
+        return codeEntries
+                .stream()
+                .mapToInt(Map.Entry::getValue)
+                .toArray();
+    }
+
+
+    private static int[] toIntArray(List<Integer> xs) {
+        return xs
+                .stream()
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+
+    private static Set<Long> docTrigrams(String name, String[] aliases) {
+        Set<Long> trigrams = new HashSet<>();
+        addTrigrams(name, trigrams);
+        for (String alias : aliases) {
+            addTrigrams(alias, trigrams);
+        }
+        return trigrams;
+    }
+
+
+    private static void addTrigrams(String str, Set<Long> trigrams) {
+        for (int i = 0; i + 3 <= str.length(); i++) {
+            trigrams.add(((long) str.charAt(i) << 32)
+                    | ((long) str.charAt(i + 1) << 16)
+                    | str.charAt(i + 2));
+        }
+    }
+
+
+    private static String normalise(String str) {
+        return str == null
+                ? ""
+                : str.trim().toLowerCase();
+    }
+
+
+    private static class Hit {
+
+        private final int doc;
+        private final int rank;
+        private final int position;
+
+
+        private Hit(int doc, int rank, int position) {
+            this.doc = doc;
+            this.rank = rank;
+            this.position = position;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.entity_search;
+
+import org.finos.waltz.data.SearchUtilities;
+import org.finos.waltz.data.changelog.ChangeLogDao;
+import org.finos.waltz.data.entity_search.EntitySearchDocumentDao;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.entity_search.EntitySearchDocument;
+import org.finos.waltz.model.entity_search.EntitySearchOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toSet;
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.FunctionUtilities.time;
+
+/**
+ * Maintains an in-memory search index for the commonly searched entity kinds
+ * (see `EntitySearchDocumentDao.supportedKinds`).
+ *
+ * The indexes are built shortly after startup and rebuilt hourly.  In between,
+ * the change log is polled and any entities mentioned in new entries are
+ * reloaded and applied to their kind's index, touching only the postings of the
+ * changed documents.  Edits which bypass the change log are picked up by the
+ * next full rebuild.
+ *
+ * Building and updating run on a dedicated thread so they neither hold up nor
+ * are held up by other scheduled tasks.
+ *
+ * Until a kind's index has been built `search` returns empty and callers
+ * should fall back to the database search.
+ */
+@Service
+@ManagedResource(description = "In-memory entity search index")
+public class EntitySearchIndexService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntitySearchIndexService.class);
+
+    /**
+     * Once a kind's index has this many vacant slots per live document it is rebuilt
+     * rather than updated, reclaiming the space of replaced documents.
+     */
+    private static final double MAX_VACANT_RATIO = 0.25;
+
+    private final EntitySearchDocumentDao entitySearchDocumentDao;
+    private final ChangeLogDao changeLogDao;
+
+    private final ConcurrentMap<EntityKind, EntitySearchIndex> indexesByKind = new ConcurrentHashMap<>();
+
+    private final AtomicLong indexSearchCount = new AtomicLong();
+    private final AtomicLong fallbackCount = new AtomicLong();
+
+    private final ExecutorService indexExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread t = new Thread(runnable, "WaltzEntitySearchIndex");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+
+    // only accessed from the index executor
+    private long changeLogHighWaterMark = -1;
+
+
+    @Autowired
+    public EntitySearchIndexService(EntitySearchDocumentDao entitySearchDocumentDao,
+                                    ChangeLogDao changeLogDao) {
+        checkNotNull(entitySearchDocumentDao, "entitySearchDocumentDao cannot be null");
+        checkNotNull(changeLogDao, "changeLogDao cannot be null");
+
+        this.entitySearchDocumentDao = entitySearchDocumentDao;
+        this.changeLogDao = changeLogDao;
+    }
+
+
+    /**
+     * Searches the in-memory index for the given kind.
+     *
+     * @param kind  entity kind to search
+     * @param options  search query, lifecycle statuses and limit
+     * @return  ranked results, or empty if the kind is not (yet) indexed
+     */
+    public Optional<List<EntityReference>> search(EntityKind kind,
+                                                  EntitySearchOptions options) {
+        checkNotNull(kind, "kind cannot be null");
+        checkNotNull(options, "options cannot be null");
+
+        EntitySearchIndex index = indexesByKind.get(kind);
+
+        if (index == null) {
+            fallbackCount.incrementAndGet();
+            return Optional.empty();
+        }
+
+        indexSearchCount.incrementAndGet();
+        return Optional.of(index.search(
+                SearchUtilities.mkTerms(options.searchQuery()),
+                options.entityLifecycleStatuses(),
+                options.limit()));
+    }
+
+
+    @Scheduled(initialDelay = 15_000, fixedDelay = 3_600_000)
+    @ManagedOperation(description = "Rebuild the search index for all supported kinds")
+    public void rebuild() {
+        submitOnce(rebuildPending, this::rebuildAll);
+    }
+
+
+    @Scheduled(initialDelay = 60_000, fixedDelay = 30_000)
+    public void refresh() {
+        submitOnce(refreshPending, this::applyChanges);
+    }
+
+
+    @ManagedAttribute(description = "Number of searches answered by the index")
+    public long getIndexSearchCount() {
+        return indexSearchCount.get();
+    }
+
+
+    @ManagedAttribute(description = "Number of searches which fell back to the database as the kind was not indexed")
+    public long getFallbackCount() {
+        return fallbackCount.get();
+    }
+
+
+    @ManagedAttribute(description = "Number of indexed entities, by kind")
+    public Map<String, Integer> getIndexSizes() {
+        Map<String, Integer> result = new TreeMap<>();
+        indexesByKind.forEach((kind, index) -> result.put(kind.name(), index.size()));
+        return result;
+    }
+
+
+    // --- helpers ---
+
+    /**
+     * Queues the task unless it is already queued (but not yet running), so
+     * slow builds don't cause a backlog of identical work.
+     */
+    private void submitOnce(AtomicBoolean pending, Runnable task) {
+        if (!pending.compareAndSet(false, true)) {
+            return;
+        }
+
+        indexExecutor.execute(() -> {
+            pending.set(false);
+            try {
+                task.run();
+            } catch (Exception e) {
+                LOG.warn("Entity search index maintenance failed", e);
+            }
+        });
+    }
+
+
+    private void rebuildAll() {
+        // taken before loading so that changes made during the load are re-applied by the next refresh
+        long latestId = changeLogDao.getMaxId();
+
+        EntitySearchDocumentDao
+                .supportedKinds()
+                .forEach(this::rebuildKind);
+
+        changeLogHighWaterMark = latestId;
+    }
+
+
+    private void applyChanges() {
+        if (changeLogHighWaterMark < 0) {
+            return;
+        }
+
+        long latestId = changeLogDao.getMaxId();
+        if (latestId <= changeLogHighWaterMark) {
+            return;
+        }
+
+        Map<EntityKind, Set<Long>> changedIdsByKind = changeLogDao
+                .findEntitiesChangedBetween(changeLogHighWaterMark, latestId)
+                .stream()
+                .filter(ref -> indexesByKind.containsKey(ref.kind()))
+                .collect(groupingBy(EntityReference::kind, mapping(EntityReference::id, toSet())));
+
+        changedIdsByKind.forEach(this::applyChanges);
+        changeLogHighWaterMark = latestId;
+    }
+
+
+    private void applyChanges(EntityKind kind, Set<Long> changedIds) {
+        EntitySearchIndex current = indexesByKind.get(kind);
+
+        if (current.vacantSlots() > current.size() * MAX_VACANT_RATIO) {
+            rebuildKind(kind);
+            return;
+        }
+
+        List<EntitySearchDocument> documents = entitySearchDocumentDao.findForKindAndIds(kind, changedIds);
+
+        LOG.debug("Updating index with {} changed {} entities", changedIds.size(), kind);
+        indexesByKind.put(kind, current.withChanges(changedIds, documents));
+    }
+
+
+    private void rebuildKind(EntityKind kind) {
+        time("EntitySearchIndexService.rebuild: " + kind,
+             () -> indexesByKind.put(
+                     kind,
+                     EntitySearchIndex.build(entitySearchDocumentDao.findAllForKind(kind))));
+    }
+}
@@ -48,6 +48,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 
 import static java.util.stream.Collectors.toList;
@@ -57,7 +58,14 @@ import static org.jooq.lambda.Unchecked.supplier;
 @Service
 public class EntitySearchService {
 
+    /**
+     * Search results are only useful whilst the user is waiting, so searches
+     * stuck behind heavier work are dropped rather than run late.
+     */
+    private static final long SEARCH_QUEUE_TIMEOUT_MS = 10_000;
+
     private final DBExecutorPoolInterface dbExecutorPool;
+    private final EntitySearchIndexService entitySearchIndexService;
     private final ActorService actorService;
     private final ApplicationService applicationService;
     private final AppGroupService appGroupService;
@@ -78,6 +86,7 @@ public class EntitySearchService {
 
     @Autowired
     public EntitySearchService(DBExecutorPoolInterface dbExecutorPool,
+                               EntitySearchIndexService entitySearchIndexService,
                                ActorService actorService,
                                ApplicationService applicationService,
                                AppGroupService appGroupService,
@@ -96,6 +105,7 @@ public class EntitySearchService {
                                DatabaseInformationService databaseInformationService) {
 
         checkNotNull(dbExecutorPool, "dbExecutorPool cannot be null");
+        checkNotNull(entitySearchIndexService, "entitySearchIndexService cannot be null");
         checkNotNull(actorService, "actorService cannot be null");
         checkNotNull(applicationService, "applicationService cannot be null");
         checkNotNull(appGroupService, "appGroupService cannot be null");
@@ -115,6 +125,7 @@ public class EntitySearchService {
 
         this.actorService = actorService;
         this.dbExecutorPool = dbExecutorPool;
+        this.entitySearchIndexService = entitySearchIndexService;
         this.applicationService = applicationService;
         this.appGroupService = appGroupService;
         this.changeInitiativeService = changeInitiativeService;
@@ -141,15 +152,30 @@ public class EntitySearchService {
             return Collections.emptyList();
         }
 
-        List<Future<Collection<? extends WaltzEntity>>> futures = options
+        // indexed kinds are answered immediately, the rest are searched in the database
+        List<Future<List<EntityReference>>> futures = options
                 .entityKinds()
                 .stream()
-                .map(ek -> dbExecutorPool.submit(mkCallable(ek, options)))
+                .map(ek -> entitySearchIndexService
+                        .search(ek, options)
+                        .<Future<List<EntityReference>>>map(CompletableFuture::completedFuture)
+                        .orElseGet(() -> dbExecutorPool.submit(
+                                "entity-search",
+                                SEARCH_QUEUE_TIMEOUT_MS,
+                                toReferences(mkCallable(ek, options)))))
                 .collect(toList());
 
         return futures
                 .stream()
                 .flatMap(f -> supplier(f::get).get().stream())
+                .collect(toList());
+    }
+
+
+    private static Callable<List<EntityReference>> toReferences(Callable<Collection<? extends WaltzEntity>> callable) {
+        return () -> callable
+                .call()
+                .stream()
                 .map(WaltzEntity::entityReference)
                 .collect(toList());
     }
@@ -0,0 +1,167 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.flow_classification_rule;
+
+import org.finos.waltz.common.hierarchy.HierarchySnapshot;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.flow_classification_rule.FlowClassificationRuleVantagePoint;
+import org.finos.waltz.model.flow_classification_rule.FlowDecoratorRatingCandidate;
+import org.finos.waltz.model.flow_classification_rule.ImmutableFlowDecoratorRatingCandidate;
+import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static java.util.stream.Collectors.toList;
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * Calculates the flow classification rating of logical flow data type decorators
+ * entirely in memory, replacing the per-rule update statements previously issued
+ * when recalculating all ratings.
+ *
+ * Ratings are determined in two stages:
+ *
+ * <ol>
+ *     <li>Org unit rules: for flows targeting an application the rules declared against
+ *     the application's org unit (or any of its ancestors) for the decorator's data type
+ *     (or any of its ancestors) are resolved using a hierarchy aware `FlowClassificationRuleResolver`,
+ *     i.e. the most specific rule for the flow's source wins, otherwise the flow is
+ *     discouraged (and linked to the most specific rule covering it).  If no rule applies
+ *     the rating is 'no opinion'</li>
+ *     <li>Point-to-point rules: rules declared directly against the flow's target (an
+ *     application or actor) override the above, the rule with the most specific data
+ *     type is used</li>
+ * </ol>
+ *
+ * Instances are immutable and may be shared between threads.
+ */
+public class FlowClassificationRatingEngine {
+
+    private final FlowClassificationRuleResolver orgUnitRuleResolver;
+    private final FlowClassificationRuleResolver pointToPointRuleResolver;
+
+
+    /**
+     * @param orgUnitVantagePoints  rules declared against org units, as returned by
+     *                              `FlowClassificationRuleDao.findFlowClassificationRuleVantagePoints`
+     * @param pointToPointVantagePoints  rules declared against applications or actors, where the
+     *                                   vantage point is the flow target
+     * @param orgUnits  org unit hierarchy
+     * @param dataTypes  data type hierarchy
+     */
+    public FlowClassificationRatingEngine(List<FlowClassificationRuleVantagePoint> orgUnitVantagePoints,
+                                          List<FlowClassificationRuleVantagePoint> pointToPointVantagePoints,
+                                          HierarchySnapshot orgUnits,
+                                          HierarchySnapshot dataTypes) {
+        checkNotNull(orgUnitVantagePoints, "orgUnitVantagePoints cannot be null");
+        checkNotNull(pointToPointVantagePoints, "pointToPointVantagePoints cannot be null");
+        checkNotNull(orgUnits, "orgUnits cannot be null");
+        checkNotNull(dataTypes, "dataTypes cannot be null");
+
+        this.orgUnitRuleResolver = new FlowClassificationRuleResolver(
+                orgUnitVantagePoints,
+                orgUnits,
+                dataTypes);
+
+        // point-to-point rules must match the flow target exactly, only the data type hierarchy applies
+        this.pointToPointRuleResolver = new FlowClassificationRuleResolver(
+                pointToPointVantagePoints,
+                HierarchySnapshot.empty(),
+                dataTypes);
+    }
+
+
+    /**
+     * Rates every decorator (in parallel), returning only those whose rating or
+     * flow classification rule differ from their current values.
+     *
+     * @param decorators  decorators to rate, with their current rating
+     * @return  copies of the decorators whose rating has changed, with the new rating and rule
+     */
+    public List<FlowDecoratorRatingCandidate> calculateChanges(Collection<FlowDecoratorRatingCandidate> decorators) {
+        checkNotNull(decorators, "decorators cannot be null");
+
+        return decorators
+                .parallelStream()
+                .map(this::rate)
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .collect(toList());
+    }
+
+
+    // --- helpers ---
+
+    private Optional<FlowDecoratorRatingCandidate> rate(FlowDecoratorRatingCandidate decorator) {
+        AuthoritativenessRatingValue rating = AuthoritativenessRatingValue.NO_OPINION;
+        Optional<Long> ruleId = Optional.empty();
+
+        if (isTargetingApplication(decorator)) {
+            long orgUnitId = decorator.targetOrgUnitId().get();
+
+            rating = orgUnitRuleResolver.resolve(
+                    EntityKind.ORG_UNIT,
+                    orgUnitId,
+                    decorator.sourceKind(),
+                    decorator.sourceId(),
+                    decorator.dataTypeId());
+
+            // discouraged decorators are linked to the most specific rule covering them
+            ruleId = orgUnitRuleResolver
+                    .resolveGoverningRule(
+                            EntityKind.ORG_UNIT,
+                            orgUnitId,
+                            decorator.sourceKind(),
+                            decorator.sourceId(),
+                            decorator.dataTypeId())
+                    .map(FlowClassificationRuleVantagePoint::ruleId);
+        }
+
+        Optional<FlowClassificationRuleVantagePoint> pointToPointRule = pointToPointRuleResolver.resolveAuthSource(
+                decorator.targetKind(),
+                decorator.targetId(),
+                decorator.sourceKind(),
+                decorator.sourceId(),
+                decorator.dataTypeId());
+
+        if (pointToPointRule.isPresent()) {
+            rating = AuthoritativenessRatingValue.of(pointToPointRule.get().classificationCode());
+            ruleId = Optional.of(pointToPointRule.get().ruleId());
+        }
+
+        boolean unchanged = decorator.rating().equals(Optional.of(rating))
+                && decorator.flowClassificationRuleId().equals(ruleId);
+
+        return unchanged
+                ? Optional.empty()
+                : Optional.of(ImmutableFlowDecoratorRatingCandidate
+                    .copyOf(decorator)
+                    .withRating(rating)
+                    .withFlowClassificationRuleId(ruleId));
+    }
+
+
+    private static boolean isTargetingApplication(FlowDecoratorRatingCandidate decorator) {
+        return decorator.targetKind() == EntityKind.APPLICATION
+                && decorator.targetOrgUnitId().isPresent();
+    }
+
+}
@@ -18,43 +18,126 @@
 
 package org.finos.waltz.service.flow_classification_rule;
 
+import org.finos.waltz.common.hierarchy.HierarchySnapshot;
+import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.flow_classification_rule.FlowClassificationRuleVantagePoint;
 import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
+import org.jooq.lambda.tuple.Tuple3;
 
-import javax.swing.text.html.parser.Entity;
 import java.util.*;
 
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.CollectionUtilities.head;
 import static org.finos.waltz.common.CollectionUtilities.sort;
-import static org.finos.waltz.common.MapUtilities.groupAndThen;
-import static org.finos.waltz.common.MapUtilities.isEmpty;
+import static org.finos.waltz.common.MapUtilities.groupBy;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 
+/**
+ * Resolves the flow classification rating for a (vantage point, source, data type) triple.
+ *
+ * Rules are held in a single open-addressing hash table keyed by packed longs
+ * (vantage point kind+id, data type id, subject kind+id), so lookups do not box
+ * keys or allocate.  The table also records, for each (vantage point, data type)
+ * pair, the most specific of its rules, which distinguishes 'discouraged' (rules
+ * exist, but not for this source) from 'no opinion' (no rules at all) and identifies
+ * the rule responsible for a discouraged rating.
+ *
+ * The resolver can be used in two ways:
+ *
+ * <ul>
+ *     <li>with pre-expanded vantage points (one per consuming org unit and data type), in
+ *     which case only exact matches are considered</li>
+ *     <li>with the declared vantage points and the vantage point / data type hierarchies, in
+ *     which case the ancestors of the vantage point and data type are walked (most specific
+ *     first) until a rule is found, avoiding the need to expand the rules up front</li>
+ * </ul>
+ */
 public class FlowClassificationRuleResolver {
 
-    private final Map<EntityReference, Map<Long, Map<EntityReference, Optional<FlowClassificationRuleVantagePoint>>>> byOuThenDataTypeThenSubject;
+    private static final long NO_PARENT = Long.MIN_VALUE;
+    private static final long ANY_SUBJECT = Long.MIN_VALUE;
+
+    private static final int NOT_FOUND = -1;
+    private static final int NO_OPINION = -2;
+
+    // discouraged results are encoded as DISCOURAGED - (index of the covering rule), see `lookup`
+    private static final int DISCOURAGED = -3;
+
+    private static final Comparator<FlowClassificationRuleVantagePoint> SPECIFICITY = Comparator
+            .comparingInt(FlowClassificationRuleVantagePoint::vantagePointRank)
+            .thenComparingInt(FlowClassificationRuleVantagePoint::dataTypeRank)
+            .thenComparing(Comparator.comparingLong(FlowClassificationRuleVantagePoint::ruleId).reversed());
+
+    private final HierarchySnapshot vantagePointHierarchy;
+    private final HierarchySnapshot dataTypeHierarchy;
+
+    private final PackedKeyTable table;
+    private final Optional<FlowClassificationRuleVantagePoint>[] maybeRules;
+    private final AuthoritativenessRatingValue[] ratings;
+
 
     /**
-     * Construct the Resolver with an internal structure as follows:
-     * OrgUnit -> [DataTypeId -> [AppId -> Rating] ]
-     * @param flowClassificationVantagePoints
+     * Construct the Resolver from pre-expanded vantage points, only exact matches
+     * on (vantage point, data type, subject) are considered.
+     *
+     * @param flowClassificationVantagePoints  vantage points, keyed by consuming org unit and data type
      */
     public FlowClassificationRuleResolver(List<FlowClassificationRuleVantagePoint> flowClassificationVantagePoints) {
+        this(flowClassificationVantagePoints, HierarchySnapshot.empty(), HierarchySnapshot.empty());
+    }
+
+
+    /**
+     * Construct the Resolver from declared vantage points, when resolving the ancestors of the
+     * vantage point and data type are also considered.  Either hierarchy may be
+     * `HierarchySnapshot.empty()` if only exact matches should be considered for it.
+     *
+     * @param flowClassificationVantagePoints  vantage points as declared (not expanded)
+     * @param vantagePointHierarchy  hierarchy of the vantage points (typically org units)
+     * @param dataTypeHierarchy  hierarchy of the data types
+     */
+    @SuppressWarnings("unchecked")
+    public FlowClassificationRuleResolver(List<FlowClassificationRuleVantagePoint> flowClassificationVantagePoints,
+                                          HierarchySnapshot vantagePointHierarchy,
+                                          HierarchySnapshot dataTypeHierarchy) {
         checkNotNull(flowClassificationVantagePoints, "flowClassificationVantagePoints cannot be null");
+        checkNotNull(vantagePointHierarchy, "vantagePointHierarchy cannot be null");
+        checkNotNull(dataTypeHierarchy, "dataTypeHierarchy cannot be null");
+
+        this.vantagePointHierarchy = vantagePointHierarchy;
+        this.dataTypeHierarchy = dataTypeHierarchy;
+
+        Map<Tuple3<Long, Long, Long>, Collection<FlowClassificationRuleVantagePoint>> byKey = groupBy(
+                flowClassificationVantagePoints,
+                vp -> tuple(
+                        pack(vp.vantagePoint()),
+                        vp.dataType().id(),
+                        pack(vp.subjectReference())));
+
+        int ruleCount = byKey.size();
+        this.table = new PackedKeyTable(ruleCount * 2);
+        this.maybeRules = new Optional[ruleCount];
+        this.ratings = new AuthoritativenessRatingValue[ruleCount];
 
-        byOuThenDataTypeThenSubject =
-                groupAndThen(
-                        flowClassificationVantagePoints,
-                        FlowClassificationRuleVantagePoint::vantagePoint,
-                        byOus -> groupAndThen(
-                                byOus,
-                                byOu -> byOu.dataType().id(),
-                                byDts -> groupAndThen(
-                                        byDts,
-                                        FlowClassificationRuleVantagePoint::subjectReference,
-                                        FlowClassificationRuleResolver::getMostSpecificRanked)));
+        int idx = 0;
+        for (Map.Entry<Tuple3<Long, Long, Long>, Collection<FlowClassificationRuleVantagePoint>> entry : byKey.entrySet()) {
+            FlowClassificationRuleVantagePoint rule = getMostSpecificRanked(entry.getValue()).get();
+            Tuple3<Long, Long, Long> key = entry.getKey();
+
+            maybeRules[idx] = Optional.of(rule);
+            ratings[idx] = AuthoritativenessRatingValue.of(rule.classificationCode());
+
+            table.put(key.v1, key.v2, key.v3, idx);
+
+            // (vantage point, data type, ANY_SUBJECT) holds the pair's most specific rule (lowest id on ties)
+            int pairIdx = table.get(key.v1, key.v2, ANY_SUBJECT);
+            if (pairIdx == NOT_FOUND || SPECIFICITY.compare(rule, maybeRules[pairIdx].get()) > 0) {
+                table.put(key.v1, key.v2, ANY_SUBJECT, idx);
+            }
+            idx++;
+        }
     }
 
 
@@ -70,43 +153,71 @@ public class FlowClassificationRuleResolver {
     public AuthoritativenessRatingValue resolve(EntityReference vantagePoint,
                                                 EntityReference source,
                                                 Long dataTypeId) {
+        return resolve(vantagePoint.kind(), vantagePoint.id(), source.kind(), source.id(), dataTypeId);
+    }
 
-        Map<Long, Map<EntityReference, Optional<FlowClassificationRuleVantagePoint>>> ouGroup = byOuThenDataTypeThenSubject.get(vantagePoint);
+
+    /**
+     * As `resolve(EntityReference, EntityReference, Long)` but without requiring references to be constructed.
+     */
+    public AuthoritativenessRatingValue resolve(EntityKind vantagePointKind,
+                                                long vantagePointId,
+                                                EntityKind sourceKind,
+                                                long sourceId,
+                                                long dataTypeId) {
+        int idx = lookup(vantagePointKind, vantagePointId, sourceKind, sourceId, dataTypeId);
 
         // if a match cannot be found for the ou and the dt then no opinion, if a match can be found for these but the source application
         // doesn't match then the rating should be discouraged
-
-        if(isEmpty(ouGroup)) {
-            return AuthoritativenessRatingValue.NO_OPINION;
-        }
-
-        Map<EntityReference, Optional<FlowClassificationRuleVantagePoint>> dataTypeGroup = ouGroup.get(dataTypeId);
-
-        if(isEmpty(dataTypeGroup)) {
+        if (idx == NO_OPINION) {
             return AuthoritativenessRatingValue.NO_OPINION;
+        } else if (idx <= DISCOURAGED) {
+            return AuthoritativenessRatingValue.DISCOURAGED;
+        } else {
+            return ratings[idx];
         }
+    }
 
-        Optional<FlowClassificationRuleVantagePoint> maybeRating = dataTypeGroup.getOrDefault(
-                source,
-                Optional.empty());
 
-        return maybeRating
-                .map(r -> AuthoritativenessRatingValue.of(r.classificationCode()))
-                .orElse(AuthoritativenessRatingValue.DISCOURAGED);
+    public Optional<FlowClassificationRuleVantagePoint> resolveAuthSource(EntityReference vantagePoint,
+                                                                          EntityReference source,
+                                                                          Long dataTypeId) {
+        return resolveAuthSource(vantagePoint.kind(), vantagePoint.id(), source.kind(), source.id(), dataTypeId);
     }
 
 
-    public Optional<FlowClassificationRuleVantagePoint> resolveAuthSource(EntityReference vantagePoint, EntityReference source, Long dataTypeId) {
-
-        Map<Long, Map<EntityReference, Optional<FlowClassificationRuleVantagePoint>>> ouGroup = byOuThenDataTypeThenSubject.get(vantagePoint);
-        if(isEmpty(ouGroup)) return Optional.empty();
+    public Optional<FlowClassificationRuleVantagePoint> resolveAuthSource(EntityKind vantagePointKind,
+                                                                          long vantagePointId,
+                                                                          EntityKind sourceKind,
+                                                                          long sourceId,
+                                                                          long dataTypeId) {
+        int idx = lookup(vantagePointKind, vantagePointId, sourceKind, sourceId, dataTypeId);
+        return idx < 0
+                ? Optional.empty()
+                : maybeRules[idx];
+    }
 
-        Map<EntityReference, Optional<FlowClassificationRuleVantagePoint>> dataTypeGroup = ouGroup.get(dataTypeId);
-        if(isEmpty(dataTypeGroup)) return Optional.empty();
 
-        return  dataTypeGroup.getOrDefault(
-                source,
-                Optional.empty());
+    /**
+     * Finds the rule which determines the rating of a flow.  For flows from a rule's
+     * subject this is the matching rule (as `resolveAuthSource`), for discouraged flows
+     * it is the most specific rule covering the vantage point and data type.
+     *
+     * @return the governing rule, or empty if no rules apply (i.e. 'no opinion')
+     */
+    public Optional<FlowClassificationRuleVantagePoint> resolveGoverningRule(EntityKind vantagePointKind,
+                                                                             long vantagePointId,
+                                                                             EntityKind sourceKind,
+                                                                             long sourceId,
+                                                                             long dataTypeId) {
+        int idx = lookup(vantagePointKind, vantagePointId, sourceKind, sourceId, dataTypeId);
+        if (idx == NO_OPINION) {
+            return Optional.empty();
+        } else if (idx <= DISCOURAGED) {
+            return maybeRules[DISCOURAGED - idx];
+        } else {
+            return maybeRules[idx];
+        }
     }
 
 
@@ -127,4 +238,114 @@ public class FlowClassificationRuleResolver {
                     (x, y) -> comparator.compare(y, x))); //note the reversal of parameters because we want descending order
     }
 
+
+    // --- helpers ---
+
+    /**
+     * Walks the vantage point ancestors (outer) and data type ancestors (inner), most specific
+     * first, so the first rule found for the source is the most specific.
+     *
+     * @return index of the matching rule, NO_OPINION or, if rules cover the vantage point and
+     *      data type but none are for the source, DISCOURAGED - (index of the most specific covering rule)
+     */
+    private int lookup(EntityKind vantagePointKind,
+                       long vantagePointId,
+                       EntityKind sourceKind,
+                       long sourceId,
+                       long dataTypeId) {
+        long sourceKey = pack(sourceKind, sourceId);
+        int coveringIdx = NOT_FOUND;
+
+        for (long vp = vantagePointId; vp != NO_PARENT; vp = vantagePointHierarchy.parentIdOf(vp, NO_PARENT)) {
+            long vantagePointKey = pack(vantagePointKind, vp);
+
+            for (long dt = dataTypeId; dt != NO_PARENT; dt = dataTypeHierarchy.parentIdOf(dt, NO_PARENT)) {
+                int idx = table.get(vantagePointKey, dt, sourceKey);
+                if (idx != NOT_FOUND) {
+                    return idx;
+                }
+                if (coveringIdx == NOT_FOUND) {
+                    coveringIdx = table.get(vantagePointKey, dt, ANY_SUBJECT);
+                }
+            }
+        }
+
+        return coveringIdx == NOT_FOUND
+                ? NO_OPINION
+                : DISCOURAGED - coveringIdx;
+    }
+
+
+    private static long pack(EntityReference ref) {
+        return pack(ref.kind(), ref.id());
+    }
+
+
+    /**
+     * Kind ordinal in the top byte, id in the remaining 56 bits.
+     */
+    private static long pack(EntityKind kind, long id) {
+        return ((long) kind.ordinal() << 56) | (id & 0x00FF_FFFF_FFFF_FFFFL);
+    }
+
+
+    /**
+     * Minimal open-addressing (linear probing) hash table from three longs to an int.
+     * Insert only, sized up front.
+     */
+    private static final class PackedKeyTable {
+
+        private final long[] keys1;
+        private final long[] keys2;
+        private final long[] keys3;
+        private final int[] values;
+        private final boolean[] used;
+        private final int mask;
+
+
+        private PackedKeyTable(int expectedSize) {
+            // power of two, at least twice the expected size, keeping the load factor at or below 0.5
+            int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+            keys1 = new long[capacity];
+            keys2 = new long[capacity];
+            keys3 = new long[capacity];
+            values = new int[capacity];
+            used = new boolean[capacity];
+            mask = capacity - 1;
+        }
+
+
+        private void put(long k1, long k2, long k3, int value) {
+            int slot = hash(k1, k2, k3) & mask;
+            while (used[slot] && !(keys1[slot] == k1 && keys2[slot] == k2 && keys3[slot] == k3)) {
+                slot = (slot + 1) & mask;
+            }
+            used[slot] = true;
+            keys1[slot] = k1;
+            keys2[slot] = k2;
+            keys3[slot] = k3;
+            values[slot] = value;
+        }
+
+
+        private int get(long k1, long k2, long k3) {
+            int slot = hash(k1, k2, k3) & mask;
+            while (used[slot]) {
+                if (keys1[slot] == k1 && keys2[slot] == k2 && keys3[slot] == k3) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return NOT_FOUND;
+        }
+
+
+        private static int hash(long k1, long k2, long k3) {
+            long h = k1 * 0x9E3779B97F4A7C15L;
+            h = (h ^ k2) * 0xC2B2AE3D27D4EB4FL;
+            h = (h ^ k3) * 0x165667B19E3779F9L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
 }
@@ -20,6 +20,7 @@ package org.finos.waltz.service.flow_classification_rule;
 
 import org.finos.waltz.schema.Tables;
 import org.finos.waltz.service.changelog.ChangeLogService;
+import org.finos.waltz.service.entity_hierarchy.HierarchySnapshotService;
 import org.finos.waltz.common.exception.NotFoundException;
 import org.finos.waltz.data.GenericSelector;
 import org.finos.waltz.data.GenericSelectorFactory;
@@ -56,7 +57,11 @@ import java.util.Set;
 import static org.finos.waltz.schema.tables.LogicalFlowDecorator.LOGICAL_FLOW_DECORATOR;
 import static java.lang.String.format;
 import static org.finos.waltz.common.Checks.checkNotNull;
+import static java.util.stream.Collectors.toList;
+import static org.finos.waltz.common.FunctionUtilities.time;
+import static org.finos.waltz.common.MapUtilities.indexBy;
 import static org.finos.waltz.model.EntityKind.ACTOR;
+import static org.finos.waltz.model.EntityKind.DATA_TYPE;
 import static org.finos.waltz.model.EntityKind.ORG_UNIT;
 import static org.finos.waltz.model.EntityReference.mkRef;
 
@@ -75,6 +80,7 @@ public class FlowClassificationRuleService {
     private final FlowClassificationCalculator ratingCalculator;
     private final ChangeLogService changeLogService;
     private final LogicalFlowDecoratorDao logicalFlowDecoratorDao;
+    private final HierarchySnapshotService hierarchySnapshotService;
     private final DataTypeIdSelectorFactory dataTypeIdSelectorFactory = new DataTypeIdSelectorFactory();
     private final ApplicationIdSelectorFactory applicationIdSelectorFactory = new ApplicationIdSelectorFactory();
     private final GenericSelectorFactory genericSelectorFactory = new GenericSelectorFactory();
@@ -89,7 +95,8 @@ public class FlowClassificationRuleService {
                                          ActorDao actorDao,
                                          FlowClassificationCalculator ratingCalculator,
                                          ChangeLogService changeLogService,
-                                         LogicalFlowDecoratorDao logicalFlowDecoratorDao) {
+                                         LogicalFlowDecoratorDao logicalFlowDecoratorDao,
+                                         HierarchySnapshotService hierarchySnapshotService) {
         checkNotNull(flowClassificationRuleDao, "flowClassificationRuleDao must not be null");
         checkNotNull(flowClassificationDao, "flowClassificationDao must not be null");
         checkNotNull(actorDao, "actorDao must not be null");
@@ -99,6 +106,7 @@ public class FlowClassificationRuleService {
         checkNotNull(ratingCalculator, "ratingCalculator cannot be null");
         checkNotNull(changeLogService, "changeLogService cannot be null");
         checkNotNull(logicalFlowDecoratorDao, "logicalFlowDecoratorDao cannot be null");
+        checkNotNull(hierarchySnapshotService, "hierarchySnapshotService cannot be null");
 
         this.flowClassificationRuleDao = flowClassificationRuleDao;
         this.flowClassificationDao = flowClassificationDao;
@@ -109,6 +117,7 @@ public class FlowClassificationRuleService {
         this.ratingCalculator = ratingCalculator;
         this.changeLogService = changeLogService;
         this.logicalFlowDecoratorDao = logicalFlowDecoratorDao;
+        this.hierarchySnapshotService = hierarchySnapshotService;
     }
 
 
@@ -200,27 +209,44 @@ public class FlowClassificationRuleService {
     }
 
 
+    /**
+     * Recalculates the rating of every logical flow decorator in memory (see `FlowClassificationRatingEngine`)
+     * and writes back only those ratings which have changed.
+     *
+     * @return number of decorators whose rating was updated
+     */
     public int fastRecalculateAllFlowRatings() {
-        logicalFlowDecoratorDao.updateRatingsByCondition(AuthoritativenessRatingValue.NO_OPINION, DSL.trueCondition());
-
-        //finds all the vantage points to apply using parent as selector
-        List<FlowClassificationRuleVantagePoint> flowClassificationRuleVantagePoints = flowClassificationRuleDao
-                .findFlowClassificationRuleVantagePoints();
-
-        int updatedRuleDecorators = flowClassificationRuleVantagePoints
-                .stream()
-                .mapToInt(logicalFlowDecoratorDao::updateDecoratorsForFlowClassificationRule)
-                .sum();
-
-        //overrides rating for point to point flows (must run after the above)
-        int updatedPointToPointDecorators = flowClassificationRuleDao.updatePointToPointFlowClassificationRules();
+        FlowClassificationRatingEngine engine = new FlowClassificationRatingEngine(
+                flowClassificationRuleDao.findFlowClassificationRuleVantagePoints(),
+                findPointToPointVantagePoints(),
+                hierarchySnapshotService.getSnapshot(ORG_UNIT),
+                hierarchySnapshotService.getSnapshot(DATA_TYPE));
+
+        List<FlowDecoratorRatingCandidate> decorators = time(
+                "FCRS.fastRecalculateAllFlowRatings: load",
+                logicalFlowDecoratorDao::findRatingCandidates);
+
+        List<FlowDecoratorRatingCandidate> changedDecorators = time(
+                "FCRS.fastRecalculateAllFlowRatings: calculate",
+                () -> engine.calculateChanges(decorators));
+
+        int updatedDecorators = time(
+                "FCRS.fastRecalculateAllFlowRatings: update",
+                () -> logicalFlowDecoratorDao.updateRatings(changedDecorators));
+
+        // only data type decorators are rated, anything else is reset
+        int resetDecorators = logicalFlowDecoratorDao.updateRatingsByCondition(
+                AuthoritativenessRatingValue.NO_OPINION,
+                LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND.ne(DATA_TYPE.name())
+                        .and(LOGICAL_FLOW_DECORATOR.RATING.ne(AuthoritativenessRatingValue.NO_OPINION.value())));
 
         LOG.info(
-                "Updated decorators for: {} for general rules and {} point-to-point flows",
-                updatedRuleDecorators,
-                updatedPointToPointDecorators);
+                "Recalculated ratings for {} decorators, {} changed, {} non data type decorators reset",
+                decorators.size(),
+                updatedDecorators,
+                resetDecorators);
 
-        return updatedRuleDecorators + updatedPointToPointDecorators;
+        return updatedDecorators + resetDecorators;
     }
 
 
@@ -316,6 +342,34 @@ public class FlowClassificationRuleService {
 
     // -- HELPERS
 
+    /**
+     * Rules declared against an application or actor apply to flows targeting that entity,
+     * these are expressed as vantage points with the target as the vantage point.
+     */
+    private List<FlowClassificationRuleVantagePoint> findPointToPointVantagePoints() {
+        Map<Long, String> codesById = indexBy(
+                flowClassificationDao.findAll(),
+                d -> d.id().get(),
+                FlowClassification::code);
+
+        return findAll()
+                .stream()
+                .filter(r -> r.vantagePointReference().kind() != ORG_UNIT)
+                .filter(r -> codesById.containsKey(r.classificationId()))
+                .map(r -> ImmutableFlowClassificationRuleVantagePoint
+                        .builder()
+                        .vantagePoint(r.vantagePointReference())
+                        .vantagePointRank(0)
+                        .dataType(mkRef(DATA_TYPE, r.dataTypeId()))
+                        .dataTypeRank(0)
+                        .subjectReference(r.subjectReference())
+                        .ruleId(r.id().get())
+                        .classificationCode(codesById.get(r.classificationId()))
+                        .build())
+                .collect(toList());
+    }
+
+
     private Condition mkConsumerSelectionCondition(IdSelectionOptions options) {
         Select<Record1<Long>> appIdSelector = applicationIdSelectorFactory.apply(options);
         return FlowClassificationRuleDao.CONSUMER_APP.ID.in(appIdSelector);
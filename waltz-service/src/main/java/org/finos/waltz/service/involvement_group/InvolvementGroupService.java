@@ -2,6 +2,7 @@ package org.finos.waltz.service.involvement_group;
 
 import org.finos.waltz.data.involvement_group.InvolvementGroupDao;
 import org.finos.waltz.model.involvement_group.InvolvementGroupCreateCommand;
+import org.finos.waltz.service.permission.PermissionCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -11,10 +12,13 @@ import java.util.Set;
 public class InvolvementGroupService {
 
     public final InvolvementGroupDao involvementGroupDao;
+    private final PermissionCache permissionCache;
 
     @Autowired
-    public InvolvementGroupService(InvolvementGroupDao involvementGroupDao) {
+    public InvolvementGroupService(InvolvementGroupDao involvementGroupDao,
+                                   PermissionCache permissionCache) {
         this.involvementGroupDao = involvementGroupDao;
+        this.permissionCache = permissionCache;
     }
 
     public long createGroup(InvolvementGroupCreateCommand groupCreateCommand, String username) {
@@ -23,5 +27,7 @@ public class InvolvementGroupService {
 
     public void updateInvolvements(Long groupId, Set<Long> involvementKindIds, String userName) {
         involvementGroupDao.updateInvolvements(groupId, involvementKindIds);
+        // permission groups reference involvement groups
+        permissionCache.bumpVersion();
     }
 }
@@ -26,6 +26,8 @@ import org.finos.waltz.model.command.CommandOutcome;
 import org.finos.waltz.model.command.CommandResponse;
 import org.finos.waltz.model.command.ImmutableCommandResponse;
 import org.finos.waltz.model.involvement_kind.*;
+import org.finos.waltz.service.reference_data.ReferenceDataCache;
+import org.finos.waltz.service.reference_data.ReferenceDataSnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -39,23 +41,32 @@ import static org.finos.waltz.common.FunctionUtilities.time;
 public class InvolvementKindService {
 
     private final InvolvementKindDao involvementKindDao;
+    private final ReferenceDataSnapshot<Long, InvolvementKind> involvementKindsSnapshot;
 
 
     @Autowired
-    public InvolvementKindService(InvolvementKindDao involvementKindDao) {
+    public InvolvementKindService(InvolvementKindDao involvementKindDao,
+                                  ReferenceDataCache referenceDataCache) {
         checkNotNull(involvementKindDao, "involvementKindDao cannot be null");
+        checkNotNull(referenceDataCache, "referenceDataCache cannot be null");
 
         this.involvementKindDao = involvementKindDao;
+        this.involvementKindsSnapshot = referenceDataCache.register(
+                "involvement_kind",
+                involvementKindDao::findAll,
+                ik -> ik.id().get());
     }
 
 
     public List<InvolvementKind> findAll() {
-        return involvementKindDao.findAll();
+        return involvementKindsSnapshot.all();
     }
 
 
     public InvolvementKind getById(long id) {
-        return involvementKindDao.getById(id);
+        return involvementKindsSnapshot
+                .get(id)
+                .orElse(null);
     }
 
 
@@ -70,7 +81,9 @@ public class InvolvementKindService {
         checkNotNull(command, "command cannot be null");
         checkNotNull(username, "username cannot be null");
 
-        return involvementKindDao.create(command, username);
+        Long id = involvementKindDao.create(command, username);
+        involvementKindsSnapshot.invalidate();
+        return id;
     }
 
 
@@ -83,6 +96,7 @@ public class InvolvementKindService {
                 .withLastUpdate(UserTimestamp.mkForUser(username));
 
         boolean success = involvementKindDao.update(updateCommand);
+        involvementKindsSnapshot.invalidate();
         return ImmutableCommandResponse.<InvolvementKindChangeCommand>builder()
                 .originalCommand(command)
                 .entityReference(EntityReference.mkRef(EntityKind.INVOLVEMENT_KIND, command.id()))
@@ -92,7 +106,9 @@ public class InvolvementKindService {
 
 
     public boolean delete(long id) {
-        return involvementKindDao.deleteIfNotUsed(id);
+        boolean deleted = involvementKindDao.deleteIfNotUsed(id);
+        involvementKindsSnapshot.invalidate();
+        return deleted;
     }
 
 
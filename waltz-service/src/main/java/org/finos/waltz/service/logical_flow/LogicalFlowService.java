@@ -21,7 +21,6 @@ package org.finos.waltz.service.logical_flow;
 import org.finos.waltz.common.FunctionUtilities;
 import org.finos.waltz.common.SetUtilities;
 import org.finos.waltz.data.DBExecutorPoolInterface;
-import org.finos.waltz.data.application.ApplicationIdSelectorFactory;
 import org.finos.waltz.data.data_type.DataTypeIdSelectorFactory;
 import org.finos.waltz.data.datatype_decorator.LogicalFlowDecoratorDao;
 import org.finos.waltz.data.logical_flow.LogicalFlowDao;
@@ -40,6 +39,7 @@ import org.finos.waltz.service.data_type.DataTypeService;
 import org.finos.waltz.service.involvement.InvolvementService;
 import org.finos.waltz.service.permission.PermissionGroupService;
 import org.finos.waltz.service.permission.permission_checker.FlowPermissionChecker;
+import org.finos.waltz.service.selector.SelectorMaterialisationService;
 import org.finos.waltz.service.usage_info.DataTypeUsageService;
 import org.jooq.Record1;
 import org.jooq.Select;
@@ -89,8 +89,8 @@ public class LogicalFlowService {
     private final InvolvementService involvementService;
     private final PermissionGroupService permissionGroupService;
     private final FlowPermissionChecker flowPermissionChecker;
+    private final SelectorMaterialisationService selectorMaterialisationService;
 
-    private final ApplicationIdSelectorFactory appIdSelectorFactory = new ApplicationIdSelectorFactory();
     private final LogicalFlowIdSelectorFactory logicalFlowIdSelectorFactory = new LogicalFlowIdSelectorFactory();
     private final DataTypeIdSelectorFactory dataTypeIdSelectorFactory = new DataTypeIdSelectorFactory();
 
@@ -105,7 +105,8 @@ public class LogicalFlowService {
                               LogicalFlowDecoratorDao logicalFlowDecoratorDao,
                               InvolvementService involvementService,
                               PermissionGroupService permissionGroupService,
-                              FlowPermissionChecker flowPermissionChecker) {
+                              FlowPermissionChecker flowPermissionChecker,
+                              SelectorMaterialisationService selectorMaterialisationService) {
 
         checkNotNull(changeLogService, "changeLogService cannot be null");
         checkNotNull(dbExecutorPool, "dbExecutorPool cannot be null");
@@ -117,6 +118,7 @@ public class LogicalFlowService {
         checkNotNull(involvementService, "involvementService cannot be null");
         checkNotNull(permissionGroupService, "permissionGroupService cannot be null");
         checkNotNull(flowPermissionChecker, "flowPermissionChecker cannot be null");
+        checkNotNull(selectorMaterialisationService, "selectorMaterialisationService cannot be null");
 
         this.changeLogService = changeLogService;
         this.dataTypeService = dataTypeService;
@@ -128,6 +130,7 @@ public class LogicalFlowService {
         this.logicalFlowDecoratorDao = logicalFlowDecoratorDao;
         this.involvementService = involvementService;
         this.permissionGroupService = permissionGroupService;
+        this.selectorMaterialisationService = selectorMaterialisationService;
     }
 
 
@@ -318,17 +321,18 @@ public class LogicalFlowService {
     private LogicalFlowStatistics calculateStatsForAppIdSelector(IdSelectionOptions options) {
         checkNotNull(options, "options cannot be null");
 
-        Select<Record1<Long>> appIdSelector = appIdSelectorFactory.apply(options);
+        // resolved once (and briefly cached) rather than re-evaluated by each of the stats queries
+        Select<Record1<Long>> appIdSelector = selectorMaterialisationService.getCachedSelector(EntityKind.APPLICATION, options);
 
-        Future<List<TallyPack<String>>> dataTypeCounts = dbExecutorPool.submit(() ->
+        Future<List<TallyPack<String>>> dataTypeCounts = dbExecutorPool.submit("logical-flow-stats", () ->
                 FunctionUtilities.time("DFS.dataTypes",
                     () -> logicalFlowStatsDao.tallyDataTypesByAppIdSelector(appIdSelector)));
 
-        Future<LogicalFlowMeasures> appCounts = dbExecutorPool.submit(() ->
+        Future<LogicalFlowMeasures> appCounts = dbExecutorPool.submit("logical-flow-stats", () ->
                 FunctionUtilities.time("DFS.appCounts",
                     () -> logicalFlowStatsDao.countDistinctAppInvolvementByAppIdSelector(appIdSelector)));
 
-        Future<LogicalFlowMeasures> flowCounts = dbExecutorPool.submit(() ->
+        Future<LogicalFlowMeasures> flowCounts = dbExecutorPool.submit("logical-flow-stats", () ->
                 FunctionUtilities.time("DFS.flowCounts",
                     () -> logicalFlowStatsDao.countDistinctFlowInvolvementByAppIdSelector(appIdSelector)));
 
@@ -22,6 +22,8 @@ import org.finos.waltz.data.measurable_category.MeasurableCategoryDao;
 import org.finos.waltz.model.exceptions.NotAuthorizedException;
 import org.finos.waltz.model.measurable_category.MeasurableCategory;
 import org.finos.waltz.model.user.SystemRole;
+import org.finos.waltz.service.reference_data.ReferenceDataCache;
+import org.finos.waltz.service.reference_data.ReferenceDataSnapshot;
 import org.finos.waltz.service.user.UserRoleService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -30,28 +32,39 @@ import java.util.Collection;
 import java.util.Set;
 
 import static java.lang.String.format;
+import static org.finos.waltz.common.Checks.checkNotNull;
 
 @Service
 public class MeasurableCategoryService {
 
     private final MeasurableCategoryDao measurableCategoryDao;
     private final UserRoleService userRoleService;
+    private final ReferenceDataSnapshot<Long, MeasurableCategory> categoriesSnapshot;
 
 
     @Autowired
-    public MeasurableCategoryService(MeasurableCategoryDao measurableCategoryDao, UserRoleService userRoleService) {
+    public MeasurableCategoryService(MeasurableCategoryDao measurableCategoryDao,
+                                     UserRoleService userRoleService,
+                                     ReferenceDataCache referenceDataCache) {
+        checkNotNull(referenceDataCache, "referenceDataCache cannot be null");
         this.measurableCategoryDao = measurableCategoryDao;
         this.userRoleService = userRoleService;
+        this.categoriesSnapshot = referenceDataCache.register(
+                "measurable_category",
+                measurableCategoryDao::findAll,
+                c -> c.id().get());
     }
 
 
     public Collection<MeasurableCategory> findAll() {
-        return measurableCategoryDao.findAll();
+        return categoriesSnapshot.all();
     }
 
 
     public MeasurableCategory getById(long id) {
-        return measurableCategoryDao.getById(id);
+        return categoriesSnapshot
+                .get(id)
+                .orElse(null);
     }
 
 
@@ -67,7 +80,9 @@ public class MeasurableCategoryService {
 
     public boolean save(MeasurableCategory measurableCategory, String username) {
         ensureUserHasPermission(username);
-        return measurableCategoryDao.save(measurableCategory, username);
+        boolean saved = measurableCategoryDao.save(measurableCategory, username);
+        categoriesSnapshot.invalidate();
+        return saved;
     }
 
 
@@ -0,0 +1,223 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.permission;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.Operation;
+import org.finos.waltz.model.permission_group.CheckPermissionCommand;
+import org.finos.waltz.model.permission_group.Permission;
+import org.finos.waltz.model.permission_group.RequiredInvolvementsResult;
+import org.jooq.lambda.tuple.Tuple5;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+/**
+ * Holds the lookups used to authorise requests: the roles of each user and the
+ * permission group configuration (which is not user specific) of parent entities.
+ *
+ * The cache has an explicit version.  An entry is only served if it was loaded at
+ * the current version and is younger than `MAX_AGE_MS`, the latter guards against
+ * roles or permission groups being altered directly in the database.  The version is
+ * bumped by `UserRoleService` when roles are updated and should be bumped by anything
+ * which alters permission groups (also available via jmx).
+ *
+ * Involvements are deliberately not cached, they change far more frequently than
+ * roles or permission groups.
+ */
+@Service
+@ManagedResource(description = "Cache of user roles and permission group lookups")
+public class PermissionCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PermissionCache.class);
+
+    private static final int MAX_ENTRIES = 10_000;
+    private static final long MAX_AGE_MS = TimeUnit.MINUTES.toMillis(2);
+
+    private final AtomicLong version = new AtomicLong();
+
+    private final ConcurrentMap<String, CachedValue<Set<String>>> rolesByUser = new ConcurrentHashMap<>();
+    private final ConcurrentMap<EntityReference, CachedValue<Set<Permission>>> permissionsByParentRef = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Tuple5<EntityReference, Operation, EntityKind, EntityKind, Long>, CachedValue<RequiredInvolvementsResult>> requiredInvolvements = new ConcurrentHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+
+    public Set<String> getUserRoles(String userName,
+                                    Supplier<Set<String>> loader) {
+        checkNotNull(userName, "userName cannot be null");
+        // user names are matched case insensitively by the user role table
+        return getOrLoad(rolesByUser, userName.toLowerCase(), loader);
+    }
+
+
+    public Set<Permission> getPermissionsForParentReference(EntityReference parentRef,
+                                                            Supplier<Set<Permission>> loader) {
+        checkNotNull(parentRef, "parentRef cannot be null");
+        return getOrLoad(permissionsByParentRef, parentRef, loader);
+    }
+
+
+    /**
+     * The required involvements are independent of the user in the command, so
+     * are shared between users.
+     */
+    public RequiredInvolvementsResult getRequiredInvolvements(CheckPermissionCommand command,
+                                                              Supplier<RequiredInvolvementsResult> loader) {
+        checkNotNull(command, "command cannot be null");
+        return getOrLoad(
+                requiredInvolvements,
+                tuple(command.parentEntityRef(),
+                        command.operation(),
+                        command.subjectKind(),
+                        command.qualifierKind(),
+                        command.qualifierId()),
+                loader);
+    }
+
+
+    /**
+     * Invalidates every cached lookup, should be called whenever roles or
+     * permission groups are altered.
+     *
+     * @return the new version
+     */
+    @ManagedOperation(description = "Invalidate all cached roles and permissions")
+    public long bumpVersion() {
+        return version.incrementAndGet();
+    }
+
+
+    /**
+     * Discards the cached roles of a single user, e.g. when default roles are
+     * assigned to a newly registered user.
+     */
+    public void evictUser(String userName) {
+        checkNotNull(userName, "userName cannot be null");
+        rolesByUser.remove(userName.toLowerCase());
+    }
+
+
+    @ManagedAttribute(description = "Current version, entries loaded at earlier versions are stale")
+    public long getVersion() {
+        return version.get();
+    }
+
+
+    @ManagedAttribute(description = "Number of lookups served from the cache")
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+
+    @ManagedAttribute(description = "Number of lookups which went to the database")
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+
+    @ManagedAttribute(description = "Proportion of lookups served from the cache (0 - 1)")
+    public double getHitRate() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return total == 0
+                ? 0
+                : (double) hits / total;
+    }
+
+
+    @ManagedAttribute(description = "Number of lookups currently held")
+    public int getEntryCount() {
+        return rolesByUser.size() + permissionsByParentRef.size() + requiredInvolvements.size();
+    }
+
+
+    @ManagedOperation(description = "Discard all cached roles and permissions")
+    public void clear() {
+        LOG.warn("Clearing permission cache (via jmx)");
+        rolesByUser.clear();
+        permissionsByParentRef.clear();
+        requiredInvolvements.clear();
+    }
+
+
+    // --- helpers ---
+
+    private <K, V> V getOrLoad(ConcurrentMap<K, CachedValue<V>> entries,
+                               K key,
+                               Supplier<V> loader) {
+        long currentVersion = version.get();
+        CachedValue<V> cached = entries.get(key);
+
+        if (cached != null && cached.isFresh(currentVersion)) {
+            hitCount.incrementAndGet();
+            return cached.value;
+        }
+
+        missCount.incrementAndGet();
+
+        // version captured before loading so a concurrent bump leaves the entry stale
+        V value = loader.get();
+
+        if (entries.size() >= MAX_ENTRIES) {
+            entries.entrySet().removeIf(e -> !e.getValue().isFresh(currentVersion));
+            if (entries.size() >= MAX_ENTRIES) {
+                entries.clear();
+            }
+        }
+
+        entries.put(key, new CachedValue<>(value, currentVersion));
+        return value;
+    }
+
+
+    private static class CachedValue<V> {
+
+        private final V value;
+        private final long version;
+        private final long loadedAt = System.currentTimeMillis();
+
+
+        private CachedValue(V value, long version) {
+            this.value = value;
+            this.version = version;
+        }
+
+
+        private boolean isFresh(long currentVersion) {
+            return version == currentVersion
+                    && System.currentTimeMillis() - loadedAt <= MAX_AGE_MS;
+        }
+    }
+}
@@ -28,15 +28,18 @@ public class PermissionGroupService {
     private final PersonService personService;
     private final PermissionGroupDao permissionGroupDao;
     private final InvolvementService involvementService;
+    private final PermissionCache permissionCache;
 
 
     @Autowired
     public PermissionGroupService(PersonService personService,
                                   PermissionGroupDao permissionGroupDao,
-                                  InvolvementService involvementService) {
+                                  InvolvementService involvementService,
+                                  PermissionCache permissionCache) {
         this.personService = personService;
         this.permissionGroupDao = permissionGroupDao;
         this.involvementService = involvementService;
+        this.permissionCache = permissionCache;
     }
 
 
@@ -49,13 +52,17 @@ public class PermissionGroupService {
             return Collections.emptySet();
         }
 
-        return permissionGroupDao.findPermissionsForParentEntityReference(parentEntityRef);
+        return permissionCache.getPermissionsForParentReference(
+                parentEntityRef,
+                () -> permissionGroupDao.findPermissionsForParentEntityReference(parentEntityRef));
     }
 
 
     public boolean hasPermission(CheckPermissionCommand permissionCommand) {
 
-        RequiredInvolvementsResult required = permissionGroupDao.getRequiredInvolvements(permissionCommand);
+        RequiredInvolvementsResult required = permissionCache.getRequiredInvolvements(
+                permissionCommand,
+                () -> permissionGroupDao.getRequiredInvolvements(permissionCommand));
 
         if (required.areAllUsersAllowed()) {
             return true;
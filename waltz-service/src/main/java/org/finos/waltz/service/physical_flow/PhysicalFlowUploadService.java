@@ -21,20 +21,26 @@ package org.finos.waltz.service.physical_flow;
 import org.finos.waltz.common.Aliases;
 import org.finos.waltz.common.MapUtilities;
 import org.finos.waltz.common.StringUtilities;
+import org.finos.waltz.common.exception.NotFoundException;
+import org.finos.waltz.common.exception.UpdateFailedException;
 import org.finos.waltz.data.actor.ActorDao;
 import org.finos.waltz.data.application.ApplicationDao;
 import org.finos.waltz.data.data_type.DataTypeDao;
+import org.finos.waltz.data.datatype_decorator.PhysicalSpecDecoratorDao;
 import org.finos.waltz.data.logical_flow.LogicalFlowDao;
 import org.finos.waltz.data.physical_flow.PhysicalFlowDao;
 import org.finos.waltz.data.physical_specification.PhysicalSpecificationDao;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.Operation;
+import org.finos.waltz.model.Severity;
 import org.finos.waltz.model.UserTimestamp;
 import org.finos.waltz.model.actor.Actor;
 import org.finos.waltz.model.application.Application;
+import org.finos.waltz.model.changelog.ChangeLog;
+import org.finos.waltz.model.changelog.ImmutableChangeLog;
 import org.finos.waltz.model.command.CommandOutcome;
 import org.finos.waltz.model.datatype.DataType;
-import org.finos.waltz.model.datatype.DataTypeDecorator;
 import org.finos.waltz.model.enum_value.EnumValueKind;
 import org.finos.waltz.model.external_identifier.ExternalIdValue;
 import org.finos.waltz.model.logical_flow.ImmutableLogicalFlow;
@@ -43,30 +49,78 @@ import org.finos.waltz.model.physical_flow.*;
 import org.finos.waltz.model.physical_specification.DataFormatKindValue;
 import org.finos.waltz.model.physical_specification.ImmutablePhysicalSpecification;
 import org.finos.waltz.model.physical_specification.PhysicalSpecification;
+import org.finos.waltz.model.scheduled_job.JobLifecycleStatus;
+import org.finos.waltz.service.changelog.ChangeLogService;
 import org.finos.waltz.service.data_type.DataTypeDecoratorService;
 import org.finos.waltz.service.enum_value.EnumValueAliasService;
+import org.jooq.lambda.tuple.Tuple2;
+import org.jooq.lambda.tuple.Tuple3;
+import org.jooq.lambda.tuple.Tuple6;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import static java.lang.String.format;
 import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.DateTimeUtilities.nowUtc;
-import static org.finos.waltz.common.SetUtilities.fromArray;
+import static org.finos.waltz.common.ListUtilities.partition;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.common.SetUtilities.map;
 import static org.finos.waltz.common.StringUtilities.isEmpty;
 import static org.finos.waltz.common.StringUtilities.lower;
+import static org.finos.waltz.data.JooqUtilities.MAX_BIND_VALUES;
+import static org.finos.waltz.model.EntityReferenceUtilities.safeName;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 
+/**
+ * Validates and uploads physical flows in bulk.
+ *
+ * Uploads are set based: existing logical flows, specifications and physical
+ * flows are resolved with a handful of queries and the missing ones are created
+ * with batched inserts.  Large uploads may be submitted as a background job
+ * (see `submitUpload`) whose progress can be polled, by the submitting user,
+ * via `getJob`.  Jobs run on a small dedicated executor so they do not hold
+ * threads from the shared DB executor (or the calling request thread).
+ */
 @Service
 public class PhysicalFlowUploadService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(PhysicalFlowUploadService.class);
+
+    // each source/target pair binds around six values (kinds, ids and removal checks) in the OR-ed lookup
+    private static final int LOGICAL_FLOW_LOOKUP_CHUNK_SIZE = MAX_BIND_VALUES / 6;
+    private static final long JOB_RETENTION_MINUTES = 60;
+    private static final int MAX_CONCURRENT_JOBS = 2;
+    private static final int MAX_QUEUED_JOBS = 8;
+
     private final ActorDao actorDao;
     private final ApplicationDao applicationDao;
     private final DataTypeDao dataTypeDao;
@@ -74,7 +128,12 @@ public class PhysicalFlowUploadService {
     private final DataTypeDecoratorService dataTypeDecoratorService;
     private final PhysicalFlowDao physicalFlowDao;
     private final PhysicalSpecificationDao physicalSpecificationDao;
+    private final PhysicalSpecDecoratorDao physicalSpecDecoratorDao;
     private final EnumValueAliasService enumValueAliasService;
+    private final ChangeLogService changeLogService;
+    private final ExecutorService jobExecutor;
+
+    private final ConcurrentMap<String, PhysicalFlowUploadJob> jobsById = new ConcurrentHashMap<>();
 
     private final Pattern basisOffsetRegex = Pattern.compile("T?(?<offset>[\\+\\-]?\\d+)");
 
@@ -86,7 +145,9 @@ public class PhysicalFlowUploadService {
                                      DataTypeDecoratorService dataTypeDecoratorService,
                                      PhysicalFlowDao physicalFlowDao,
                                      PhysicalSpecificationDao physicalSpecificationDao,
-                                     EnumValueAliasService enumValueAliasService) {
+                                     PhysicalSpecDecoratorDao physicalSpecDecoratorDao,
+                                     EnumValueAliasService enumValueAliasService,
+                                     ChangeLogService changeLogService) {
         checkNotNull(actorDao, "actorDao cannot be null");
         checkNotNull(applicationDao, "applicationDao cannot be null");
         checkNotNull(dataTypeDao, "dataTypeDao cannot be null");
@@ -94,15 +155,33 @@ public class PhysicalFlowUploadService {
         checkNotNull(logicalFlowDao, "logicalFlowDao cannot be null");
         checkNotNull(physicalFlowDao, "physicalFlowDao cannot be null");
         checkNotNull(physicalSpecificationDao, "physicalSpecificationDao cannot be null");
+        checkNotNull(physicalSpecDecoratorDao, "physicalSpecDecoratorDao cannot be null");
         checkNotNull(enumValueAliasService, "enumValueAliasService cannot be null");
+        checkNotNull(changeLogService, "changeLogService cannot be null");
         this.actorDao = actorDao;
         this.applicationDao = applicationDao;
         this.dataTypeDao = dataTypeDao;
         this.logicalFlowDao = logicalFlowDao;
         this.physicalFlowDao = physicalFlowDao;
         this.physicalSpecificationDao = physicalSpecificationDao;
+        this.physicalSpecDecoratorDao = physicalSpecDecoratorDao;
         this.enumValueAliasService = enumValueAliasService;
         this.dataTypeDecoratorService = dataTypeDecoratorService;
+        this.changeLogService = changeLogService;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.jobExecutor = new ThreadPoolExecutor(
+                MAX_CONCURRENT_JOBS,
+                MAX_CONCURRENT_JOBS,
+                0,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(MAX_QUEUED_JOBS),
+                (runnable) -> {
+                    Thread t = new Thread(runnable, "WaltzPhysicalFlowUpload-" + threadCounter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
     }
 
 
@@ -145,8 +224,11 @@ public class PhysicalFlowUploadService {
         }
 
         // no parse errors - check for duplicates
+        Map<PhysicalFlowParsed, PhysicalFlow> existingFlows = physicalFlowDao.findByParsedFlows(
+                map(parsedFlows, PhysicalFlowUploadCommandResponse::parsedFlow));
+
         List<PhysicalFlowUploadCommandResponse> responses = parsedFlows.stream()
-                .map(f -> Optional.ofNullable(physicalFlowDao.getByParsedFlow(f.parsedFlow()))
+                .map(f -> Optional.ofNullable(existingFlows.get(f.parsedFlow()))
                     .map(m -> (PhysicalFlowUploadCommandResponse) ImmutablePhysicalFlowUploadCommandResponse
                             .copyOf(f)
                             .withEntityReference(m.entityReference()))
@@ -156,54 +238,72 @@ public class PhysicalFlowUploadService {
         return responses;
     }
 
-    
+
     public List<PhysicalFlowUploadCommandResponse> upload(String username,
-                                                          List<PhysicalFlowUploadCommand> cmds) throws Exception {
-        checkNotNull(cmds, "cmds cannot be empty");
+                                                          List<PhysicalFlowUploadCommand> cmds) {
+        return upload(username, cmds, step -> {});
+    }
 
-        // load application and actor maps
-        List<PhysicalFlowUploadCommandResponse> validated = validate(cmds);
 
-        if(validated.stream().anyMatch(v -> v.outcome() == CommandOutcome.FAILURE)) {
-            throw new IllegalArgumentException("Cannot upload flows which contain parse errors, please validate");
-        }
+    /**
+     * Runs the upload as a background job, the returned job id can be used to
+     * poll for progress and, once completed, the upload responses.
+     *
+     * @param username  user performing the upload
+     * @param cmds  upload commands
+     * @return  the newly submitted job
+     * @throws UpdateFailedException  if too many uploads are already waiting to run
+     */
+    public PhysicalFlowUploadJob submitUpload(String username,
+                                              List<PhysicalFlowUploadCommand> cmds) {
+        checkNotNull(username, "username cannot be null");
+        checkNotNull(cmds, "cmds cannot be null");
+
+        removeExpiredJobs();
+
+        PhysicalFlowUploadJob job = ImmutablePhysicalFlowUploadJob
+                .builder()
+                .id(UUID.randomUUID().toString())
+                .status(JobLifecycleStatus.RUNNABLE)
+                .submittedBy(username)
+                .submittedAt(nowUtc())
+                .commandCount(cmds.size())
+                .message("Waiting to start")
+                .build();
 
-        List<PhysicalFlowUploadCommandResponse> newFlowCmds = validated.stream()
-                .filter(v -> v.outcome() == CommandOutcome.SUCCESS && v.entityReference() == null)
-                .collect(toList());
+        try {
+            jobExecutor.submit(() -> runJob(job, username, cmds));
+        } catch (RejectedExecutionException e) {
+            throw new UpdateFailedException(
+                    "UPLOAD_REJECTED",
+                    "Too many physical flow uploads are in progress, please try again later",
+                    e);
+        }
 
-        // create physical flow with ids from the above two
-        List<PhysicalFlowUploadCommandResponse> created = newFlowCmds.stream()
-                .map(v -> {
-                    if (!(v.outcome() == CommandOutcome.SUCCESS && v.entityReference() == null)) {
-                        return v;
-                    }
-
-                    PhysicalFlowParsed flow = v.parsedFlow();
-                    LogicalFlow logicalFlow = getOrCreateLogicalFlow(flow.source(), flow.target(), flow.dataType(), username);
-                    PhysicalSpecification specification = getOrCreatePhysicalSpec(flow, username);
-
-                    PhysicalFlow newFlow = ImmutablePhysicalFlow.builder()
-                            .logicalFlowId(logicalFlow.id().get())
-                            .specificationId(specification.id().get())
-                            .basisOffset(flow.basisOffset())
-                            .frequency(flow.frequency())
-                            .transport(flow.transport())
-                            .criticality(flow.criticality())
-                            .description(flow.description())
-                            .externalId(Optional.ofNullable(flow.externalId()))
-                            .lastUpdatedBy(username)
-                            .lastUpdatedAt(nowUtc())
-                            .build();
+        // the job may already have started (and registered itself as running)
+        jobsById.putIfAbsent(job.id(), job);
 
-                    long id = getOrCreatePhysicalFlow(newFlow);
+        LOG.info("User: {}, submitted physical flow upload job: {} with {} commands", username, job.id(), cmds.size());
+        return job;
+    }
 
-                    return ImmutablePhysicalFlowUploadCommandResponse.copyOf(v)
-                            .withEntityReference(EntityReference.mkRef(EntityKind.PHYSICAL_FLOW, id));
-                })
-                .collect(toList());
 
-        return created;
+    /**
+     * @param username  user requesting the job, only the user who submitted a job may see it
+     * @param jobId  id of a job returned by `submitUpload`
+     * @return  current state of the job
+     * @throws NotFoundException  if the job is unknown, has expired or was submitted by another user
+     */
+    public PhysicalFlowUploadJob getJob(String username, String jobId) {
+        checkNotNull(username, "username cannot be null");
+
+        return Optional
+                .ofNullable(jobId)
+                .map(jobsById::get)
+                .filter(job -> job.submittedBy().equals(username))
+                .orElseThrow(() -> new NotFoundException(
+                        "PHYSICAL_FLOW_UPLOAD_JOB_NOT_FOUND",
+                        format("Physical flow upload job: %s not found", jobId)));
     }
 
 
@@ -383,91 +483,361 @@ public class PhysicalFlowUploadService {
     }
 
 
-    private LogicalFlow getOrCreateLogicalFlow(EntityReference source,
-                                               EntityReference target,
-                                               EntityReference dataType,
-                                               String username) {
+    private List<PhysicalFlowUploadCommandResponse> upload(String username,
+                                                           List<PhysicalFlowUploadCommand> cmds,
+                                                           Consumer<String> progress) {
+        checkNotNull(cmds, "cmds cannot be empty");
 
-        LogicalFlow flow = logicalFlowDao.getBySourceAndTarget(source, target);
+        progress.accept("Validating flows");
+        List<PhysicalFlowUploadCommandResponse> validated = validate(cmds);
 
-        if (flow == null) {
-            LocalDateTime now = nowUtc();
+        if(validated.stream().anyMatch(v -> v.outcome() == CommandOutcome.FAILURE)) {
+            throw new IllegalArgumentException("Cannot upload flows which contain parse errors, please validate");
+        }
 
-            LogicalFlow flowToAdd = ImmutableLogicalFlow.builder()
-                    .source(source)
-                    .target(target)
-                    .lastUpdatedBy(username)
-                    .lastUpdatedAt(now)
-                    .provenance("waltz")
-                    .created(UserTimestamp.mkForUser(username, now))
-                    .build();
+        List<PhysicalFlowUploadCommandResponse> newFlowCmds = validated.stream()
+                .filter(v -> v.outcome() == CommandOutcome.SUCCESS && v.entityReference() == null)
+                .collect(toList());
 
-            flow = logicalFlowDao.addFlow(flowToAdd);
+        List<PhysicalFlowParsed> flows = newFlowCmds
+                .stream()
+                .map(PhysicalFlowUploadCommandResponse::parsedFlow)
+                .collect(toList());
+
+        LocalDateTime now = nowUtc();
+        List<ChangeLog> changeLogs = new ArrayList<>();
+
+        progress.accept("Resolving logical flows");
+        Map<Tuple2<EntityReference, EntityReference>, LogicalFlow> logicalFlows = getOrCreateLogicalFlows(flows, username, now, changeLogs);
+
+        progress.accept("Resolving physical specifications");
+        Map<Tuple3<EntityReference, DataFormatKindValue, String>, PhysicalSpecification> specs = getOrCreatePhysicalSpecs(flows, username, now, changeLogs);
+
+        progress.accept("Adding data types");
+        addMissingLogicalFlowDataTypes(flows, logicalFlows, username);
+        addMissingSpecificationDataTypes(flows, specs, username);
+
+        progress.accept("Creating physical flows");
+        List<Long> physicalFlowIds = getOrCreatePhysicalFlows(flows, logicalFlows, specs, username, now, changeLogs);
+
+        if (!changeLogs.isEmpty()) {
+            progress.accept("Writing change log");
+            changeLogService.write(changeLogs);
+        }
+
+        LOG.info(
+                "User: {}, uploaded {} physical flows ({} already existed), {} change log entries written",
+                username,
+                flows.size(),
+                validated.size() - flows.size(),
+                changeLogs.size());
+
+        List<PhysicalFlowUploadCommandResponse> created = new ArrayList<>(newFlowCmds.size());
+        for (int i = 0; i < newFlowCmds.size(); i++) {
+            created.add(ImmutablePhysicalFlowUploadCommandResponse
+                    .copyOf(newFlowCmds.get(i))
+                    .withEntityReference(EntityReference.mkRef(EntityKind.PHYSICAL_FLOW, physicalFlowIds.get(i))));
         }
 
+        return created;
+    }
 
-        EntityReference logicalFlowEntityRef = EntityReference.mkRef(EntityKind.LOGICAL_DATA_FLOW, flow.id().get());
-        DataTypeDecorator existingDecorator = dataTypeDecoratorService.getByEntityRefAndDataTypeId(
-                logicalFlowEntityRef,
-                dataType.id());
 
-        if(existingDecorator == null) {
-            dataTypeDecoratorService
-                    .addDecorators(username, logicalFlowEntityRef, fromArray(dataType.id()));
+    private void runJob(PhysicalFlowUploadJob submittedJob,
+                        String username,
+                        List<PhysicalFlowUploadCommand> cmds) {
+        String jobId = submittedJob.id();
+        jobsById.put(jobId, ImmutablePhysicalFlowUploadJob.copyOf(submittedJob).withStatus(JobLifecycleStatus.RUNNING));
+        try {
+            List<PhysicalFlowUploadCommandResponse> responses = upload(
+                    username,
+                    cmds,
+                    step -> updateJob(jobId, job -> job.withMessage(step)));
+
+            updateJob(jobId, job -> job
+                    .withStatus(JobLifecycleStatus.COMPLETED)
+                    .withCompletedAt(nowUtc())
+                    .withMessage(format("Created %d physical flows", responses.size()))
+                    .withResponses(responses));
+        } catch (RuntimeException e) {
+            LOG.error(format("Physical flow upload job: %s failed", jobId), e);
+            updateJob(jobId, job -> job
+                    .withStatus(JobLifecycleStatus.ERRORED)
+                    .withCompletedAt(nowUtc())
+                    .withMessage(Optional.ofNullable(e.getMessage()).orElse(e.getClass().getSimpleName())));
         }
-        return flow;
     }
 
 
-    private PhysicalSpecification getOrCreatePhysicalSpec(PhysicalFlowParsed flow,
-                                                          String username) {
-        EntityReference owner = flow.owner();
-        DataFormatKindValue format = flow.format();
-        String name = flow.name();
-
-
-        // check database
-        PhysicalSpecification spec = physicalSpecificationDao.getByParsedFlow(flow);
-        if (spec == null) {
-
-            // create
-            LocalDateTime now = nowUtc();
-            PhysicalSpecification specToAdd = ImmutablePhysicalSpecification.builder()
-                    .owningEntity(owner)
-                    .format(format)
-                    .name(name)
-                    .externalId(Optional.ofNullable(flow.specExternalId()).orElse(""))
-                    .description(Optional.ofNullable(flow.specDescription()).orElse(""))
-                    .lastUpdatedBy(username)
-                    .lastUpdatedAt(now)
-                    .provenance("waltz")
-                    .created(UserTimestamp.mkForUser(username, now))
-                    .build();
-
-            Long id = physicalSpecificationDao.create(specToAdd);
-            spec = ImmutablePhysicalSpecification
-                    .copyOf(specToAdd)
-                    .withId(id);
+    private void updateJob(String jobId, Function<ImmutablePhysicalFlowUploadJob, PhysicalFlowUploadJob> updateFn) {
+        jobsById.computeIfPresent(
+                jobId,
+                (id, job) -> updateFn.apply(ImmutablePhysicalFlowUploadJob.copyOf(job)));
+    }
+
+
+    private void removeExpiredJobs() {
+        LocalDateTime expiry = nowUtc().minusMinutes(JOB_RETENTION_MINUTES);
+        jobsById
+                .values()
+                .removeIf(job -> job.completedAt()
+                        .map(completedAt -> completedAt.isBefore(expiry))
+                        .orElse(false));
+    }
+
+
+    private Map<Tuple2<EntityReference, EntityReference>, LogicalFlow> getOrCreateLogicalFlows(List<PhysicalFlowParsed> flows,
+                                                                                                String username,
+                                                                                                LocalDateTime now,
+                                                                                                List<ChangeLog> changeLogs) {
+        List<Tuple2<EntityReference, EntityReference>> sourcesAndTargets = flows
+                .stream()
+                .map(f -> tuple(f.source(), f.target()))
+                .distinct()
+                .collect(toList());
+
+        Map<Tuple2<EntityReference, EntityReference>, LogicalFlow> logicalFlows = new HashMap<>();
+
+        for (int from = 0; from < sourcesAndTargets.size(); from += LOGICAL_FLOW_LOOKUP_CHUNK_SIZE) {
+            List<Tuple2<EntityReference, EntityReference>> chunk = sourcesAndTargets.subList(
+                    from,
+                    Math.min(from + LOGICAL_FLOW_LOOKUP_CHUNK_SIZE, sourcesAndTargets.size()));
+
+            logicalFlowDao
+                    .findBySourcesAndTargets(chunk)
+                    .forEach(f -> logicalFlows.put(tuple(f.source(), f.target()), f));
+
+            Set<LogicalFlow> flowsToAdd = chunk
+                    .stream()
+                    .filter(t -> !logicalFlows.containsKey(t))
+                    .map(t -> ImmutableLogicalFlow.builder()
+                            .source(t.v1)
+                            .target(t.v2)
+                            .lastUpdatedBy(username)
+                            .lastUpdatedAt(now)
+                            .provenance("waltz")
+                            .created(UserTimestamp.mkForUser(username, now))
+                            .build())
+                    .collect(toSet());
+
+            if (!flowsToAdd.isEmpty()) {
+                // also restores previously removed flows
+                logicalFlowDao
+                        .addFlows(flowsToAdd, username)
+                        .forEach(f -> {
+                            logicalFlows.put(tuple(f.source(), f.target()), f);
+                            changeLogs.addAll(mkChangeLogs(
+                                    asSet(f.entityReference(), f.source(), f.target()),
+                                    format("Logical flow from: %s, to: %s: added via bulk upload", safeName(f.source()), safeName(f.target())),
+                                    EntityKind.LOGICAL_DATA_FLOW,
+                                    username));
+                        });
+            }
         }
 
-        long dataTypeId = flow.dataType().id();
-        EntityReference specificationEntityRef = EntityReference.mkRef(EntityKind.PHYSICAL_SPECIFICATION, spec.id().get());
+        return logicalFlows;
+    }
+
 
-        DataTypeDecorator existingDataType = dataTypeDecoratorService.getByEntityRefAndDataTypeId(specificationEntityRef, dataTypeId);
-        if(existingDataType == null) {
-            dataTypeDecoratorService.addDecorators(username, specificationEntityRef, fromArray(dataTypeId));
+    private Map<Tuple3<EntityReference, DataFormatKindValue, String>, PhysicalSpecification> getOrCreatePhysicalSpecs(List<PhysicalFlowParsed> flows,
+                                                                                                                     String username,
+                                                                                                                     LocalDateTime now,
+                                                                                                                     List<ChangeLog> changeLogs) {
+        Map<Tuple3<EntityReference, DataFormatKindValue, String>, PhysicalSpecification> specs = new HashMap<>();
+
+        physicalSpecificationDao
+                .findActiveByOwningEntities(map(flows, PhysicalFlowParsed::owner))
+                .forEach(spec -> specs.putIfAbsent(toSpecKey(spec), spec));
+
+        Map<Tuple3<EntityReference, DataFormatKindValue, String>, PhysicalSpecification> specsToAdd = new LinkedHashMap<>();
+        flows.forEach(flow -> {
+            Tuple3<EntityReference, DataFormatKindValue, String> key = tuple(flow.owner(), flow.format(), flow.name());
+            if (!specs.containsKey(key)) {
+                specsToAdd.computeIfAbsent(key, k -> ImmutablePhysicalSpecification.builder()
+                        .owningEntity(flow.owner())
+                        .format(flow.format())
+                        .name(flow.name())
+                        .externalId(Optional.ofNullable(flow.specExternalId()).orElse(""))
+                        .description(Optional.ofNullable(flow.specDescription()).orElse(""))
+                        .lastUpdatedBy(username)
+                        .lastUpdatedAt(now)
+                        .provenance("waltz")
+                        .created(UserTimestamp.mkForUser(username, now))
+                        .build());
+            }
+        });
+
+        List<PhysicalSpecification> newSpecs = new ArrayList<>(specsToAdd.values());
+        List<Long> newSpecIds = physicalSpecificationDao.createAll(newSpecs);
+
+        for (int i = 0; i < newSpecs.size(); i++) {
+            PhysicalSpecification spec = ImmutablePhysicalSpecification
+                    .copyOf(newSpecs.get(i))
+                    .withId(newSpecIds.get(i));
+
+            specs.put(toSpecKey(spec), spec);
+            changeLogs.addAll(mkChangeLogs(
+                    asSet(spec.entityReference()),
+                    format("Physical spec: %s: added via bulk upload", spec.name()),
+                    EntityKind.PHYSICAL_SPECIFICATION,
+                    username));
         }
-        return spec;
+
+        return specs;
     }
 
 
-    private long getOrCreatePhysicalFlow(PhysicalFlow newFlow) {
-        PhysicalFlow existing = physicalFlowDao.matchPhysicalFlow(newFlow);
-        if (existing != null) {
-            return existing.id().get();
-        } else {
-            return physicalFlowDao.create(newFlow);
+    private void addMissingLogicalFlowDataTypes(List<PhysicalFlowParsed> flows,
+                                                Map<Tuple2<EntityReference, EntityReference>, LogicalFlow> logicalFlows,
+                                                String username) {
+        Set<Long> logicalFlowIds = map(logicalFlows.values(), f -> f.id().get());
+
+        Set<Tuple2<Long, Long>> existing = partition(logicalFlowIds, MAX_BIND_VALUES)
+                .stream()
+                .flatMap(ids -> dataTypeDecoratorService.findByFlowIds(ids, EntityKind.LOGICAL_DATA_FLOW).stream())
+                .map(d -> tuple(d.dataFlowId(), d.dataTypeId()))
+                .collect(toSet());
+
+        Map<Long, Set<Long>> missing = new HashMap<>();
+        flows.forEach(flow -> {
+            long logicalFlowId = logicalFlows.get(tuple(flow.source(), flow.target())).id().get();
+            long dataTypeId = flow.dataType().id();
+            if (!existing.contains(tuple(logicalFlowId, dataTypeId))) {
+                missing.computeIfAbsent(logicalFlowId, k -> new HashSet<>()).add(dataTypeId);
+            }
+        });
+
+        dataTypeDecoratorService.addDecorators(username, EntityKind.LOGICAL_DATA_FLOW, missing);
+    }
+
+
+    private void addMissingSpecificationDataTypes(List<PhysicalFlowParsed> flows,
+                                                  Map<Tuple3<EntityReference, DataFormatKindValue, String>, PhysicalSpecification> specs,
+                                                  String username) {
+        Set<Long> specIds = map(specs.values(), s -> s.id().get());
+
+        Set<Tuple2<Long, Long>> existing = map(
+                physicalSpecDecoratorDao.findBySpecificationIds(specIds),
+                d -> tuple(d.dataFlowId(), d.dataTypeId()));
+
+        Map<Long, Set<Long>> missing = new HashMap<>();
+        flows.forEach(flow -> {
+            long specId = specs.get(tuple(flow.owner(), flow.format(), flow.name())).id().get();
+            long dataTypeId = flow.dataType().id();
+            if (!existing.contains(tuple(specId, dataTypeId))) {
+                missing.computeIfAbsent(specId, k -> new HashSet<>()).add(dataTypeId);
+            }
+        });
+
+        dataTypeDecoratorService.addDecorators(username, EntityKind.PHYSICAL_SPECIFICATION, missing);
+    }
+
+
+    /**
+     * @return  physical flow ids, in the same order as the given (parsed) flows
+     */
+    private List<Long> getOrCreatePhysicalFlows(List<PhysicalFlowParsed> flows,
+                                                Map<Tuple2<EntityReference, EntityReference>, LogicalFlow> logicalFlows,
+                                                Map<Tuple3<EntityReference, DataFormatKindValue, String>, PhysicalSpecification> specs,
+                                                String username,
+                                                LocalDateTime now,
+                                                List<ChangeLog> changeLogs) {
+        List<PhysicalFlow> candidates = flows
+                .stream()
+                .map(flow -> ImmutablePhysicalFlow.builder()
+                        .logicalFlowId(logicalFlows.get(tuple(flow.source(), flow.target())).id().get())
+                        .specificationId(specs.get(tuple(flow.owner(), flow.format(), flow.name())).id().get())
+                        .basisOffset(flow.basisOffset())
+                        .frequency(flow.frequency())
+                        .transport(flow.transport())
+                        .criticality(flow.criticality())
+                        .description(flow.description())
+                        .externalId(Optional.ofNullable(flow.externalId()))
+                        .lastUpdatedBy(username)
+                        .lastUpdatedAt(now)
+                        .build())
+                .collect(toList());
+
+        Map<Tuple6<Long, Long, Integer, FrequencyKindValue, TransportKindValue, CriticalityValue>, Long> idsByKey = new HashMap<>();
+
+        physicalFlowDao
+                .findByLogicalFlowIds(map(candidates, PhysicalFlow::logicalFlowId))
+                .forEach(f -> idsByKey.putIfAbsent(toPhysicalFlowKey(f), f.id().get()));
+
+        Map<Tuple6<Long, Long, Integer, FrequencyKindValue, TransportKindValue, CriticalityValue>, PhysicalFlow> flowsToAdd = new LinkedHashMap<>();
+        candidates
+                .stream()
+                .filter(f -> !idsByKey.containsKey(toPhysicalFlowKey(f)))
+                .forEach(f -> flowsToAdd.putIfAbsent(toPhysicalFlowKey(f), f));
+
+        List<PhysicalFlow> newFlows = new ArrayList<>(flowsToAdd.values());
+        List<Long> newFlowIds = physicalFlowDao.createAll(newFlows);
+
+        Map<Long, LogicalFlow> logicalFlowsById = new HashMap<>();
+        logicalFlows.values().forEach(f -> logicalFlowsById.put(f.id().get(), f));
+        Map<Long, PhysicalSpecification> specsById = new HashMap<>();
+        specs.values().forEach(s -> specsById.put(s.id().get(), s));
+
+        for (int i = 0; i < newFlows.size(); i++) {
+            PhysicalFlow flow = ImmutablePhysicalFlow
+                    .copyOf(newFlows.get(i))
+                    .withId(newFlowIds.get(i));
+
+            idsByKey.put(toPhysicalFlowKey(flow), flow.id().get());
+
+            LogicalFlow logicalFlow = logicalFlowsById.get(flow.logicalFlowId());
+            changeLogs.addAll(mkChangeLogs(
+                    asSet(flow.entityReference(), logicalFlow.entityReference(), logicalFlow.source(), logicalFlow.target()),
+                    format("Physical flow: %s, from: %s, to: %s: added via bulk upload",
+                            specsById.get(flow.specificationId()).name(),
+                            safeName(logicalFlow.source()),
+                            safeName(logicalFlow.target())),
+                    EntityKind.PHYSICAL_FLOW,
+                    username));
         }
+
+        return candidates
+                .stream()
+                .map(f -> idsByKey.get(toPhysicalFlowKey(f)))
+                .collect(toList());
+    }
+
+
+    private static Tuple3<EntityReference, DataFormatKindValue, String> toSpecKey(PhysicalSpecification spec) {
+        return tuple(spec.owningEntity(), spec.format(), spec.name());
+    }
+
+
+    /**
+     * Attributes used to determine if a physical flow already exists, as per `PhysicalFlowDao.matchPhysicalFlow`
+     */
+    private static Tuple6<Long, Long, Integer, FrequencyKindValue, TransportKindValue, CriticalityValue> toPhysicalFlowKey(PhysicalFlow flow) {
+        return tuple(
+                flow.logicalFlowId(),
+                flow.specificationId(),
+                flow.basisOffset(),
+                flow.frequency(),
+                flow.transport(),
+                flow.criticality());
+    }
+
+
+    private static List<ChangeLog> mkChangeLogs(Collection<EntityReference> refs,
+                                                String message,
+                                                EntityKind childKind,
+                                                String username) {
+        return refs
+                .stream()
+                .map(ref -> (ChangeLog) ImmutableChangeLog
+                        .builder()
+                        .parentReference(ref)
+                        .message(message)
+                        .severity(Severity.INFORMATION)
+                        .userId(username)
+                        .childKind(childKind)
+                        .operation(Operation.ADD)
+                        .build())
+                .collect(toList());
     }
 
 
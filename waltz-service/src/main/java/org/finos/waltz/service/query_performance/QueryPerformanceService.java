@@ -0,0 +1,100 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.query_performance;
+
+import org.finos.waltz.model.query_performance.QueryPerformanceSummary;
+import org.finos.waltz.service.QueryStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+import static java.lang.String.format;
+import static java.util.stream.Collectors.toList;
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+@Service
+@ManagedResource(description = "Sql execution timings, by query fingerprint and by dao method")
+public class QueryPerformanceService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QueryPerformanceService.class);
+    private static final int JMX_SUMMARY_LIMIT = 20;
+
+    private final QueryStatistics queryStatistics;
+
+
+    @Autowired
+    public QueryPerformanceService(QueryStatistics queryStatistics) {
+        checkNotNull(queryStatistics, "queryStatistics cannot be null");
+        this.queryStatistics = queryStatistics;
+    }
+
+
+    public List<QueryPerformanceSummary> findByFingerprint() {
+        return queryStatistics.summariseByFingerprint();
+    }
+
+
+    public List<QueryPerformanceSummary> findByDaoMethod() {
+        return queryStatistics.summariseByDaoMethod();
+    }
+
+
+    @ManagedAttribute(description = "Slowest (by p95) query fingerprints")
+    public List<String> getWorstQueries() {
+        return toDescriptions(findByFingerprint());
+    }
+
+
+    @ManagedAttribute(description = "Slowest (by p95) dao methods")
+    public List<String> getWorstDaoMethods() {
+        return toDescriptions(findByDaoMethod());
+    }
+
+
+    @ManagedOperation(description = "Discard all recorded sql timings")
+    public void reset() {
+        LOG.info("Resetting query performance statistics");
+        queryStatistics.reset();
+    }
+
+
+    // --- helpers ---
+
+    private static List<String> toDescriptions(List<QueryPerformanceSummary> summaries) {
+        return summaries
+                .stream()
+                .limit(JMX_SUMMARY_LIMIT)
+                .map(s -> format(
+                        "p50: %.1fms, p95: %.1fms, p99: %.1fms, max: %.1fms, count: %d, rows: %d - %s",
+                        s.p50Millis(),
+                        s.p95Millis(),
+                        s.p99Millis(),
+                        s.maxMillis(),
+                        s.executionCount(),
+                        s.rowsFetched(),
+                        s.key()))
+                .collect(toList());
+    }
+}
@@ -23,34 +23,56 @@ import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.rating.RatingScheme;
 import org.finos.waltz.model.rating.RatingSchemeItem;
 import org.finos.waltz.model.rating.RatingSchemeItemUsageCount;
+import org.finos.waltz.service.reference_data.ReferenceDataCache;
+import org.finos.waltz.service.reference_data.ReferenceDataSnapshot;
 import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
+import static java.util.stream.Collectors.toSet;
+import static org.finos.waltz.common.Checks.checkNotNull;
+
 @Service
 public class RatingSchemeService {
 
     private final RatingSchemeDAO ratingSchemeDAO;
+    private final ReferenceDataSnapshot<Long, RatingScheme> schemesSnapshot;
+    private final ReferenceDataSnapshot<Long, RatingSchemeItem> itemsSnapshot;
 
     @Autowired
-    public RatingSchemeService(RatingSchemeDAO ratingSchemeDAO) {
+    public RatingSchemeService(RatingSchemeDAO ratingSchemeDAO,
+                               ReferenceDataCache referenceDataCache) {
+        checkNotNull(ratingSchemeDAO, "ratingSchemeDAO cannot be null");
+        checkNotNull(referenceDataCache, "referenceDataCache cannot be null");
+
         this.ratingSchemeDAO = ratingSchemeDAO;
+        this.schemesSnapshot = referenceDataCache.register(
+                "rating_scheme",
+                ratingSchemeDAO::findAll,
+                s -> s.id().get());
+        this.itemsSnapshot = referenceDataCache.register(
+                "rating_scheme_item",
+                () -> ratingSchemeDAO.fetchItems(DSL.trueCondition()),
+                item -> item.id().get());
     }
 
     public Collection<RatingScheme> findAll() {
-        return ratingSchemeDAO.findAll();
+        return schemesSnapshot.all();
     }
 
     public RatingScheme getById(long id) {
-        return ratingSchemeDAO.getById(id);
+        return schemesSnapshot
+                .get(id)
+                .orElseGet(() -> ratingSchemeDAO.getById(id));
     }
 
     public List<RatingSchemeItem> findAllRatingSchemeItems() {
-        return ratingSchemeDAO.fetchItems(DSL.trueCondition());
+        return itemsSnapshot.all();
     }
 
     public List<RatingSchemeItem> findRatingSchemeItemsByAssessmentDefinition(long assessmentDefinitionId) {
@@ -62,22 +84,34 @@ public class RatingSchemeService {
     }
 
     public Set<RatingSchemeItem> findRatingSchemeItemsByIds(Set<Long> ids) {
-        return ratingSchemeDAO.findRatingSchemeItemsByIds(ids);
+        checkNotNull(ids, "ids cannot be null");
+        return ids
+                .stream()
+                .map(itemsSnapshot::get)
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .collect(toSet());
     }
 
 
     public Boolean save(RatingScheme scheme) {
-        return ratingSchemeDAO.save(scheme);
+        Boolean result = ratingSchemeDAO.save(scheme);
+        invalidateSnapshots();
+        return result;
     }
 
 
     public Long saveRatingItem(long schemeId, RatingSchemeItem item) {
-        return ratingSchemeDAO.saveRatingItem(schemeId, item);
+        Long result = ratingSchemeDAO.saveRatingItem(schemeId, item);
+        invalidateSnapshots();
+        return result;
     }
 
 
     public Boolean removeRatingItem(long itemId) {
-        return ratingSchemeDAO.removeRatingItem(itemId);
+        Boolean result = ratingSchemeDAO.removeRatingItem(itemId);
+        invalidateSnapshots();
+        return result;
     }
 
 
@@ -86,6 +120,15 @@ public class RatingSchemeService {
     }
 
     public Boolean removeRatingScheme(long id) {
-        return ratingSchemeDAO.removeRatingScheme(id);
+        Boolean result = ratingSchemeDAO.removeRatingScheme(id);
+        invalidateSnapshots();
+        return result;
+    }
+
+
+    // schemes embed their items, so both are invalidated together
+    private void invalidateSnapshots() {
+        schemesSnapshot.invalidate();
+        itemsSnapshot.invalidate();
     }
 }
@@ -0,0 +1,165 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.reference_data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.Checks.checkTrue;
+
+/**
+ * Holds snapshots of small, rarely changing reference tables (settings, data types,
+ * rating schemes, involvement kinds, measurable categories etc) so that lookups
+ * against them do not require a database round trip.
+ *
+ * Each owning service registers a `ReferenceDataSnapshot` for its table and is
+ * responsible for invalidating it whenever it writes to that table.  Snapshots
+ * older than `MAX_AGE_MS` are reloaded on next access to pick up edits made
+ * directly in the database.
+ */
+@Service
+@ManagedResource(description = "Snapshots of reference data tables (settings, data types, rating schemes etc)")
+public class ReferenceDataCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReferenceDataCache.class);
+
+    private static final long MAX_AGE_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private final long maxAgeMs;
+    private final LongSupplier clock;
+    private final Map<String, ReferenceDataSnapshot<?, ?>> snapshotsByName = new ConcurrentSkipListMap<>();
+
+
+    public ReferenceDataCache() {
+        this(MAX_AGE_MS, System::currentTimeMillis);
+    }
+
+
+    ReferenceDataCache(long maxAgeMs, LongSupplier clock) {
+        checkNotNull(clock, "clock cannot be null");
+        this.maxAgeMs = maxAgeMs;
+        this.clock = clock;
+    }
+
+
+    /**
+     * Registers a snapshot of a reference table.  Nothing is loaded until the
+     * snapshot is first read.
+     *
+     * @param name  unique name of the snapshot, typically the table name
+     * @param loader  loads the entire table
+     * @param keyFn  derives the lookup key of an item
+     * @return the snapshot, owned by the caller
+     */
+    public <K, T> ReferenceDataSnapshot<K, T> register(String name,
+                                                       Supplier<? extends Collection<T>> loader,
+                                                       Function<T, K> keyFn) {
+        checkNotNull(name, "name cannot be null");
+
+        ReferenceDataSnapshot<K, T> snapshot = new ReferenceDataSnapshot<>(
+                name,
+                loader,
+                keyFn,
+                maxAgeMs,
+                clock);
+
+        ReferenceDataSnapshot<?, ?> existing = snapshotsByName.putIfAbsent(name, snapshot);
+        checkTrue(existing == null, "Reference data snapshot: '%s' has already been registered", name);
+
+        return snapshot;
+    }
+
+
+    @ManagedOperation(description = "Invalidate every reference data snapshot")
+    public void invalidateAll() {
+        snapshotsByName.values().forEach(ReferenceDataSnapshot::invalidate);
+    }
+
+
+    @ManagedOperation(description = "Invalidate a single reference data snapshot, by name")
+    public boolean invalidate(String name) {
+        ReferenceDataSnapshot<?, ?> snapshot = snapshotsByName.get(name);
+        if (snapshot == null) {
+            return false;
+        } else {
+            LOG.info("Invalidating reference data snapshot: {} (via jmx)", name);
+            snapshot.invalidate();
+            return true;
+        }
+    }
+
+
+    @ManagedAttribute(description = "Number of lookups served from a snapshot, across all snapshots")
+    public long getHitCount() {
+        return sum(ReferenceDataSnapshot::getHitCount);
+    }
+
+
+    @ManagedAttribute(description = "Number of lookups which (re)loaded a snapshot, across all snapshots")
+    public long getMissCount() {
+        return sum(ReferenceDataSnapshot::getMissCount);
+    }
+
+
+    @ManagedAttribute(description = "Proportion of lookups served from a snapshot (0 - 1)")
+    public double getHitRate() {
+        long hits = getHitCount();
+        long total = hits + getMissCount();
+        return total == 0
+                ? 0
+                : (double) hits / total;
+    }
+
+
+    @ManagedAttribute(description = "Size, age and hit/miss counts of each snapshot")
+    public List<String> getSnapshotStatistics() {
+        return snapshotsByName
+                .values()
+                .stream()
+                .map(ReferenceDataSnapshot::toString)
+                .collect(Collectors.toList());
+    }
+
+
+    // --- helpers ---
+
+    private long sum(ToLongFunction<ReferenceDataSnapshot<?, ?>> stat) {
+        return snapshotsByName
+                .values()
+                .stream()
+                .mapToLong(stat)
+                .sum();
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.reference_data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * An immutable copy of an entire reference table, indexed by key.
+ *
+ * Readers always see a complete snapshot, it is never modified in place.  Writes
+ * made through the owning service call `invalidate` and the next read loads a
+ * replacement which is then swapped in.  Edits made directly in the database are
+ * picked up once the snapshot is older than its maximum age.
+ *
+ * Instances are obtained via `ReferenceDataCache#register`.
+ *
+ * @param <K> type of the key used to look up individual items (typically an id or name)
+ * @param <T> type of the items held
+ */
+public class ReferenceDataSnapshot<K, T> {
+
+    private final String name;
+    private final Supplier<? extends Collection<T>> loader;
+    private final Function<T, K> keyFn;
+    private final long maxAgeMs;
+    private final LongSupplier clock;
+
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Contents<K, T> contents;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+
+    ReferenceDataSnapshot(String name,
+                          Supplier<? extends Collection<T>> loader,
+                          Function<T, K> keyFn,
+                          long maxAgeMs,
+                          LongSupplier clock) {
+        checkNotNull(name, "name cannot be null");
+        checkNotNull(loader, "loader cannot be null");
+        checkNotNull(keyFn, "keyFn cannot be null");
+        checkNotNull(clock, "clock cannot be null");
+
+        this.name = name;
+        this.loader = loader;
+        this.keyFn = keyFn;
+        this.maxAgeMs = maxAgeMs;
+        this.clock = clock;
+    }
+
+
+    /**
+     * @return every item in the table, in the order given by the loader (unmodifiable)
+     */
+    public List<T> all() {
+        return current().items;
+    }
+
+
+    public Optional<T> get(K key) {
+        return Optional.ofNullable(current().itemsByKey.get(key));
+    }
+
+
+    /**
+     * @return the first item (in load order) satisfying the predicate
+     */
+    public Optional<T> find(Predicate<T> predicate) {
+        checkNotNull(predicate, "predicate cannot be null");
+        return current()
+                .items
+                .stream()
+                .filter(predicate)
+                .findFirst();
+    }
+
+
+    /**
+     * Discards the current snapshot, the next read will reload it.
+     * Should be called after every write to the underlying table.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        invalidationCount.incrementAndGet();
+        contents = null;
+    }
+
+
+    public String getName() {
+        return name;
+    }
+
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+
+    public long getInvalidationCount() {
+        return invalidationCount.get();
+    }
+
+
+    public int getSize() {
+        Contents<K, T> c = contents;
+        return c == null
+                ? 0
+                : c.items.size();
+    }
+
+
+    /**
+     * @return age of the current snapshot in millis, or -1 if nothing is loaded
+     */
+    public long getAgeMs() {
+        Contents<K, T> c = contents;
+        return c == null
+                ? -1
+                : clock.getAsLong() - c.loadedAt;
+    }
+
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%s: size=%d, ageMs=%d, hits=%d, misses=%d, invalidations=%d",
+                name,
+                getSize(),
+                getAgeMs(),
+                getHitCount(),
+                getMissCount(),
+                getInvalidationCount());
+    }
+
+
+    // --- helpers ---
+
+    private Contents<K, T> current() {
+        Contents<K, T> c = contents;
+        if (isFresh(c)) {
+            hitCount.incrementAndGet();
+            return c;
+        }
+        return reload();
+    }
+
+
+    private synchronized Contents<K, T> reload() {
+        Contents<K, T> c = contents;
+        if (isFresh(c)) {
+            // another thread reloaded whilst we were waiting
+            hitCount.incrementAndGet();
+            return c;
+        }
+
+        missCount.incrementAndGet();
+
+        // generation captured before loading so a concurrent invalidation is not lost
+        long loadGeneration = generation.get();
+        Contents<K, T> loaded = load(loadGeneration);
+
+        if (generation.get() == loadGeneration) {
+            contents = loaded;
+        }
+
+        return loaded;
+    }
+
+
+    private Contents<K, T> load(long loadGeneration) {
+        List<T> items = new ArrayList<>(loader.get());
+        Map<K, T> itemsByKey = new LinkedHashMap<>();
+        items.forEach(item -> itemsByKey.put(keyFn.apply(item), item));
+
+        return new Contents<>(
+                Collections.unmodifiableList(items),
+                Collections.unmodifiableMap(itemsByKey),
+                clock.getAsLong(),
+                loadGeneration);
+    }
+
+
+    private boolean isFresh(Contents<K, T> c) {
+        return c != null
+                && c.generation == generation.get()
+                && clock.getAsLong() - c.loadedAt <= maxAgeMs;
+    }
+
+
+    private static class Contents<K, T> {
+
+        private final List<T> items;
+        private final Map<K, T> itemsByKey;
+        private final long loadedAt;
+        private final long generation;
+
+
+        private Contents(List<T> items,
+                         Map<K, T> itemsByKey,
+                         long loadedAt,
+                         long generation) {
+            this.items = items;
+            this.itemsByKey = itemsByKey;
+            this.loadedAt = loadedAt;
+            this.generation = generation;
+        }
+    }
+}
@@ -1,13 +1,15 @@
 package org.finos.waltz.service.report_grid;
 
 import org.apache.commons.jexl3.*;
-import org.finos.waltz.common.SetUtilities;
+import org.finos.waltz.common.ListUtilities;
 import org.finos.waltz.model.either.Either;
 import org.finos.waltz.model.rating.RatingSchemeItem;
 import org.finos.waltz.model.report_grid.*;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.toSet;
@@ -20,12 +22,32 @@ import static org.jooq.lambda.tuple.Tuple.tuple;
 
 public class ReportGridColumnCalculator {
 
+    /**
+     * Grids with fewer subjects than this are evaluated on the calling thread,
+     * above this the rows are split across the fork-join pool.
+     */
+    private static final int PARALLEL_ROW_THRESHOLD = 500;
+
+    private static final int MAX_CACHED_SCRIPTS = 2048;
+
+    /**
+     * The engine is thread-safe and is shared by all calculations.  Row specific
+     * state is provided via a namespace resolving context (see: `RowContext`).
+     */
+    private static final JexlEngine JEXL = new JexlBuilder().cache(512).create();
+
+    /**
+     * Compiled derivation scripts, keyed by the script text.  Compilation is a pure
+     * function of the text, so any grid (or any version of a grid) using the same
+     * script can share the compiled form.
+     */
+    private static final Map<String, Either<String, JexlScript>> COMPILED_SCRIPTS = new ConcurrentHashMap<>();
+
 
     public static Set<ReportGridCell> calculate(ReportGridInstance instance,
                                                 ReportGridDefinition definition) {
-        ReportGridEvaluatorNamespace ns = new ReportGridEvaluatorNamespace(definition);
-        JexlBuilder builder = new JexlBuilder();
-        JexlEngine jexl = builder.namespaces(newHashMap(null, ns)).cache(512).create();
+
+        Set<String> availableCellExtIds = ReportGridEvaluatorNamespace.determineAvailableCellExtIds(definition);
 
         Map<Long, Collection<ReportGridCell>> rowBySubject = groupBy(
                 instance.cellData(),
@@ -33,41 +55,102 @@ public class ReportGridColumnCalculator {
 
         Map<Long, RatingSchemeItem> ratingSchemeItemsById = indexById(instance.ratingSchemeItems());
 
-        Set<CompiledCalculatedColumn> derivedColumns = map(
+        List<CompiledCalculatedColumn> derivedColumns = orderByDependencies(ListUtilities.map(
                 definition.derivedColumnDefinitions(),
-                d -> {
-                    Either<String, JexlScript> expr = compile(
-                            jexl,
-                            d.derivationScript());
-
-                    return ImmutableCompiledCalculatedColumn
-                            .builder()
-                            .column(d)
-                            .expression(expr)
-                            .build();
-                });
+                d -> ImmutableCompiledCalculatedColumn
+                        .builder()
+                        .column(d)
+                        .expression(compile(d.derivationScript()))
+                        .build()));
 
-        return instance
-                .subjects()
-                .stream()
-                .map(s -> {
-                    long subjectId = s.entityReference().id();
-                    Map<String, Object> ctx = initialiseContext(
+        boolean isAcyclic = isTopologicallyOrdered(derivedColumns);
+
+        Stream<ReportSubject> subjects = instance.subjects().size() > PARALLEL_ROW_THRESHOLD
+                ? instance.subjects().parallelStream()
+                : instance.subjects().stream();
+
+        return subjects
+                .flatMap(subject -> {
+                    ReportGridEvaluatorNamespace ns = new ReportGridEvaluatorNamespace(definition, availableCellExtIds);
+                    ReadTrackingContext ctx = new ReadTrackingContext(initialiseContext(
                             definition.fixedColumnDefinitions(),
                             ratingSchemeItemsById,
-                            s,
-                            lookupRow(rowBySubject, subjectId));
+                            subject,
+                            lookupRow(rowBySubject, subject.entityReference().id())));
                     ns.setContext(ctx);
-                    return s;
-                })
-                .flatMap(subject ->
-                        calcDerivedCols(
+
+                    return calcDerivedCols(
                                 ns,
+                                ctx,
                                 subject,
-                                derivedColumns)
-                        .stream())
+                                derivedColumns,
+                                isAcyclic)
+                            .stream();
+                })
                 .collect(toSet());
+    }
 
+
+    /**
+     * Orders the derived columns so that a column is evaluated after any derived
+     * columns it references (via their external id).  If the references contain
+     * a cycle the cyclic columns are appended in their original order and the
+     * row evaluation falls back to iterating until a fixed point is reached.
+     *
+     * References are found by looking for quoted external ids in the script text,
+     * so references built at runtime are not seen here.  The row evaluation
+     * detects those by watching which cells are read (see `ReadTrackingContext`).
+     */
+    private static List<CompiledCalculatedColumn> orderByDependencies(List<CompiledCalculatedColumn> columns) {
+        Map<CompiledCalculatedColumn, Set<CompiledCalculatedColumn>> dependenciesByColumn = new LinkedHashMap<>();
+
+        columns.forEach(col -> dependenciesByColumn.put(
+                col,
+                columns
+                    .stream()
+                    .filter(other -> other != col)
+                    .filter(other -> references(col, other))
+                    .collect(toSet())));
+
+        List<CompiledCalculatedColumn> ordered = new ArrayList<>();
+        Set<CompiledCalculatedColumn> placed = new HashSet<>();
+
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+            for (Map.Entry<CompiledCalculatedColumn, Set<CompiledCalculatedColumn>> entry : dependenciesByColumn.entrySet()) {
+                if (!placed.contains(entry.getKey()) && placed.containsAll(entry.getValue())) {
+                    ordered.add(entry.getKey());
+                    placed.add(entry.getKey());
+                    progress = true;
+                }
+            }
+        }
+
+        columns.stream()
+                .filter(col -> !placed.contains(col))
+                .forEach(ordered::add);
+
+        return ordered;
+    }
+
+
+    private static boolean isTopologicallyOrdered(List<CompiledCalculatedColumn> orderedColumns) {
+        for (int i = 0; i < orderedColumns.size(); i++) {
+            for (int j = i; j < orderedColumns.size(); j++) {
+                if (references(orderedColumns.get(i), orderedColumns.get(j))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+
+    private static boolean references(CompiledCalculatedColumn col, CompiledCalculatedColumn other) {
+        String script = col.column().derivationScript();
+        String otherExtId = colToExtId(other.column());
+        return script.contains("'" + otherExtId + "'") || script.contains("\"" + otherExtId + "\"");
     }
 
 
@@ -80,27 +163,41 @@ public class ReportGridColumnCalculator {
 
 
     private static Set<ReportGridCell> calcDerivedCols(ReportGridEvaluatorNamespace ns,
+                                                       ReadTrackingContext ctx,
                                                        ReportSubject subject,
-                                                       Set<CompiledCalculatedColumn> colsToCalc) {
+                                                       List<CompiledCalculatedColumn> colsToCalc,
+                                                       boolean isAcyclic) {
 
         // we need to evaluate derived cols at least once
         AtomicBoolean evaluateRowAgain = new AtomicBoolean(true);
         // collecting the results as we go
         Map<Long, ReportGridCell> results = new HashMap<>();
 
-        Set<CompiledCalculatedColumn> remaining = SetUtilities.fromCollection(colsToCalc);
+        List<CompiledCalculatedColumn> remaining = colsToCalc;
+
+        RowContext rowContext = new RowContext(ns, subject);
 
         Map<ReportGridDerivedColumnDefinition, String> lastErrors = new HashMap<>();
 
+        // set if a column reads a derived cell which has not yet been calculated in this pass
+        AtomicBoolean readAhead = new AtomicBoolean(false);
+
         while (evaluateRowAgain.get()) {
             // assume this time will be the last
             evaluateRowAgain.set(false);
+            readAhead.set(false);
+
+            Set<String> notYetCalculated = remaining
+                    .stream()
+                    .map(ccc -> colToExtId(ccc.column()))
+                    .collect(toSet());
 
             // iterate over remaining columns attempting execution
             remaining.forEach(ccc -> {
+                ctx.clearReads();
                 try {
                     // attempt to evaluate the cell
-                    ofNullable(evaluateCalcCol(ccc, subject))
+                    ofNullable(evaluateCalcCol(ccc, subject, rowContext))
                             .ifPresent(result -> {
                                 ReportGridCell existingResult = results.get(ccc.column().gridColumnId());
                                 boolean isDifferent = existingResult == null || !existingResult.equals(result);
@@ -126,12 +223,22 @@ public class ReportGridColumnCalculator {
                     String msg = toMessage(e);
                     lastErrors.put(ccc.column(), msg);
                 }
+
+                notYetCalculated.remove(colToExtId(ccc.column()));
+                if (ctx.hasRead(notYetCalculated)) {
+                    readAhead.set(true);
+                }
             });
 
             if (remaining.isEmpty()) {
                 // nothing left to do, therefore we can finish on this iteration
                 evaluateRowAgain.set(false);
             }
+
+            if (isAcyclic && lastErrors.isEmpty() && !readAhead.get()) {
+                // every cell was calculated before being read, another pass would give the same results
+                evaluateRowAgain.set(false);
+            }
         }
 
         Set<ReportGridCell> errorResults = remaining
@@ -161,9 +268,20 @@ public class ReportGridColumnCalculator {
     }
 
 
-    private static Either<String, JexlScript> compile(JexlEngine jexl, String expression) {
+    private static Either<String, JexlScript> compile(String expression) {
+        if (COMPILED_SCRIPTS.size() > MAX_CACHED_SCRIPTS) {
+            COMPILED_SCRIPTS.clear();
+        }
+
+        return COMPILED_SCRIPTS.computeIfAbsent(
+                expression,
+                ReportGridColumnCalculator::doCompile);
+    }
+
+
+    private static Either<String, JexlScript> doCompile(String expression) {
         try {
-            JexlScript expr = jexl.createScript(expression);
+            JexlScript expr = JEXL.createScript(expression);
             return Either.right(expr);
         } catch (JexlException e) {
             return Either.left(e.getMessage());
@@ -195,7 +313,8 @@ public class ReportGridColumnCalculator {
 
 
     private static ReportGridCell evaluateCalcCol(CompiledCalculatedColumn compiledCalculatedColumn,
-                                                  ReportSubject subject) {
+                                                  ReportSubject subject,
+                                                  RowContext rowContext) {
 
         ReportGridDerivedColumnDefinition cd = compiledCalculatedColumn.column();
 
@@ -211,13 +330,7 @@ public class ReportGridColumnCalculator {
                                 .build(),
                         expr -> {
 
-                            MapContext mapContext = new MapContext(newHashMap(
-                                    "subjectId", subject.entityReference().id(),
-                                    "subjectExternalId", subject.entityReference().externalId().orElse(""),
-                                    "subjectName", subject.entityReference().name().orElse(""),
-                                    "subjectLifecyclePhase", subject.lifecyclePhase().name()));
-
-                            Object result = expr.execute(mapContext);
+                            Object result = expr.execute(rowContext);
 
                             if (result == null) {
                                 return null;
@@ -277,4 +390,68 @@ public class ReportGridColumnCalculator {
                 .build();
     }
 
+
+
+    /**
+     * Cell values for a single row which records the keys looked up by the namespace
+     * functions, allowing the row evaluation to notice a column reading a derived
+     * cell before it has been calculated.
+     */
+    private static class ReadTrackingContext extends HashMap<String, Object> {
+
+        private final Set<String> reads = new HashSet<>();
+
+
+        private ReadTrackingContext(Map<String, Object> values) {
+            super(values);
+        }
+
+
+        @Override
+        public Object get(Object key) {
+            if (key instanceof String) {
+                reads.add((String) key);
+            }
+            return super.get(key);
+        }
+
+
+        private void clearReads() {
+            reads.clear();
+        }
+
+
+        private boolean hasRead(Set<String> keys) {
+            return !Collections.disjoint(reads, keys);
+        }
+    }
+
+
+    /**
+     * Evaluation context for a single row.  Exposes the subject variables and resolves
+     * the default (unprefixed) function namespace to the row's namespace, allowing the
+     * shared engine to be used concurrently across rows.
+     */
+    private static class RowContext extends MapContext implements JexlContext.NamespaceResolver {
+
+        private final ReportGridEvaluatorNamespace ns;
+
+
+        private RowContext(ReportGridEvaluatorNamespace ns, ReportSubject subject) {
+            super(newHashMap(
+                    "subjectId", subject.entityReference().id(),
+                    "subjectExternalId", subject.entityReference().externalId().orElse(""),
+                    "subjectName", subject.entityReference().name().orElse(""),
+                    "subjectLifecyclePhase", subject.lifecyclePhase().name()));
+            this.ns = ns;
+        }
+
+
+        @Override
+        public Object resolveNamespace(String name) {
+            return name == null
+                    ? ns
+                    : null;
+        }
+    }
 }
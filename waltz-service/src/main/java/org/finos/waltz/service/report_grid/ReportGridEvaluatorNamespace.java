@@ -25,10 +25,29 @@ public class ReportGridEvaluatorNamespace {
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
     private final ReportGridDefinition definition;
+    private final Set<String> availableCellExtIds;
     private Map<String, Object> ctx = new HashMap<>();
 
     public ReportGridEvaluatorNamespace(ReportGridDefinition definition) {
+        this(definition, determineAvailableCellExtIds(definition));
+    }
+
+
+    /**
+     * Used when creating a namespace per row, allowing the (immutable) set
+     * of available cell ext ids to be computed once and shared.
+     */
+    public ReportGridEvaluatorNamespace(ReportGridDefinition definition,
+                                        Set<String> availableCellExtIds) {
         this.definition = definition;
+        this.availableCellExtIds = availableCellExtIds;
+    }
+
+
+    public static Set<String> determineAvailableCellExtIds(ReportGridDefinition definition) {
+        return union(
+                map(definition.fixedColumnDefinitions(), ReportGridColumnCalculator::colToExtId),
+                map(definition.derivedColumnDefinitions(), ReportGridColumnCalculator::colToExtId));
     }
 
 
@@ -221,10 +240,6 @@ public class ReportGridEvaluatorNamespace {
 
 
     private void checkAllCellsExist(Set<String> requiredCellExtIds) {
-        Set<String> availableCellExtIds = union(
-                map(definition.fixedColumnDefinitions(), ReportGridColumnCalculator::colToExtId),
-                map(definition.derivedColumnDefinitions(), ReportGridColumnCalculator::colToExtId));
-
         Checks.checkTrue(availableCellExtIds.containsAll(
                         requiredCellExtIds),
                 "Not all cells external ids found in grid");
@@ -0,0 +1,491 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.report_grid;
+
+import org.finos.waltz.data.changelog.ChangeLogDao;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.IdSelectionOptions;
+import org.finos.waltz.model.report_grid.ReportGridDefinition;
+import org.finos.waltz.model.report_grid.ReportGridInstance;
+import org.jooq.lambda.tuple.Tuple3;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.SetUtilities.map;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+/**
+ * Holds computed report grid instances keyed by (grid id, selection options, target kind).
+ *
+ * Cached instances are invalidated using the change log:
+ *
+ * <ul>
+ *     <li>entries mentioning one of an instance's subjects (e.g. a rating or
+ *     involvement change recorded against an application) mark that instance as stale</li>
+ *     <li>entries whose parent is of one of the grid's dependency kinds (e.g. a measurable
+ *     or assessment definition being edited) bump that kind's version, leaving every instance
+ *     which depends upon it stale</li>
+ * </ul>
+ *
+ * An instance is only served if it is not stale, its grid definition is unchanged,
+ * and it is younger than `MAX_AGE_MS`.  The age limit guards against edits which bypass
+ * the change log and against new subjects entering the selection.
+ *
+ * Concurrent misses for the same key share a single load.  When full, the least
+ * requested entry is evicted to make room, request counts are halved every
+ * `DECAY_INTERVAL_MS` so that grids which were once popular eventually make way.
+ * The most requested stale grids are periodically re-warmed on a dedicated thread
+ * so that the next request does not pay for the recalculation.
+ */
+@Service
+@ManagedResource(description = "Cache of computed report grid instances")
+public class ReportGridInstanceCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReportGridInstanceCache.class);
+
+    private static final int MAX_ENTRIES = 250;
+    private static final int WARM_LIMIT = 10;
+    private static final long MAX_AGE_MS = TimeUnit.MINUTES.toMillis(15);
+    private static final long DECAY_INTERVAL_MS = TimeUnit.MINUTES.toMillis(10);
+
+    private final ChangeLogDao changeLogDao;
+
+    private final ConcurrentMap<Tuple3<Long, IdSelectionOptions, EntityKind>, CachedInstance> entries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Tuple3<Long, IdSelectionOptions, EntityKind>, CompletableFuture<CachedInstance>> loadsInFlight = new ConcurrentHashMap<>();
+    private final ConcurrentMap<EntityKind, AtomicLong> kindVersions = new ConcurrentHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final ExecutorService warmingExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread t = new Thread(runnable, "WaltzReportGridWarmer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final AtomicBoolean warmingPending = new AtomicBoolean();
+
+    private long changeLogHighWaterMark = -1;
+    private volatile long lastDecayAt = System.currentTimeMillis();
+
+
+    @Autowired
+    public ReportGridInstanceCache(ChangeLogDao changeLogDao) {
+        checkNotNull(changeLogDao, "changeLogDao cannot be null");
+        this.changeLogDao = changeLogDao;
+    }
+
+
+    /**
+     * Returns the cached instance for the given grid/selector if it is still fresh,
+     * otherwise the loader is invoked and the result cached.  If another caller is
+     * already loading the same instance this call waits for, and shares, its result.
+     *
+     * @param definition  current definition of the grid, a change to the definition invalidates the cached instance
+     * @param idSelectionOptions  selector used to determine the grid subjects
+     * @param dependencies  entity kinds whose own changes should invalidate the instance (changes to the subjects are always detected)
+     * @param loader  computes the instance on a cache miss
+     * @return the (possibly cached) grid instance
+     */
+    public ReportGridInstance getOrLoad(ReportGridDefinition definition,
+                                        IdSelectionOptions idSelectionOptions,
+                                        Set<EntityKind> dependencies,
+                                        Supplier<ReportGridInstance> loader) {
+        checkNotNull(definition, "definition cannot be null");
+        checkNotNull(idSelectionOptions, "idSelectionOptions cannot be null");
+
+        Tuple3<Long, IdSelectionOptions, EntityKind> key = tuple(
+                definition.id().get(),
+                idSelectionOptions,
+                definition.subjectKind());
+
+        CachedInstance cached = entries.get(key);
+
+        if (cached != null && isFresh(cached, definition)) {
+            hitCount.incrementAndGet();
+            cached.requestCount.incrementAndGet();
+            return cached.instance;
+        }
+
+        missCount.incrementAndGet();
+
+        long priorRequests = cached == null
+                ? 0
+                : cached.requestCount.get();
+
+        return load(key, definition, dependencies, loader, priorRequests + 1).instance;
+    }
+
+
+    /**
+     * Removes all cached instances of the given grid, regardless of selector.
+     * Should be called whenever the grid definition is altered or the grid is removed.
+     *
+     * @param gridId  identifier of the grid to evict
+     */
+    public void evictGrid(long gridId) {
+        entries.keySet().removeIf(k -> k.v1 == gridId);
+    }
+
+
+    /**
+     * Marks all cached instances which depend upon the given kind as stale.
+     *
+     * @param kind  the entity kind which has been modified
+     */
+    public void markChanged(EntityKind kind) {
+        kindVersions
+                .computeIfAbsent(kind, k -> new AtomicLong())
+                .incrementAndGet();
+    }
+
+
+    /**
+     * Applies change log entries recorded since the last check.  The queries run without
+     * holding the lock, the results are then applied and the high water mark advanced
+     * atomically (with respect to `load`), so no entries are missed or rescanned.
+     */
+    @Scheduled(fixedDelay = 30_000, initialDelay = 30_000)
+    public void checkForChanges() {
+        long checkFrom;
+        synchronized (this) {
+            checkFrom = changeLogHighWaterMark;
+        }
+
+        long latestId = changeLogDao.getMaxId();
+
+        if (entries.isEmpty() || checkFrom < 0 || latestId <= checkFrom) {
+            // nothing to invalidate, just move past any entries made in the meantime
+            advanceHighWaterMark(latestId);
+            return;
+        }
+
+        Set<EntityKind> changedKinds = changeLogDao.findParentKindsChangedBetween(checkFrom, latestId);
+        Set<EntityReference> changedRefs = changeLogDao.findEntitiesChangedBetween(checkFrom, latestId);
+
+        synchronized (this) {
+            LOG.debug("Change log activity detected for kinds: {}", changedKinds);
+            changedKinds.forEach(this::markChanged);
+            markSubjectsChanged(changedRefs);
+            advanceHighWaterMark(latestId);
+        }
+    }
+
+
+    @Scheduled(fixedDelay = 60_000, initialDelay = 60_000)
+    public void warmPopularGrids() {
+        // loading grids can take a while, keep it off the shared scheduler thread
+        if (warmingPending.compareAndSet(false, true)) {
+            warmingExecutor.execute(() -> {
+                warmingPending.set(false);
+                try {
+                    warm();
+                } catch (Exception e) {
+                    LOG.warn("Failed to warm report grid cache", e);
+                }
+            });
+        }
+    }
+
+
+    @ManagedAttribute(description = "Number of requests served from the cache")
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+
+    @ManagedAttribute(description = "Number of requests which required the grid to be calculated")
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+
+    @ManagedAttribute(description = "Number of grid instances currently held")
+    public int getEntryCount() {
+        return entries.size();
+    }
+
+
+    @ManagedOperation(description = "Discard all cached report grid instances")
+    public void clear() {
+        LOG.warn("Clearing report grid instance cache (via jmx)");
+        entries.clear();
+    }
+
+
+    // --- helpers ---
+
+    private void warm() {
+        List<Map.Entry<Tuple3<Long, IdSelectionOptions, EntityKind>, CachedInstance>> popular = entries
+                .entrySet()
+                .stream()
+                .sorted(Comparator.comparing((Map.Entry<Tuple3<Long, IdSelectionOptions, EntityKind>, CachedInstance> e) -> e.getValue().requestCount.get()).reversed())
+                .limit(WARM_LIMIT)
+                .collect(toList());
+
+        popular.forEach(e -> {
+            CachedInstance cached = e.getValue();
+            if (!isFresh(cached, cached.definition)) {
+                try {
+                    load(e.getKey(), cached.definition, cached.versionsAtLoad.keySet(), cached.loader, cached.requestCount.get());
+                } catch (Exception ex) {
+                    LOG.warn("Failed to re-warm report grid: {}, evicting. Reason: {}", e.getKey().v1, ex.getMessage());
+                    entries.remove(e.getKey());
+                }
+            }
+        });
+
+        Set<Tuple3<Long, IdSelectionOptions, EntityKind>> popularKeys = map(popular, Map.Entry::getKey);
+
+        // anything else which is stale will be recalculated on demand, so free up the memory now
+        entries.entrySet().removeIf(e -> !popularKeys.contains(e.getKey()) && !isFresh(e.getValue(), e.getValue().definition));
+
+        decayRequestCountsIfDue();
+    }
+
+
+    private void decayRequestCountsIfDue() {
+        long now = System.currentTimeMillis();
+        if (now - lastDecayAt < DECAY_INTERVAL_MS) {
+            return;
+        }
+
+        entries.values().forEach(e -> e.requestCount.updateAndGet(c -> c / 2));
+        lastDecayAt = now;
+    }
+
+
+    private CachedInstance load(Tuple3<Long, IdSelectionOptions, EntityKind> key,
+                                ReportGridDefinition definition,
+                                Set<EntityKind> dependencies,
+                                Supplier<ReportGridInstance> loader,
+                                long requestCount) {
+        CompletableFuture<CachedInstance> ourLoad = new CompletableFuture<>();
+        CompletableFuture<CachedInstance> existingLoad = loadsInFlight.putIfAbsent(key, ourLoad);
+
+        if (existingLoad != null) {
+            return awaitLoad(existingLoad);
+        }
+
+        try {
+            long checkedUpTo = initHighWaterMarkIfNeeded();
+            CachedInstance loaded = doLoad(definition, dependencies, loader, requestCount);
+
+            // catch up with changes applied by checkForChanges whilst loading, querying outside the lock.
+            // The put happens under the lock once caught up, so later changes will find the entry.
+            while (true) {
+                long highWaterMark;
+                synchronized (this) {
+                    highWaterMark = changeLogHighWaterMark;
+                    if (highWaterMark <= checkedUpTo) {
+                        if (!entries.containsKey(key) && entries.size() >= MAX_ENTRIES) {
+                            // make room before inserting, so the new entry cannot be the one evicted
+                            evictLeastRequested();
+                        }
+                        entries.put(key, loaded);
+                        break;
+                    }
+                }
+
+                if (haveSubjectsChangedBetween(checkedUpTo, highWaterMark, key.v3, loaded.subjectIds)) {
+                    loaded.stale = true;
+                }
+                checkedUpTo = highWaterMark;
+            }
+
+            ourLoad.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e) {
+            ourLoad.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadsInFlight.remove(key, ourLoad);
+        }
+    }
+
+
+    private CachedInstance doLoad(ReportGridDefinition definition,
+                                  Set<EntityKind> dependencies,
+                                  Supplier<ReportGridInstance> loader,
+                                  long requestCount) {
+        // versions are captured before loading so that concurrent changes leave the entry stale
+        Map<EntityKind, Long> versionsAtLoad = dependencies
+                .stream()
+                .collect(toMap(k -> k, this::currentVersion));
+
+        ReportGridInstance instance = loader.get();
+
+        Set<Long> subjectIds = instance
+                .subjects()
+                .stream()
+                .map(s -> s.entityReference().id())
+                .collect(toSet());
+
+        return new CachedInstance(
+                definition,
+                instance,
+                subjectIds,
+                versionsAtLoad,
+                loader,
+                requestCount);
+    }
+
+
+    private static CachedInstance awaitLoad(CompletableFuture<CachedInstance> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+
+    /**
+     * @return the change log id up to which changes have been applied to the cache
+     */
+    private synchronized long initHighWaterMarkIfNeeded() {
+        if (changeLogHighWaterMark < 0) {
+            changeLogHighWaterMark = changeLogDao.getMaxId();
+        }
+        return changeLogHighWaterMark;
+    }
+
+
+    private synchronized void advanceHighWaterMark(long latestId) {
+        changeLogHighWaterMark = Math.max(changeLogHighWaterMark, latestId);
+    }
+
+
+    /**
+     * Catches subject changes applied by `checkForChanges` while an instance was being loaded.
+     */
+    private boolean haveSubjectsChangedBetween(long afterId, long upToId, EntityKind subjectKind, Set<Long> subjectIds) {
+        return changeLogDao
+                .findEntitiesChangedBetween(afterId, upToId)
+                .stream()
+                .anyMatch(ref -> ref.kind() == subjectKind && subjectIds.contains(ref.id()));
+    }
+
+
+    private void markSubjectsChanged(Set<EntityReference> changedRefs) {
+        Map<EntityKind, Set<Long>> changedIdsByKind = changedRefs
+                .stream()
+                .collect(groupingBy(EntityReference::kind, mapping(EntityReference::id, toSet())));
+
+        entries.forEach((key, cached) -> {
+            Set<Long> changedIds = changedIdsByKind.getOrDefault(key.v3, Collections.emptySet());
+            if (!Collections.disjoint(changedIds, cached.subjectIds)) {
+                cached.stale = true;
+            }
+        });
+    }
+
+
+    private void evictLeastRequested() {
+        entries.entrySet()
+                .stream()
+                .min(Comparator
+                        .comparing((Map.Entry<Tuple3<Long, IdSelectionOptions, EntityKind>, CachedInstance> e) -> e.getValue().requestCount.get())
+                        .thenComparing(e -> e.getValue().loadedAt))
+                .ifPresent(e -> entries.remove(e.getKey()));
+    }
+
+
+    private boolean isFresh(CachedInstance cached, ReportGridDefinition definition) {
+        boolean tooOld = System.currentTimeMillis() - cached.loadedAt > MAX_AGE_MS;
+
+        if (cached.stale || tooOld || !cached.definition.equals(definition)) {
+            return false;
+        }
+
+        return cached.versionsAtLoad
+                .entrySet()
+                .stream()
+                .allMatch(e -> currentVersion(e.getKey()) == e.getValue());
+    }
+
+
+    private long currentVersion(EntityKind kind) {
+        AtomicLong version = kindVersions.get(kind);
+        return version == null
+                ? 0L
+                : version.get();
+    }
+
+
+    private static class CachedInstance {
+
+        private final ReportGridDefinition definition;
+        private final ReportGridInstance instance;
+        private final Set<Long> subjectIds;
+        private final Map<EntityKind, Long> versionsAtLoad;
+        private final Supplier<ReportGridInstance> loader;
+        private final long loadedAt = System.currentTimeMillis();
+        private final AtomicLong requestCount;
+
+        private volatile boolean stale = false;
+
+
+        private CachedInstance(ReportGridDefinition definition,
+                               ReportGridInstance instance,
+                               Set<Long> subjectIds,
+                               Map<EntityKind, Long> versionsAtLoad,
+                               Supplier<ReportGridInstance> loader,
+                               long requestCount) {
+            this.definition = definition;
+            this.instance = instance;
+            this.subjectIds = subjectIds;
+            this.versionsAtLoad = versionsAtLoad;
+            this.loader = loader;
+            this.requestCount = new AtomicLong(requestCount);
+        }
+    }
+}
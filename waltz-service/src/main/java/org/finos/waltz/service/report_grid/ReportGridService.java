@@ -18,6 +18,7 @@
 
 package org.finos.waltz.service.report_grid;
 
+import org.finos.waltz.common.MapUtilities;
 import org.finos.waltz.common.SetUtilities;
 import org.finos.waltz.common.exception.InsufficientPrivelegeException;
 import org.finos.waltz.common.exception.NotFoundException;
@@ -34,6 +35,7 @@ import org.finos.waltz.model.rating.RatingSchemeItem;
 import org.finos.waltz.model.report_grid.*;
 import org.finos.waltz.model.user.SystemRole;
 import org.finos.waltz.service.rating_scheme.RatingSchemeService;
+import org.finos.waltz.service.selector.SelectorMaterialisationService;
 import org.finos.waltz.service.user.UserRoleService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,12 +56,23 @@ public class ReportGridService {
 
     private static final Logger LOG = LoggerFactory.getLogger(ReportGridService.class);
 
+    /**
+     * Column kinds whose data is recorded in the change log against a different
+     * parent kind, e.g. survey responses are logged against the survey instance.
+     */
+    private static final Map<EntityKind, Set<EntityKind>> CHANGE_LOG_KINDS_BY_COLUMN_KIND = MapUtilities.newHashMap(
+            EntityKind.SURVEY_QUESTION, SetUtilities.asSet(EntityKind.SURVEY_QUESTION, EntityKind.SURVEY_INSTANCE),
+            EntityKind.SURVEY_TEMPLATE, SetUtilities.asSet(EntityKind.SURVEY_TEMPLATE, EntityKind.SURVEY_INSTANCE),
+            EntityKind.MEASURABLE_CATEGORY, SetUtilities.asSet(EntityKind.MEASURABLE_CATEGORY, EntityKind.MEASURABLE));
+
     private final RatingSchemeService ratingSchemeService;
     private final ApplicationDao applicationDao;
     private final ChangeInitiativeDao changeInititativeDao;
     private final ReportGridDao reportGridDao;
     private final ReportGridMemberService reportGridMemberService;
     private final UserRoleService userRoleService;
+    private final ReportGridInstanceCache reportGridInstanceCache;
+    private final SelectorMaterialisationService selectorMaterialisationService;
 
     private final GenericSelectorFactory genericSelectorFactory = new GenericSelectorFactory();
 
@@ -69,12 +82,16 @@ public class ReportGridService {
                              RatingSchemeService ratingSchemeService,
                              ReportGridMemberService reportGridMemberService,
                              UserRoleService userRoleService,
-                             ChangeInitiativeDao changeInitiativeDao) {
+                             ChangeInitiativeDao changeInitiativeDao,
+                             ReportGridInstanceCache reportGridInstanceCache,
+                             SelectorMaterialisationService selectorMaterialisationService) {
         checkNotNull(reportGridDao, "reportGridDao cannot be null");
         checkNotNull(reportGridMemberService, "reportGridMemberService cannot be null");
         checkNotNull(applicationDao, "applicationDao cannot be null");
         checkNotNull(ratingSchemeService, "ratingSchemeService cannot be null");
         checkNotNull(userRoleService, "userRoleService cannot be null");
+        checkNotNull(reportGridInstanceCache, "reportGridInstanceCache cannot be null");
+        checkNotNull(selectorMaterialisationService, "selectorMaterialisationService cannot be null");
 
         this.reportGridDao = reportGridDao;
         this.reportGridMemberService = reportGridMemberService;
@@ -82,6 +99,8 @@ public class ReportGridService {
         this.ratingSchemeService = ratingSchemeService;
         this.changeInititativeDao = changeInitiativeDao;
         this.userRoleService = userRoleService;
+        this.reportGridInstanceCache = reportGridInstanceCache;
+        this.selectorMaterialisationService = selectorMaterialisationService;
     }
 
 
@@ -118,9 +137,11 @@ public class ReportGridService {
             return Optional.empty();
         }
 
-        EntityKind targetKind = definition.subjectKind();
-
-        ReportGridInstance instance = mkInstance(id, idSelectionOptions, targetKind);
+        ReportGridInstance instance = reportGridInstanceCache.getOrLoad(
+                definition,
+                idSelectionOptions,
+                determineDependencies(definition),
+                () -> mkInstanceWithCalculatedCells(definition, idSelectionOptions));
 
         Set<ReportGridMember> members = reportGridMemberService.findByGridId(id);
 
@@ -131,20 +152,6 @@ public class ReportGridService {
                 .map(ReportGridMember::role)
                 .orElse(ReportGridMemberRole.VIEWER);
 
-        if (!definition.derivedColumnDefinitions().isEmpty()) {
-            Set<ReportGridCell> calculatedCells = ReportGridColumnCalculator.calculate(instance, definition);
-
-            return Optional.of(ImmutableReportGrid
-                    .builder()
-                    .definition(definition)
-                    .instance(ImmutableReportGridInstance
-                            .copyOf(instance)
-                            .withCellData(SetUtilities.union(instance.cellData(), calculatedCells)))
-                    .members(members)
-                    .userRole(userRole)
-                    .build());
-        }
-
         return Optional.of(ImmutableReportGrid
                 .builder()
                 .definition(definition)
@@ -155,9 +162,56 @@ public class ReportGridService {
     }
 
 
+    private ReportGridInstance mkInstanceWithCalculatedCells(ReportGridDefinition definition,
+                                                             IdSelectionOptions idSelectionOptions) {
+
+        ReportGridInstance instance = mkInstance(
+                definition.id().get(),
+                idSelectionOptions,
+                definition.subjectKind());
+
+        if (definition.derivedColumnDefinitions().isEmpty()) {
+            return instance;
+        } else {
+            Set<ReportGridCell> calculatedCells = ReportGridColumnCalculator.calculate(instance, definition);
+
+            return ImmutableReportGridInstance
+                    .copyOf(instance)
+                    .withCellData(SetUtilities.union(instance.cellData(), calculatedCells));
+        }
+    }
+
+
+    /**
+     * The change log parent kinds which indicate a change to the data behind the
+     * grid's columns (e.g. a measurable or assessment definition being edited).
+     * Changes recorded against the grid's subjects, such as a new rating for an
+     * application, are detected by the cache itself, so the subject kind is excluded.
+     */
+    private Set<EntityKind> determineDependencies(ReportGridDefinition definition) {
+        Set<EntityKind> dependencies = new HashSet<>();
+
+        definition
+                .fixedColumnDefinitions()
+                .forEach(d -> {
+                    dependencies.addAll(CHANGE_LOG_KINDS_BY_COLUMN_KIND.getOrDefault(
+                            d.columnEntityKind(),
+                            SetUtilities.asSet(d.columnEntityKind())));
+                    Optional.ofNullable(d.columnQualifierKind()).ifPresent(dependencies::add);
+                    Optional.ofNullable(d.entityFieldReference()).ifPresent(ref -> dependencies.add(ref.entityKind()));
+                });
+
+        dependencies.remove(definition.subjectKind());
+
+        return dependencies;
+    }
+
+
     public ReportGridInstance mkInstance(long id, IdSelectionOptions idSelectionOptions, EntityKind targetKind) {
 
-        GenericSelector genericSelector = genericSelectorFactory.applyForKind(targetKind, idSelectionOptions);
+        // the cell data and subject queries all share the selector, so evaluate it just once
+        GenericSelector genericSelector = selectorMaterialisationService.materialise(
+                genericSelectorFactory.applyForKind(targetKind, idSelectionOptions));
         Set<ReportGridCell> cellData = reportGridDao.findCellDataByGridId(id, genericSelector);
         Set<ReportSubject> subjects = getReportSubjects(genericSelector);
 
@@ -213,6 +267,7 @@ public class ReportGridService {
                                                         String username) throws InsufficientPrivelegeException {
         checkIsOwner(reportGridId, username);
         reportGridDao.updateColumnDefinitions(reportGridId, updateCommand);
+        reportGridInstanceCache.evictGrid(reportGridId);
         return reportGridDao.getGridDefinitionById(reportGridId);
     }
 
@@ -256,6 +311,7 @@ public class ReportGridService {
         }
 
         reportGridDao.update(id, updateCommand, username);
+        reportGridInstanceCache.evictGrid(id);
         return reportGridDao.getGridInfoById(id);
     }
 
@@ -280,6 +336,7 @@ public class ReportGridService {
                     format("Grid def: %d not found", gridId));
         }
         reportGridMemberService.checkIsOwner(gridId, username);
+        reportGridInstanceCache.evictGrid(gridId);
 
         return reportGridDao.remove(gridId);
     }
@@ -0,0 +1,183 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.scheduled_job;
+
+import org.finos.waltz.model.scheduled_job.JobKey;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.lang.String.format;
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * Dependencies between scheduled jobs, held as a directed acyclic graph.
+ *
+ * A job which is runnable is held back whilst any of its (transitive) prerequisites
+ * are runnable or running, e.g. usages are not recalculated until a pending ripple of
+ * physical flow data types has completed.  Related jobs (prerequisites or dependents)
+ * never run at the same time as they typically touch the same tables.  Unrelated jobs
+ * may run concurrently.
+ */
+public class ScheduledJobGraph {
+
+    private final Map<JobKey, Set<JobKey>> ancestorsByJob = new EnumMap<>(JobKey.class);
+    private final Map<JobKey, Set<JobKey>> descendantsByJob = new EnumMap<>(JobKey.class);
+    private final List<JobKey> topologicalOrder;
+
+
+    /**
+     * @param prerequisitesByJob  for each job, the jobs which must complete before it may start
+     * @throws IllegalArgumentException if the dependencies contain a cycle
+     */
+    public ScheduledJobGraph(Map<JobKey, ? extends Collection<JobKey>> prerequisitesByJob) {
+        checkNotNull(prerequisitesByJob, "prerequisitesByJob cannot be null");
+
+        Map<JobKey, Set<JobKey>> prerequisites = new EnumMap<>(JobKey.class);
+        Map<JobKey, Set<JobKey>> dependents = new EnumMap<>(JobKey.class);
+        for (JobKey jobKey : JobKey.values()) {
+            prerequisites.put(jobKey, EnumSet.noneOf(JobKey.class));
+            dependents.put(jobKey, EnumSet.noneOf(JobKey.class));
+        }
+
+        prerequisitesByJob.forEach((job, prereqs) -> prereqs.forEach(prereq -> {
+            prerequisites.get(job).add(prereq);
+            dependents.get(prereq).add(job);
+        }));
+
+        this.topologicalOrder = Collections.unmodifiableList(sort(prerequisites, dependents));
+
+        for (JobKey jobKey : JobKey.values()) {
+            ancestorsByJob.put(jobKey, reachable(jobKey, prerequisites));
+            descendantsByJob.put(jobKey, reachable(jobKey, dependents));
+        }
+    }
+
+
+    /**
+     * @return every job, prerequisites ahead of the jobs that depend upon them
+     */
+    public List<JobKey> topologicalOrder() {
+        return topologicalOrder;
+    }
+
+
+    /**
+     * @return all direct and indirect prerequisites of the job
+     */
+    public Set<JobKey> ancestors(JobKey jobKey) {
+        return Collections.unmodifiableSet(ancestorsByJob.get(jobKey));
+    }
+
+
+    /**
+     * @return all jobs which directly or indirectly depend on the job
+     */
+    public Set<JobKey> descendants(JobKey jobKey) {
+        return Collections.unmodifiableSet(descendantsByJob.get(jobKey));
+    }
+
+
+    /**
+     * Determines whether a runnable job may be started now.
+     *
+     * @param jobKey  the runnable job
+     * @param runnable  all jobs currently waiting to run
+     * @param running  all jobs currently running
+     * @return true if no prerequisite is pending and no related job is running
+     */
+    public boolean canStart(JobKey jobKey,
+                            Set<JobKey> runnable,
+                            Set<JobKey> running) {
+        if (running.contains(jobKey)) {
+            return false;
+        }
+
+        for (JobKey ancestor : ancestorsByJob.get(jobKey)) {
+            if (runnable.contains(ancestor) || running.contains(ancestor)) {
+                return false;
+            }
+        }
+
+        for (JobKey descendant : descendantsByJob.get(jobKey)) {
+            if (running.contains(descendant)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    // --- helpers ---
+
+    private static List<JobKey> sort(Map<JobKey, Set<JobKey>> prerequisites,
+                                     Map<JobKey, Set<JobKey>> dependents) {
+        Map<JobKey, Integer> remaining = new EnumMap<>(JobKey.class);
+        Deque<JobKey> ready = new ArrayDeque<>();
+
+        prerequisites.forEach((job, prereqs) -> {
+            remaining.put(job, prereqs.size());
+            if (prereqs.isEmpty()) {
+                ready.add(job);
+            }
+        });
+
+        List<JobKey> result = new ArrayList<>(prerequisites.size());
+        while (!ready.isEmpty()) {
+            JobKey job = ready.poll();
+            result.add(job);
+            for (JobKey dependent : dependents.get(job)) {
+                if (remaining.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+
+        if (result.size() != prerequisites.size()) {
+            Set<JobKey> cyclic = EnumSet.allOf(JobKey.class);
+            cyclic.removeAll(result);
+            throw new IllegalArgumentException(format("Scheduled job dependencies contain a cycle involving: %s", cyclic));
+        }
+
+        return result;
+    }
+
+
+    private static Set<JobKey> reachable(JobKey start, Map<JobKey, Set<JobKey>> edges) {
+        Set<JobKey> result = EnumSet.noneOf(JobKey.class);
+        Deque<JobKey> toVisit = new ArrayDeque<>(edges.get(start));
+        while (!toVisit.isEmpty()) {
+            JobKey job = toVisit.poll();
+            if (result.add(job)) {
+                toVisit.addAll(edges.get(job));
+            }
+        }
+        return result;
+    }
+
+}
@@ -22,8 +22,10 @@ package org.finos.waltz.service.scheduled_job;
 import org.finos.waltz.common.ExcludeFromIntegrationTesting;
 import org.finos.waltz.data.scheduled_job.ScheduledJobDao;
 import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.scheduled_job.ImmutableScheduledJobRun;
 import org.finos.waltz.model.scheduled_job.JobKey;
 import org.finos.waltz.model.scheduled_job.JobLifecycleStatus;
+import org.finos.waltz.model.scheduled_job.ScheduledJobRun;
 import org.finos.waltz.service.attestation.AttestationRunService;
 import org.finos.waltz.service.cost.CostService;
 import org.finos.waltz.service.entity_hierarchy.EntityHierarchyService;
@@ -39,30 +41,55 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
-import java.util.function.Consumer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static java.util.Collections.unmodifiableSet;
 import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.DateTimeUtilities.nowUtc;
 import static org.finos.waltz.common.SetUtilities.asSet;
 
+/**
+ * Runs the jobs which have been marked as `RUNNABLE` (via their entry in the settings table).
+ *
+ * Jobs run concurrently on a small, dedicated pool.  The dependencies between jobs are
+ * described by a `ScheduledJobGraph`: a job waits for any pending prerequisites to complete,
+ * and related jobs never run at the same time.  Whenever a job finishes, or a job is marked
+ * runnable via `markJobAsRunnable`, the runnable jobs are re-evaluated immediately; the poll
+ * only exists to pick up jobs marked runnable by other means (e.g. directly in the database).
+ *
+ * Every run is recorded in the `scheduled_job_run` table when it starts and updated with its
+ * duration and outcome when it finishes.  A job left marked as `RUNNING` by a server which died
+ * part way through would otherwise block it (and its related jobs) forever, so a job which is
+ * not running on this server and whose latest run started more than `STALE_RUNNING_TIMEOUT` ago
+ * is returned to `RUNNABLE`.
+ */
 @ExcludeFromIntegrationTesting
 @Service
 public class ScheduledJobService {
 
     private static final Logger LOG = LoggerFactory.getLogger(ScheduledJobService.class);
 
-    private final DataTypeUsageService dataTypeUsageService;
-    private final EntityHierarchyService entityHierarchyService;
-    private final FlowClassificationRuleService flowClassificationRuleService;
-    private final LogicalFlowService logicalFlowService;
-    private final PhysicalSpecDataTypeService physicalSpecDataTypeService;
+    private static final int MAX_CONCURRENT_JOBS = 4;
+    static final Duration STALE_RUNNING_TIMEOUT = Duration.ofHours(6);
+
     private final ScheduledJobDao scheduledJobDao;
-    private final AttestationRunService attestationRunService;
-    private final SurveyInstanceService surveyInstanceService;
+    private final ScheduledJobGraph jobGraph = mkJobGraph();
+    private final Map<JobKey, Runnable> jobs = new EnumMap<>(JobKey.class);
+
+    /** jobs started by this server which have not yet completed, guarded by `this` */
+    private final Set<JobKey> runningJobs = EnumSet.noneOf(JobKey.class);
 
-    private final ReportGridFilterViewService reportGridFilterViewService;
-    private final CostService costService;
+    private final ExecutorService jobExecutor;
 
 
     @Autowired
@@ -79,6 +106,7 @@ public class ScheduledJobService {
 
         checkNotNull(costService, "costService cannot be null");
         checkNotNull(dataTypeUsageService, "dataTypeUsageService cannot be null");
+        checkNotNull(entityHierarchyService, "entityHierarchyService cannot be null");
         checkNotNull(flowClassificationRuleService, "flowClassificationRuleService cannot be null");
         checkNotNull(logicalFlowService, "logicalFlowService cannot be null");
         checkNotNull(physicalSpecDataTypeService, "physicalSpecDataTypeService cannot be null");
@@ -87,89 +115,313 @@ public class ScheduledJobService {
         checkNotNull(reportGridFilterViewService, "reportGridFilterViewService cannot be null");
         checkNotNull(surveyInstanceService, "surveyInstanceService cannot be null");
 
-        this.costService = costService;
-        this.dataTypeUsageService = dataTypeUsageService;
-        this.entityHierarchyService = entityHierarchyService;
-        this.flowClassificationRuleService = flowClassificationRuleService;
-        this.logicalFlowService = logicalFlowService;
-        this.physicalSpecDataTypeService = physicalSpecDataTypeService;
         this.scheduledJobDao = scheduledJobDao;
-        this.attestationRunService = attestationRunService;
-        this.reportGridFilterViewService = reportGridFilterViewService;
-        this.surveyInstanceService = surveyInstanceService;
+
+        jobs.put(JobKey.HIERARCHY_REBUILD_CHANGE_INITIATIVE, () -> entityHierarchyService.buildFor(EntityKind.CHANGE_INITIATIVE));
+        jobs.put(JobKey.HIERARCHY_REBUILD_DATA_TYPE, () -> entityHierarchyService.buildFor(EntityKind.DATA_TYPE));
+        jobs.put(JobKey.HIERARCHY_REBUILD_ENTITY_STATISTICS, () -> entityHierarchyService.buildFor(EntityKind.ENTITY_STATISTIC));
+        jobs.put(JobKey.HIERARCHY_REBUILD_MEASURABLE, () -> entityHierarchyService.buildFor(EntityKind.MEASURABLE));
+        jobs.put(JobKey.HIERARCHY_REBUILD_ORG_UNIT, () -> entityHierarchyService.buildFor(EntityKind.ORG_UNIT));
+        jobs.put(JobKey.HIERARCHY_REBUILD_PERSON, () -> entityHierarchyService.buildFor(EntityKind.PERSON));
+        jobs.put(JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL, physicalSpecDataTypeService::rippleDataTypesToLogicalFlows);
+        jobs.put(JobKey.DATA_TYPE_USAGE_RECALC_APPLICATION, () -> dataTypeUsageService.recalculateForFlowChangesSince(findLastCompletedRunStart(JobKey.DATA_TYPE_USAGE_RECALC_APPLICATION)));
+        jobs.put(JobKey.AUTH_SOURCE_RECALC_FLOW_RATINGS, flowClassificationRuleService::fastRecalculateAllFlowRatings);
+        jobs.put(JobKey.LOGICAL_FLOW_CLEANUP_ORPHANS, logicalFlowService::cleanupOrphans);
+        jobs.put(JobKey.ATTESTATION_ISSUE_INSTANCES, attestationRunService::issueInstancesForPendingRuns);
+        jobs.put(JobKey.SURVEY_INSTANCE_REASSIGN_RECIPIENTS, surveyInstanceService::reassignRecipients);
+        jobs.put(JobKey.SURVEY_INSTANCE_REASSIGN_OWNERS, surveyInstanceService::reassignOwners);
+        jobs.put(JobKey.REPORT_GRID_RECALCULATE_APP_GROUPS_FROM_FILTERS, reportGridFilterViewService::generateAppGroupsFromFilter);
+        jobs.put(JobKey.ALLOCATED_COSTS_POPULATOR, costService::populateAllocatedCosts);
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.jobExecutor = Executors.newFixedThreadPool(
+                MAX_CONCURRENT_JOBS,
+                (runnable) -> {
+                    Thread t = new Thread(runnable, "WaltzScheduledJob-" + threadCounter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
     }
 
 
-    @Scheduled(fixedRate = 300_000)
+    /**
+     * Picks up jobs which have been marked as runnable without going via this service.
+     */
+    @Scheduled(fixedDelay = 30_000)
     public void run() {
-        Thread.currentThread().setName("WaltzScheduledJobService");
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_CHANGE_INITIATIVE,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.CHANGE_INITIATIVE));
+        startRunnableJobs();
+    }
 
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_DATA_TYPE,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.DATA_TYPE));
 
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_ENTITY_STATISTICS,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.ENTITY_STATISTIC));
+    /**
+     * Marks the job as runnable and starts it straight away if its prerequisites allow.
+     *
+     * @param jobKey  the job to run
+     * @return false if the job is already running (or has no entry in the settings table)
+     */
+    public boolean markJobAsRunnable(JobKey jobKey) {
+        checkNotNull(jobKey, "jobKey cannot be null");
 
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_MEASURABLE,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.MEASURABLE));
+        boolean marked = scheduledJobDao.markJobAsRunnable(jobKey);
+        if (marked) {
+            startRunnableJobs();
+        }
+        return marked;
+    }
 
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_ORG_UNIT,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.ORG_UNIT));
 
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_PERSON,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.PERSON));
+    public List<ScheduledJobRun> findRecentRuns(Optional<JobKey> jobKey, int limit) {
+        checkNotNull(jobKey, "jobKey cannot be null");
+        return scheduledJobDao.findRecentRuns(jobKey, limit);
+    }
 
-        runIfNeeded(JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL,
-                (jk) -> physicalSpecDataTypeService.rippleDataTypesToLogicalFlows(),
-                asSet(JobKey.DATA_TYPE_USAGE_RECALC_APPLICATION));
 
-        runIfNeeded(JobKey.DATA_TYPE_USAGE_RECALC_APPLICATION,
-                (jk) -> dataTypeUsageService.recalculateForAllApplications(),
-                asSet(JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL));
+    /**
+     * @return jobs started by this server which have not yet completed
+     */
+    public synchronized Set<JobKey> findRunningJobs() {
+        Set<JobKey> result = EnumSet.noneOf(JobKey.class);
+        result.addAll(runningJobs);
+        return unmodifiableSet(result);
+    }
 
-        runIfNeeded(JobKey.AUTH_SOURCE_RECALC_FLOW_RATINGS,
-                (jk) -> flowClassificationRuleService.fastRecalculateAllFlowRatings());
 
-        runIfNeeded(JobKey.LOGICAL_FLOW_CLEANUP_ORPHANS,
-                (jk) -> logicalFlowService.cleanupOrphans());
+    /**
+     * Starts every runnable job whose prerequisites have completed and which is not
+     * related to a running job.  Jobs are visited in dependency order so that, within
+     * a single pass, a newly started job holds back its dependents.
+     */
+    private synchronized void startRunnableJobs() {
+        Map<JobKey, JobLifecycleStatus> statuses;
+        try {
+            statuses = scheduledJobDao.findJobStatuses();
+        } catch (Exception e) {
+            LOG.error("Failed to determine the status of scheduled jobs", e);
+            return;
+        }
 
-        runIfNeeded(JobKey.ATTESTATION_ISSUE_INSTANCES,
-                (jk) -> attestationRunService.issueInstancesForPendingRuns());
+        recoverStaleJobs(statuses);
+
+        Set<JobKey> runnable = EnumSet.noneOf(JobKey.class);
+        // includes jobs running on other servers
+        Set<JobKey> running = EnumSet.noneOf(JobKey.class);
+        running.addAll(runningJobs);
+        statuses.forEach((jobKey, status) -> {
+            if (status == JobLifecycleStatus.RUNNABLE) {
+                runnable.add(jobKey);
+            } else if (status == JobLifecycleStatus.RUNNING) {
+                running.add(jobKey);
+            }
+        });
+
+        for (JobKey jobKey : jobGraph.topologicalOrder()) {
+            Runnable job = jobs.get(jobKey);
+            if (job == null
+                    || !runnable.contains(jobKey)
+                    || !jobGraph.canStart(jobKey, runnable, running)) {
+                continue;
+            }
 
-        runIfNeeded(JobKey.SURVEY_INSTANCE_REASSIGN_RECIPIENTS,
-                (jk) -> surveyInstanceService.reassignRecipients());
+            runnable.remove(jobKey);
+            running.add(jobKey);
+
+            try {
+                if (scheduledJobDao.markJobAsRunning(jobKey)) {
+                    runningJobs.add(jobKey);
+                    jobExecutor.submit(() -> execute(jobKey, job));
+                }
+            } catch (Exception e) {
+                LOG.error("Failed to start job: " + jobKey, e);
+                runningJobs.remove(jobKey);
+            }
+        }
+    }
 
-        runIfNeeded(JobKey.SURVEY_INSTANCE_REASSIGN_OWNERS,
-                (jk) -> surveyInstanceService.reassignOwners());
 
-        runIfNeeded(JobKey.REPORT_GRID_RECALCULATE_APP_GROUPS_FROM_FILTERS,
-                (jk) -> reportGridFilterViewService.generateAppGroupsFromFilter());
+    /**
+     * Returns stale `RUNNING` jobs to `RUNNABLE`, updating the given statuses to match.
+     */
+    private void recoverStaleJobs(Map<JobKey, JobLifecycleStatus> statuses) {
+        boolean anyRunningElsewhere = statuses
+                .entrySet()
+                .stream()
+                .anyMatch(e -> e.getValue() == JobLifecycleStatus.RUNNING && !runningJobs.contains(e.getKey()));
+
+        if (!anyRunningElsewhere) {
+            return;
+        }
 
-        runIfNeeded(JobKey.ALLOCATED_COSTS_POPULATOR,
-                (jk) -> costService.populateAllocatedCosts());
+        try {
+            Set<JobKey> staleJobs = findStaleRunningJobs(
+                    statuses,
+                    runningJobs,
+                    scheduledJobDao.findLatestRunStarts(),
+                    nowUtc(),
+                    STALE_RUNNING_TIMEOUT);
+
+            for (JobKey jobKey : staleJobs) {
+                if (scheduledJobDao.resetRunningJob(jobKey)) {
+                    LOG.warn("Job: {} has been marked as running for over {}, assuming it was abandoned and marking as runnable", jobKey, STALE_RUNNING_TIMEOUT);
+                    scheduledJobDao.abandonRuns(jobKey, "Abandoned, not completed within " + STALE_RUNNING_TIMEOUT);
+                    statuses.put(jobKey, JobLifecycleStatus.RUNNABLE);
+                }
+            }
+        } catch (Exception e) {
+            LOG.error("Failed to recover stale scheduled jobs", e);
+        }
     }
 
 
-    private void runIfNeeded(JobKey jobKey, Consumer<JobKey> jobExecutor) {
-        runIfNeeded(jobKey, jobExecutor, Collections.emptySet());
+    /**
+     * A job is stale if it is marked as `RUNNING`, is not running on this server, and either
+     * has no recorded runs or its latest run started longer ago than the timeout.
+     */
+    static Set<JobKey> findStaleRunningJobs(Map<JobKey, JobLifecycleStatus> statuses,
+                                            Set<JobKey> runningLocally,
+                                            Map<JobKey, LocalDateTime> latestRunStarts,
+                                            LocalDateTime now,
+                                            Duration timeout) {
+        Set<JobKey> result = EnumSet.noneOf(JobKey.class);
+        LocalDateTime cutoff = now.minus(timeout);
+
+        statuses.forEach((jobKey, status) -> {
+            if (status != JobLifecycleStatus.RUNNING || runningLocally.contains(jobKey)) {
+                return;
+            }
+            LocalDateTime latestStart = latestRunStarts.get(jobKey);
+            if (latestStart == null || latestStart.isBefore(cutoff)) {
+                result.add(jobKey);
+            }
+        });
+
+        return result;
     }
 
-    private void runIfNeeded(JobKey jobKey, Consumer<JobKey> jobExecutor, Set<JobKey> deadlockJobKeys) {
+
+    private void execute(JobKey jobKey, Runnable job) {
+        LocalDateTime startedAt = nowUtc();
+        long start = System.currentTimeMillis();
+        JobLifecycleStatus outcome = JobLifecycleStatus.COMPLETED;
+        String message = null;
+
+        Optional<Long> runId = recordRunStart(jobKey, startedAt);
+
+        LOG.info("Starting job: {}", jobKey);
         try {
-            if (scheduledJobDao.isJobRunnable(jobKey)
-                    && !scheduledJobDao.anyJobsRunning(deadlockJobKeys)
-                    && scheduledJobDao.markJobAsRunning(jobKey)) {
-                jobExecutor
-                        .andThen((jk) -> scheduledJobDao.updateJobStatus(jk, JobLifecycleStatus.COMPLETED))
-                        .accept(jobKey);
-            }
+            job.run();
         } catch (Exception e) {
             LOG.error("Failed to run job: " + jobKey, e);
-            scheduledJobDao.updateJobStatus(jobKey, JobLifecycleStatus.ERRORED);
+            outcome = JobLifecycleStatus.ERRORED;
+            message = e.getMessage();
+        }
+
+        long durationMs = System.currentTimeMillis() - start;
+        LOG.info("Job: {} finished with status: {} in {}ms", jobKey, outcome, durationMs);
+
+        try {
+            scheduledJobDao.updateJobStatus(jobKey, outcome);
+        } catch (Exception e) {
+            LOG.error("Failed to update status of job: " + jobKey, e);
+        } finally {
+            synchronized (this) {
+                runningJobs.remove(jobKey);
+            }
+        }
+
+        recordRun(ImmutableScheduledJobRun
+                .builder()
+                .id(runId)
+                .jobKey(jobKey)
+                .startedAt(startedAt)
+                .completedAt(nowUtc())
+                .durationMs(durationMs)
+                .status(outcome)
+                .message(Optional.ofNullable(message))
+                .build());
+
+        // dependents (or related jobs) may have been waiting on this job
+        startRunnableJobs();
+    }
+
+
+    private Optional<LocalDateTime> findLastCompletedRunStart(JobKey jobKey) {
+        return scheduledJobDao
+                .findLatestRun(jobKey, JobLifecycleStatus.COMPLETED)
+                .map(ScheduledJobRun::startedAt);
+    }
+
+
+    private Optional<Long> recordRunStart(JobKey jobKey, LocalDateTime startedAt) {
+        try {
+            return Optional.of(scheduledJobDao.createRun(ImmutableScheduledJobRun
+                    .builder()
+                    .jobKey(jobKey)
+                    .startedAt(startedAt)
+                    .completedAt(startedAt)
+                    .durationMs(0)
+                    .status(JobLifecycleStatus.RUNNING)
+                    .build()));
+        } catch (Exception e) {
+            LOG.warn("Failed to record start of job: {}, {}", jobKey, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+
+    private void recordRun(ScheduledJobRun run) {
+        try {
+            if (run.id().isPresent()) {
+                scheduledJobDao.updateRun(run);
+            } else {
+                scheduledJobDao.createRun(run);
+            }
+        } catch (Exception e) {
+            LOG.warn("Failed to record run of job: {}, {}", run.jobKey(), e.getMessage());
         }
     }
 
 
+    /**
+     * Jobs not mentioned have no prerequisites and may run alongside any other job.
+     */
+    static ScheduledJobGraph mkJobGraph() {
+        Map<JobKey, Set<JobKey>> prerequisites = new EnumMap<>(JobKey.class);
+
+        prerequisites.put(
+                JobKey.DATA_TYPE_USAGE_RECALC_APPLICATION,
+                asSet(JobKey.HIERARCHY_REBUILD_DATA_TYPE,
+                        JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL,
+                        JobKey.LOGICAL_FLOW_CLEANUP_ORPHANS));
+
+        prerequisites.put(
+                JobKey.AUTH_SOURCE_RECALC_FLOW_RATINGS,
+                asSet(JobKey.HIERARCHY_REBUILD_DATA_TYPE,
+                        JobKey.HIERARCHY_REBUILD_ORG_UNIT,
+                        JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL,
+                        JobKey.LOGICAL_FLOW_CLEANUP_ORPHANS));
+
+        prerequisites.put(
+                JobKey.ATTESTATION_ISSUE_INSTANCES,
+                asSet(JobKey.HIERARCHY_REBUILD_ORG_UNIT));
+
+        prerequisites.put(
+                JobKey.SURVEY_INSTANCE_REASSIGN_RECIPIENTS,
+                asSet(JobKey.HIERARCHY_REBUILD_PERSON));
+
+        prerequisites.put(
+                JobKey.SURVEY_INSTANCE_REASSIGN_OWNERS,
+                asSet(JobKey.HIERARCHY_REBUILD_PERSON));
+
+        prerequisites.put(
+                JobKey.REPORT_GRID_RECALCULATE_APP_GROUPS_FROM_FILTERS,
+                asSet(JobKey.HIERARCHY_REBUILD_ORG_UNIT,
+                        JobKey.HIERARCHY_REBUILD_MEASURABLE));
+
+        prerequisites.put(
+                JobKey.ALLOCATED_COSTS_POPULATOR,
+                asSet(JobKey.HIERARCHY_REBUILD_MEASURABLE));
+
+        return new ScheduledJobGraph(prerequisites);
+    }
+
 }
@@ -0,0 +1,231 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.selector;
+
+import org.finos.waltz.data.GenericSelector;
+import org.finos.waltz.data.GenericSelectorFactory;
+import org.finos.waltz.data.ImmutableGenericSelector;
+import org.finos.waltz.data.SelectorMaterialisationDao;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.HierarchyQueryScope;
+import org.finos.waltz.model.IdSelectionOptions;
+import org.jooq.Record1;
+import org.jooq.Select;
+import org.jooq.lambda.tuple.Tuple2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.FunctionUtilities.time;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+/**
+ * Resolves id selectors to a concrete set of ids, once, so that the (often expensive,
+ * hierarchy walking) selector query is not re-evaluated by every query which uses it.
+ *
+ * <ul>
+ *     <li>`materialise` evaluates a selector immediately, intended for use within a single request
+ *     which issues several queries against the same selector</li>
+ *     <li>`getCachedSelector` additionally retains the ids, keyed by target kind and selection
+ *     options, for `MAX_AGE_MS`.  Only use this where slightly stale results are acceptable
+ *     (e.g. summary statistics)</li>
+ * </ul>
+ *
+ * If the selector yields more ids than can sensibly be passed back to the database
+ * the original selector is returned instead.
+ */
+@Service
+@ManagedResource(description = "Materialises id selectors into reusable id sets")
+public class SelectorMaterialisationService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SelectorMaterialisationService.class);
+
+    private static final int MAX_ENTRIES = 500;
+    private static final long MAX_AGE_MS = TimeUnit.SECONDS.toMillis(30);
+
+    private final SelectorMaterialisationDao selectorMaterialisationDao;
+    private final GenericSelectorFactory genericSelectorFactory = new GenericSelectorFactory();
+
+    private final ConcurrentMap<Tuple2<EntityKind, IdSelectionOptions>, CachedSelector> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong materialisedCount = new AtomicLong();
+    private final AtomicLong oversizedCount = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+
+    @Autowired
+    public SelectorMaterialisationService(SelectorMaterialisationDao selectorMaterialisationDao) {
+        checkNotNull(selectorMaterialisationDao, "selectorMaterialisationDao cannot be null");
+        this.selectorMaterialisationDao = selectorMaterialisationDao;
+    }
+
+
+    /**
+     * Evaluates the selector and returns an equivalent selector over the resulting ids.
+     *
+     * @param selector  selector to evaluate
+     * @return selector over the materialised ids, or the original selector if there are too many ids
+     */
+    public Select<Record1<Long>> materialise(Select<Record1<Long>> selector) {
+        checkNotNull(selector, "selector cannot be null");
+
+        long[] ids = time(
+                "SelectorMaterialisationService.materialise",
+                () -> selectorMaterialisationDao.resolveIds(selector));
+
+        return selectorMaterialisationDao
+                .mkSelector(ids)
+                .map(s -> {
+                    materialisedCount.incrementAndGet();
+                    return s;
+                })
+                .orElseGet(() -> {
+                    LOG.debug("Selector yielded too many ids ({}) to materialise, using original selector", ids.length);
+                    oversizedCount.incrementAndGet();
+                    return selector;
+                });
+    }
+
+
+    public GenericSelector materialise(GenericSelector genericSelector) {
+        checkNotNull(genericSelector, "genericSelector cannot be null");
+
+        return ImmutableGenericSelector
+                .copyOf(genericSelector)
+                .withSelector(materialise(genericSelector.selector()));
+    }
+
+
+    /**
+     * Returns a materialised selector for the target kind, reusing the ids from a previous
+     * call with the same arguments if they were resolved within the last `MAX_AGE_MS`.
+     *
+     * @param targetKind  kind of entity the selector should return
+     * @param options  selection options
+     * @return selector over the (possibly cached) ids
+     */
+    public Select<Record1<Long>> getCachedSelector(EntityKind targetKind,
+                                                   IdSelectionOptions options) {
+        checkNotNull(targetKind, "targetKind cannot be null");
+        checkNotNull(options, "options cannot be null");
+
+        Select<Record1<Long>> selector = genericSelectorFactory
+                .applyForKind(targetKind, options)
+                .selector();
+
+        if (isTrivial(targetKind, options)) {
+            return selector;
+        }
+
+        Tuple2<EntityKind, IdSelectionOptions> key = tuple(targetKind, options);
+        long now = System.currentTimeMillis();
+
+        CachedSelector cached = entries.get(key);
+        if (cached != null && now - cached.loadedAt < MAX_AGE_MS) {
+            hitCount.incrementAndGet();
+            return cached.selector;
+        }
+
+        missCount.incrementAndGet();
+
+        if (entries.size() >= MAX_ENTRIES) {
+            entries.values().removeIf(c -> now - c.loadedAt >= MAX_AGE_MS);
+        }
+
+        CachedSelector loaded = new CachedSelector(materialise(selector), now);
+        if (entries.size() < MAX_ENTRIES) {
+            entries.put(key, loaded);
+        }
+
+        return loaded.selector;
+    }
+
+
+    @ManagedAttribute(description = "Number of selectors materialised into id sets")
+    public long getMaterialisedCount() {
+        return materialisedCount.get();
+    }
+
+
+    @ManagedAttribute(description = "Number of selectors which yielded too many ids to materialise")
+    public long getOversizedCount() {
+        return oversizedCount.get();
+    }
+
+
+    @ManagedAttribute(description = "Number of cached selector lookups served from the cache")
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+
+    @ManagedAttribute(description = "Number of cached selector lookups which required the selector to be evaluated")
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+
+    @ManagedAttribute(description = "Number of cached selectors")
+    public int getSize() {
+        return entries.size();
+    }
+
+
+    @ManagedOperation(description = "Discard all cached selectors")
+    public void clear() {
+        LOG.warn("Clearing cached selectors (via jmx)");
+        entries.clear();
+    }
+
+
+    // --- helpers ---
+
+    /**
+     * Exact selections of the target kind select a single, known, id so there is nothing to gain.
+     */
+    private static boolean isTrivial(EntityKind targetKind,
+                                     IdSelectionOptions options) {
+        return options.scope() == HierarchyQueryScope.EXACT
+                && options.entityReference().kind() == targetKind;
+    }
+
+
+    private static class CachedSelector {
+
+        private final Select<Record1<Long>> selector;
+        private final long loadedAt;
+
+
+        private CachedSelector(Select<Record1<Long>> selector, long loadedAt) {
+            this.selector = selector;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -23,13 +23,17 @@ import org.finos.waltz.common.MapUtilities;
 import org.finos.waltz.data.settings.SettingsDao;
 import org.finos.waltz.model.settings.Setting;
 import org.finos.waltz.model.settings.UpdateSettingsCommand;
+import org.finos.waltz.service.reference_data.ReferenceDataCache;
+import org.finos.waltz.service.reference_data.ReferenceDataSnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
+import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.ListUtilities.ensureNotNull;
 
 
@@ -42,25 +46,36 @@ public class SettingsService {
     public static final String ALLOW_COST_EXPORTS_KEY = "feature.data-extractor.entity-cost.enabled";
 
     private final Map<String, Setting> overridesByName;
+    private final ReferenceDataSnapshot<String, Setting> settingsSnapshot;
 
 
     /**
      * Setting service allows the settings table to be interrogated.  For dev purposes then a
      * collection of overrides may be given, useful when debugging a shared database instance and
-     * you do not wish to change the values in the settings table
+     * you do not wish to change the values in the settings table.
+     *
+     * Settings are read from a snapshot of the table held in the `ReferenceDataCache`.
      * @param settingsDao
      * @param overrides
+     * @param referenceDataCache
      */
     @Autowired
-    public SettingsService(SettingsDao settingsDao, Collection<Setting> overrides) {
+    public SettingsService(SettingsDao settingsDao,
+                           Collection<Setting> overrides,
+                           ReferenceDataCache referenceDataCache) {
+        checkNotNull(referenceDataCache, "referenceDataCache cannot be null");
         this.settingsDao = settingsDao;
         this.overridesByName = MapUtilities.indexBy(s -> s.name(), ensureNotNull(overrides));
+        this.settingsSnapshot = referenceDataCache.register(
+                "settings",
+                settingsDao::findAll,
+                Setting::name);
     }
 
 
     public Collection<Setting> findAll() {
         return CollectionUtilities.map(
-                settingsDao.findAll(),
+                settingsSnapshot.all(),
                 s -> Optional
                         .ofNullable(overridesByName.get(s.name()))
                         .orElse(s));
@@ -70,7 +85,7 @@ public class SettingsService {
     public Setting getByName(String name) {
         return Optional
                 .ofNullable(overridesByName.get(name))
-                .orElse(settingsDao.getByName(name));
+                .orElse(settingsSnapshot.get(name).orElse(null));
     }
 
     /**
@@ -86,12 +101,26 @@ public class SettingsService {
     }
 
 
+    /**
+     * Returns the values of all unrestricted settings whose name starts with the given prefix.
+     * Note: overrides are not applied.
+     */
     public Map<String, String> indexByPrefix(String prefix) {
-        return settingsDao.indexByPrefix(prefix);
+        checkNotNull(prefix, "prefix cannot be null");
+        return settingsSnapshot
+                .all()
+                .stream()
+                .filter(s -> s.name().startsWith(prefix))
+                .filter(s -> ! s.restricted())
+                .collect(Collectors.toMap(
+                        Setting::name,
+                        s -> s.value().orElse("")));
     }
 
 
     public int update(UpdateSettingsCommand cmd) {
-        return settingsDao.update(cmd);
+        int rc = settingsDao.update(cmd);
+        settingsSnapshot.invalidate();
+        return rc;
     }
 }
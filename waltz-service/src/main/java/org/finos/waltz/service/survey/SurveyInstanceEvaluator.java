@@ -6,10 +6,13 @@ import org.finos.waltz.data.survey.SurveyQuestionResponseDao;
 import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.survey.*;
 import org.finos.waltz.service.survey.inclusion_evaluator.QuestionPredicateEvaluator;
-import org.jooq.DSLContext;
+import org.jooq.Record1;
+import org.jooq.Select;
+import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -17,23 +20,24 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.finos.waltz.common.MapUtilities.indexBy;
+import static org.finos.waltz.schema.Tables.SURVEY_INSTANCE;
 import static org.finos.waltz.service.survey.SurveyInstanceUtilities.getVal;
 
 @Service
 public class SurveyInstanceEvaluator {
 
-    private final DSLContext dsl;
+    private final QuestionPredicateEvaluator predicateEvaluator;
     private final SurveyQuestionDao questionDao;
     private final SurveyInstanceDao instanceDao;
     private final SurveyQuestionResponseDao responseDao;
 
 
     @Autowired
-    public SurveyInstanceEvaluator(DSLContext dsl,
+    public SurveyInstanceEvaluator(QuestionPredicateEvaluator predicateEvaluator,
                                    SurveyQuestionDao questionDao,
                                    SurveyInstanceDao instanceDao,
                                    SurveyQuestionResponseDao responseDao) {
-        this.dsl = dsl;
+        this.predicateEvaluator = predicateEvaluator;
         this.questionDao = questionDao;
         this.instanceDao = instanceDao;
         this.responseDao = responseDao;
@@ -47,7 +51,7 @@ public class SurveyInstanceEvaluator {
         SurveyInstance instance = instanceDao.getById(surveyInstanceId);
         EntityReference subjectRef = instance.surveyEntity();
 
-        List<SurveyQuestion> activeQs = QuestionPredicateEvaluator.eval(dsl, qs, subjectRef, responsesByQuestionId);
+        List<SurveyQuestion> activeQs = predicateEvaluator.eval(qs, subjectRef, responsesByQuestionId);
         Set<Long> missingMandatoryQuestions = determineMissingMandatoryQuestions(activeQs, responsesByQuestionId);
 
         return ImmutableSurveyInstanceFormDetails.builder()
@@ -57,6 +61,55 @@ public class SurveyInstanceEvaluator {
     }
 
 
+    /**
+     * Evaluates every instance of a survey run, loading the questions, responses
+     * and subject facts in bulk rather than instance by instance.
+     *
+     * @param surveyRunId  the run whose instances should be evaluated
+     * @return form details keyed by survey instance id
+     */
+    public Map<Long, SurveyInstanceFormDetails> evalForSurveyRun(long surveyRunId) {
+        List<SurveyQuestion> qs = questionDao.findForSurveyRun(surveyRunId);
+        Set<SurveyInstance> instances = instanceDao.findForSurveyRun(surveyRunId);
+
+        Map<Long, Map<Long, SurveyQuestionResponse>> responsesByInstanceId = responseDao
+                .findForSurveyRun(surveyRunId)
+                .stream()
+                .collect(Collectors.groupingBy(
+                        SurveyInstanceQuestionResponse::surveyInstanceId,
+                        Collectors.toMap(
+                                r -> r.questionResponse().questionId(),
+                                SurveyInstanceQuestionResponse::questionResponse)));
+
+        Select<Record1<Long>> instanceIdSelector = DSL
+                .select(SURVEY_INSTANCE.ID)
+                .from(SURVEY_INSTANCE)
+                .where(SURVEY_INSTANCE.SURVEY_RUN_ID.eq(surveyRunId));
+
+        Map<Long, List<SurveyQuestion>> activeQsByInstanceId = predicateEvaluator.evalForInstances(
+                qs,
+                instances,
+                responsesByInstanceId,
+                instanceIdSelector);
+
+        return activeQsByInstanceId
+                .entrySet()
+                .stream()
+                .collect(Collectors.toMap(
+                        Map.Entry::getKey,
+                        e -> {
+                            Map<Long, SurveyQuestionResponse> responsesByQuestionId = responsesByInstanceId.getOrDefault(
+                                    e.getKey(),
+                                    Collections.emptyMap());
+
+                            return ImmutableSurveyInstanceFormDetails.builder()
+                                    .activeQuestions(e.getValue())
+                                    .missingMandatoryQuestionIds(determineMissingMandatoryQuestions(e.getValue(), responsesByQuestionId))
+                                    .build();
+                        }));
+    }
+
+
     private static Set<Long> determineMissingMandatoryQuestions(List<SurveyQuestion> activeQs,
                                                                 Map<Long, SurveyQuestionResponse> responsesByQuestionId) {
         return activeQs
@@ -26,6 +26,7 @@ import org.finos.waltz.model.survey.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
 import java.util.Set;
 
 import static org.finos.waltz.common.Checks.checkNotNull;
@@ -64,6 +65,11 @@ public class SurveyInstanceViewService {
     }
 
 
+    public Map<Long, SurveyInstanceFormDetails> findFormDetailsForSurveyRun(long surveyRunId) {
+        return instanceEvaluator.evalForSurveyRun(surveyRunId);
+    }
+
+
     public Set<SurveyInstanceUserInvolvement> findForUser(String userName) {
         checkNotNull(userName, "userName cannot be null");
 
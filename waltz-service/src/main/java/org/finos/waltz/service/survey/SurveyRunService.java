@@ -47,11 +47,13 @@ import java.util.stream.Collectors;
 import static java.lang.String.format;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptySet;
+import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.Checks.checkTrue;
 import static org.finos.waltz.common.CollectionUtilities.isEmpty;
+import static org.finos.waltz.common.FunctionUtilities.time;
 import static org.finos.waltz.common.ListUtilities.map;
 import static org.finos.waltz.common.MapUtilities.groupBy;
 import static org.finos.waltz.common.MapUtilities.indexBy;
@@ -66,7 +68,6 @@ public class SurveyRunService {
     private final PersonDao personDao;
     private final SurveyInstanceDao surveyInstanceDao;
     private final SurveyInstanceRecipientDao surveyInstanceRecipientDao;
-    private final SurveyInstanceOwnerDao surveyInstanceOwnerDao;
     private final SurveyRunDao surveyRunDao;
     private final SurveyTemplateDao surveyTemplateDao;
     private final SurveyQuestionResponseDao surveyQuestionResponseDao;
@@ -82,7 +83,6 @@ public class SurveyRunService {
                             PersonDao personDao,
                             SurveyInstanceDao surveyInstanceDao,
                             SurveyInstanceRecipientDao surveyInstanceRecipientDao,
-                            SurveyInstanceOwnerDao surveyInstanceOwnerDao,
                             SurveyRunDao surveyRunDao,
                             SurveyTemplateDao surveyTemplateDao,
                             SurveyQuestionResponseDao surveyQuestionResponseDao,
@@ -93,7 +93,6 @@ public class SurveyRunService {
         checkNotNull(personDao, "personDao cannot be null");
         checkNotNull(surveyInstanceDao, "surveyInstanceDao cannot be null");
         checkNotNull(surveyInstanceRecipientDao, "surveyInstanceRecipientDao cannot be null");
-        checkNotNull(surveyInstanceOwnerDao, "surveyInstanceOwnerDao cannot be null");
         checkNotNull(surveyRunDao, "surveyRunDao cannot be null");
         checkNotNull(surveyTemplateDao, "surveyTemplateDao cannot be null");
         checkNotNull(surveyQuestionResponseDao, "surveyQuestionResponseDao cannot be null");
@@ -104,7 +103,6 @@ public class SurveyRunService {
         this.personDao = personDao;
         this.surveyInstanceDao = surveyInstanceDao;
         this.surveyInstanceRecipientDao = surveyInstanceRecipientDao;
-        this.surveyInstanceOwnerDao = surveyInstanceOwnerDao;
         this.surveyRunDao = surveyRunDao;
         this.surveyTemplateDao = surveyTemplateDao;
         this.surveyQuestionResponseDao = surveyQuestionResponseDao;
@@ -442,68 +440,54 @@ public class SurveyRunService {
                         toList()
                 ));
 
-        // delete existing instances and recipients
-        deleteSurveyInstancesAndRecipients(command.surveyRunId());
+        List<SurveyInstanceIssuance> issuances = new ArrayList<>();
 
-        // insert new instances and recipients
         instancesAndRecipientsToSave.forEach(
-                (k,v) -> {
+                (k, v) -> {
+                    Set<Long> ownerIds = new HashSet<>();
+                    ownerIds.add(surveyRun.ownerId());
+                    fromCollection(surveyOwnersByInstance.get(k)).forEach(o -> ownerIds.add(o.person().id().get()));
+
                     if (surveyRun.issuanceKind() == SurveyIssuanceKind.GROUP) {
                         // one instance per group
-                        long instanceId = createSurveyInstance(k);
-                        createSurveyInstanceOwner(instanceId, surveyRun.ownerId());
-                        Collection<SurveyInstanceOwner> owners = surveyOwnersByInstance.get(k);
-                        fromCollection(owners).forEach(o -> createSurveyInstanceOwner(instanceId, o.person().id().get()));
-                        v.forEach(r -> createSurveyInstanceRecipient(instanceId, r));
+                        issuances.add(mkIssuance(k, ownerIds, v));
                     } else {
                         // one instance for each individual
-                        v.forEach(r -> {
-                            long instanceId = createSurveyInstance(k);
-                            createSurveyInstanceOwner(instanceId, surveyRun.ownerId());
-                            Collection<SurveyInstanceOwner> owners = surveyOwnersByInstance.get(k);
-                            fromCollection(owners).forEach(o -> createSurveyInstanceOwner(instanceId, o.person().id().get()));
-                            createSurveyInstanceRecipient(instanceId, r);
-                        });
+                        v.forEach(r -> issuances.add(mkIssuance(k, ownerIds, singletonList(r))));
                     }
                 }
         );
 
-        return true;
-    }
-
+        // replaces existing instances, owners and recipients in a single transaction
+        time(
+                format("SurveyRunService.createSurveyInstancesAndRecipients: issuing %d instances for run %d", issuances.size(), command.surveyRunId()),
+                () -> surveyInstanceDao.replaceInstancesForSurveyRun(command.surveyRunId(), issuances));
 
-    private void deleteSurveyInstancesAndRecipients(long surveyRunId) {
-        surveyInstanceRecipientDao.deleteForSurveyRun(surveyRunId);
-        surveyInstanceDao.deleteForSurveyRun(surveyRunId);
+        return true;
     }
 
 
-    private long createSurveyInstance(SurveyInstance surveyInstance) {
-        return surveyInstanceDao
-                .create(ImmutableSurveyInstanceCreateCommand.builder()
-                        .surveyRunId(surveyInstance.surveyRunId())
-                        .entityReference(surveyInstance.surveyEntity())
-                        .status(surveyInstance.status())
-                        .dueDate(surveyInstance.dueDate())
-                        .approvalDueDate(surveyInstance.approvalDueDate())
-                        .owningRole(surveyInstance.owningRole())
-                        .name(surveyInstance.name())
-                        .build());
+    private SurveyInstanceIssuance mkIssuance(SurveyInstance surveyInstance,
+                                              Set<Long> ownerIds,
+                                              List<SurveyInstanceRecipient> recipients) {
+        return ImmutableSurveyInstanceIssuance.builder()
+                .instance(mkSurveyInstanceCreateCommand(surveyInstance))
+                .ownerIds(ownerIds)
+                .recipientIds(map(recipients, r -> r.person().id().get()))
+                .build();
     }
 
 
-    private long createSurveyInstanceRecipient(long surveyInstanceId, SurveyInstanceRecipient surveyInstanceRecipient) {
-        return surveyInstanceRecipientDao.create(ImmutableSurveyInstanceRecipientCreateCommand.builder()
-                .surveyInstanceId(surveyInstanceId)
-                .personId(surveyInstanceRecipient.person().id().get())
-                .build());
-    }
-
-    private long createSurveyInstanceOwner(long surveyInstanceId, Long ownerId) {
-        return surveyInstanceOwnerDao.create(ImmutableSurveyInstanceOwnerCreateCommand.builder()
-                .surveyInstanceId(surveyInstanceId)
-                .personId(ownerId)
-                .build());
+    private SurveyInstanceCreateCommand mkSurveyInstanceCreateCommand(SurveyInstance surveyInstance) {
+        return ImmutableSurveyInstanceCreateCommand.builder()
+                .surveyRunId(surveyInstance.surveyRunId())
+                .entityReference(surveyInstance.surveyEntity())
+                .status(surveyInstance.status())
+                .dueDate(surveyInstance.dueDate())
+                .approvalDueDate(surveyInstance.approvalDueDate())
+                .owningRole(surveyInstance.owningRole())
+                .name(surveyInstance.name())
+                .build();
     }
 
 
@@ -0,0 +1,123 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.survey.inclusion_evaluator;
+
+import org.apache.commons.jexl3.JexlContext;
+import org.apache.commons.jexl3.JexlEngine;
+import org.apache.commons.jexl3.JexlExpression;
+import org.finos.waltz.model.survey.SurveyQuestion;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static java.util.Collections.unmodifiableMap;
+import static java.util.stream.Collectors.toList;
+import static org.finos.waltz.common.StringUtilities.isEmpty;
+
+/**
+ * The inclusion predicates of a survey template's questions, compiled once and
+ * shared between every evaluation of the template.  The expressions are
+ * thread safe and do not refer to a particular subject, the namespace is
+ * supplied by the context at evaluation time.
+ *
+ * The source predicates are retained so a change to any of the template's
+ * questions can be detected (see `isCompiledFrom`).
+ */
+public class CompiledQuestionPredicates {
+
+    private final Map<Long, Optional<String>> predicatesByQuestionId;
+    private final Map<Long, JexlExpression> expressionsByQuestionId;
+    private final Set<SubjectFact> requiredFacts;
+
+
+    private CompiledQuestionPredicates(Map<Long, Optional<String>> predicatesByQuestionId,
+                                       Map<Long, JexlExpression> expressionsByQuestionId,
+                                       Set<SubjectFact> requiredFacts) {
+        this.predicatesByQuestionId = unmodifiableMap(predicatesByQuestionId);
+        this.expressionsByQuestionId = unmodifiableMap(expressionsByQuestionId);
+        this.requiredFacts = requiredFacts;
+    }
+
+
+    public static CompiledQuestionPredicates compile(JexlEngine jexl,
+                                                     List<SurveyQuestion> qs) {
+        Map<Long, Optional<String>> predicatesByQuestionId = mkPredicatesByQuestionId(qs);
+        Map<Long, JexlExpression> expressionsByQuestionId = new HashMap<>();
+
+        predicatesByQuestionId.forEach((qId, predicate) -> predicate
+                .filter(p -> ! isEmpty(p))
+                .ifPresent(p -> expressionsByQuestionId.put(qId, jexl.createExpression(p))));
+
+        Set<SubjectFact> requiredFacts = SubjectFact.referencedBy(expressionsByQuestionId
+                .values()
+                .stream()
+                .map(JexlExpression::getSourceText)
+                .collect(toList()));
+
+        return new CompiledQuestionPredicates(
+                predicatesByQuestionId,
+                expressionsByQuestionId,
+                requiredFacts);
+    }
+
+
+    /**
+     * @return true if these predicates were compiled from an identical set of questions/predicates
+     */
+    public boolean isCompiledFrom(List<SurveyQuestion> qs) {
+        return predicatesByQuestionId.equals(mkPredicatesByQuestionId(qs));
+    }
+
+
+    /**
+     * @return the subject facts referred to by any of the predicates
+     */
+    public Set<SubjectFact> requiredFacts() {
+        return requiredFacts;
+    }
+
+
+    /**
+     * Questions without a predicate (or with an empty predicate) are always included.
+     *
+     * @param q  the question to test
+     * @param ctx  context providing the subject/response specific namespace
+     * @return whether the question should be included
+     */
+    public boolean isIncluded(SurveyQuestion q, JexlContext ctx) {
+        JexlExpression expr = q.id()
+                .map(expressionsByQuestionId::get)
+                .orElse(null);
+
+        return expr == null
+                || Boolean.valueOf(expr.evaluate(ctx).toString());
+    }
+
+
+    // --- helpers ---
+
+    private static Map<Long, Optional<String>> mkPredicatesByQuestionId(List<SurveyQuestion> qs) {
+        Map<Long, Optional<String>> predicatesByQuestionId = new HashMap<>();
+        qs.forEach(q -> q.id().ifPresent(id -> predicatesByQuestionId.put(id, q.inclusionPredicate())));
+        return predicatesByQuestionId;
+    }
+}
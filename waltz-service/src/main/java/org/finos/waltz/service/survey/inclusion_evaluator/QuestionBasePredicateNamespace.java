@@ -1,7 +1,5 @@
 package org.finos.waltz.service.survey.inclusion_evaluator;
 
-import org.apache.commons.jexl3.JexlEngine;
-import org.apache.commons.jexl3.MapContext;
 import org.finos.waltz.model.ExternalIdProvider;
 import org.finos.waltz.model.survey.SurveyQuestion;
 import org.finos.waltz.model.survey.SurveyQuestionResponse;
@@ -11,6 +9,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import static org.jooq.lambda.tuple.Tuple.tuple;
@@ -24,7 +23,7 @@ public class QuestionBasePredicateNamespace {
 
     private final Map<String, SurveyQuestion> questionsByExtId;
     private final Map<Long, SurveyQuestionResponse> responsesByQuestionId;
-    private JexlEngine jexl;
+    private Predicate<SurveyQuestion> inclusionEvaluator;
 
 
     public QuestionBasePredicateNamespace(List<SurveyQuestion> questions,
@@ -69,11 +68,7 @@ public class QuestionBasePredicateNamespace {
         SurveyQuestion referencedQuestion = questionsByExtId
                 .get(qExtId);
 
-        return referencedQuestion
-                .inclusionPredicate()
-                .map(p -> jexl.createExpression(p).evaluate(new MapContext()))
-                .map(r -> Boolean.valueOf(r.toString()))
-                .orElse(true);
+        return inclusionEvaluator.test(referencedQuestion);
     }
 
 
@@ -96,10 +91,10 @@ public class QuestionBasePredicateNamespace {
 
     /**
      * Need to pass in the evaluator so that 'recursive' functions can be computed (e.g. 'DITTO')
-     * @param jexl
+     * @param inclusionEvaluator  evaluates the inclusion predicate of a question (in the context of this namespace)
      */
-    public void usingEvaluator(JexlEngine jexl) {
-        this.jexl = jexl;
+    public void usingEvaluator(Predicate<SurveyQuestion> inclusionEvaluator) {
+        this.inclusionEvaluator = inclusionEvaluator;
     }
 
 
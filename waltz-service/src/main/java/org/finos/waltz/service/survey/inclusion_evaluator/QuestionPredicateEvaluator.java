@@ -18,55 +18,190 @@
 
 package org.finos.waltz.service.survey.inclusion_evaluator;
 
-import org.apache.commons.jexl3.*;
+import org.apache.commons.jexl3.JexlBuilder;
+import org.apache.commons.jexl3.JexlContext;
+import org.apache.commons.jexl3.JexlEngine;
+import org.apache.commons.jexl3.MapContext;
+import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.survey.SurveyInstance;
 import org.finos.waltz.model.survey.SurveyQuestion;
 import org.finos.waltz.model.survey.SurveyQuestionResponse;
 import org.jooq.DSLContext;
-
+import org.jooq.Record1;
+import org.jooq.Select;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.schema.Tables.SURVEY_INSTANCE;
+
+/**
+ * Determines which questions are active for a survey subject by evaluating the
+ * questions' inclusion predicates.
+ *
+ * Predicates are compiled once per template (and recompiled if any of the
+ * template's predicates change).  Facts about the subject (org unit, data types,
+ * assessments etc.) are prefetched, one query per group of facts actually
+ * referred to by the predicates, rather than queried as each predicate is evaluated.
+ */
+@Service
+public class QuestionPredicateEvaluator {
 
-import static org.finos.waltz.common.MapUtilities.newHashMap;
-import static org.finos.waltz.common.StringUtilities.isEmpty;
+    private final JexlEngine jexl = new JexlBuilder().create();
+    private final ConcurrentMap<Long, CompiledQuestionPredicates> compiledPredicatesByTemplateId = new ConcurrentHashMap<>();
+    private final SubjectFactLoader subjectFactLoader;
 
-public class QuestionPredicateEvaluator {
 
-    public static List<SurveyQuestion> eval(DSLContext dsl,
-                                     List<SurveyQuestion> qs,
+    @Autowired
+    public QuestionPredicateEvaluator(DSLContext dsl) {
+        checkNotNull(dsl, "dsl cannot be null");
+        this.subjectFactLoader = new SubjectFactLoader(dsl);
+    }
+
+
+    public List<SurveyQuestion> eval(List<SurveyQuestion> qs,
                                      EntityReference subjectRef,
                                      Map<Long, SurveyQuestionResponse> responsesByQuestionId) {
+        checkNotNull(qs, "qs cannot be null");
+        checkNotNull(subjectRef, "subjectRef cannot be null");
 
-        QuestionBasePredicateNamespace namespace = mkPredicateNameSpace(dsl, qs, subjectRef, responsesByQuestionId);
+        CompiledQuestionPredicates compiled = compile(qs);
 
-        JexlBuilder builder = new JexlBuilder();
-        JexlEngine jexl = builder
-                .namespaces(newHashMap(null, namespace))
-                .create();
+        SubjectFacts facts = subjectFactLoader
+                .load(subjectRef.kind(), DSL.select(DSL.val(subjectRef.id())), compiled.requiredFacts())
+                .getOrDefault(
+                        subjectRef.id(),
+                        SubjectFactLoader.emptyFacts(subjectRef.kind(), compiled.requiredFacts()));
 
-        namespace.usingEvaluator(jexl);
+        return determineActiveQs(compiled, qs, subjectRef, facts, responsesByQuestionId);
+    }
 
-        List<SurveyQuestion> activeQs = determineActiveQs(qs, jexl);
 
-        return activeQs;
+    /**
+     * Evaluates the questions for many instances (of the same template) at once, e.g.
+     * all the instances in a survey run.  Subject facts are loaded in bulk, one query
+     * per fact group and subject kind.
+     *
+     * @param qs  the questions of the template
+     * @param instances  the instances to evaluate
+     * @param responsesByInstanceId  responses, keyed by instance id and then question id
+     * @param instanceIdSelector  selects (at least) the ids of the given instances
+     * @return active questions keyed by instance id
+     */
+    public Map<Long, List<SurveyQuestion>> evalForInstances(List<SurveyQuestion> qs,
+                                                            Collection<SurveyInstance> instances,
+                                                            Map<Long, Map<Long, SurveyQuestionResponse>> responsesByInstanceId,
+                                                            Select<Record1<Long>> instanceIdSelector) {
+        checkNotNull(qs, "qs cannot be null");
+        checkNotNull(instances, "instances cannot be null");
+        checkNotNull(responsesByInstanceId, "responsesByInstanceId cannot be null");
+        checkNotNull(instanceIdSelector, "instanceIdSelector cannot be null");
+
+        CompiledQuestionPredicates compiled = compile(qs);
+
+        Map<EntityKind, List<SurveyInstance>> instancesBySubjectKind = instances
+                .stream()
+                .collect(groupingBy(si -> si.surveyEntity().kind()));
+
+        Map<Long, List<SurveyQuestion>> activeQsByInstanceId = new HashMap<>();
+
+        instancesBySubjectKind.forEach((subjectKind, instancesForKind) -> {
+            Select<Record1<Long>> subjectIdSelector = DSL
+                    .select(SURVEY_INSTANCE.ENTITY_ID)
+                    .from(SURVEY_INSTANCE)
+                    .where(SURVEY_INSTANCE.ID.in(instanceIdSelector))
+                    .and(SURVEY_INSTANCE.ENTITY_KIND.eq(subjectKind.name()));
+
+            Map<Long, SubjectFacts> factsBySubjectId = subjectFactLoader.load(
+                    subjectKind,
+                    subjectIdSelector,
+                    compiled.requiredFacts());
+
+            SubjectFacts emptyFacts = SubjectFactLoader.emptyFacts(subjectKind, compiled.requiredFacts());
+
+            instancesForKind.forEach(si -> {
+                EntityReference subjectRef = si.surveyEntity();
+                Long instanceId = si.id().get();
+                List<SurveyQuestion> activeQs = determineActiveQs(
+                        compiled,
+                        qs,
+                        subjectRef,
+                        factsBySubjectId.getOrDefault(subjectRef.id(), emptyFacts),
+                        responsesByInstanceId.getOrDefault(instanceId, Collections.emptyMap()));
+
+                activeQsByInstanceId.put(instanceId, activeQs);
+            });
+        });
+
+        return activeQsByInstanceId;
     }
 
 
+    // --- helpers ---
 
+    private CompiledQuestionPredicates compile(List<SurveyQuestion> qs) {
+        Set<Long> templateIds = qs
+                .stream()
+                .map(SurveyQuestion::surveyTemplateId)
+                .collect(toSet());
 
-    private static QuestionBasePredicateNamespace mkPredicateNameSpace(DSLContext dsl, List<SurveyQuestion> qs, EntityReference subjectRef, Map<Long, SurveyQuestionResponse> responsesByQuestionId) {
+        if (templateIds.size() != 1) {
+            // nothing sensible to cache against
+            return CompiledQuestionPredicates.compile(jexl, qs);
+        }
+
+        return compiledPredicatesByTemplateId.compute(
+                templateIds.iterator().next(),
+                (templateId, existing) -> existing != null && existing.isCompiledFrom(qs)
+                        ? existing
+                        : CompiledQuestionPredicates.compile(jexl, qs));
+    }
+
+
+    private static List<SurveyQuestion> determineActiveQs(CompiledQuestionPredicates compiled,
+                                                          List<SurveyQuestion> qs,
+                                                          EntityReference subjectRef,
+                                                          SubjectFacts facts,
+                                                          Map<Long, SurveyQuestionResponse> responsesByQuestionId) {
+        QuestionBasePredicateNamespace namespace = mkPredicateNameSpace(facts, qs, subjectRef, responsesByQuestionId);
+        JexlContext ctx = new PredicateContext(namespace);
+
+        namespace.usingEvaluator(q -> compiled.isIncluded(q, ctx));
+
+        return qs
+                .stream()
+                .filter(q -> compiled.isIncluded(q, ctx))
+                .collect(toList());
+    }
+
+
+    private static QuestionBasePredicateNamespace mkPredicateNameSpace(SubjectFacts facts,
+                                                                       List<SurveyQuestion> qs,
+                                                                       EntityReference subjectRef,
+                                                                       Map<Long, SurveyQuestionResponse> responsesByQuestionId) {
         switch (subjectRef.kind()) {
             case APPLICATION:
                 return new QuestionAppPredicateNamespace(
-                        dsl,
-                        subjectRef,
+                        facts,
                         qs,
                         responsesByQuestionId);
             case CHANGE_INITIATIVE:
                 return new QuestionChangeInitiativePredicateNamespace(
-                        dsl,
-                        subjectRef,
+                        facts,
                         qs,
                         responsesByQuestionId);
             default:
@@ -75,25 +210,26 @@ public class QuestionPredicateEvaluator {
     }
 
 
-    private static List<SurveyQuestion> determineActiveQs(List<SurveyQuestion> qs, JexlEngine jexl) {
-        List<SurveyQuestion> activeQs = qs
-                .stream()
-                .filter(q -> q
-                        .inclusionPredicate()
-                        .map(p -> {
-                            if (isEmpty(p)) {
-                                return true;
-                            } else {
-                                JexlExpression expr = jexl.createExpression(p);
-                                JexlContext jexlCtx = new MapContext();
-                                return Boolean.valueOf(expr.evaluate(jexlCtx).toString());
-                            }
-                        })
-                        .orElse(true))
-                .collect(Collectors.toList());
-        return activeQs;
-    }
+    /**
+     * Supplies the subject specific namespace as the default (un-prefixed) namespace,
+     * allowing the compiled expressions to be shared between subjects.
+     */
+    private static class PredicateContext extends MapContext implements JexlContext.NamespaceResolver {
+
+        private final QuestionBasePredicateNamespace namespace;
 
 
+        private PredicateContext(QuestionBasePredicateNamespace namespace) {
+            this.namespace = namespace;
+        }
+
+
+        @Override
+        public Object resolveNamespace(String name) {
+            return name == null
+                    ? namespace
+                    : null;
+        }
+    }
 
 }
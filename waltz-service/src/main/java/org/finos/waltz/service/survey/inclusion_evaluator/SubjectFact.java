@@ -0,0 +1,81 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.survey.inclusion_evaluator;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.finos.waltz.common.SetUtilities.asSet;
+
+/**
+ * The groups of facts about a survey subject which may be referred to by
+ * question inclusion predicates.  Each group is loaded by a single query
+ * (see `SubjectFactLoader`), but only if a predicate calls one of the
+ * group's functions.
+ */
+public enum SubjectFact {
+
+    /** kind, lifecycle phase and retirement dates of the subject itself */
+    DETAILS("isRetiring", "isAppKind", "hasLifecyclePhase"),
+    ORG_UNITS("belongsToOrgUnit"),
+    DATA_TYPE_USAGES("hasDataType", "dataTypeUsages"),
+    ASSESSMENT_RATINGS("assessmentRating"),
+    INVOLVEMENTS("hasInvolvement");
+
+
+    private static final Pattern FUNCTION_CALL = Pattern.compile("([A-Za-z_][A-Za-z0-9_]*)\\s*\\(");
+
+    private final Set<String> functionNames;
+
+
+    SubjectFact(String... functionNames) {
+        this.functionNames = asSet(functionNames);
+    }
+
+
+    /**
+     * Determines which facts are needed to evaluate the given predicates by
+     * looking for calls to the functions of each group.  This errs on the side
+     * of caution, e.g. a function name within a string literal will still
+     * cause the group to be loaded.
+     *
+     * @param predicates  predicate expressions, typically all predicates of a survey template
+     * @return the fact groups referred to by the predicates
+     */
+    public static Set<SubjectFact> referencedBy(Collection<String> predicates) {
+        Set<SubjectFact> facts = EnumSet.noneOf(SubjectFact.class);
+
+        predicates.forEach(p -> {
+            Matcher matcher = FUNCTION_CALL.matcher(p);
+            while (matcher.find()) {
+                String fn = matcher.group(1);
+                for (SubjectFact fact : values()) {
+                    if (fact.functionNames.contains(fn)) {
+                        facts.add(fact);
+                    }
+                }
+            }
+        });
+
+        return facts;
+    }
+}
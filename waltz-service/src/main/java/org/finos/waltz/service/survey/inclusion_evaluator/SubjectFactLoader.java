@@ -0,0 +1,268 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.survey.inclusion_evaluator;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.schema.tables.Application;
+import org.finos.waltz.schema.tables.ChangeInitiative;
+import org.finos.waltz.schema.tables.DataType;
+import org.finos.waltz.schema.tables.DataTypeUsage;
+import org.finos.waltz.schema.tables.EntityHierarchy;
+import org.finos.waltz.schema.tables.OrganisationalUnit;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record1;
+import org.jooq.Select;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.schema.Tables.*;
+
+/**
+ * Loads the facts referred to by inclusion predicates for a set of subjects, issuing
+ * (at most) one query per fact group regardless of the number of subjects or questions.
+ *
+ * Only applications and change initiatives have subject facts, other kinds of subject
+ * are restricted to response based predicates.
+ */
+public class SubjectFactLoader {
+
+    private static final Set<EntityKind> SUPPORTED_KINDS = EnumSet.of(
+            EntityKind.APPLICATION,
+            EntityKind.CHANGE_INITIATIVE);
+
+    private final DSLContext dsl;
+
+
+    public SubjectFactLoader(DSLContext dsl) {
+        checkNotNull(dsl, "dsl cannot be null");
+        this.dsl = dsl;
+    }
+
+
+    /**
+     * @param subjectKind  kind of the subjects, determines which tables the facts are loaded from
+     * @param subjectIdSelector  selects the ids of the subjects
+     * @param facts  the fact groups to load, typically determined via `SubjectFact#referencedBy`
+     * @return facts keyed by subject id, subjects with no facts may be absent (see `emptyFacts`)
+     */
+    public Map<Long, SubjectFacts> load(EntityKind subjectKind,
+                                        Select<Record1<Long>> subjectIdSelector,
+                                        Set<SubjectFact> facts) {
+        checkNotNull(subjectKind, "subjectKind cannot be null");
+        checkNotNull(subjectIdSelector, "subjectIdSelector cannot be null");
+        checkNotNull(facts, "facts cannot be null");
+
+        Set<SubjectFact> factsToLoad = loadableFacts(subjectKind, facts);
+        Map<Long, SubjectFacts> factsBySubjectId = new HashMap<>();
+
+        for (SubjectFact fact : factsToLoad) {
+            switch (fact) {
+                case DETAILS:
+                    loadDetails(subjectKind, subjectIdSelector, factsToLoad, factsBySubjectId);
+                    break;
+                case ORG_UNITS:
+                    loadOrgUnits(subjectKind, subjectIdSelector, factsToLoad, factsBySubjectId);
+                    break;
+                case DATA_TYPE_USAGES:
+                    loadDataTypeUsages(subjectKind, subjectIdSelector, factsToLoad, factsBySubjectId);
+                    break;
+                case ASSESSMENT_RATINGS:
+                    loadAssessmentRatings(subjectKind, subjectIdSelector, factsToLoad, factsBySubjectId);
+                    break;
+                case INVOLVEMENTS:
+                    loadInvolvements(subjectKind, subjectIdSelector, factsToLoad, factsBySubjectId);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Cannot load subject fact: " + fact);
+            }
+        }
+
+        return factsBySubjectId;
+    }
+
+
+    /**
+     * The facts to use for a subject which is absent from the result of `load`, i.e.
+     * one with no org unit, data types, ratings etc.
+     */
+    public static SubjectFacts emptyFacts(EntityKind subjectKind, Set<SubjectFact> facts) {
+        return new SubjectFacts(loadableFacts(subjectKind, facts));
+    }
+
+
+    // --- fact groups ---
+
+    private void loadDetails(EntityKind subjectKind,
+                             Select<Record1<Long>> subjectIdSelector,
+                             Set<SubjectFact> factsToLoad,
+                             Map<Long, SubjectFacts> factsBySubjectId) {
+        if (subjectKind == EntityKind.APPLICATION) {
+            Application app = APPLICATION.as("app");
+
+            Condition isPlanned = app.PLANNED_RETIREMENT_DATE.isNotNull();
+            Condition notRetiredYet = app.ACTUAL_RETIREMENT_DATE.isNull()
+                    .or(app.ACTUAL_RETIREMENT_DATE.greaterOrEqual(DSL.now()));
+
+            Field<Boolean> isRetiring = DSL
+                    .when(isPlanned.and(notRetiredYet), DSL.inline(true))
+                    .otherwise(DSL.inline(false));
+
+            dsl.select(app.ID, app.KIND, app.LIFECYCLE_PHASE, isRetiring)
+                    .from(app)
+                    .where(app.ID.in(subjectIdSelector))
+                    .forEach(r -> factsFor(r.get(app.ID), factsToLoad, factsBySubjectId)
+                            .setDetails(
+                                    r.get(app.KIND),
+                                    r.get(app.LIFECYCLE_PHASE),
+                                    r.get(isRetiring)));
+        } else {
+            ChangeInitiative ci = CHANGE_INITIATIVE.as("ci");
+
+            dsl.select(ci.ID, ci.LIFECYCLE_PHASE)
+                    .from(ci)
+                    .where(ci.ID.in(subjectIdSelector))
+                    .forEach(r -> factsFor(r.get(ci.ID), factsToLoad, factsBySubjectId)
+                            .setDetails(
+                                    null,
+                                    r.get(ci.LIFECYCLE_PHASE),
+                                    false));
+        }
+    }
+
+
+    private void loadOrgUnits(EntityKind subjectKind,
+                              Select<Record1<Long>> subjectIdSelector,
+                              Set<SubjectFact> factsToLoad,
+                              Map<Long, SubjectFacts> factsBySubjectId) {
+        Table<?> subjectTable;
+        Field<Long> subjectId;
+        Field<Long> subjectOu;
+
+        if (subjectKind == EntityKind.APPLICATION) {
+            Application app = APPLICATION.as("app");
+            subjectTable = app;
+            subjectId = app.ID;
+            subjectOu = app.ORGANISATIONAL_UNIT_ID;
+        } else {
+            ChangeInitiative ci = CHANGE_INITIATIVE.as("ci");
+            subjectTable = ci;
+            subjectId = ci.ID;
+            subjectOu = ci.ORGANISATIONAL_UNIT_ID;
+        }
+
+        EntityHierarchy eh = ENTITY_HIERARCHY.as("eh");
+        OrganisationalUnit ou = ORGANISATIONAL_UNIT.as("ou");
+
+        // every org unit which the subject's org unit sits beneath
+        dsl.select(subjectId, ou.NAME, ou.EXTERNAL_ID)
+                .from(subjectTable)
+                .innerJoin(eh).on(eh.ID.eq(subjectOu)
+                        .and(eh.KIND.eq(EntityKind.ORG_UNIT.name())))
+                .innerJoin(ou).on(ou.ID.eq(eh.ANCESTOR_ID))
+                .where(subjectId.in(subjectIdSelector))
+                .forEach(r -> factsFor(r.get(subjectId), factsToLoad, factsBySubjectId)
+                        .addOrgUnit(
+                                r.get(ou.NAME),
+                                r.get(ou.EXTERNAL_ID)));
+    }
+
+
+    private void loadDataTypeUsages(EntityKind subjectKind,
+                                    Select<Record1<Long>> subjectIdSelector,
+                                    Set<SubjectFact> factsToLoad,
+                                    Map<Long, SubjectFacts> factsBySubjectId) {
+        DataTypeUsage dtu = DATA_TYPE_USAGE.as("dtu");
+        DataType dt = DATA_TYPE.as("dt");
+        EntityHierarchy eh = ENTITY_HIERARCHY.as("eh");
+
+        // each usage is recorded against the used data type and all of its ancestors
+        dsl.select(dtu.ENTITY_ID, dt.NAME, dt.CODE, dtu.USAGE_KIND)
+                .from(dtu)
+                .innerJoin(eh).on(eh.ID.eq(dtu.DATA_TYPE_ID)
+                        .and(eh.KIND.eq(EntityKind.DATA_TYPE.name())))
+                .innerJoin(dt).on(dt.ID.eq(eh.ANCESTOR_ID))
+                .where(dtu.ENTITY_KIND.eq(subjectKind.name()))
+                .and(dtu.ENTITY_ID.in(subjectIdSelector))
+                .forEach(r -> factsFor(r.get(dtu.ENTITY_ID), factsToLoad, factsBySubjectId)
+                        .addDataTypeUsage(
+                                r.get(dt.NAME),
+                                r.get(dt.CODE),
+                                r.get(dtu.USAGE_KIND)));
+    }
+
+
+    private void loadAssessmentRatings(EntityKind subjectKind,
+                                       Select<Record1<Long>> subjectIdSelector,
+                                       Set<SubjectFact> factsToLoad,
+                                       Map<Long, SubjectFacts> factsBySubjectId) {
+        dsl.select(ASSESSMENT_RATING.ENTITY_ID,
+                        ASSESSMENT_DEFINITION.NAME,
+                        ASSESSMENT_DEFINITION.EXTERNAL_ID,
+                        RATING_SCHEME_ITEM.CODE)
+                .from(ASSESSMENT_RATING)
+                .innerJoin(ASSESSMENT_DEFINITION).on(ASSESSMENT_DEFINITION.ID.eq(ASSESSMENT_RATING.ASSESSMENT_DEFINITION_ID))
+                .innerJoin(RATING_SCHEME_ITEM).on(RATING_SCHEME_ITEM.ID.eq(ASSESSMENT_RATING.RATING_ID))
+                .where(ASSESSMENT_RATING.ENTITY_KIND.eq(subjectKind.name()))
+                .and(ASSESSMENT_RATING.ENTITY_ID.in(subjectIdSelector))
+                .orderBy(ASSESSMENT_RATING.ENTITY_ID, ASSESSMENT_DEFINITION.ID, RATING_SCHEME_ITEM.POSITION)
+                .forEach(r -> factsFor(r.get(ASSESSMENT_RATING.ENTITY_ID), factsToLoad, factsBySubjectId)
+                        .addAssessmentRating(
+                                r.get(ASSESSMENT_DEFINITION.NAME),
+                                r.get(ASSESSMENT_DEFINITION.EXTERNAL_ID),
+                                r.get(RATING_SCHEME_ITEM.CODE)));
+    }
+
+
+    private void loadInvolvements(EntityKind subjectKind,
+                                  Select<Record1<Long>> subjectIdSelector,
+                                  Set<SubjectFact> factsToLoad,
+                                  Map<Long, SubjectFacts> factsBySubjectId) {
+        dsl.selectDistinct(INVOLVEMENT.ENTITY_ID, INVOLVEMENT_KIND.NAME)
+                .from(INVOLVEMENT)
+                .innerJoin(INVOLVEMENT_KIND).on(INVOLVEMENT_KIND.ID.eq(INVOLVEMENT.KIND_ID))
+                .where(INVOLVEMENT.ENTITY_KIND.eq(subjectKind.name()))
+                .and(INVOLVEMENT.ENTITY_ID.in(subjectIdSelector))
+                .forEach(r -> factsFor(r.get(INVOLVEMENT.ENTITY_ID), factsToLoad, factsBySubjectId)
+                        .addInvolvementKind(r.get(INVOLVEMENT_KIND.NAME)));
+    }
+
+
+    // --- helpers ---
+
+    private static SubjectFacts factsFor(Long subjectId,
+                                         Set<SubjectFact> factsToLoad,
+                                         Map<Long, SubjectFacts> factsBySubjectId) {
+        return factsBySubjectId.computeIfAbsent(subjectId, k -> new SubjectFacts(factsToLoad));
+    }
+
+
+    private static Set<SubjectFact> loadableFacts(EntityKind subjectKind, Set<SubjectFact> facts) {
+        return SUPPORTED_KINDS.contains(subjectKind)
+                ? facts
+                : EnumSet.noneOf(SubjectFact.class);
+    }
+}
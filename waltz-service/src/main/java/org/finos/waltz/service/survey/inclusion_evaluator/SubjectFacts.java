@@ -0,0 +1,172 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.survey.inclusion_evaluator;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static java.lang.String.format;
+
+/**
+ * The prefetched facts about a single survey subject, used by the predicate
+ * namespaces in place of per-call queries.
+ *
+ * Instances are populated by the `SubjectFactLoader`.  Asking for a fact group
+ * which was not loaded is an error as it indicates the predicate analysis
+ * (see `SubjectFact#referencedBy`) has missed a function.
+ */
+public class SubjectFacts {
+
+    private final Set<SubjectFact> loadedFacts;
+
+    private String kind;
+    private String lifecyclePhase;
+    private boolean retiring;
+    private final Set<String> orgUnitNamesAndExternalIds = new HashSet<>();
+    private final Map<String, Set<String>> usageKindsByDataTypeNameOrCode = new HashMap<>();
+    private final Map<String, String> ratingCodesByDefinitionNameOrExternalId = new HashMap<>();
+    private final Set<String> involvementKindNames = new HashSet<>();
+
+
+    SubjectFacts(Set<SubjectFact> loadedFacts) {
+        this.loadedFacts = loadedFacts.isEmpty()
+                ? EnumSet.noneOf(SubjectFact.class)
+                : EnumSet.copyOf(loadedFacts);
+    }
+
+
+    // --- accessors used by the namespaces ---
+
+    public Optional<String> kind() {
+        ensureLoaded(SubjectFact.DETAILS);
+        return Optional.ofNullable(kind);
+    }
+
+
+    public Optional<String> lifecyclePhase() {
+        ensureLoaded(SubjectFact.DETAILS);
+        return Optional.ofNullable(lifecyclePhase);
+    }
+
+
+    public boolean isRetiring() {
+        ensureLoaded(SubjectFact.DETAILS);
+        return retiring;
+    }
+
+
+    /**
+     * @param name  name or external id of an org unit
+     * @return true if the subject belongs to the org unit or one of its descendants
+     */
+    public boolean belongsToOrgUnit(String name) {
+        ensureLoaded(SubjectFact.ORG_UNITS);
+        return orgUnitNamesAndExternalIds.contains(name);
+    }
+
+
+    /**
+     * @param name  name or code of a data type
+     * @return usage kinds of the data type (or any of its descendants) by the subject
+     */
+    public Set<String> dataTypeUsages(String name) {
+        ensureLoaded(SubjectFact.DATA_TYPE_USAGES);
+        return Collections.unmodifiableSet(usageKindsByDataTypeNameOrCode.getOrDefault(
+                name,
+                Collections.emptySet()));
+    }
+
+
+    public Optional<String> assessmentRating(String definitionNameOrExternalId) {
+        ensureLoaded(SubjectFact.ASSESSMENT_RATINGS);
+        return Optional.ofNullable(ratingCodesByDefinitionNameOrExternalId.get(definitionNameOrExternalId));
+    }
+
+
+    public boolean hasInvolvement(String involvementKindName) {
+        ensureLoaded(SubjectFact.INVOLVEMENTS);
+        return involvementKindName != null
+                && involvementKindNames.contains(involvementKindName.toLowerCase());
+    }
+
+
+    // --- population, used by the loader ---
+
+    void setDetails(String kind, String lifecyclePhase, boolean retiring) {
+        this.kind = kind;
+        this.lifecyclePhase = lifecyclePhase;
+        this.retiring = retiring;
+    }
+
+
+    void addOrgUnit(String name, String externalId) {
+        addIfPresent(orgUnitNamesAndExternalIds, name);
+        addIfPresent(orgUnitNamesAndExternalIds, externalId);
+    }
+
+
+    void addDataTypeUsage(String dataTypeName, String dataTypeCode, String usageKind) {
+        if (dataTypeName != null) {
+            usageKindsByDataTypeNameOrCode.computeIfAbsent(dataTypeName, k -> new HashSet<>()).add(usageKind);
+        }
+        if (dataTypeCode != null) {
+            usageKindsByDataTypeNameOrCode.computeIfAbsent(dataTypeCode, k -> new HashSet<>()).add(usageKind);
+        }
+    }
+
+
+    void addAssessmentRating(String definitionName, String definitionExternalId, String ratingCode) {
+        if (definitionName != null) {
+            ratingCodesByDefinitionNameOrExternalId.putIfAbsent(definitionName, ratingCode);
+        }
+        if (definitionExternalId != null) {
+            ratingCodesByDefinitionNameOrExternalId.putIfAbsent(definitionExternalId, ratingCode);
+        }
+    }
+
+
+    void addInvolvementKind(String involvementKindName) {
+        if (involvementKindName != null) {
+            involvementKindNames.add(involvementKindName.toLowerCase());
+        }
+    }
+
+
+    // --- helpers ---
+
+    private void ensureLoaded(SubjectFact fact) {
+        if (! loadedFacts.contains(fact)) {
+            throw new IllegalStateException(format(
+                    "Subject fact: %s was not loaded, cannot evaluate predicate",
+                    fact));
+        }
+    }
+
+
+    private static void addIfPresent(Set<String> set, String value) {
+        if (value != null) {
+            set.add(value);
+        }
+    }
+}
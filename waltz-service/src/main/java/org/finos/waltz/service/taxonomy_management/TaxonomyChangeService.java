@@ -41,6 +41,7 @@ import org.springframework.stereotype.Service;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import static java.util.stream.Collectors.toMap;
 import static org.finos.waltz.common.Checks.*;
@@ -148,15 +149,17 @@ public class TaxonomyChangeService {
 
         updatedCommand = taxonomyChangeDao.update(updatedCommand);
 
-        // rebuild measurable hierarchy
+        // update the measurable hierarchy beneath the affected node, or the whole category if there isn't one
         if (command.changeDomain().kind() == EntityKind.MEASURABLE_CATEGORY
                 && isHierarchyChange(command)) {
             long categoryId = command.changeDomain().id();
-            int insertCount = entityHierarchyService.buildForMeasurableByCategory(categoryId);
+            int changeCount = determineAffectedSubtree(command)
+                    .map(entityHierarchyService::buildForSubtree)
+                    .orElseGet(() -> entityHierarchyService.buildForMeasurableByCategory(categoryId));
             LOG.info(
-                    "Rebuilt measurable category: {},  inserted {} new records",
+                    "Updated hierarchy for measurable category: {}, changed {} records",
                     categoryId,
-                    insertCount);
+                    changeCount);
         }
 
         return updatedCommand;
@@ -218,6 +221,28 @@ public class TaxonomyChangeService {
     }
 
 
+    /**
+     * The root of the subtree whose hierarchy entries are affected by a change.
+     * Additions affect the subtree of the new node's parent (as the new node's id
+     * is not known), moves and removals affect the subtree of the primary node.
+     */
+    private Optional<EntityReference> determineAffectedSubtree(TaxonomyChangeCommand command) {
+        switch (command.changeType()) {
+            case ADD_CHILD:
+            case MOVE:
+            case REMOVE:
+                return Optional.of(command.primaryReference());
+            case ADD_PEER:
+                return measurableService
+                        .getById(command.primaryReference().id())
+                        .parentId()
+                        .map(parentId -> EntityReference.mkRef(EntityKind.MEASURABLE, parentId));
+            default:
+                return Optional.empty();
+        }
+    }
+
+
     private boolean isHierarchyChange(TaxonomyChangeCommand command) {
         return command.changeType() == TaxonomyChangeType.ADD_CHILD
                 || command.changeType() == TaxonomyChangeType.ADD_PEER
@@ -33,32 +33,44 @@ import org.finos.waltz.model.usage_info.UsageInfo;
 import org.finos.waltz.model.usage_info.UsageKind;
 import org.jooq.Record1;
 import org.jooq.Select;
-import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-import static org.finos.waltz.schema.tables.Actor.ACTOR;
-import static org.finos.waltz.schema.tables.Application.APPLICATION;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.CollectionUtilities.*;
+import static org.finos.waltz.common.DateTimeUtilities.nowUtc;
 import static org.finos.waltz.common.SetUtilities.fromCollection;
 import static org.finos.waltz.model.usage_info.UsageInfoUtilities.mkChangeSet;
 
 @Service
 public class DataTypeUsageService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(DataTypeUsageService.class);
+
+    private static final Duration CHANGE_DETECTION_LEEWAY = Duration.ofMinutes(5);
+
+    // safety net for changes which do not touch last_updated_at (e.g. decorators deleted directly by loaders)
+    private static final Duration FULL_RECALCULATION_INTERVAL = Duration.ofHours(24);
+
     private final DataTypeUsageDao dataTypeUsageDao;
     private final DataTypeDao dataTypeDao;
     private final ApplicationIdSelectorFactory appIdSelectorFactor = new ApplicationIdSelectorFactory();
     private final DataTypeIdSelectorFactory dataTypeIdSelectorFactory = new DataTypeIdSelectorFactory();
     private final ChangeLogService changeLogService;
 
+    private volatile LocalDateTime lastFullRecalculation = null;
+
 
     @Autowired
     public DataTypeUsageService(DataTypeUsageDao dataTypeUsageDao,
@@ -146,7 +158,36 @@ public class DataTypeUsageService {
 
 
     public boolean recalculateForAllApplications() {
-        return dataTypeUsageDao.recalculateForAllApplications();
+        LocalDateTime startedAt = nowUtc();
+        boolean result = dataTypeUsageDao.recalculateForAllApplications();
+        lastFullRecalculation = startedAt;
+        return result;
+    }
+
+
+    /**
+     * Recalculates usages for the applications and actors whose flows, or flow decorators,
+     * have been created or modified since the given time.  If no time is given, or this
+     * instance has not completed a full recalculation in the last 24 hours, all
+     * applications and actors are recalculated.
+     *
+     * @param since  typically the start time of the previous recalculation
+     * @return true once complete
+     */
+    public boolean recalculateForFlowChangesSince(Optional<LocalDateTime> since) {
+        checkNotNull(since, "since cannot be null");
+
+        if (!since.isPresent() || isFullRecalculationDue()) {
+            LOG.info("Recalculating data type usages for all applications and actors");
+            return recalculateForAllApplications();
+        }
+
+        // allow for clock differences between the servers / loaders which update flows
+        LocalDateTime threshold = since.get().minus(CHANGE_DETECTION_LEEWAY);
+        Set<EntityReference> changedEntities = dataTypeUsageDao.findEntitiesWithFlowChangesSince(threshold);
+
+        LOG.info("Recalculating data type usages for {} entities with flow changes since: {}", changedEntities.size(), threshold);
+        return recalculateForApplications(changedEntities);
     }
 
 
@@ -164,28 +205,15 @@ public class DataTypeUsageService {
                 .map(EntityReference::id)
                 .collect(Collectors.toSet());
 
-        if (isEmpty(appIds) && isEmpty(actorIds)) {
-            return true;
-        } else {
-            Select<Record1<Long>> appIdSelector = convertApplicationIdsToIdSelector(appIds);
-            Select<Record1<Long>> actorIdSelector = convertActorIdsToIdSelector(actorIds);
-            return dataTypeUsageDao.recalculateForIdSelector(EntityKind.APPLICATION, appIdSelector) &&
-                    dataTypeUsageDao.recalculateForIdSelector(EntityKind.ACTOR, actorIdSelector);
-        }
-    }
-
-
-    private Select<Record1<Long>> convertApplicationIdsToIdSelector(Set<Long> appIds) {
-        return DSL.select(APPLICATION.ID)
-                .from(APPLICATION)
-                .where(APPLICATION.ID.in(appIds));
+        dataTypeUsageDao.recalculateForEntities(EntityKind.APPLICATION, appIds);
+        dataTypeUsageDao.recalculateForEntities(EntityKind.ACTOR, actorIds);
+        return true;
     }
 
 
-    private Select<Record1<Long>> convertActorIdsToIdSelector(Set<Long> actorIds) {
-        return DSL.select(ACTOR.ID)
-                .from(ACTOR)
-                .where(ACTOR.ID.in(actorIds));
+    private boolean isFullRecalculationDue() {
+        LocalDateTime last = lastFullRecalculation;
+        return last == null || last.plus(FULL_RECALCULATION_INTERVAL).isBefore(nowUtc());
     }
 
 
@@ -33,6 +33,7 @@ import org.finos.waltz.model.person.Person;
 import org.finos.waltz.model.role.Role;
 import org.finos.waltz.model.user.*;
 import org.finos.waltz.service.changelog.ChangeLogService;
+import org.finos.waltz.service.permission.PermissionCache;
 import org.finos.waltz.service.person.PersonService;
 import org.jooq.lambda.tuple.Tuple2;
 import org.jooq.lambda.tuple.Tuple3;
@@ -47,6 +48,7 @@ import java.util.Optional;
 import java.util.Set;
 
 import static java.lang.String.format;
+import static java.util.Collections.unmodifiableSet;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 import static org.finos.waltz.common.Checks.checkNotNull;
@@ -78,24 +80,28 @@ public class UserRoleService {
     private final ChangeLogService changeLogService;
 
     private final PersonService personService;
+    private final PermissionCache permissionCache;
 
 
     @Autowired
     public UserRoleService(UserRoleDao userRoleDao,
                            RoleDao roleDao,
                            PersonDao personDao, ChangeLogService changeLogService,
-                           PersonService personService) {
+                           PersonService personService,
+                           PermissionCache permissionCache) {
         checkNotNull(personDao, "personDao must not be null");
         checkNotNull(userRoleDao, "userRoleDao must not be null");
         checkNotNull(roleDao, "roleDao must not be null");
         checkNotNull(changeLogService, "changeLogService must not be null");
         checkNotNull(personService, "personService must not be null");
+        checkNotNull(permissionCache, "permissionCache must not be null");
 
         this.userRoleDao = userRoleDao;
         this.roleDao = roleDao;
         this.changeLogService = changeLogService;
         this.personService = personService;
         this.personDao = personDao;
+        this.permissionCache = permissionCache;
     }
 
 
@@ -110,7 +116,7 @@ public class UserRoleService {
 
 
     public boolean hasRole(String userName, Set<String> requiredRoles) {
-        Set<String> userRoles = userRoleDao.getUserRoles(userName);
+        Set<String> userRoles = getUserRoles(userName);
         return userRoles.containsAll(requiredRoles);
     }
 
@@ -121,7 +127,7 @@ public class UserRoleService {
 
 
     public boolean hasAnyRole(String userName, Set<String> requiredRoles) {
-        Set<String> userRoles = userRoleDao.getUserRoles(userName);
+        Set<String> userRoles = getUserRoles(userName);
         return ! SetUtilities.intersection(userRoles, requiredRoles)
                     .isEmpty();
     }
@@ -135,7 +141,7 @@ public class UserRoleService {
     public User getByUserId(String userId) {
         return ImmutableUser.builder()
                 .userName(userId)
-                .addAllRoles(userRoleDao.getUserRoles(userId))
+                .addAllRoles(getUserRoles(userId))
                 .build();
     }
 
@@ -162,12 +168,19 @@ public class UserRoleService {
             changeLogService.write(logEntry);
         }
 
-        return userRoleDao.updateRoles(targetUserName, command.roles());
+        int rc = userRoleDao.updateRoles(targetUserName, command.roles());
+        permissionCache.bumpVersion();
+        return rc;
     }
 
 
+    /**
+     * Served from the `PermissionCache`, the returned set is unmodifiable.
+     */
     public Set<String> getUserRoles(String userName) {
-        return userRoleDao.getUserRoles(userName);
+        return permissionCache.getUserRoles(
+                userName,
+                () -> unmodifiableSet(userRoleDao.getUserRoles(userName)));
     }
 
 
@@ -200,15 +213,19 @@ public class UserRoleService {
         
         Set<Tuple2<String, String>> usernamesAndRoles = usersAndRolesToUpdate.stream().map(t -> tuple(t.v1, t.v2)).collect(toSet());
 
-        switch (mode) {
-            case ADD_ONLY:
-                return userRoleDao.addRoles(usernamesAndRoles);
-            case REMOVE_ONLY:
-                return userRoleDao.removeRoles(usernamesAndRoles);
-            case REPLACE:
-                return userRoleDao.replaceRoles(usernamesAndRoles);
-            default:
-                throw new UnsupportedOperationException("Unsupported mode: " + mode);
+        try {
+            switch (mode) {
+                case ADD_ONLY:
+                    return userRoleDao.addRoles(usernamesAndRoles);
+                case REMOVE_ONLY:
+                    return userRoleDao.removeRoles(usernamesAndRoles);
+                case REPLACE:
+                    return userRoleDao.replaceRoles(usernamesAndRoles);
+                default:
+                    throw new UnsupportedOperationException("Unsupported mode: " + mode);
+            }
+        } finally {
+            permissionCache.bumpVersion();
         }
     }
 
@@ -18,6 +18,7 @@
 
 package org.finos.waltz.service.user;
 
+import org.finos.waltz.service.permission.PermissionCache;
 import org.finos.waltz.service.settings.SettingsService;
 import org.finos.waltz.common.Checks;
 import org.finos.waltz.data.user.UserDao;
@@ -48,22 +49,26 @@ public class UserService {
     private final PasswordService passwordService;
     private final UserRoleDao userRoleDao;
     private final SettingsService settingsService;
+    private final PermissionCache permissionCache;
 
 
     @Autowired
     public UserService(UserDao userDao,
                        UserRoleDao userRoleDao,
                        PasswordService passwordService,
-                       SettingsService settingsService) {
+                       SettingsService settingsService,
+                       PermissionCache permissionCache) {
         checkNotNull(userDao, "userDao must not be null");
         checkNotNull(userRoleDao, "userRoleDao cannot be null");
         checkNotNull(passwordService, "passwordService must not be null");
         checkNotNull(settingsService, "settingsService cannot be null");
+        checkNotNull(permissionCache, "permissionCache cannot be null");
 
         this.userDao = userDao;
         this.userRoleDao = userRoleDao;
         this.passwordService = passwordService;
         this.settingsService = settingsService;
+        this.permissionCache = permissionCache;
     }
 
 
@@ -140,6 +145,7 @@ public class UserService {
             setting.value()
                     .map(s -> tokenise(s, ","))
                     .ifPresent(roles -> userRoleDao.updateRoles(username, fromCollection(roles)));
+            permissionCache.evictUser(username);
 
         }
     }
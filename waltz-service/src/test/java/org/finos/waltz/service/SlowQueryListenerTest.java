@@ -0,0 +1,70 @@
+package org.finos.waltz.service;
+
+import org.finos.waltz.model.query_performance.QueryPerformanceSummary;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+public class SlowQueryListenerTest {
+
+    @Test
+    public void fingerprintIgnoresLiteralsAndInListLength() {
+        String a = SlowQueryListener.fingerprint("select * from t1 where id in (1, 2, 3) and name = 'bob'");
+        String b = SlowQueryListener.fingerprint("select *\n from t1\n where id in (4) and name = 'O''Brien'");
+
+        assertEquals("select * from t1 where id in (?+) and name = ?", a);
+        assertEquals(a, b);
+    }
+
+
+    @Test
+    public void fingerprintTreatsBindParametersLikeLiterals() {
+        assertEquals(
+                SlowQueryListener.fingerprint("select name from app where id = 12"),
+                SlowQueryListener.fingerprint("select name from app where id = ?"));
+    }
+
+
+    @Test
+    public void fingerprintDistinguishesDifferentQueries() {
+        assertNotEquals(
+                SlowQueryListener.fingerprint("select name from app where id = ?"),
+                SlowQueryListener.fingerprint("select name from person where id = ?"));
+    }
+
+
+    @Test
+    public void statisticsAreAggregatedByFingerprintAndCaller() {
+        QueryStatistics stats = new QueryStatistics();
+        stats.record("q1", "AppDao.findAll", TimeUnit.MILLISECONDS.toNanos(10), 5);
+        stats.record("q1", "AppDao.findAll", TimeUnit.MILLISECONDS.toNanos(20), 7);
+        stats.record("q2", "AppDao.findAll", TimeUnit.MILLISECONDS.toNanos(30), 1);
+
+        List<QueryPerformanceSummary> byFingerprint = stats.summariseByFingerprint();
+        assertEquals(2, byFingerprint.size());
+        assertEquals("q2", byFingerprint.get(0).key(), "worst query should be first");
+
+        List<QueryPerformanceSummary> byDaoMethod = stats.summariseByDaoMethod();
+        assertEquals(1, byDaoMethod.size());
+        assertEquals(3, byDaoMethod.get(0).executionCount());
+        assertEquals(13, byDaoMethod.get(0).rowsFetched());
+    }
+
+
+    @Test
+    public void unsampledCallersAreOnlyRecordedByFingerprint() {
+        QueryStatistics stats = new QueryStatistics();
+        stats.record("q1", "AppDao.findAll", TimeUnit.MILLISECONDS.toNanos(10), 5);
+        stats.record("q1", null, TimeUnit.MILLISECONDS.toNanos(20), 7);
+
+        assertEquals(2, stats.summariseByFingerprint().get(0).executionCount());
+
+        List<QueryPerformanceSummary> byDaoMethod = stats.summariseByDaoMethod();
+        assertEquals(1, byDaoMethod.size());
+        assertEquals(1, byDaoMethod.get(0).executionCount());
+    }
+}
@@ -0,0 +1,149 @@
+package org.finos.waltz.service.entity_search;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityLifecycleStatus;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.ImmutableEntityReference;
+import org.finos.waltz.model.entity_search.EntitySearchDocument;
+import org.finos.waltz.model.entity_search.ImmutableEntitySearchDocument;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.finos.waltz.common.ListUtilities.newArrayList;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EntitySearchIndexTest {
+
+    private static final List<EntityLifecycleStatus> ACTIVE_ONLY = newArrayList(EntityLifecycleStatus.ACTIVE);
+
+    private final EntitySearchIndex index = EntitySearchIndex.build(asList(
+            mkDoc(1, "Trade Booking", EntityLifecycleStatus.ACTIVE, "APP-123"),
+            mkDoc(2, "Booking Engine", EntityLifecycleStatus.ACTIVE, "APP-12"),
+            mkDoc(3, "Settlement Hub", EntityLifecycleStatus.ACTIVE, "APP-9", "trade settlement"),
+            mkDoc(4, "Legacy Trade Store", EntityLifecycleStatus.REMOVED, "APP-1"),
+            mkDoc(5, "Risk Engine", EntityLifecycleStatus.ACTIVE, "RSK-1")));
+
+
+    @Test
+    public void exactCodeMatchesRankAheadOfCodePrefixMatches() {
+        assertEquals(asList(2L, 1L), search("app-12"));
+    }
+
+
+    @Test
+    public void namePrefixMatchesRankAheadOfWordAndAliasMatches() {
+        assertEquals(asList(1L, 3L), search("trade"));
+        assertEquals(asList(2L, 1L), search("booking"));
+    }
+
+
+    @Test
+    public void allTermsMustBePresent() {
+        assertEquals(asList(5L), search("engine", "risk"));
+        assertEquals(asList(), search("engine", "trade"));
+    }
+
+
+    @Test
+    public void lifecycleStatusesAreRespected() {
+        List<Long> result = ids(index.search(
+                asList("trade"),
+                newArrayList(EntityLifecycleStatus.ACTIVE, EntityLifecycleStatus.REMOVED),
+                10));
+
+        assertTrue(result.contains(4L));
+        assertEquals(asList(), ids(index.search(asList("trade"), asList(), 10)));
+    }
+
+
+    @Test
+    public void misspelledTermsFindFuzzyMatches() {
+        assertTrue(search("bookng").containsAll(asList(1L, 2L)));
+    }
+
+
+    @Test
+    public void resultsAreLimited() {
+        assertEquals(1, ids(index.search(asList("engine"), ACTIVE_ONLY, 1)).size());
+    }
+
+
+    @Test
+    public void changesReplaceAndRemoveDocuments() {
+        EntitySearchIndex updated = index.withChanges(
+                asSet(1L, 5L),
+                asList(
+                        mkDoc(1, "Trade Capture", EntityLifecycleStatus.ACTIVE, "APP-777"),
+                        mkDoc(6, "Booking Gateway", EntityLifecycleStatus.ACTIVE, "APP-120")));
+
+        assertEquals(asList(1L), ids(updated.search(asList("capture"), ACTIVE_ONLY, 10)));
+        assertEquals(asList(2L, 6L), ids(updated.search(asList("booking"), ACTIVE_ONLY, 10)));
+        assertEquals(asList(), ids(updated.search(asList("risk"), ACTIVE_ONLY, 10)), "removed docs are no longer found");
+        assertEquals(asList(1L), ids(updated.search(asList("app-777"), ACTIVE_ONLY, 10)));
+        assertEquals(asList(2L, 6L), ids(updated.search(asList("app-12"), ACTIVE_ONLY, 10)));
+        assertEquals(asList(), ids(updated.search(asList("app-123"), ACTIVE_ONLY, 10)), "codes of replaced docs are dropped");
+
+        assertEquals(5, updated.size());
+        assertEquals(2, updated.vacantSlots());
+        assertEquals(asList(2L, 1L), search("booking"), "original index is unchanged");
+    }
+
+
+    @Test
+    public void shortTermsSkipVacantSlots() {
+        EntitySearchIndex updated = index.withChanges(asSet(2L), asList());
+
+        assertEquals(asList(5L, 3L), ids(updated.search(asList("en"), ACTIVE_ONLY, 10)));
+    }
+
+
+    @Test
+    public void intersectReturnsCommonElements() {
+        assertEquals(
+                asList(3, 7),
+                Arrays.stream(EntitySearchIndex.intersect(new int[]{1, 3, 5, 7}, new int[]{2, 3, 7, 9}))
+                        .boxed()
+                        .collect(toList()));
+    }
+
+
+    // --- helpers ---
+
+    private List<Long> search(String... terms) {
+        return ids(index.search(asList(terms), ACTIVE_ONLY, 10));
+    }
+
+
+    private static List<Long> ids(List<EntityReference> refs) {
+        return refs
+                .stream()
+                .map(EntityReference::id)
+                .collect(toList());
+    }
+
+
+    private static EntitySearchDocument mkDoc(long id,
+                                              String name,
+                                              EntityLifecycleStatus status,
+                                              String code,
+                                              String... aliases) {
+        return ImmutableEntitySearchDocument
+                .builder()
+                .entityReference(ImmutableEntityReference
+                        .builder()
+                        .kind(EntityKind.APPLICATION)
+                        .id(id)
+                        .name(name)
+                        .entityLifecycleStatus(status)
+                        .build())
+                .addCodes(code)
+                .addAliases(aliases)
+                .build();
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.flow_classification_rule;
+
+import org.finos.waltz.common.hierarchy.FlatNode;
+import org.finos.waltz.common.hierarchy.HierarchySnapshot;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.flow_classification_rule.FlowClassificationRuleVantagePoint;
+import org.finos.waltz.model.flow_classification_rule.FlowDecoratorRatingCandidate;
+import org.finos.waltz.model.flow_classification_rule.ImmutableFlowClassificationRuleVantagePoint;
+import org.finos.waltz.model.flow_classification_rule.ImmutableFlowDecoratorRatingCandidate;
+import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.finos.waltz.common.MapUtilities.indexBy;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class FlowClassificationRatingEngineTest {
+
+    private static final AuthoritativenessRatingValue PRIMARY = AuthoritativenessRatingValue.of("PRIMARY");
+    private static final AuthoritativenessRatingValue SECONDARY = AuthoritativenessRatingValue.of("SECONDARY");
+
+    // org units: 1 -> 2 -> 3,  data types: 10 -> 11
+    private final HierarchySnapshot orgUnits = HierarchySnapshot.build(1, asList(mkNode(1, null), mkNode(2, 1L), mkNode(3, 2L)));
+    private final HierarchySnapshot dataTypes = HierarchySnapshot.build(1, asList(mkNode(10, null), mkNode(11, 10L)));
+
+    private final FlowClassificationRatingEngine engine = new FlowClassificationRatingEngine(
+            asList(
+                    mkRule(1, mkRef(EntityKind.ORG_UNIT, 1), 1, 100, PRIMARY),
+                    mkRule(2, mkRef(EntityKind.ORG_UNIT, 2), 2, 101, SECONDARY)),
+            asList(
+                    mkRule(3, mkRef(EntityKind.APPLICATION, 500), 0, 102, PRIMARY)),
+            orgUnits,
+            dataTypes);
+
+
+    @Test
+    public void flowsFromRuleSubjectsTakeTheRuleRating() {
+        Map<Long, FlowDecoratorRatingCandidate> changes = calculate(
+                mkDecorator(1, 100, 400, 3L, AuthoritativenessRatingValue.NO_OPINION, null),
+                mkDecorator(2, 101, 400, 3L, AuthoritativenessRatingValue.NO_OPINION, null));
+
+        assertEquals(Optional.of(PRIMARY), changes.get(1L).rating());
+        assertEquals(Optional.of(1L), changes.get(1L).flowClassificationRuleId());
+        assertEquals(Optional.of(SECONDARY), changes.get(2L).rating());
+        assertEquals(Optional.of(2L), changes.get(2L).flowClassificationRuleId());
+    }
+
+
+    @Test
+    public void flowsFromOtherSourcesAreDiscouragedWhenCoveredByARule() {
+        Map<Long, FlowDecoratorRatingCandidate> changes = calculate(
+                mkDecorator(1, 999, 400, 3L, AuthoritativenessRatingValue.NO_OPINION, 1L),
+                mkDecorator(2, 999, 400, 1L, AuthoritativenessRatingValue.NO_OPINION, null));
+
+        // linked to the most specific covering rule, ou 3 is beneath ou 2 (rule 2) and ou 1 (rule 1)
+        assertEquals(Optional.of(AuthoritativenessRatingValue.DISCOURAGED), changes.get(1L).rating());
+        assertEquals(Optional.of(2L), changes.get(1L).flowClassificationRuleId());
+        assertEquals(Optional.of(AuthoritativenessRatingValue.DISCOURAGED), changes.get(2L).rating());
+        assertEquals(Optional.of(1L), changes.get(2L).flowClassificationRuleId());
+    }
+
+
+    @Test
+    public void discouragedDecoratorsAlreadyLinkedToTheCoveringRuleAreUnchanged() {
+        Map<Long, FlowDecoratorRatingCandidate> changes = calculate(
+                mkDecorator(1, 999, 400, 3L, AuthoritativenessRatingValue.DISCOURAGED, 2L));
+
+        assertFalse(changes.containsKey(1L));
+    }
+
+
+    @Test
+    public void flowsNotCoveredByARuleHaveNoOpinion() {
+        Map<Long, FlowDecoratorRatingCandidate> changes = calculate(
+                mkDecorator(1, 100, 400, 99L, AuthoritativenessRatingValue.DISCOURAGED, null),
+                mkDecorator(2, 100, 400, null, PRIMARY, 1L));
+
+        assertEquals(Optional.of(AuthoritativenessRatingValue.NO_OPINION), changes.get(1L).rating());
+        assertEquals(Optional.of(AuthoritativenessRatingValue.NO_OPINION), changes.get(2L).rating());
+        // no rule covers the flow, so any previous link is cleared
+        assertEquals(Optional.empty(), changes.get(2L).flowClassificationRuleId());
+    }
+
+
+    @Test
+    public void pointToPointRulesOverrideOrgUnitRules() {
+        Map<Long, FlowDecoratorRatingCandidate> changes = calculate(
+                mkDecorator(1, 102, 500, 3L, AuthoritativenessRatingValue.DISCOURAGED, null));
+
+        assertEquals(Optional.of(PRIMARY), changes.get(1L).rating());
+        assertEquals(Optional.of(3L), changes.get(1L).flowClassificationRuleId());
+    }
+
+
+    @Test
+    public void unchangedDecoratorsAreNotReturned() {
+        Map<Long, FlowDecoratorRatingCandidate> changes = calculate(
+                mkDecorator(1, 100, 400, 3L, PRIMARY, 1L),
+                mkDecorator(2, 100, 400, 99L, AuthoritativenessRatingValue.NO_OPINION, null));
+
+        assertFalse(changes.containsKey(1L));
+        assertFalse(changes.containsKey(2L));
+    }
+
+
+    // --- helpers ---
+
+    private Map<Long, FlowDecoratorRatingCandidate> calculate(FlowDecoratorRatingCandidate... decorators) {
+        List<FlowDecoratorRatingCandidate> changes = engine.calculateChanges(asList(decorators));
+        return indexBy(changes, FlowDecoratorRatingCandidate::decoratorId);
+    }
+
+
+    private static FlatNode<Long, Long> mkNode(long id, Long parentId) {
+        return new FlatNode<>(id, Optional.ofNullable(parentId), id);
+    }
+
+
+    private static FlowClassificationRuleVantagePoint mkRule(long ruleId,
+                                                             EntityReference vantagePoint,
+                                                             int vantagePointRank,
+                                                             long subjectAppId,
+                                                             AuthoritativenessRatingValue rating) {
+        return ImmutableFlowClassificationRuleVantagePoint
+                .builder()
+                .ruleId(ruleId)
+                .vantagePoint(vantagePoint)
+                .vantagePointRank(vantagePointRank)
+                .dataType(mkRef(EntityKind.DATA_TYPE, 10))
+                .dataTypeRank(1)
+                .subjectReference(mkRef(EntityKind.APPLICATION, subjectAppId))
+                .classificationCode(rating.value())
+                .build();
+    }
+
+
+    private static FlowDecoratorRatingCandidate mkDecorator(long id,
+                                                            long sourceAppId,
+                                                            long targetAppId,
+                                                            Long targetOrgUnitId,
+                                                            AuthoritativenessRatingValue rating,
+                                                            Long ruleId) {
+        return ImmutableFlowDecoratorRatingCandidate
+                .builder()
+                .decoratorId(id)
+                .dataTypeId(11)
+                .sourceKind(EntityKind.APPLICATION)
+                .sourceId(sourceAppId)
+                .targetKind(EntityKind.APPLICATION)
+                .targetId(targetAppId)
+                .targetOrgUnitId(Optional.ofNullable(targetOrgUnitId))
+                .rating(rating)
+                .flowClassificationRuleId(Optional.ofNullable(ruleId))
+                .build();
+    }
+}
@@ -19,6 +19,8 @@
 package org.finos.waltz.service.flow_classification_rule;
 
 
+import org.finos.waltz.common.hierarchy.FlatNode;
+import org.finos.waltz.common.hierarchy.HierarchySnapshot;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.ImmutableEntityReference;
@@ -172,6 +174,38 @@ public class FlowClassificationRuleResolverTest {
 
 
 
+    @Test
+    public void whenResolvingWithHierarchiesThenAncestorRulesApply() {
+        // org units: 10 -> 20,  data types: 1 -> 2
+        HierarchySnapshot orgUnits = HierarchySnapshot.build(1, newArrayList(
+                new FlatNode<>(10L, Optional.empty(), 10L),
+                new FlatNode<>(20L, Optional.of(10L), 20L)));
+        HierarchySnapshot dataTypes = HierarchySnapshot.build(1, newArrayList(
+                new FlatNode<>(1L, Optional.empty(), 1L),
+                new FlatNode<>(2L, Optional.of(1L), 2L)));
+
+        ImmutableFlowClassificationRuleVantagePoint parentRule = ImmutableFlowClassificationRuleVantagePoint.builder()
+                .vantagePoint(mkRef(EntityKind.ORG_UNIT, 10L))
+                .vantagePointRank(1)
+                .dataType(mkRef(EntityKind.DATA_TYPE, 1L))
+                .dataTypeRank(1)
+                .subjectReference(sourceApp)
+                .classificationCode(AuthoritativenessRatingValue.of("SECONDARY").value())
+                .ruleId(1L)
+                .build();
+
+        FlowClassificationRuleResolver resolver = new FlowClassificationRuleResolver(
+                newArrayList(parentRule),
+                orgUnits,
+                dataTypes);
+
+        assertEquals(AuthoritativenessRatingValue.of("SECONDARY"), resolver.resolve(vantagePoint, sourceApp, 2L));
+        assertEquals(Optional.of(parentRule), resolver.resolveAuthSource(vantagePoint, sourceApp, 2L));
+        assertEquals(AuthoritativenessRatingValue.DISCOURAGED, resolver.resolve(vantagePoint, mkRef(EntityKind.APPLICATION, 999L), 2L));
+        assertEquals(AuthoritativenessRatingValue.NO_OPINION, resolver.resolve(vantagePoint, sourceApp, 99L));
+    }
+
+
     @Test
     public void getBestRankedWorksWithEmpty() {
 
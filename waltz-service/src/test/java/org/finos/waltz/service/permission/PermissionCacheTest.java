@@ -0,0 +1,56 @@
+package org.finos.waltz.service.permission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PermissionCacheTest {
+
+    @Test
+    public void rolesAreOnlyLoadedOncePerVersion() {
+        PermissionCache cache = new PermissionCache();
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Set<String>> loader = () -> {
+            loads.incrementAndGet();
+            return asSet("ADMIN");
+        };
+
+        assertEquals(asSet("ADMIN"), cache.getUserRoles("bob", loader));
+        assertEquals(asSet("ADMIN"), cache.getUserRoles("bob", loader));
+        assertEquals(asSet("ADMIN"), cache.getUserRoles("BOB", loader), "user names are case insensitive");
+        assertEquals(1, loads.get());
+
+        cache.bumpVersion();
+        cache.getUserRoles("bob", loader);
+        assertEquals(2, loads.get(), "bumping the version should invalidate cached roles");
+
+        assertEquals(3, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0.6, cache.getHitRate(), 0.001);
+    }
+
+
+    @Test
+    public void evictingAUserOnlyAffectsThatUser() {
+        PermissionCache cache = new PermissionCache();
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Set<String>> loader = () -> {
+            loads.incrementAndGet();
+            return asSet("BOOKMARK_EDITOR");
+        };
+
+        cache.getUserRoles("alice", loader);
+        cache.getUserRoles("bob", loader);
+        cache.evictUser("Alice");
+        cache.getUserRoles("alice", loader);
+        cache.getUserRoles("bob", loader);
+
+        assertEquals(3, loads.get());
+    }
+
+}
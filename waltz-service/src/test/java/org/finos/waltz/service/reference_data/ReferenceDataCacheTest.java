@@ -0,0 +1,99 @@
+package org.finos.waltz.service.reference_data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReferenceDataCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1000);
+    private final AtomicInteger loads = new AtomicInteger();
+    private final ReferenceDataCache cache = new ReferenceDataCache(100, now::get);
+
+    private final Supplier<List<String>> loader = () -> {
+        loads.incrementAndGet();
+        return asList("apple", "banana", "cherry");
+    };
+
+
+    @Test
+    public void tableIsOnlyLoadedOnceWhilstFresh() {
+        ReferenceDataSnapshot<Character, String> fruit = cache.register("fruit", loader, s -> s.charAt(0));
+
+        assertEquals(0, loads.get(), "snapshots are loaded lazily");
+        assertEquals(asList("apple", "banana", "cherry"), fruit.all());
+        assertEquals("banana", fruit.get('b').get());
+        assertFalse(fruit.get('z').isPresent());
+        assertEquals("cherry", fruit.find(s -> s.endsWith("y")).get());
+        assertEquals(1, loads.get());
+
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.75, cache.getHitRate(), 0.001);
+    }
+
+
+    @Test
+    public void invalidatingForcesAReload() {
+        ReferenceDataSnapshot<Character, String> fruit = cache.register("fruit", loader, s -> s.charAt(0));
+
+        fruit.all();
+        fruit.invalidate();
+        fruit.all();
+        fruit.all();
+        assertEquals(2, loads.get());
+
+        cache.invalidateAll();
+        fruit.all();
+        assertEquals(3, loads.get());
+
+        assertTrue(cache.invalidate("fruit"));
+        assertFalse(cache.invalidate("vegetables"));
+        fruit.all();
+        assertEquals(4, loads.get());
+        assertEquals(3, fruit.getInvalidationCount());
+    }
+
+
+    @Test
+    public void staleSnapshotsAreReloaded() {
+        ReferenceDataSnapshot<Character, String> fruit = cache.register("fruit", loader, s -> s.charAt(0));
+
+        fruit.all();
+        now.addAndGet(100);
+        fruit.all();
+        assertEquals(1, loads.get(), "snapshot is still within its maximum age");
+        assertEquals(100, fruit.getAgeMs());
+
+        now.addAndGet(1);
+        fruit.all();
+        assertEquals(2, loads.get(), "snapshot has exceeded its maximum age");
+        assertEquals(0, fruit.getAgeMs());
+    }
+
+
+    @Test
+    public void snapshotsAreUnmodifiable() {
+        ReferenceDataSnapshot<Character, String> fruit = cache.register("fruit", loader, s -> s.charAt(0));
+        assertThrows(UnsupportedOperationException.class, () -> fruit.all().add("damson"));
+    }
+
+
+    @Test
+    public void snapshotNamesMustBeUnique() {
+        cache.register("fruit", loader, s -> s.charAt(0));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> cache.register("fruit", loader, s -> s.charAt(0)));
+    }
+
+}
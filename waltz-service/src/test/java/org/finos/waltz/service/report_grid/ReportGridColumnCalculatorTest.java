@@ -0,0 +1,119 @@
+package org.finos.waltz.service.report_grid;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.application.LifecyclePhase;
+import org.finos.waltz.model.report_grid.ImmutableReportGridDefinition;
+import org.finos.waltz.model.report_grid.ImmutableReportGridDerivedColumnDefinition;
+import org.finos.waltz.model.report_grid.ImmutableReportGridInstance;
+import org.finos.waltz.model.report_grid.ImmutableReportSubject;
+import org.finos.waltz.model.report_grid.ReportGridCell;
+import org.finos.waltz.model.report_grid.ReportGridDefinition;
+import org.finos.waltz.model.report_grid.ReportGridDerivedColumnDefinition;
+import org.finos.waltz.model.report_grid.ReportGridInstance;
+import org.finos.waltz.model.report_grid.ReportSubject;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.finos.waltz.common.MapUtilities.indexBy;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ReportGridColumnCalculatorTest {
+
+    @Test
+    public void derivedColumnsCanReferenceColumnsDefinedAfterThem() {
+        ReportGridDerivedColumnDefinition dependent = mkDerivedCol(1L, "B", "cell('A') == null ? 'missing' : 'found'");
+        ReportGridDerivedColumnDefinition independent = mkDerivedCol(2L, "A", "'hello'");
+
+        ReportGridDefinition definition = mkDefinition(dependent, independent);
+        ReportGridInstance instance = mkInstance(3);
+
+        Set<ReportGridCell> cells = ReportGridColumnCalculator.calculate(instance, definition);
+
+        assertEquals(6, cells.size(), "expected a cell for each derived column in each row");
+        cells.stream()
+                .filter(c -> c.columnDefinitionId().equals(1L))
+                .forEach(c -> assertEquals("found", c.textValue()));
+    }
+
+
+    @Test
+    public void referencesBuiltAtRuntimeAreStillResolved() {
+        // the dependency on 'AX' cannot be seen in the script text, so the columns are evaluated in the given order
+        ReportGridDerivedColumnDefinition dependent = mkDerivedCol(1L, "B", "cell('A' + 'X') == null ? 'missing' : 'found'");
+        ReportGridDerivedColumnDefinition independent = mkDerivedCol(2L, "AX", "'hello'");
+
+        Set<ReportGridCell> cells = ReportGridColumnCalculator.calculate(mkInstance(3), mkDefinition(dependent, independent));
+
+        cells.stream()
+                .filter(c -> c.columnDefinitionId().equals(1L))
+                .forEach(c -> assertEquals("found", c.textValue()));
+    }
+
+
+    @Test
+    public void largeGridsGiveTheSameResultsAsSmallGrids() {
+        ReportGridDefinition definition = mkDefinition(
+                mkDerivedCol(1L, "NAME_LEN", "subjectName.length()"),
+                mkDerivedCol(2L, "SUBJECT", "subjectId"));
+
+        Set<ReportGridCell> cells = ReportGridColumnCalculator.calculate(mkInstance(2000), definition);
+
+        Map<Long, ReportGridCell> subjectCells = indexBy(
+                cells.stream()
+                        .filter(c -> c.columnDefinitionId().equals(2L))
+                        .collect(Collectors.toSet()),
+                ReportGridCell::subjectId);
+
+        assertEquals(2000, subjectCells.size());
+        subjectCells.forEach((subjectId, cell) -> assertEquals(subjectId.toString(), cell.textValue()));
+    }
+
+
+    // --- helpers ---
+
+    private ReportGridDerivedColumnDefinition mkDerivedCol(long id, String extId, String script) {
+        return ImmutableReportGridDerivedColumnDefinition
+                .builder()
+                .id(id)
+                .gridColumnId(id)
+                .displayName(extId)
+                .externalId(extId)
+                .position((int) id)
+                .derivationScript(script)
+                .build();
+    }
+
+
+    private ReportGridDefinition mkDefinition(ReportGridDerivedColumnDefinition... derivedCols) {
+        return ImmutableReportGridDefinition
+                .builder()
+                .id(1L)
+                .name("test grid")
+                .lastUpdatedBy("test")
+                .subjectKind(EntityKind.APPLICATION)
+                .addDerivedColumnDefinitions(derivedCols)
+                .build();
+    }
+
+
+    private ReportGridInstance mkInstance(int subjectCount) {
+        Set<ReportSubject> subjects = LongStream
+                .rangeClosed(1, subjectCount)
+                .mapToObj(id -> ImmutableReportSubject
+                        .builder()
+                        .entityReference(mkRef(EntityKind.APPLICATION, id, "app " + id))
+                        .lifecyclePhase(LifecyclePhase.PRODUCTION)
+                        .build())
+                .collect(Collectors.toSet());
+
+        return ImmutableReportGridInstance
+                .builder()
+                .subjects(subjects)
+                .build();
+    }
+}
@@ -0,0 +1,88 @@
+package org.finos.waltz.service.scheduled_job;
+
+import org.finos.waltz.model.scheduled_job.JobKey;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Collections.emptySet;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ScheduledJobGraphTest {
+
+    private static final JobKey RIPPLE = JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL;
+    private static final JobKey USAGE = JobKey.DATA_TYPE_USAGE_RECALC_APPLICATION;
+    private static final JobKey DT_HIERARCHY = JobKey.HIERARCHY_REBUILD_DATA_TYPE;
+    private static final JobKey PERSON_HIERARCHY = JobKey.HIERARCHY_REBUILD_PERSON;
+
+
+    @Test
+    public void prerequisitesAreOrderedAheadOfDependents() {
+        ScheduledJobGraph graph = ScheduledJobService.mkJobGraph();
+        List<JobKey> order = graph.topologicalOrder();
+
+        assertEquals(JobKey.values().length, order.size());
+        assertTrue(order.indexOf(RIPPLE) < order.indexOf(USAGE));
+        assertTrue(order.indexOf(DT_HIERARCHY) < order.indexOf(USAGE));
+        assertTrue(order.indexOf(PERSON_HIERARCHY) < order.indexOf(JobKey.SURVEY_INSTANCE_REASSIGN_OWNERS));
+    }
+
+
+    @Test
+    public void jobsWaitForPendingPrerequisites() {
+        ScheduledJobGraph graph = ScheduledJobService.mkJobGraph();
+
+        assertFalse(graph.canStart(USAGE, asSet(USAGE, RIPPLE), emptySet()), "ripple is pending");
+        assertFalse(graph.canStart(USAGE, asSet(USAGE), asSet(RIPPLE)), "ripple is running");
+        assertTrue(graph.canStart(USAGE, asSet(USAGE), emptySet()));
+    }
+
+
+    @Test
+    public void relatedJobsDoNotRunConcurrently() {
+        ScheduledJobGraph graph = ScheduledJobService.mkJobGraph();
+
+        assertFalse(graph.canStart(RIPPLE, asSet(RIPPLE), asSet(USAGE)), "a dependent is running");
+        assertFalse(graph.canStart(RIPPLE, asSet(RIPPLE), asSet(RIPPLE)), "already running");
+    }
+
+
+    @Test
+    public void unrelatedJobsMayRunConcurrently() {
+        ScheduledJobGraph graph = ScheduledJobService.mkJobGraph();
+
+        assertTrue(graph.canStart(PERSON_HIERARCHY, asSet(PERSON_HIERARCHY, RIPPLE), asSet(USAGE, DT_HIERARCHY)));
+    }
+
+
+    @Test
+    public void ancestorsAndDescendantsAreTransitive() {
+        Map<JobKey, Set<JobKey>> prerequisites = new EnumMap<>(JobKey.class);
+        prerequisites.put(USAGE, asSet(RIPPLE));
+        prerequisites.put(RIPPLE, asSet(DT_HIERARCHY));
+
+        ScheduledJobGraph graph = new ScheduledJobGraph(prerequisites);
+
+        assertEquals(asSet(RIPPLE, DT_HIERARCHY), graph.ancestors(USAGE));
+        assertEquals(asSet(RIPPLE, USAGE), graph.descendants(DT_HIERARCHY));
+        assertFalse(graph.canStart(USAGE, asSet(USAGE, DT_HIERARCHY), emptySet()), "indirect prerequisite is pending");
+    }
+
+
+    @Test
+    public void cyclesAreRejected() {
+        Map<JobKey, Set<JobKey>> prerequisites = new EnumMap<>(JobKey.class);
+        prerequisites.put(USAGE, asSet(RIPPLE));
+        prerequisites.put(RIPPLE, asSet(USAGE));
+
+        assertThrows(IllegalArgumentException.class, () -> new ScheduledJobGraph(prerequisites));
+    }
+
+}
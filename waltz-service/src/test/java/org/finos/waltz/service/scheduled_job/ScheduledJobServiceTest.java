@@ -0,0 +1,87 @@
+package org.finos.waltz.service.scheduled_job;
+
+import org.finos.waltz.model.scheduled_job.JobKey;
+import org.finos.waltz.model.scheduled_job.JobLifecycleStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.emptySet;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ScheduledJobServiceTest {
+
+    private static final JobKey RIPPLE = JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL;
+    private static final JobKey USAGE = JobKey.DATA_TYPE_USAGE_RECALC_APPLICATION;
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2023, 10, 17, 12, 0);
+    private static final Duration TIMEOUT = Duration.ofHours(6);
+
+
+    @Test
+    public void runningJobIsStaleOnceItsLatestRunExceedsTheTimeout() {
+        Map<JobKey, LocalDateTime> latestRunStarts = new EnumMap<>(JobKey.class);
+        latestRunStarts.put(RIPPLE, NOW.minusHours(7));
+
+        assertEquals(
+                asSet(RIPPLE),
+                ScheduledJobService.findStaleRunningJobs(running(RIPPLE), emptySet(), latestRunStarts, NOW, TIMEOUT));
+    }
+
+
+    @Test
+    public void runningJobIsNotStaleWithinTheTimeout() {
+        Map<JobKey, LocalDateTime> latestRunStarts = new EnumMap<>(JobKey.class);
+        latestRunStarts.put(RIPPLE, NOW.minusHours(5));
+
+        assertEquals(
+                emptySet(),
+                ScheduledJobService.findStaleRunningJobs(running(RIPPLE), emptySet(), latestRunStarts, NOW, TIMEOUT));
+    }
+
+
+    @Test
+    public void runningJobWithNoRecordedRunsIsStale() {
+        assertEquals(
+                asSet(RIPPLE),
+                ScheduledJobService.findStaleRunningJobs(running(RIPPLE), emptySet(), emptyMap(), NOW, TIMEOUT));
+    }
+
+
+    @Test
+    public void jobsRunningOnThisServerAreNeverStale() {
+        Map<JobKey, LocalDateTime> latestRunStarts = new EnumMap<>(JobKey.class);
+        latestRunStarts.put(RIPPLE, NOW.minusDays(2));
+
+        assertEquals(
+                emptySet(),
+                ScheduledJobService.findStaleRunningJobs(running(RIPPLE), asSet(RIPPLE), latestRunStarts, NOW, TIMEOUT));
+    }
+
+
+    @Test
+    public void jobsWhichAreNotRunningAreNeverStale() {
+        Map<JobKey, JobLifecycleStatus> statuses = new EnumMap<>(JobKey.class);
+        statuses.put(RIPPLE, JobLifecycleStatus.RUNNABLE);
+        statuses.put(USAGE, JobLifecycleStatus.COMPLETED);
+
+        assertEquals(
+                emptySet(),
+                ScheduledJobService.findStaleRunningJobs(statuses, emptySet(), emptyMap(), NOW, TIMEOUT));
+    }
+
+
+    // --- helpers ---
+
+    private static Map<JobKey, JobLifecycleStatus> running(JobKey jobKey) {
+        Map<JobKey, JobLifecycleStatus> statuses = new EnumMap<>(JobKey.class);
+        statuses.put(jobKey, JobLifecycleStatus.RUNNING);
+        return statuses;
+    }
+
+}
@@ -0,0 +1,34 @@
+package org.finos.waltz.service.survey.inclusion_evaluator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SubjectFactTest {
+
+    @Test
+    public void responseOnlyPredicatesNeedNoFacts() {
+        assertTrue(SubjectFact.referencedBy(emptyList()).isEmpty());
+        assertTrue(SubjectFact.referencedBy(asList("isChecked('Q1')", "numberValue('Q2', 0) > 3 && ditto('Q1')")).isEmpty());
+    }
+
+
+    @Test
+    public void factsAreDeterminedByFunctionCalls() {
+        assertEquals(
+                EnumSet.of(SubjectFact.DETAILS, SubjectFact.ORG_UNITS),
+                SubjectFact.referencedBy(asList("isRetiring() || belongsToOrgUnit ('CIB')")));
+
+        assertEquals(
+                EnumSet.of(SubjectFact.DATA_TYPE_USAGES, SubjectFact.ASSESSMENT_RATINGS, SubjectFact.INVOLVEMENTS),
+                SubjectFact.referencedBy(asList(
+                        "hasDataType('Trade')",
+                        "assessmentRating('Regulated') == 'Y' && hasInvolvement('Sponsor')")));
+    }
+
+}
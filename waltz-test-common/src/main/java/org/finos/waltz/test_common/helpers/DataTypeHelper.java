@@ -2,6 +2,7 @@ package org.finos.waltz.test_common.helpers;
 
 import org.finos.waltz.schema.tables.records.DataTypeRecord;
 import org.finos.waltz.service.data_type.DataTypeService;
+import org.finos.waltz.service.reference_data.ReferenceDataCache;
 import org.jooq.DSLContext;
 import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,6 +23,9 @@ public class DataTypeHelper {
     @Autowired
     private DataTypeService svc;
 
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
 
     public Long createDataType(String name) {
         DataTypeRecord record = dsl.newRecord(DATA_TYPE);
@@ -34,6 +38,7 @@ public class DataTypeHelper {
         record.setDescription(uniqName);
 
         record.insert();
+        referenceDataCache.invalidateAll();
 
         return record.getId();
     }
@@ -55,6 +60,8 @@ public class DataTypeHelper {
                 .values(id, "Unknown", "Unknown data type", "UNKNOWN", false, true)
                 .execute();
 
+        referenceDataCache.invalidateAll();
+
         return id;
     }
 
@@ -69,11 +76,14 @@ public class DataTypeHelper {
                         DATA_TYPE.CODE)
                 .values(id, name, name, code)
                 .execute();
+
+        referenceDataCache.invalidateAll();
     }
 
 
     public void clearAllDataTypes() {
         dsl.deleteFrom(DATA_TYPE).execute();
+        referenceDataCache.invalidateAll();
     }
 
 
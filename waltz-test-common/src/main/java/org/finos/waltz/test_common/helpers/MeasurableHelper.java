@@ -8,6 +8,7 @@ import org.finos.waltz.schema.tables.records.MeasurableRatingPlannedDecommission
 import org.finos.waltz.schema.tables.records.MeasurableRatingRecord;
 import org.finos.waltz.schema.tables.records.MeasurableRecord;
 import org.finos.waltz.service.measurable_category.MeasurableCategoryService;
+import org.finos.waltz.service.reference_data.ReferenceDataCache;
 import org.jooq.DSLContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -33,6 +34,9 @@ public class MeasurableHelper {
     @Autowired
     private RatingSchemeHelper ratingSchemeHelper;
 
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
     @Autowired
     private DSLContext dsl;
 
@@ -60,6 +64,7 @@ public class MeasurableHelper {
                         record.setRatingEditorRole(ratingEditorRole);
                     }
                     record.store();
+                    referenceDataCache.invalidateAll();
                     return record.getId();
                 });
     }
@@ -71,6 +76,8 @@ public class MeasurableHelper {
                 .set(MEASURABLE_CATEGORY.EDITABLE, false)
                 .where(MEASURABLE_CATEGORY.ID.eq(categoryId))
                 .execute();
+
+        referenceDataCache.invalidateAll();
     }
 
 
@@ -4,6 +4,7 @@ import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.Operation;
 import org.finos.waltz.schema.tables.records.*;
+import org.finos.waltz.service.permission.PermissionCache;
 import org.jooq.DSLContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -21,6 +22,9 @@ public class PermissionGroupHelper {
     @Autowired
     private DSLContext dsl;
 
+    @Autowired
+    private PermissionCache permissionCache;
+
     @Autowired
     public PermissionGroupHelper() {
     }
@@ -57,6 +61,7 @@ public class PermissionGroupHelper {
         pg.setName(pgName);
         pg.setProvenance(mkName(pgNameStem, "prov"));
         pg.insert();
+        permissionCache.bumpVersion();
         return pg;
     }
 
@@ -78,6 +83,7 @@ public class PermissionGroupHelper {
             pgi.setQualifierKind(qualifierRef.kind().name());
         }
         pgi.insert();
+        permissionCache.bumpVersion();
     }
 
 
@@ -87,6 +93,7 @@ public class PermissionGroupHelper {
         pge.setEntityKind(EntityKind.APPLICATION.name());
         pge.setEntityId(appRef.id());
         pge.insert();
+        permissionCache.bumpVersion();
     }
 
 
@@ -102,6 +109,7 @@ public class PermissionGroupHelper {
         ige.setInvolvementGroupId(ig.getId());
         ige.setInvolvementKindId(involvementKindId);
         ige.insert();
+        permissionCache.bumpVersion();
         return ig;
     }
 
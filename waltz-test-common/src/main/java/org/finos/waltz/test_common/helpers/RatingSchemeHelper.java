@@ -3,6 +3,7 @@ package org.finos.waltz.test_common.helpers;
 import org.finos.waltz.model.rating.ImmutableRatingSchemeItem;
 import org.finos.waltz.schema.tables.records.RatingSchemeRecord;
 import org.finos.waltz.service.rating_scheme.RatingSchemeService;
+import org.finos.waltz.service.reference_data.ReferenceDataCache;
 import org.jooq.DSLContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -20,6 +21,9 @@ public class RatingSchemeHelper {
     @Autowired
     private RatingSchemeService ratingSchemeService;
 
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
     public long createEmptyRatingScheme(String name) {
         return dsl
                 .select(RATING_SCHEME.ID)
@@ -31,6 +35,7 @@ public class RatingSchemeHelper {
                     record.setName(name);
                     record.setDescription(name);
                     record.store();
+                    referenceDataCache.invalidateAll();
                     return record.getId();
                 });
     }
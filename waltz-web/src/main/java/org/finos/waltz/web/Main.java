@@ -36,10 +36,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jmx.export.MBeanExporter;
 import spark.Request;
 import spark.Response;
 import spark.Spark;
 
+import javax.management.ObjectName;
 import java.util.Map;
 import java.util.TimeZone;
 
@@ -47,7 +49,6 @@ import static java.lang.String.format;
 import static org.finos.waltz.web.WebUtilities.reportException;
 import static org.finos.waltz.common.DateTimeUtilities.UTC;
 import static org.finos.waltz.web.WebUtilities.reportException;
-import static spark.Spark.after;
 import static spark.Spark.before;
 import static spark.Spark.options;
 import static spark.Spark.port;
@@ -57,6 +58,7 @@ public class Main {
     private static final Logger LOG = LoggerFactory.getLogger(Main.class);
     private final static String GZIP_ENABLED_NAME = "server.gzip.enabled";
     private final static String GZIP_MIN_SIZE_NAME = "server.gzip.minimum-size";
+    private final static String GZIP_FAST_LEVEL_MIN_SIZE_NAME = "server.gzip.fast-level.minimum-size";
 
     private static AnnotationConfigApplicationContext ctx;
 
@@ -127,7 +129,11 @@ public class Main {
             extractor.register();
         });
 
-        new StaticResourcesEndpoint().register();
+        StaticAssetCache staticAssetCache = new StaticAssetCache(
+                StaticResourcesEndpoint.class.getClassLoader(),
+                "static");
+        new StaticResourcesEndpoint(staticAssetCache).register();
+        registerManagedResource(staticAssetCache, "StaticAssetCache");
 
         LOG.info("Completed endpoint registration");
 
@@ -274,13 +280,17 @@ public class Main {
                     .map(Integer::parseInt)
                     .orElse(8192);
 
-            after(((request, response) -> {
-                if(response.body() != null && response.body().length() >= minimumLength) {
-                    response.header("Content-Encoding", "gzip");
-                }
-            }));
+            //bodies larger than this are compressed using the fastest level
+            int fastLevelMinimumLength = settingsService
+                    .getValue(GZIP_FAST_LEVEL_MIN_SIZE_NAME)
+                    .map(Integer::parseInt)
+                    .orElse(1024 * 1024);
+
+            ResponseCompressor compressor = new ResponseCompressor(minimumLength, fastLevelMinimumLength);
+            compressor.register();
+            registerManagedResource(compressor, "ResponseCompressor");
 
-            LOG.info("Enabled GZIP (size: " + minimumLength + ")");
+            LOG.info("Enabled GZIP (size: {}, fast level size: {})", minimumLength, fastLevelMinimumLength);
 
         } else {
             LOG.info("GZIP not enabled");
@@ -289,6 +299,18 @@ public class Main {
 
     }
 
+
+    private void registerManagedResource(Object resource, String name) {
+        try {
+            ctx.getBean(MBeanExporter.class)
+                    .registerManagedResource(
+                            resource,
+                            new ObjectName("waltz", "name", name));
+        } catch (Exception e) {
+            LOG.warn("Could not register {} with jmx: {}", name, e.getMessage());
+        }
+    }
+
     private void enableCORS() {
 
         options("/*", (req, res) -> {
@@ -0,0 +1,347 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.web;
+
+import org.finos.waltz.common.StringUtilities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import spark.Request;
+import spark.Response;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import static java.lang.String.format;
+import static spark.Spark.after;
+
+/**
+ * Gzip compresses http responses for clients which advertise support for it
+ * via the `Accept-Encoding` header.
+ *
+ * Rendered (String) bodies over `minimumSize` bytes are compressed by an `after`
+ * filter which writes them through a gzip stream directly to the servlet output.
+ * Bodies over `fastLevelMinimumSize` bytes (typically large json payloads) use the
+ * fastest compression level, trading a little ratio for a lot of cpu time.
+ *
+ * Endpoints which stream their output (e.g. extracts) bypass the filter and
+ * should obtain their output stream via `openOutputStream`.
+ *
+ * Compression ratio and time are recorded per endpoint (with numeric path
+ * segments collapsed) and exposed via jmx.
+ */
+@ManagedResource(description = "Gzip compression of http responses")
+public class ResponseCompressor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ResponseCompressor.class);
+
+    private static final String GZIP = "gzip";
+    private static final String DEFAULT_CONTENT_TYPE = "text/html; charset=utf-8";
+    private static final int BUFFER_SIZE = 8192;
+
+    private static volatile ResponseCompressor active = null;
+
+    private final int minimumSize;
+    private final int fastLevelMinimumSize;
+    private final ConcurrentMap<String, EndpointStats> statsByEndpoint = new ConcurrentHashMap<>();
+
+
+    public ResponseCompressor(int minimumSize, int fastLevelMinimumSize) {
+        this.minimumSize = minimumSize;
+        this.fastLevelMinimumSize = fastLevelMinimumSize;
+    }
+
+
+    /**
+     * Installs the compression filter and makes this compressor available
+     * to streaming writers via `openOutputStream`.
+     */
+    public void register() {
+        after(this::compressBody);
+        active = this;
+    }
+
+
+    /**
+     * Returns the output stream a streaming writer should use for the given response.
+     * If compression is enabled, and the client accepts gzip, the servlet output
+     * stream is wrapped in a (fast level) gzip stream and the appropriate headers set.
+     * Callers are responsible for closing the returned stream.
+     *
+     * @param request  spark request, used to negotiate the encoding
+     * @param response  spark response, must not yet be committed
+     * @return  stream to write the response body to
+     * @throws IOException  if the servlet output stream cannot be obtained
+     */
+    public static OutputStream openOutputStream(Request request,
+                                                Response response) throws IOException {
+        HttpServletResponse httpResponse = response.raw();
+        ResponseCompressor compressor = active;
+
+        if (compressor == null || ! acceptsGzip(request.headers("Accept-Encoding"))) {
+            return httpResponse.getOutputStream();
+        }
+
+        markAsGzipped(httpResponse);
+        return compressor.mkCompressingStream(
+                request,
+                httpResponse.getOutputStream(),
+                Deflater.BEST_SPEED);
+    }
+
+
+    @ManagedAttribute(description = "Compression statistics, by endpoint")
+    public Map<String, String> getEndpointStatistics() {
+        Map<String, String> result = new TreeMap<>();
+        statsByEndpoint.forEach((endpoint, stats) -> result.put(endpoint, stats.toString()));
+        return result;
+    }
+
+
+    @ManagedOperation(description = "Reset the compression statistics")
+    public void resetStatistics() {
+        statsByEndpoint.clear();
+    }
+
+
+    /**
+     * Parses an `Accept-Encoding` header value, returning true if gzip is acceptable.
+     * An explicit `gzip` entry takes precedence over the `*` wildcard, so
+     * `*, gzip;q=0` refuses gzip.  Entries with a zero quality value are refused,
+     * and codings which are not listed (other than via `*`) are not acceptable.
+     *
+     * @param acceptEncoding  header value, may be null
+     * @return  true if the client will accept a gzip encoded response
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (StringUtilities.isEmpty(acceptEncoding)) {
+            return false;
+        }
+
+        Double gzipQuality = null;
+        Double wildcardQuality = null;
+
+        for (String option : acceptEncoding.split(",")) {
+            String[] parts = option.trim().split(";");
+            String coding = parts[0].trim().toLowerCase();
+            if (coding.equals(GZIP)) {
+                gzipQuality = parseQuality(parts);
+            } else if (coding.equals("*")) {
+                wildcardQuality = parseQuality(parts);
+            }
+        }
+
+        Double quality = gzipQuality != null
+                ? gzipQuality
+                : wildcardQuality;
+
+        return quality != null && quality > 0;
+    }
+
+
+    // --- helpers ---
+
+    private void compressBody(Request request, Response response) throws IOException {
+        String body = response.body();
+        HttpServletResponse httpResponse = response.raw();
+
+        if (body == null
+                || httpResponse.isCommitted()
+                || httpResponse.getHeader("Content-Encoding") != null
+                || ! acceptsGzip(request.headers("Accept-Encoding"))) {
+            return;
+        }
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+        if (bytes.length < minimumSize) {
+            return;
+        }
+
+        int level = bytes.length >= fastLevelMinimumSize
+                ? Deflater.BEST_SPEED
+                : Deflater.DEFAULT_COMPRESSION;
+
+        if (httpResponse.getContentType() == null) {
+            httpResponse.setContentType(DEFAULT_CONTENT_TYPE);
+        }
+        markAsGzipped(httpResponse);
+
+        // writing the body ourselves commits the response, so spark will not attempt to write it again
+        try (OutputStream out = mkCompressingStream(request, httpResponse.getOutputStream(), level)) {
+            out.write(bytes);
+        }
+    }
+
+
+    private OutputStream mkCompressingStream(Request request,
+                                             OutputStream target,
+                                             int level) throws IOException {
+        EndpointStats stats = statsByEndpoint.computeIfAbsent(
+                toEndpointKey(request),
+                k -> new EndpointStats());
+
+        CountingOutputStream compressedCounter = new CountingOutputStream(target);
+        GZIPOutputStream gzip = new LevelledGZIPOutputStream(compressedCounter, level);
+
+        return new CountingOutputStream(gzip) {
+            private final long startedAt = System.nanoTime();
+            private long compressionNanos = 0;
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                long start = System.nanoTime();
+                super.write(b, off, len);
+                compressionNanos += System.nanoTime() - start;
+            }
+
+            @Override
+            public void close() throws IOException {
+                long start = System.nanoTime();
+                super.close();
+                compressionNanos += System.nanoTime() - start;
+                stats.record(getCount(), compressedCounter.getCount(), compressionNanos);
+                LOG.debug(
+                        "Compressed {} bytes to {} bytes for: {} in {}ms (total {}ms)",
+                        getCount(),
+                        compressedCounter.getCount(),
+                        request.pathInfo(),
+                        TimeUnit.NANOSECONDS.toMillis(compressionNanos),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+            }
+        };
+    }
+
+
+    private static void markAsGzipped(HttpServletResponse httpResponse) {
+        httpResponse.setHeader("Content-Encoding", GZIP);
+        httpResponse.addHeader("Vary", "Accept-Encoding");
+    }
+
+
+    private static String toEndpointKey(Request request) {
+        return request.requestMethod() + " " + request
+                .pathInfo()
+                .replaceAll("/\\d+", "/:id");
+    }
+
+
+    /**
+     * @param parts  a single `Accept-Encoding` entry split on `;`, the coding followed by its parameters
+     * @return the `q` parameter, 1 if absent, 0 if malformed
+     */
+    private static double parseQuality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String[] kv = parts[i].trim().split("=");
+            if (kv.length == 2 && kv[0].trim().equalsIgnoreCase("q")) {
+                try {
+                    return Double.parseDouble(kv[1].trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+
+    private static class EndpointStats {
+
+        private final LongAdder responseCount = new LongAdder();
+        private final LongAdder uncompressedBytes = new LongAdder();
+        private final LongAdder compressedBytes = new LongAdder();
+        private final LongAdder compressionNanos = new LongAdder();
+
+
+        private void record(long uncompressed, long compressed, long nanos) {
+            responseCount.increment();
+            uncompressedBytes.add(uncompressed);
+            compressedBytes.add(compressed);
+            compressionNanos.add(nanos);
+        }
+
+
+        @Override
+        public String toString() {
+            long count = responseCount.sum();
+            long in = uncompressedBytes.sum();
+            long out = compressedBytes.sum();
+            return format(
+                    "responses: %d, uncompressed: %d, compressed: %d, ratio: %.2f, avg time: %.2fms",
+                    count,
+                    in,
+                    out,
+                    out == 0 ? 0 : (double) in / out,
+                    count == 0 ? 0 : compressionNanos.sum() / 1_000_000d / count);
+        }
+    }
+
+
+    private static class LevelledGZIPOutputStream extends GZIPOutputStream {
+
+        private LevelledGZIPOutputStream(OutputStream out, int level) throws IOException {
+            super(out, BUFFER_SIZE);
+            def.setLevel(level);
+        }
+    }
+
+
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count = 0;
+
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+
+        long getCount() {
+            return count;
+        }
+    }
+
+}
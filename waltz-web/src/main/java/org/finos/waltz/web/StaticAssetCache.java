@@ -0,0 +1,542 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.web;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Enumeration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import static java.lang.String.format;
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.common.StringUtilities.isEmpty;
+import static org.finos.waltz.common.StringUtilities.lower;
+import static org.finos.waltz.web.WebUtilities.getMimeType;
+
+/**
+ * Holds the static (waltz-ng) assets in memory.
+ *
+ * The assets beneath the root folder are loaded when `preload` is called, typically
+ * at startup.  Text based assets are gzip compressed once, when loaded, and each
+ * representation is given a strong ETag (derived from a hash of its content) so
+ * clients can revalidate with `If-None-Match`.  The `index.html` served to clients
+ * has its `<base>` tag rewritten to include the site context, these variants are
+ * cached per context path.
+ *
+ * If the assets cannot be enumerated (e.g. an unsupported classpath url) they are
+ * loaded, and cached, on first request instead.
+ */
+@ManagedResource(description = "In-memory cache of the static web assets")
+public class StaticAssetCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StaticAssetCache.class);
+
+    private static final String INDEX_PATH = "index.html";
+    private static final int MAX_CONTEXT_VARIANTS = 16;
+
+    /** compressing anything else (images, woff fonts etc) gains little as they are already compressed */
+    private static final Set<String> COMPRESSIBLE_EXTENSIONS = asSet(
+            "html", "htm", "js", "mjs", "css", "json", "map", "svg", "txt", "xml", "csv", "ttf", "eot", "ico");
+
+    private final ClassLoader classLoader;
+    private final String root;
+
+    private final ConcurrentMap<String, StaticAsset> assetsByPath = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, StaticAsset> indexByContextPath = new ConcurrentHashMap<>();
+    private volatile boolean preloaded = false;
+
+    private final LongAdder servedCount = new LongAdder();
+    private final LongAdder notModifiedCount = new LongAdder();
+    private final LongAdder compressedServedCount = new LongAdder();
+
+
+    /**
+     * @param classLoader  used to locate the assets
+     * @param root  folder (on the classpath) holding the assets, e.g. `static`
+     */
+    public StaticAssetCache(ClassLoader classLoader, String root) {
+        checkNotNull(classLoader, "classLoader cannot be null");
+        checkNotNull(root, "root cannot be null");
+        this.classLoader = classLoader;
+        this.root = root;
+    }
+
+
+    /**
+     * Loads (and compresses) every asset beneath the root folder.
+     *
+     * @return number of assets loaded
+     */
+    public int preload() {
+        long start = System.currentTimeMillis();
+        URL rootUrl = classLoader.getResource(root + "/");
+
+        if (rootUrl == null) {
+            LOG.warn("Could not locate static assets folder: {}, assets will be loaded on demand", root);
+            return 0;
+        }
+
+        try {
+            switch (rootUrl.getProtocol()) {
+                case "file":
+                    preloadFromFolder(Paths.get(rootUrl.toURI()));
+                    break;
+                case "jar":
+                    preloadFromJar((JarURLConnection) rootUrl.openConnection());
+                    break;
+                default:
+                    LOG.warn("Cannot enumerate static assets from: {}, assets will be loaded on demand", rootUrl);
+                    return 0;
+            }
+        } catch (Exception e) {
+            LOG.warn("Failed to preload static assets from: {}, assets will be loaded on demand", rootUrl, e);
+            assetsByPath.clear();
+            return 0;
+        }
+
+        preloaded = true;
+
+        LOG.info(
+                "Loaded {} static assets ({} bytes, {} bytes compressed) in {}ms",
+                assetsByPath.size(),
+                getTotalBytes(),
+                getCompressedBytes(),
+                System.currentTimeMillis() - start);
+
+        return assetsByPath.size();
+    }
+
+
+    /**
+     * Resolves a request path to an asset.  Requests for folders resolve to the
+     * `index.html` within the folder, and unknown paths resolve to the root `index.html`
+     * (allowing the client side router to handle them).
+     *
+     * @param requestPath  path of the request, e.g. `/images/logo.png`
+     * @param contextPath  context path the site is deployed under, may be empty
+     * @return the asset to serve, empty if even the root `index.html` could not be found
+     */
+    public Optional<StaticAsset> resolve(String requestPath, String contextPath) {
+        String path = requestPath == null
+                ? ""
+                : requestPath.replaceFirst("^/+", "");
+
+        Optional<StaticAsset> asset = path.isEmpty()
+                ? Optional.empty()
+                : find(path);
+
+        if (!asset.isPresent() && !path.isEmpty()) {
+            // may be a folder
+            asset = find(path.replaceFirst("/*$", "/") + INDEX_PATH);
+        }
+
+        if (!asset.isPresent()) {
+            asset = find(INDEX_PATH);
+        }
+
+        return asset.map(a -> a.path().endsWith(INDEX_PATH) && !isEmpty(contextPath)
+                ? getIndexForContext(a, contextPath)
+                : a);
+    }
+
+
+    /**
+     * Records the outcome of serving an asset, for the jmx statistics.
+     */
+    public void recordServed(boolean notModified, boolean compressed) {
+        servedCount.increment();
+        if (notModified) {
+            notModifiedCount.increment();
+        }
+        if (compressed) {
+            compressedServedCount.increment();
+        }
+    }
+
+
+    @ManagedAttribute(description = "Number of assets held")
+    public int getAssetCount() {
+        return assetsByPath.size();
+    }
+
+
+    @ManagedAttribute(description = "True if all assets were loaded at startup")
+    public boolean isPreloaded() {
+        return preloaded;
+    }
+
+
+    @ManagedAttribute(description = "Total size of the assets held (uncompressed)")
+    public long getTotalBytes() {
+        return assetsByPath
+                .values()
+                .stream()
+                .mapToLong(a -> a.content().length)
+                .sum();
+    }
+
+
+    @ManagedAttribute(description = "Total size of the compressed variants held")
+    public long getCompressedBytes() {
+        return assetsByPath
+                .values()
+                .stream()
+                .mapToLong(a -> a.gzippedContent().map(c -> c.length).orElse(0))
+                .sum();
+    }
+
+
+    @ManagedAttribute(description = "Number of asset requests served")
+    public long getServedCount() {
+        return servedCount.sum();
+    }
+
+
+    @ManagedAttribute(description = "Number of asset requests answered with 304 (not modified)")
+    public long getNotModifiedCount() {
+        return notModifiedCount.sum();
+    }
+
+
+    @ManagedAttribute(description = "Number of asset requests served gzip compressed")
+    public long getCompressedServedCount() {
+        return compressedServedCount.sum();
+    }
+
+
+    @ManagedOperation(description = "Discard and reload all static assets")
+    public int reload() {
+        LOG.warn("Reloading static assets (via jmx)");
+        assetsByPath.clear();
+        indexByContextPath.clear();
+        preloaded = false;
+        return preload();
+    }
+
+
+    // --- helpers ---
+
+    private Optional<StaticAsset> find(String path) {
+        StaticAsset cached = assetsByPath.get(path);
+        if (cached != null || preloaded) {
+            // once preloaded, anything not held does not exist
+            return Optional.ofNullable(cached);
+        }
+
+        return loadOnDemand(path);
+    }
+
+
+    private Optional<StaticAsset> loadOnDemand(String path) {
+        URL url = classLoader.getResource(root + "/" + path);
+
+        if (url == null
+                || url.getPath().endsWith("/")
+                || ("file".equals(url.getProtocol()) && new File(url.getPath()).isDirectory())) {
+            return Optional.empty();
+        }
+
+        try (InputStream stream = url.openStream()) {
+            StaticAsset asset = mkAsset(path, readFully(stream));
+            assetsByPath.put(path, asset);
+            return Optional.of(asset);
+        } catch (IOException e) {
+            LOG.warn("Failed to load static asset: {}", path, e);
+            return Optional.empty();
+        }
+    }
+
+
+    private StaticAsset getIndexForContext(StaticAsset index, String contextPath) {
+        String key = index.path() + "@" + contextPath;
+        StaticAsset cached = indexByContextPath.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        if (indexByContextPath.size() >= MAX_CONTEXT_VARIANTS) {
+            indexByContextPath.clear();
+        }
+
+        StaticAsset rewritten = mkAsset(index.path(), modifyIndexBaseTag(index.content(), contextPath));
+        indexByContextPath.put(key, rewritten);
+        return rewritten;
+    }
+
+
+    private void preloadFromFolder(Path folder) throws IOException {
+        try (Stream<Path> files = Files.walk(folder)) {
+            files.filter(Files::isRegularFile)
+                    .forEach(file -> {
+                        String path = folder
+                                .relativize(file)
+                                .toString()
+                                .replace(File.separatorChar, '/');
+                        try {
+                            assetsByPath.put(path, mkAsset(path, Files.readAllBytes(file)));
+                        } catch (IOException e) {
+                            throw new IllegalStateException("Could not read static asset: " + file, e);
+                        }
+                    });
+        }
+    }
+
+
+    private void preloadFromJar(JarURLConnection connection) throws IOException {
+        // do not use the (shared) cached jar file, as we close it when done
+        connection.setUseCaches(false);
+        String prefix = connection.getEntryName();
+
+        try (JarFile jar = connection.getJarFile()) {
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                if (entry.isDirectory() || !entry.getName().startsWith(prefix)) {
+                    continue;
+                }
+                String path = entry.getName().substring(prefix.length());
+                try (InputStream stream = jar.getInputStream(entry)) {
+                    assetsByPath.put(path, mkAsset(path, readFully(stream)));
+                }
+            }
+        }
+    }
+
+
+    private static StaticAsset mkAsset(String path, byte[] content) {
+        byte[] gzipped = isCompressible(path)
+                ? gzip(content)
+                : null;
+
+        // only worth serving the compressed variant if it is appreciably smaller
+        boolean useGzip = gzipped != null && gzipped.length < content.length * 0.9;
+        String hash = hash(content);
+
+        return new StaticAsset(
+                path,
+                getMimeType(path),
+                content,
+                format("\"%s\"", hash),
+                useGzip ? gzipped : null,
+                useGzip ? format("\"%s-gz\"", hash) : null);
+    }
+
+
+    private static boolean isCompressible(String path) {
+        int dotIdx = path.lastIndexOf('.');
+        return dotIdx >= 0 && COMPRESSIBLE_EXTENSIONS.contains(lower(path.substring(dotIdx + 1)));
+    }
+
+
+    private static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 3 + 64);
+        try (GZIPOutputStream out = new BestCompressionGZIPOutputStream(bytes)) {
+            out.write(content);
+        } catch (IOException e) {
+            // cannot happen, we are writing to memory
+            throw new IllegalStateException("Failed to compress static asset", e);
+        }
+        return bytes.toByteArray();
+    }
+
+
+    private static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest
+                    .getInstance("SHA-256")
+                    .digest(content);
+            StringBuilder sb = new StringBuilder();
+            // 128 bits is plenty to distinguish versions of an asset
+            for (int i = 0; i < 16; i++) {
+                sb.append(format("%02x", digest[i]));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+
+    private static byte[] readFully(InputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+
+    /**
+     * index.html need to have a <base href="/[site_context]/" /> tag in the head section to ensure
+     * html5 mode works correctly in AngularJS.  This method will ensure the existing <base href="/" /> tag
+     * is replace with one that includes the correct site context as deployed.
+     */
+    static byte[] modifyIndexBaseTag(byte[] content, String contextPath) {
+        String[] lines = new String(content, StandardCharsets.UTF_8).split("\r?\n", -1);
+
+        for (int i = 0; i < lines.length; i++) {
+            String line = lower(lines[i]);
+
+            if (line.contains("<base href=")) {
+                LOG.info("Found <base> tag: " + line + ", adding context path: " + contextPath);
+                lines[i] = line.replaceFirst(
+                        "<base href=(['\"])/(['\"])\\s*/>",
+                        format(
+                            "\t<base href=\"%s/\" />",
+                            contextPath));
+                LOG.info("Updated <base> tag: " + lines[i]);
+
+                // done, exit loop
+                break;
+            }
+
+            if (line.contains("</head>")) {
+                // don't need to continue if have reached here and no base tag found
+                break;
+            }
+        }
+
+        return String
+                .join(System.lineSeparator(), lines)
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+
+    private static class BestCompressionGZIPOutputStream extends GZIPOutputStream {
+
+        private BestCompressionGZIPOutputStream(OutputStream out) throws IOException {
+            super(out);
+            // assets are only compressed once, so spend the cpu
+            def.setLevel(Deflater.BEST_COMPRESSION);
+        }
+    }
+
+
+    /**
+     * An asset, and its (optional) gzip compressed variant, each with their own ETag.
+     */
+    public static class StaticAsset {
+
+        private final String path;
+        private final String contentType;
+        private final byte[] content;
+        private final String etag;
+        private final byte[] gzippedContent;
+        private final String gzippedEtag;
+
+
+        private StaticAsset(String path,
+                            String contentType,
+                            byte[] content,
+                            String etag,
+                            byte[] gzippedContent,
+                            String gzippedEtag) {
+            this.path = path;
+            this.contentType = contentType;
+            this.content = content;
+            this.etag = etag;
+            this.gzippedContent = gzippedContent;
+            this.gzippedEtag = gzippedEtag;
+        }
+
+
+        public String path() {
+            return path;
+        }
+
+
+        public String contentType() {
+            return contentType;
+        }
+
+
+        public byte[] content() {
+            return content;
+        }
+
+
+        public String etag() {
+            return etag;
+        }
+
+
+        public Optional<byte[]> gzippedContent() {
+            return Optional.ofNullable(gzippedContent);
+        }
+
+
+        public Optional<String> gzippedEtag() {
+            return Optional.ofNullable(gzippedEtag);
+        }
+
+
+        /**
+         * Determines if an `If-None-Match` header matches either representation of this asset.
+         * Uses the weak comparison required for `If-None-Match`, so weak validators (e.g. as
+         * altered by a proxy which re-compresses responses) still match.
+         *
+         * @param ifNoneMatch  header value, may be null
+         * @return true if the client already holds the current version
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (isEmpty(ifNoneMatch)) {
+                return false;
+            }
+
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim().replaceFirst("^W/", "");
+                if (tag.equals("*") || tag.equals(etag) || tag.equals(gzippedEtag)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+}
@@ -170,6 +170,17 @@ public class PhysicalFlowEndpoint implements Endpoint {
                 BASE_URL,
                 "upload");
 
+        String submitUploadJobPath = WebUtilities.mkPath(
+                BASE_URL,
+                "upload",
+                "job");
+
+        String getUploadJobPath = WebUtilities.mkPath(
+                BASE_URL,
+                "upload",
+                "job",
+                ":jobId");
+
         String cleanupOrphansPath = WebUtilities.mkPath(BASE_URL, "cleanup-orphans");
 
 
@@ -224,6 +235,8 @@ public class PhysicalFlowEndpoint implements Endpoint {
         EndpointUtilities.postForDatum(updateAttributePath, this::updateAttribute);
         EndpointUtilities.postForDatum(validateUploadPath, this::validateUpload);
         EndpointUtilities.postForDatum(uploadPath, this::upload);
+        EndpointUtilities.postForDatum(submitUploadJobPath, this::submitUploadJob);
+        EndpointUtilities.getForDatum(getUploadJobPath, this::getUploadJob);
 
         EndpointUtilities.deleteForDatum(deletePath, this::deleteFlow);
         EndpointUtilities.getForDatum(cleanupOrphansPath, this::cleanupOrphansRoute);
@@ -315,6 +328,21 @@ public class PhysicalFlowEndpoint implements Endpoint {
     }
 
 
+    private PhysicalFlowUploadJob submitUploadJob(Request request, Response response) throws IOException {
+        WebUtilities.requireRole(userRoleService, request, SystemRole.BULK_FLOW_EDITOR);
+        List<PhysicalFlowUploadCommand> commands = Arrays.asList(WebUtilities.readBody(request, PhysicalFlowUploadCommand[].class));
+        String username = WebUtilities.getUsername(request);
+
+        return physicalFlowUploadService.submitUpload(username, commands);
+    }
+
+
+    private PhysicalFlowUploadJob getUploadJob(Request request, Response response) {
+        WebUtilities.requireRole(userRoleService, request, SystemRole.BULK_FLOW_EDITOR);
+        return physicalFlowUploadService.getJob(WebUtilities.getUsername(request), request.params("jobId"));
+    }
+
+
     private Integer cleanupOrphansRoute(Request request, Response response) throws IOException {
         WebUtilities.requireRole(userRoleService, request, SystemRole.ADMIN);
 
@@ -0,0 +1,101 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.web.endpoints.api;
+
+import org.finos.waltz.model.scheduled_job.JobKey;
+import org.finos.waltz.model.scheduled_job.ScheduledJobRun;
+import org.finos.waltz.model.user.SystemRole;
+import org.finos.waltz.service.scheduled_job.ScheduledJobService;
+import org.finos.waltz.service.user.UserRoleService;
+import org.finos.waltz.web.DatumRoute;
+import org.finos.waltz.web.ListRoute;
+import org.finos.waltz.web.endpoints.Endpoint;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import spark.Request;
+
+import java.util.Optional;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.web.WebUtilities.getLimit;
+import static org.finos.waltz.web.WebUtilities.mkPath;
+import static org.finos.waltz.web.WebUtilities.readEnum;
+import static org.finos.waltz.web.WebUtilities.requireRole;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.getForList;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.postForDatum;
+
+@Service
+public class ScheduledJobEndpoint implements Endpoint {
+
+    private static final String BASE_URL = mkPath("api", "scheduled-job");
+    private static final int DEFAULT_RUN_LIMIT = 100;
+
+    private final ScheduledJobService scheduledJobService;
+    private final UserRoleService userRoleService;
+
+
+    @Autowired
+    public ScheduledJobEndpoint(ScheduledJobService scheduledJobService,
+                                UserRoleService userRoleService) {
+        checkNotNull(scheduledJobService, "scheduledJobService cannot be null");
+        checkNotNull(userRoleService, "userRoleService cannot be null");
+
+        this.scheduledJobService = scheduledJobService;
+        this.userRoleService = userRoleService;
+    }
+
+
+    @Override
+    public void register() {
+        String findRecentRunsPath = mkPath(BASE_URL, "run");
+        String findRecentRunsForJobPath = mkPath(BASE_URL, "run", ":jobKey");
+        String markRunnablePath = mkPath(BASE_URL, "runnable", ":jobKey");
+
+        ListRoute<ScheduledJobRun> findRecentRunsRoute = (request, response) -> scheduledJobService
+                .findRecentRuns(
+                        Optional.empty(),
+                        getLimit(request).orElse(DEFAULT_RUN_LIMIT));
+
+        ListRoute<ScheduledJobRun> findRecentRunsForJobRoute = (request, response) -> scheduledJobService
+                .findRecentRuns(
+                        Optional.of(readJobKey(request)),
+                        getLimit(request).orElse(DEFAULT_RUN_LIMIT));
+
+        DatumRoute<Boolean> markRunnableRoute = (request, response) -> {
+            requireRole(userRoleService, request, SystemRole.ADMIN);
+            return scheduledJobService.markJobAsRunnable(readJobKey(request));
+        };
+
+        getForList(findRecentRunsPath, findRecentRunsRoute);
+        getForList(findRecentRunsForJobPath, findRecentRunsForJobRoute);
+        postForDatum(markRunnablePath, markRunnableRoute);
+    }
+
+
+    private static JobKey readJobKey(Request request) {
+        return readEnum(
+                request,
+                "jobKey",
+                JobKey.class,
+                s -> {
+                    throw new IllegalArgumentException("Unknown job key: " + s);
+                });
+    }
+
+}
@@ -18,173 +18,119 @@
 
 package org.finos.waltz.web.endpoints.api;
 
+import org.finos.waltz.web.StaticAssetCache;
+import org.finos.waltz.web.StaticAssetCache.StaticAsset;
 import org.finos.waltz.web.endpoints.Endpoint;
 import org.eclipse.jetty.http.HttpHeader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import spark.Request;
-import spark.Response;
 import spark.Spark;
 
-import java.io.*;
-import java.net.URL;
-import java.util.List;
+import javax.servlet.http.HttpServletResponse;
+import java.io.OutputStream;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
-import static org.finos.waltz.web.WebUtilities.getMimeType;
-import static java.lang.String.format;
-import static org.finos.waltz.common.IOUtilities.copyStream;
-import static org.finos.waltz.common.IOUtilities.readLines;
-import static org.finos.waltz.common.StringUtilities.lower;
-import static org.finos.waltz.common.StringUtilities.notEmpty;
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.web.ResponseCompressor.acceptsGzip;
 
+/**
+ * Serves the static (waltz-ng) assets from the `StaticAssetCache`.
+ *
+ * Assets are written straight from memory, gzip compressed if the client accepts it,
+ * along with an ETag.  Requests with a matching `If-None-Match` header receive a 304
+ * (not modified) response without a body.
+ */
 public class StaticResourcesEndpoint implements Endpoint {
 
     private static final Logger LOG = LoggerFactory.getLogger(StaticResourcesEndpoint.class);
     private static final String CACHE_MAX_AGE_VALUE = "max-age=" + TimeUnit.DAYS.toSeconds(30);
+    private static final String CACHE_REVALIDATE_VALUE = "no-cache";
 
+    private final StaticAssetCache assetCache;
 
-    private final ClassLoader classLoader = StaticResourcesEndpoint.class
-            .getClassLoader();
+
+    public StaticResourcesEndpoint(StaticAssetCache assetCache) {
+        checkNotNull(assetCache, "assetCache cannot be null");
+        this.assetCache = assetCache;
+    }
 
 
     @Override
     public void register() {
         LOG.debug("Registering static resources");
 
-        Spark.get("/*", (request, response) -> {
+        assetCache.preload();
 
-            String resolvedPath = resolvePath(request);
+        Spark.get("/*", (request, response) -> {
+            Optional<StaticAsset> resolved = assetCache.resolve(
+                    request.pathInfo(),
+                    request.contextPath());
 
-            if (resolvedPath == null) {
+            if (!resolved.isPresent()) {
                 return null;
             }
 
-            try (
-                InputStream resourceAsStream = classLoader.getResourceAsStream(resolvedPath)
-            ) {
-                if (resourceAsStream == null) {
-                    return null;
-                } else {
-                    String message = format(
-                            "Serving %s in response to request for %s",
-                            resolvedPath,
-                            request.pathInfo());
-                    LOG.info(message);
-
-                    response.type(getMimeType(resolvedPath));
-
-                    addCacheHeadersIfNeeded(response, resolvedPath);
-                    InputStream modifiedStream = modifyIndexBaseTagIfNeeded(request, resolvedPath, resourceAsStream);
-
-                    OutputStream out = response
-                            .raw()
-                            .getOutputStream();
-                    copyStream(modifiedStream, out);
-                    out.flush();
-
-                    return new Object(); // indicate we have handled the request
-                }
-            } catch (Exception e) {
-                LOG.warn("Encountered error when attempting to serve: "+resolvedPath, e);
-                return null;
-            }
-        });
-    }
-
+            StaticAsset asset = resolved.get();
 
-    /**
-     * We want to add a cache-control: max-age value to all resources except html.
-     * This is because the html resources have references to 'cache-busted' js files
-     * and other resources.  If the html was also cached then it would be difficult
-     * to detect client code updates.
-     *
-     * @param response - the http response we are servicing
-     * @param resolvedPath - the resolved path to the resource we are serving
-     */
-    private void addCacheHeadersIfNeeded(Response response, String resolvedPath) {
-        if (! resolvedPath.endsWith(".html")) {
-            response.header(HttpHeader.CACHE_CONTROL.toString(), CACHE_MAX_AGE_VALUE);
-        }
-    }
+            try {
+                boolean useGzip = asset.gzippedContent().isPresent()
+                        && acceptsGzip(request.headers("Accept-Encoding"));
 
+                HttpServletResponse httpResponse = response.raw();
+                httpResponse.setContentType(asset.contentType());
+                httpResponse.setHeader(HttpHeader.CACHE_CONTROL.toString(), determineCacheControl(asset));
+                httpResponse.setHeader(
+                        HttpHeader.ETAG.toString(),
+                        useGzip ? asset.gzippedEtag().get() : asset.etag());
 
-    /**
-     * index.html need to have a <base href="/[site_context]/" /> tag in the head section to ensure
-     * html5 mode works correctly in AngularJS.  This method will ensure the existing <base href="/" /> tag
-     * is replace with one that includes the correct site context as deployed.
-     * @param request
-     * @param resolvedPath
-     * @param resourceStream
-     * @return the modified input stream with the amended <base> tag or the original unmodified resourceStream
-     * @throws IOException
-     */
-    private InputStream modifyIndexBaseTagIfNeeded(Request request,
-                                                   String resolvedPath,
-                                                   InputStream resourceStream) throws IOException {
-        if(resolvedPath.endsWith("index.html") && notEmpty(request.contextPath())) {
-            List<String> lines = readLines(resourceStream);
-
-            for(int i = 0; i < lines.size(); i++) {
-                String line = lower(lines.get(i));
-
-                if (line.contains("<base href=")) {
-                    LOG.info("Found <base> tag: " + line + ", adding context path: " + request.contextPath());
-                    line = line.replaceFirst(
-                            "<base href=(['\"])/(['\"])\\s*/>",
-                            format(
-                                "\t<base href=\"%s/\" />",
-                                request.contextPath()));
-                    LOG.info("Updated <base> tag: " + line);
-                    lines.set(i, line);
-
-                    // done, exit loop
-                    break;
+                if (asset.gzippedContent().isPresent()) {
+                    httpResponse.addHeader(HttpHeader.VARY.toString(), "Accept-Encoding");
                 }
 
-                if (line.contains("</head>") ) {
-                    // don't need to continue if have reached here and no base tag found
-                    break;
+                if (asset.matches(request.headers(HttpHeader.IF_NONE_MATCH.toString()))) {
+                    assetCache.recordServed(true, false);
+                    response.status(HttpServletResponse.SC_NOT_MODIFIED);
+                    return "";
                 }
-            }
 
-            // copy amended file into a stream
-            try(ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-                 OutputStreamWriter writer = new OutputStreamWriter(outputStream)) {
+                byte[] content = useGzip
+                        ? asset.gzippedContent().get()
+                        : asset.content();
 
-                for(String line : lines) {
-                    writer.write(line);
-                    writer.write(System.lineSeparator());
+                if (useGzip) {
+                    httpResponse.setHeader(HttpHeader.CONTENT_ENCODING.toString(), "gzip");
                 }
+                httpResponse.setContentLength(content.length);
 
-                writer.flush();
-                return new ByteArrayInputStream(outputStream.toByteArray());
-            }
-        }
-        return resourceStream;
-    }
-
-
-    private String resolvePath(Request request) {
-        final String indexPath = "static/index.html";
-        String path = request.pathInfo().replaceFirst("/", "");
-        String resourcePath = path.length() > 0 ? ("static/" + path) : indexPath;
+                OutputStream out = httpResponse.getOutputStream();
+                out.write(content);
+                out.flush();
 
-        URL resource = classLoader.getResource(resourcePath);
+                assetCache.recordServed(false, useGzip);
+                LOG.debug("Served {} in response to request for {}", asset.path(), request.pathInfo());
 
-        if (resource == null) {
-            // 404: return index.html
-            resource = classLoader.getResource(indexPath);
-            resourcePath = indexPath;
-        }
+                return new Object(); // indicate we have handled the request
+            } catch (Exception e) {
+                LOG.warn("Encountered error when attempting to serve: " + asset.path(), e);
+                return null;
+            }
+        });
+    }
 
-        boolean isDirectory = resource
-                .getPath()
-                .endsWith("/");
 
-        return isDirectory
-                ? resourcePath + "/index.html"
-                : resourcePath;
+    /**
+     * We want to add a cache-control: max-age value to all resources except html.
+     * This is because the html resources have references to 'cache-busted' js files
+     * and other resources.  If the html was also cached then it would be difficult
+     * to detect client code updates, instead clients must revalidate html using the ETag.
+     *
+     * @param asset - the asset we are serving
+     */
+    private static String determineCacheControl(StaticAsset asset) {
+        return asset.path().endsWith(".html")
+                ? CACHE_REVALIDATE_VALUE
+                : CACHE_MAX_AGE_VALUE;
     }
 
 }
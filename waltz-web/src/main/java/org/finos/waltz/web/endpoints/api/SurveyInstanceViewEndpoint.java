@@ -29,6 +29,8 @@ import org.finos.waltz.web.endpoints.Endpoint;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
+
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.web.WebUtilities.*;
 import static org.finos.waltz.web.endpoints.EndpointUtilities.getForDatum;
@@ -54,9 +56,11 @@ public class SurveyInstanceViewEndpoint implements Endpoint {
         String findForUserPath = mkPath(BASE_URL, "user");
         String getInfoByIdPath = mkPath(BASE_URL, "id", ":id");
         String getFormDetailsByIdPath = mkPath(BASE_URL, "form-details", ":id");
+        String findFormDetailsForSurveyRunPath = mkPath(BASE_URL, "form-details", "run", ":id");
 
         DatumRoute<SurveyInstanceInfo> getInfoByIdRoute = (req, resp) -> surveyInstanceViewService.getInfoById(getId(req));
         DatumRoute<SurveyInstanceFormDetails> getFormDetailsByIdRoute = (req, resp) -> surveyInstanceViewService.getFormDetailsById(getId(req));
+        DatumRoute<Map<Long, SurveyInstanceFormDetails>> findFormDetailsForSurveyRunRoute = (req, resp) -> surveyInstanceViewService.findFormDetailsForSurveyRun(getId(req));
 
         ListRoute<SurveyInstanceUserInvolvement> findForUserRoute =
                 (req, res) -> surveyInstanceViewService.findForUser(getUsername(req));
@@ -64,6 +68,7 @@ public class SurveyInstanceViewEndpoint implements Endpoint {
         getForList(findForUserPath, findForUserRoute);
         getForDatum(getInfoByIdPath, getInfoByIdRoute);
         getForDatum(getFormDetailsByIdPath, getFormDetailsByIdRoute);
+        getForDatum(findFormDetailsForSurveyRunPath, findFormDetailsForSurveyRunRoute);
     }
 
 }
@@ -25,17 +25,25 @@ import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.xssf.streaming.SXSSFSheet;
 import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.eclipse.jetty.http.MimeTypes;
+import org.finos.waltz.web.ResponseCompressor;
+import org.jooq.Cursor;
 import org.jooq.DSLContext;
 import org.jooq.JSONFormat;
-import org.jooq.Result;
+import org.jooq.Record;
+import org.jooq.ResultQuery;
 import org.jooq.Select;
+import org.jooq.impl.DSL;
 import org.jooq.lambda.Unchecked;
 import org.jooq.lambda.tuple.Tuple2;
 import spark.Request;
 import spark.Response;
 
 import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -43,8 +51,22 @@ import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.FunctionUtilities.time;
 
 
+/**
+ * Writes the results of a query to the response in the requested format.
+ *
+ * Rows are read from a lazy cursor in batches of `FETCH_SIZE` and written
+ * directly to the servlet output stream as they arrive, so the full result
+ * set is never held in memory.  As no content length is known up front the
+ * response is sent using chunked transfer encoding.
+ */
 public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
 
+    /**
+     * Number of rows requested from the database per round trip, and the
+     * number of rows formatted before being flushed to the response.
+     */
+    private static final int FETCH_SIZE = 1000;
+
 
     protected DSLContext dsl;
 
@@ -64,40 +86,74 @@ public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
             throw new IllegalArgumentException(String.format("Client specified format=%s. This endpoint does not support JSON."+
                     "This is to prevent unintentional usage as a public API",extractFormat));
         }
-        return writeSupportedExtract(extractFormat, suggestedFilenameStem, qry, response);
+        return writeSupportedExtract(extractFormat, suggestedFilenameStem, qry, request, response);
 
     }
 
     private Object writeSupportedExtract(ExtractFormat extractFormat,
                                          String suggestedFilenameStem,
                                          Select<?> qry,
+                                         Request request,
                                          Response response) throws IOException{
         switch (extractFormat) {
             case XLSX:
-                return writeAsExcel(suggestedFilenameStem, qry, response);
+                return writeAsExcel(dsl, suggestedFilenameStem, qry, response);
             case CSV:
-                return writeAsCSV(suggestedFilenameStem, qry, response);
+                return writeAsCSV(suggestedFilenameStem, qry, request, response);
             case JSON:
-                return writeAsJson(qry, response);
+                return writeAsJson(qry, request, response);
             default:
                 throw new IllegalArgumentException("Cannot write extract using unknown format: " + extractFormat);
         }
     }
 
-    private String writeAsJson(Select<?> qry,
-                               Response response) {
+
+    private Object writeAsJson(Select<?> qry,
+                               Request request,
+                               Response response) throws IOException {
         response.type(MimeTypes.Type.APPLICATION_JSON_UTF_8.name());
-        return query(dsl, qry)
-                .formatJSON(new JSONFormat()
-                        .header(false)
-                        .recordFormat(JSONFormat.RecordFormat.OBJECT));
+
+        JSONFormat format = new JSONFormat()
+                .header(false)
+                .recordFormat(JSONFormat.RecordFormat.OBJECT);
+
+        return writeToResponse(request, response, writer -> streamQuery(dsl, qry, cursor -> {
+            // each batch is formatted as an array, we strip the brackets and stitch the batches into one array
+            boolean first = true;
+            writer.write("[");
+            while (cursor.hasNext()) {
+                String batch = cursor.fetchNext(FETCH_SIZE).formatJSON(format);
+                String rows = batch.substring(batch.indexOf('[') + 1, batch.lastIndexOf(']')).trim();
+                if (!rows.isEmpty()) {
+                    if (!first) {
+                        writer.write(",");
+                    }
+                    writer.write(rows);
+                    writer.flush();
+                    first = false;
+                }
+            }
+            writer.write("]");
+        }));
     }
 
 
-    private Result<?> query(DSLContext dslContext, Select<?> qry){
-        return dslContext == null
-                ? qry.fetch()
-                : time("fetch", () -> dslContext.fetch(dslContext.renderInlined(qry)));
+    private Object writeAsCSV(String suggestedFilenameStem,
+                              Select<?> qry,
+                              Request request,
+                              Response response) throws IOException {
+        response.type(MimeTypes.Type.TEXT_PLAIN.name());
+        response.header("Content-disposition", "attachment; filename=" + suggestedFilenameStem + ".csv");
+
+        return writeToResponse(request, response, writer -> streamQuery(dsl, qry, cursor -> {
+            // always format the first batch, even if empty, so the header row is written
+            boolean first = true;
+            do {
+                cursor.fetchNext(FETCH_SIZE).formatCSV(writer, first);
+                writer.flush();
+                first = false;
+            } while (cursor.hasNext());
+        }));
     }
 
 
@@ -130,14 +186,15 @@ public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
     }
 
 
-    private static Object writeAsExcel(String suggestedFilenameStem,
+    private static Object writeAsExcel(DSLContext dsl,
+                                       String suggestedFilenameStem,
                                        Select<?> qry,
                                        Response response) throws IOException {
         SXSSFWorkbook workbook = new SXSSFWorkbook(2000);
         SXSSFSheet sheet = workbook.createSheet(ExtractorUtilities.sanitizeSheetName(suggestedFilenameStem));
 
         writeExcelHeader(qry, sheet);
-        writeExcelBody(qry, sheet, null);
+        writeExcelBody(qry, sheet, dsl);
 
         int endFilterColumnIndex = qry.fields().length == 0
                 ? 0
@@ -153,44 +210,35 @@ public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
     private static HttpServletResponse writeExcelToResponse(String suggestedFilenameStem,
                                                             Response response,
                                                             SXSSFWorkbook workbook) throws IOException {
-        byte[] bytes = ExtractorUtilities.convertExcelToByteArray(workbook);
-
         HttpServletResponse httpResponse = response.raw();
 
         httpResponse.setHeader("Content-Type", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
         httpResponse.setHeader("Content-Disposition", "attachment; filename=" + suggestedFilenameStem + ".xlsx");
         httpResponse.setHeader("Content-Transfer-Encoding", "7bit");
 
-        httpResponse.setContentLength(bytes.length);
-        httpResponse.getOutputStream().write(bytes);
-        httpResponse.getOutputStream().flush();
-        httpResponse.getOutputStream().close();
+        try {
+            // written straight to the response rather than via an intermediate byte array
+            workbook.write(httpResponse.getOutputStream());
+            httpResponse.getOutputStream().flush();
+            httpResponse.getOutputStream().close();
+        } finally {
+            // removes the temporary files backing the streamed sheets
+            workbook.dispose();
+            workbook.close();
+        }
 
         return httpResponse;
     }
 
 
-    private Object writeAsCSV(String suggestedFilenameStem,
-                              Select<?> qry,
-                              Response response) {
-        String csv = qry.fetch().formatCSV();
-        response.type(MimeTypes.Type.TEXT_PLAIN.name());
-        response.header("Content-disposition", "attachment; filename=" + suggestedFilenameStem + ".csv");
-        return csv;
-    }
-
-
     private static void writeExcelBody(Select<?> qry,
                                        SXSSFSheet sheet,
                                        DSLContext dsl) {
         AtomicInteger rowCounter = new AtomicInteger(1);
-        Result<?> records = dsl == null
-                ? qry.fetch()
-                : time("fetch", () -> dsl.fetch(dsl.renderInlined(qry)));
+        int colCount = qry.fields().length;
 
-        time("record chomper", () -> {
-            int colCount = qry.fields().length;
-            records.forEach(r -> {
+        time("record chomper", Unchecked.runnable(() -> streamQuery(dsl, qry, cursor -> {
+            for (Record r : cursor) {
                 int rowNum = rowCounter.getAndIncrement();
                 Row row = sheet.createRow(rowNum);
                 for (int col = 0; col < colCount; col++) {
@@ -200,8 +248,8 @@ public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
                         cell.setCellValue(val.toString());
                     }
                 }
-            });
-        });
+            }
+        })));
     }
 
 
@@ -214,4 +262,60 @@ public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
         });
     }
 
+
+    // --- helpers ---
+
+    /**
+     * Executes the query as a lazy cursor, passing it to the consumer before closing it.
+     *
+     * When a dsl is given the query is inlined (avoiding bind parameter limits on very
+     * large selectors) and run within a transaction.  Some drivers (notably Postgres)
+     * ignore the fetch size, and read the entire result set, unless auto-commit is off.
+     */
+    private static void streamQuery(DSLContext dsl,
+                                    Select<?> qry,
+                                    CursorConsumer consumer) throws IOException {
+        if (dsl == null) {
+            try (Cursor<? extends Record> cursor = qry.fetchSize(FETCH_SIZE).fetchLazy()) {
+                consumer.accept(cursor);
+            }
+        } else {
+            dsl.transaction(ctx -> {
+                DSLContext tx = DSL.using(ctx);
+                ResultQuery<Record> inlinedQry = tx.resultQuery(tx.renderInlined(qry));
+                try (Cursor<Record> cursor = inlinedQry.fetchSize(FETCH_SIZE).fetchLazy()) {
+                    consumer.accept(cursor);
+                }
+            });
+        }
+    }
+
+
+    private static HttpServletResponse writeToResponse(Request request,
+                                                       Response response,
+                                                       WriterConsumer consumer) throws IOException {
+        HttpServletResponse httpResponse = response.raw();
+
+        // the stream is gzipped if the client supports it, as these responses bypass the compression filter
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                ResponseCompressor.openOutputStream(request, response),
+                StandardCharsets.UTF_8))) {
+            consumer.accept(writer);
+        }
+
+        return httpResponse;
+    }
+
+
+    @FunctionalInterface
+    private interface CursorConsumer {
+        void accept(Cursor<? extends Record> cursor) throws IOException;
+    }
+
+
+    @FunctionalInterface
+    private interface WriterConsumer {
+        void accept(Writer writer) throws IOException;
+    }
+
 }
@@ -0,0 +1,73 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.web;
+
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResponseCompressor_acceptsGzipTest {
+
+    @Test
+    public void missingHeaderDoesNotAcceptGzip() {
+        assertFalse(ResponseCompressor.acceptsGzip(null));
+        assertFalse(ResponseCompressor.acceptsGzip(""));
+    }
+
+    @Test
+    public void gzipIsAccepted() {
+        assertTrue(ResponseCompressor.acceptsGzip("gzip"));
+        assertTrue(ResponseCompressor.acceptsGzip("gzip, deflate, br"));
+        assertTrue(ResponseCompressor.acceptsGzip("deflate, GZIP;q=0.5"));
+    }
+
+    @Test
+    public void wildcardIsAccepted() {
+        assertTrue(ResponseCompressor.acceptsGzip("*"));
+    }
+
+    @Test
+    public void otherEncodingsAreNotAccepted() {
+        assertFalse(ResponseCompressor.acceptsGzip("deflate, br"));
+        assertFalse(ResponseCompressor.acceptsGzip("identity"));
+    }
+
+    @Test
+    public void zeroQualityRejectsGzip() {
+        assertFalse(ResponseCompressor.acceptsGzip("gzip;q=0"));
+        assertFalse(ResponseCompressor.acceptsGzip("br, gzip; q=0.0"));
+    }
+
+    @Test
+    public void explicitGzipQualityTakesPrecedenceOverWildcard() {
+        assertFalse(ResponseCompressor.acceptsGzip("*, gzip;q=0"));
+        assertFalse(ResponseCompressor.acceptsGzip("gzip;q=0, *"));
+        assertTrue(ResponseCompressor.acceptsGzip("*;q=0, gzip"));
+        assertFalse(ResponseCompressor.acceptsGzip("deflate, *;q=0"));
+    }
+
+    @Test
+    public void identityOnlyDoesNotAcceptGzip() {
+        assertFalse(ResponseCompressor.acceptsGzip("identity;q=1"));
+        assertFalse(ResponseCompressor.acceptsGzip("identity, *;q=0"));
+    }
+
+}
@@ -0,0 +1,140 @@
+package org.finos.waltz.web;
+
+import org.finos.waltz.web.StaticAssetCache.StaticAsset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.finos.waltz.common.IOUtilities.copyStream;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StaticAssetCacheTest {
+
+    private static final String INDEX = "<html>\n<head>\n<base href=\"/\" />\n</head>\n<body></body>\n</html>";
+    private static final String SCRIPT = repeat("function waltz() { return 42; }\n", 200);
+
+    private StaticAssetCache cache;
+
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Path root = Files.createTempDirectory("waltz-static-assets");
+        Path assets = Files.createDirectories(root.resolve("static"));
+        Files.write(assets.resolve("index.html"), INDEX.getBytes(StandardCharsets.UTF_8));
+        Files.write(assets.resolve("app.js"), SCRIPT.getBytes(StandardCharsets.UTF_8));
+        Files.write(assets.resolve("logo.png"), new byte[]{1, 2, 3, 4});
+        Files.createDirectories(assets.resolve("docs"));
+        Files.write(assets.resolve("docs").resolve("index.html"), "docs".getBytes(StandardCharsets.UTF_8));
+
+        ClassLoader classLoader = new URLClassLoader(new URL[]{root.toUri().toURL()}, null);
+        cache = new StaticAssetCache(classLoader, "static");
+    }
+
+
+    @Test
+    public void allAssetsArePreloaded() {
+        assertEquals(4, cache.preload());
+        assertTrue(cache.isPreloaded());
+    }
+
+
+    @Test
+    public void pathsAreResolvedToAssets() {
+        cache.preload();
+
+        assertEquals("app.js", resolve("/app.js").path());
+        assertEquals("index.html", resolve("/").path());
+        assertEquals("docs/index.html", resolve("/docs").path(), "folders resolve to their index");
+        assertEquals("index.html", resolve("/entity/APPLICATION/12").path(), "unknown paths resolve to the root index");
+    }
+
+
+    @Test
+    public void assetsAreResolvedOnDemandIfNotPreloaded() {
+        assertEquals("app.js", resolve("/app.js").path());
+        assertEquals("docs/index.html", resolve("/docs/").path());
+        assertEquals("index.html", resolve("/missing.js").path());
+        assertFalse(cache.isPreloaded());
+    }
+
+
+    @Test
+    public void textAssetsHaveACompressedVariant() throws IOException {
+        cache.preload();
+
+        StaticAsset script = resolve("/app.js");
+        byte[] gzipped = script.gzippedContent().get();
+
+        assertTrue(gzipped.length < script.content().length);
+        assertEquals(SCRIPT, gunzip(gzipped));
+        assertNotEquals(script.etag(), script.gzippedEtag().get(), "each representation needs its own etag");
+
+        assertFalse(resolve("/logo.png").gzippedContent().isPresent(), "images are not compressed");
+    }
+
+
+    @Test
+    public void etagsAreMatchedAgainstEitherRepresentation() {
+        cache.preload();
+
+        StaticAsset script = resolve("/app.js");
+
+        assertTrue(script.matches(script.etag()));
+        assertTrue(script.matches("\"other\", " + script.gzippedEtag().get()));
+        assertTrue(script.matches("W/" + script.etag()), "If-None-Match uses weak comparison");
+        assertTrue(script.matches("*"));
+        assertFalse(script.matches("\"other\""));
+        assertFalse(script.matches(null));
+    }
+
+
+    @Test
+    public void indexIsRewrittenPerContext() {
+        cache.preload();
+
+        StaticAsset plain = resolve("/");
+        StaticAsset withContext = cache.resolve("/", "/waltz").get();
+
+        assertArrayEquals(INDEX.getBytes(StandardCharsets.UTF_8), plain.content());
+        assertTrue(new String(withContext.content(), StandardCharsets.UTF_8).contains("<base href=\"/waltz/\" />"));
+        assertNotEquals(plain.etag(), withContext.etag());
+        assertTrue(withContext == cache.resolve("/", "/waltz").get(), "rewritten index should be cached");
+    }
+
+
+    private StaticAsset resolve(String path) {
+        return cache.resolve(path, "").get();
+    }
+
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            copyStream(in, out);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+
+    private static String repeat(String str, int times) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            sb.append(str);
+        }
+        return sb.toString();
+    }
+
+}